@@ -28,6 +28,8 @@ import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 import pl.twoja.apka.api.ApiClient
+import pl.twoja.apka.api.PolylineDecoder
+import pl.twoja.apka.api.TelemetryColumns
 import pl.twoja.apka.ui.FlightMoreInfoActivity
 import java.util.Locale
 import kotlin.math.roundToInt
@@ -176,47 +178,36 @@ class FlightDetailActivity : ComponentActivity() {
         }
     }
 
+    // Trasa jako encoded polyline (serwer trzyma ją w cache) - punkty są już w kolejności
     private suspend fun loadPlannedPoints(flightId: Int, idTrasy: Int?): List<LatLng> {
         try {
-            val list: List<Map<String, Any?>> = withContext(Dispatchers.IO) {
-                ApiClient.api.getFlightRoutePoints(flightId)
+            val pts = withContext(Dispatchers.IO) {
+                PolylineDecoder.decode(ApiClient.api.getFlightRoutePolyline(flightId))
             }
-            val pts = parsePlannedPoints(list)
             if (pts.size >= 2) return pts
         } catch (_: Exception) {}
         if (idTrasy != null && idTrasy > 0) {
             try {
-                val list: List<Map<String, Any?>> = withContext(Dispatchers.IO) {
-                    ApiClient.api.getRoutePoints(idTrasy)
+                val pts = withContext(Dispatchers.IO) {
+                    PolylineDecoder.decode(ApiClient.api.getRoutePolyline(idTrasy))
                 }
-                val pts = parsePlannedPoints(list)
                 if (pts.size >= 2) return pts
             } catch (_: Exception) {}
         }
         return emptyList()
     }
 
-    private fun parsePlannedPoints(list: List<Map<String, Any?>>): List<LatLng> {
-        return list
-            .mapNotNull { p ->
-                val order = p.intOf("kolejnosc")
-                val lat = p.doubleOf("lat")
-                val lon = p.doubleOf("lon") ?: p.doubleOf("lng")
-                if (order != null && lat != null && lon != null) Triple(order, lat, lon) else null
-            }
-            .sortedBy { it.first }
-            .map { LatLng(it.second, it.third) }
-    }
-
     private suspend fun loadTelemetryPoints(flightId: Int): List<TelemetryPoint> {
-        val list: List<Map<String, Any?>> = withContext(Dispatchers.IO) {
-            ApiClient.api.getFlightTelemetry(flightId)
+        val cols = withContext(Dispatchers.IO) {
+            // Ślad upraszczany po stronie serwera - długie loty nie zamrażają mapy
+            TelemetryColumns.read(
+                ApiClient.api.getFlightTelemetryColumnar(flightId, toleranceM = 2.0, maxPoints = 2000)
+            )
         }
-        return list.mapNotNull { m ->
-            val lat = m.doubleOf("lat")
-            val lon = m.doubleOf("lon")
-            val alt = m.doubleOf("wysokosc_m") ?: m.doubleOf("alt")
-            if (lat != null && lon != null) TelemetryPoint(lat, lon, alt) else null
+        return (0 until cols.size).mapNotNull { i ->
+            val alt = cols.wysokoscM[i]
+            if (cols.lat[i].isNaN() || cols.lon[i].isNaN()) null
+            else TelemetryPoint(cols.lat[i], cols.lon[i], if (alt.isNaN()) null else alt)
         }
     }
 
@@ -22,7 +22,15 @@ import java.util.Locale
 
 class FlightsActivity : ComponentActivity() {
 
+    private companion object {
+        private const val PAGE_SIZE = 50
+        private const val PREFETCH_ITEMS = 10
+    }
+
     private val scope = MainScope()
+    private var nextCursor: String? = null
+    private var loading = false
+    private var endReached = false
     private lateinit var adapter: FlightAdapter
     private val outFmt = SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault())
     private val inFmt1 = SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", Locale.US)
@@ -52,28 +60,40 @@ class FlightsActivity : ComponentActivity() {
         }
         rv.adapter = adapter
 
+        // Kolejna strona, gdy do końca listy zostało kilka pozycji
+        rv.addOnScrollListener(object : RecyclerView.OnScrollListener() {
+            override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+                val lm = recyclerView.layoutManager as LinearLayoutManager
+                if (lm.findLastVisibleItemPosition() >= adapter.itemCount - PREFETCH_ITEMS) loadNextPage()
+            }
+        })
+        loadNextPage()
+    }
+
+    private fun loadNextPage() {
+        if (loading || endReached) return
+        loading = true
         scope.launch {
-            runCatching { ApiClient.api.getFlights() }
-                .onSuccess { raw ->
-                    val mappedWithDate = raw.mapNotNull { m ->
+            runCatching { ApiClient.api.getFlights(after = nextCursor, limit = PAGE_SIZE) }
+                .onSuccess { res ->
+                    val raw = res.body().orEmpty()
+                    val page = raw.mapNotNull { m ->
                         val id = (m["id_lotu"] as? Number)?.toInt() ?: return@mapNotNull null
-                        val startRaw = m["czas_startu"]?.toString()
-                        val startDate = parseDate(startRaw)
-                        val item = FlightItem(
+                        FlightItem(
                             id = id,
                             trasa = (m["nazwa_trasy"] ?: "").toString(),
-                            czasStartu = fmtDate(startRaw),
+                            czasStartu = fmtDate(m["czas_startu"]),
                             czasKonca = fmtDate(m["czas_konca"]),
                             operator = (m["operator"] ?: "").toString(),
                             status = (m["status"] ?: "").toString()
                         )
-                        Pair(item, startDate)
                     }
-                    val sorted = mappedWithDate
-                        .sortedWith(compareByDescending<Pair<FlightItem, Date?>> { it.second?.time ?: Long.MIN_VALUE })
-                        .map { it.first }
-                    adapter.submit(sorted)
+                    // Serwer zwraca loty już posortowane od najnowszych
+                    adapter.append(page)
+                    nextCursor = res.headers()["X-Nastepny-Kursor"]
+                    endReached = !res.isSuccessful || nextCursor == null
                 }
+            loading = false
         }
     }
 
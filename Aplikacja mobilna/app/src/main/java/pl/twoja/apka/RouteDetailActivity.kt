@@ -29,6 +29,7 @@ import com.google.android.gms.maps.model.PolylineOptions
 import com.google.android.material.floatingactionbutton.FloatingActionButton
 import kotlinx.coroutines.launch
 import pl.twoja.apka.api.ApiClient
+import pl.twoja.apka.api.PolylineDecoder
 import java.util.Locale
 import kotlin.math.roundToInt
 
@@ -105,22 +106,11 @@ class RouteDetailActivity : ComponentActivity() {
                     }
                 }
 
-            runCatching { if (id > 0) ApiClient.api.getRoutePoints(id) else emptyList() }
-                .onSuccess { list ->
-                    routePoints = list
-                        .mapNotNull { p ->
-                            val order = (p["kolejnosc"] as? Number)?.toInt()
-                                ?: p["kolejnosc"]?.toString()?.toIntOrNull()
-                            val lat = (p["lat"] as? Number)?.toDouble()
-                                ?: p["lat"]?.toString()?.toDoubleOrNull()
-                            val lon = (p["lon"] as? Number)?.toDouble()
-                                ?: (p["lng"] as? Number)?.toDouble()
-                                ?: p["lon"]?.toString()?.toDoubleOrNull()
-                                ?: p["lng"]?.toString()?.toDoubleOrNull()
-                            if (lat != null && lon != null && order != null) Triple(order, lat, lon) else null
-                        }
-                        .sortedBy { it.first }
-                        .map { LatLng(it.second, it.third) }
+            runCatching {
+                if (id > 0) PolylineDecoder.decode(ApiClient.api.getRoutePolyline(id)) else emptyList()
+            }
+                .onSuccess { pts ->
+                    routePoints = pts
                     renderRouteIfReady()
                 }
         }
@@ -4,8 +4,11 @@ import com.squareup.moshi.Moshi
 import com.squareup.moshi.kotlin.reflect.KotlinJsonAdapterFactory
 import okhttp3.MultipartBody
 import okhttp3.OkHttpClient
+import okhttp3.RequestBody
+import okhttp3.ResponseBody
 import okhttp3.logging.HttpLoggingInterceptor
 import pl.twoja.apka.model.FlightDetailItem
+import retrofit2.Response
 import retrofit2.Retrofit
 import retrofit2.converter.moshi.MoshiConverterFactory
 import retrofit2.http.Body
@@ -14,6 +17,7 @@ import retrofit2.http.Multipart
 import retrofit2.http.POST
 import retrofit2.http.Part
 import retrofit2.http.Path
+import retrofit2.http.Query
 
 data class TableInfo(
     val table_name: String,
@@ -52,11 +56,29 @@ data class StartFlightResponse(
     val id_typ: Int? = null
 )
 
+// Odpowiedź encoding=polyline (trasy i ślady); punkty dekoduje PolylineDecoder
+data class EncodedPolyline(
+    val liczba: Int = 0,
+    val polyline: String = "",
+    val wysokosci_m: List<Double?>? = null
+)
+
 data class TelemetryCreateRequest(
     val lat: Double,
     val lon: Double,
     val wysokosc_m: Double? = null,
-    val czas_ms: Long? = null
+    val czas_ms: Long? = null,
+    val predkosc_m_s: Double? = null,
+    val bateria_pro: Double? = null,
+    val sila_sygnalu: String? = null,
+    val seq: Long? = null
+)
+
+// Zalecenia serwera przy obciążonym zapisie telemetrii (pole "zalecenia" w odpowiedziach i w ack)
+data class TelemetryHint(
+    val obciazenie: Double? = null,
+    val interwal_ms: Long? = null,
+    val partia_max: Int? = null
 )
 
 interface ApiService {
@@ -93,18 +115,50 @@ interface ApiService {
     suspend fun getRoute(@Path("id") id: Int): Map<String, Any?>
     @GET("trasy/{id}/punkty")
     suspend fun getRoutePoints(@Path("id") id: Int): List<Map<String, Any?>>
+    @GET("trasy/{id}/punkty")
+    suspend fun getRoutePolyline(
+        @Path("id") id: Int,
+        @Query("encoding") encoding: String = "polyline"
+    ): EncodedPolyline
     @GET("typ_lotu")
     suspend fun listFlightTypes(): List<Map<String, Any?>>
+    // Historia lotów stronami od najnowszych; kursor kolejnej strony w nagłówku X-Nastepny-Kursor
     @GET("lot")
-    suspend fun getFlights(): List<Map<String, Any?>>
+    suspend fun getFlights(
+        @Query("after") after: String? = null,
+        @Query("limit") limit: Int? = null,
+        @Query("id_operatora") operatorId: Int? = null,
+        @Query("id_drona") droneId: Int? = null,
+        @Query("id_trasy") routeId: Int? = null,
+        @Query("status") status: String? = null,
+        @Query("from") from: String? = null,
+        @Query("to") to: String? = null
+    ): Response<List<Map<String, Any?>>>
     @GET("lot/{id}")
     suspend fun getFlight(@Path("id") id: Int): Map<String, Any?>
     @GET("lot/{id}")
     suspend fun getDetails(@Path("id") id: Int): FlightDetailItem
     @GET("lot/{id}/route-points")
     suspend fun getFlightRoutePoints(@Path("id") id: Int): List<Map<String, Any?>>
+    @GET("lot/{id}/route-points")
+    suspend fun getFlightRoutePolyline(
+        @Path("id") id: Int,
+        @Query("encoding") encoding: String = "polyline"
+    ): EncodedPolyline
     @GET("lot/{id}/telemetria")
-    suspend fun getFlightTelemetry(@Path("id") id: Int): List<Map<String, Any?>>
+    suspend fun getFlightTelemetry(
+        @Path("id") id: Int,
+        @Query("tolerance_m") toleranceM: Double? = null,
+        @Query("max_points") maxPoints: Int? = null
+    ): List<Map<String, Any?>>
+    // Ta sama telemetria w formacie kolumnowym - do odczytu przez TelemetryColumns.read
+    @GET("lot/{id}/telemetria")
+    suspend fun getFlightTelemetryColumnar(
+        @Path("id") id: Int,
+        @Query("tolerance_m") toleranceM: Double? = null,
+        @Query("max_points") maxPoints: Int? = null,
+        @Query("format") format: String = "columnar"
+    ): ResponseBody
     @POST("lot/start")
     suspend fun startFlight(@Body req: StartFlightRequest): StartFlightResponse
     @POST("lot/{id}/finish")
@@ -116,20 +170,26 @@ interface ApiService {
         @Path("id") id: Int,
         @Body req: TelemetryCreateRequest
     ): Map<String, Any?>
+    // Partia w formacie binarnym: body z TelemetryBinaryEncoder.requestBody(...)
+    @POST("lot/{id}/telemetria/batch")
+    suspend fun addFlightTelemetryBatchBinary(
+        @Path("id") id: Int,
+        @Body body: RequestBody
+    ): Map<String, Any?>
 }
 
 object ApiClient {
     const val BASE_HOST = "" //dane do uzupełnienia
     private const val BASE_URL = "$BASE_HOST/api/"
 
-    private val moshi = Moshi.Builder()
+    internal val moshi: Moshi = Moshi.Builder()
         .add(KotlinJsonAdapterFactory())
         .build()
     private val log = HttpLoggingInterceptor().apply {
         level = HttpLoggingInterceptor.Level.BASIC
     }
 
-    private val ok = OkHttpClient.Builder()
+    internal val ok: OkHttpClient = OkHttpClient.Builder()
         .addInterceptor(log)
         .build()
 
@@ -139,4 +199,10 @@ object ApiClient {
         .addConverterFactory(MoshiConverterFactory.create(moshi))
         .build()
         .create(ApiService::class.java)
+
+    // Kanał WebSocket telemetrii danego lotu
+    fun telemetrySocket(flightId: Int): TelemetrySocket {
+        val wsHost = BASE_HOST.replaceFirst("http", "ws")
+        return TelemetrySocket("$wsHost/ws/lot/$flightId/telemetria", ok, moshi)
+    }
 }
@@ -0,0 +1,39 @@
+package pl.twoja.apka.api
+
+import com.google.android.gms.maps.model.LatLng
+
+// Dekodowanie encoded polyline Google (precyzja 1e5) z odpowiedzi encoding=polyline
+object PolylineDecoder {
+
+    fun decode(encoded: String): List<LatLng> {
+        val out = ArrayList<LatLng>(encoded.length / 4)
+        var i = 0
+        var lat = 0L
+        var lon = 0L
+        while (i < encoded.length) {
+            var shift = 0
+            var result = 0L
+            var b: Int
+            do {
+                b = encoded[i++].code - 63
+                result = result or ((b and 0x1f).toLong() shl shift)
+                shift += 5
+            } while (b >= 0x20)
+            lat += if (result and 1L != 0L) (result shr 1).inv() else result shr 1
+
+            shift = 0
+            result = 0L
+            do {
+                b = encoded[i++].code - 63
+                result = result or ((b and 0x1f).toLong() shl shift)
+                shift += 5
+            } while (b >= 0x20)
+            lon += if (result and 1L != 0L) (result shr 1).inv() else result shr 1
+
+            out.add(LatLng(lat / 1e5, lon / 1e5))
+        }
+        return out
+    }
+
+    fun decode(p: EncodedPolyline): List<LatLng> = decode(p.polyline)
+}
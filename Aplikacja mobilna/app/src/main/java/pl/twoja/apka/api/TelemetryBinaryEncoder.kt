@@ -0,0 +1,95 @@
+package pl.twoja.apka.api
+
+import java.io.ByteArrayOutputStream
+import kotlin.math.roundToLong
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.RequestBody
+import okhttp3.RequestBody.Companion.toRequestBody
+
+// Zwarty binarny format partii telemetrii - lustro TelemetryBinaryCodec z backendu.
+// lat/lon jako 1e-7 stopnia, czas/wysokość/seq jako delty varint, sygnał tylko przy zmianie.
+object TelemetryBinaryEncoder {
+
+    const val MEDIA_TYPE = "application/x-telemetria"
+    private val mediaType = MEDIA_TYPE.toMediaType()
+
+    private const val VERSION = 1
+    private const val F_TIME = 1
+    private const val F_ALT = 1 shl 1
+    private const val F_SPEED = 1 shl 2
+    private const val F_BATTERY = 1 shl 3
+    private const val F_SIGNAL = 1 shl 4
+    private const val F_SEQ = 1 shl 5
+    private const val F_SIGNAL_NULL = 1 shl 6
+
+    fun encode(points: List<TelemetryCreateRequest>): ByteArray {
+        val out = ByteArrayOutputStream(8 + points.size * 16)
+        out.write('D'.code)
+        out.write('T'.code)
+        out.write(VERSION)
+        writeVarLong(out, points.size.toLong())
+
+        var time = 0L
+        var lat = 0L
+        var lon = 0L
+        var alt = 0L
+        var seq = 0L
+        var signal: String? = null
+        for (p in points) {
+            val signalChanged = signal != p.sila_sygnalu
+            var flags = 0
+            if (p.czas_ms != null) flags = flags or F_TIME
+            if (p.wysokosc_m != null) flags = flags or F_ALT
+            if (p.predkosc_m_s != null) flags = flags or F_SPEED
+            if (p.bateria_pro != null) flags = flags or F_BATTERY
+            if (signalChanged) flags = flags or (if (p.sila_sygnalu == null) F_SIGNAL_NULL else F_SIGNAL)
+            if (p.seq != null) flags = flags or F_SEQ
+            out.write(flags)
+
+            p.czas_ms?.let {
+                writeZigZag(out, it - time)
+                time = it
+            }
+            val la = (p.lat * 1e7).roundToLong()
+            val lo = (p.lon * 1e7).roundToLong()
+            writeZigZag(out, la - lat)
+            writeZigZag(out, lo - lon)
+            lat = la
+            lon = lo
+            p.wysokosc_m?.let {
+                val a = (it * 10.0).roundToLong()
+                writeZigZag(out, a - alt)
+                alt = a
+            }
+            p.predkosc_m_s?.let { writeZigZag(out, (it * 100.0).roundToLong()) }
+            p.bateria_pro?.let { out.write((it * 2.0).roundToLong().coerceIn(0, 255).toInt()) }
+            if (signalChanged && p.sila_sygnalu != null) {
+                val b = p.sila_sygnalu.toByteArray(Charsets.UTF_8)
+                writeVarLong(out, b.size.toLong())
+                out.write(b, 0, b.size)
+            }
+            signal = p.sila_sygnalu
+            p.seq?.let {
+                writeZigZag(out, it - seq)
+                seq = it
+            }
+        }
+        return out.toByteArray()
+    }
+
+    fun requestBody(points: List<TelemetryCreateRequest>): RequestBody =
+        encode(points).toRequestBody(mediaType)
+
+    private fun writeVarLong(out: ByteArrayOutputStream, value: Long) {
+        var v = value
+        while (v and 0x7FL.inv() != 0L) {
+            out.write(((v and 0x7F) or 0x80).toInt())
+            v = v ushr 7
+        }
+        out.write(v.toInt())
+    }
+
+    private fun writeZigZag(out: ByteArrayOutputStream, v: Long) {
+        writeVarLong(out, (v shl 1) xor (v shr 63))
+    }
+}
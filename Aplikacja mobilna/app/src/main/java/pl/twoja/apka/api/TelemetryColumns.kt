@@ -0,0 +1,95 @@
+package pl.twoja.apka.api
+
+import com.squareup.moshi.JsonReader
+import okhttp3.ResponseBody
+
+// Telemetria w formacie kolumnowym (format=columnar) czytana prosto do tablic prymitywnych.
+// Brak wartości liczbowej to NaN, czas w epoch ms (0 gdy brak).
+class TelemetryColumns(
+    val lat: DoubleArray,
+    val lon: DoubleArray,
+    val wysokoscM: DoubleArray,
+    val czasMs: LongArray
+) {
+    val size: Int get() = lat.size
+
+    companion object {
+        fun read(body: ResponseBody): TelemetryColumns = body.use { read(JsonReader.of(it.source())) }
+
+        fun read(reader: JsonReader): TelemetryColumns {
+            var lat = DoubleArray(0)
+            var lon = DoubleArray(0)
+            var alt = DoubleArray(0)
+            var czasStart = 0L
+            var czasDelta = LongArray(0)
+            reader.beginObject()
+            while (reader.hasNext()) {
+                when (reader.nextName()) {
+                    "lat" -> lat = readDoubles(reader)
+                    "lon" -> lon = readDoubles(reader)
+                    "wysokosc_m" -> alt = readDoubles(reader)
+                    "czas_start_ms" -> czasStart = if (reader.peek() == JsonReader.Token.NULL) {
+                        reader.nextNull<Any>()
+                        0L
+                    } else {
+                        reader.nextLong()
+                    }
+                    "czas_delta_ms" -> czasDelta = readLongs(reader)
+                    else -> reader.skipValue()
+                }
+            }
+            reader.endObject()
+
+            val n = minOf(lat.size, lon.size)
+            val czas = LongArray(n)
+            var t = czasStart
+            for (i in 0 until n) {
+                if (i < czasDelta.size && czasDelta[i] != Long.MIN_VALUE) {
+                    t += czasDelta[i]
+                    czas[i] = t
+                }
+            }
+            return TelemetryColumns(
+                lat.copyOf(n),
+                lon.copyOf(n),
+                if (alt.size >= n) alt.copyOf(n) else DoubleArray(n) { Double.NaN },
+                czas
+            )
+        }
+
+        private fun readDoubles(reader: JsonReader): DoubleArray {
+            var out = DoubleArray(256)
+            var n = 0
+            reader.beginArray()
+            while (reader.hasNext()) {
+                if (n == out.size) out = out.copyOf(n * 2)
+                out[n++] = if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.nextNull<Any>()
+                    Double.NaN
+                } else {
+                    reader.nextDouble()
+                }
+            }
+            reader.endArray()
+            return out.copyOf(n)
+        }
+
+        // null w deltach czasu oznaczamy Long.MIN_VALUE (punkt bez czasu)
+        private fun readLongs(reader: JsonReader): LongArray {
+            var out = LongArray(256)
+            var n = 0
+            reader.beginArray()
+            while (reader.hasNext()) {
+                if (n == out.size) out = out.copyOf(n * 2)
+                out[n++] = if (reader.peek() == JsonReader.Token.NULL) {
+                    reader.nextNull<Any>()
+                    Long.MIN_VALUE
+                } else {
+                    reader.nextLong()
+                }
+            }
+            reader.endArray()
+            return out.copyOf(n)
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package pl.twoja.apka.api
+
+import android.os.Handler
+import android.os.Looper
+import android.util.Log
+import com.squareup.moshi.Moshi
+import kotlinx.coroutines.delay
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.WebSocket
+import okhttp3.WebSocketListener
+import okio.ByteString.Companion.toByteString
+
+data class TelemetryAckFrame(
+    val typ: String? = null,
+    val seq: Long? = null,
+    val przyjete: Int? = null,
+    val zalecenia: TelemetryHint? = null
+)
+
+// Stałe połączenie WebSocket do /ws/lot/{id}/telemetria.
+// Punkty dostają kolejne seq i czekają w buforze, aż serwer potwierdzi ich zapis (ack).
+// Po zerwaniu połączenia łączymy się ponownie i wysyłamy wszystko powyżej ostatniego ack.
+// Punkty idą ramkami binarnymi (TelemetryBinaryEncoder), ack przychodzi jako JSON.
+// Ack niesie zalecenia serwera: przy obciążeniu wysyłamy rzadziej (ramka co interwal_ms) i próbkujemy
+// rzadziej (najwyżej partia_max punktów na interwał); po spadku obciążenia wracamy do pełnej częstotliwości.
+class TelemetrySocket(
+    private val url: String,
+    private val client: OkHttpClient,
+    moshi: Moshi
+) {
+
+    private companion object {
+        private const val TAG = "TelemetrySocket"
+        private const val MAX_PENDING = 5000
+        private const val RESEND_CHUNK = 200
+        private const val RECONNECT_MIN_MS = 1000L
+        private const val RECONNECT_MAX_MS = 30000L
+    }
+
+    private val ackAdapter = moshi.adapter(TelemetryAckFrame::class.java)
+    private val handler = Handler(Looper.getMainLooper())
+    private val lock = Any()
+    private val pending = ArrayDeque<TelemetryCreateRequest>()
+    private var socket: WebSocket? = null
+    private var nextSeq = 1L
+    private var everAcked = false
+    private var resumed = false
+    private var closed = false
+    private var reconnectDelayMs = RECONNECT_MIN_MS
+    private var sendIntervalMs = 0L
+    private var batchMax = Int.MAX_VALUE
+    private var unsent = 0
+    private var lastSampleAt = 0L
+    private var lastSentAt = 0L
+
+    fun connect() {
+        synchronized(lock) {
+            if (closed || socket != null) return
+            resumed = false
+            socket = client.newWebSocket(Request.Builder().url(url).build(), listener)
+        }
+    }
+
+    fun send(lat: Double, lon: Double, alt: Double?, czasMs: Long) {
+        synchronized(lock) {
+            if (closed) return
+            val now = System.currentTimeMillis()
+            if (now - lastSampleAt < sendIntervalMs / batchMax) return
+            lastSampleAt = now
+            val p = TelemetryCreateRequest(
+                lat = lat,
+                lon = lon,
+                wysokosc_m = alt,
+                czas_ms = czasMs,
+                seq = nextSeq++
+            )
+            if (pending.size >= MAX_PENDING) pending.removeFirst()
+            pending.addLast(p)
+            unsent = minOf(unsent + 1, pending.size)
+            if (resumed && (unsent >= batchMax || now - lastSentAt >= sendIntervalMs)) sendUnsent(now)
+        }
+    }
+
+    // Punkty z bufora, które jeszcze nie poszły tym połączeniem, jedną ramką
+    private fun sendUnsent(now: Long) {
+        if (unsent == 0) return
+        socket?.send(TelemetryBinaryEncoder.encode(pending.takeLast(unsent)).toByteString())
+        unsent = 0
+        lastSentAt = now
+    }
+
+    private fun applyHint(hint: TelemetryHint) {
+        sendIntervalMs = hint.interwal_ms ?: 0L
+        batchMax = (hint.partia_max ?: Int.MAX_VALUE).coerceAtLeast(1)
+    }
+
+    fun pendingCount(): Int = synchronized(lock) { pending.size }
+
+    // Czeka, aż serwer potwierdzi wszystkie wysłane punkty (np. przed zakończeniem lotu)
+    suspend fun awaitDrained(timeoutMs: Long): Boolean {
+        synchronized(lock) { if (resumed) sendUnsent(System.currentTimeMillis()) }
+        val deadline = System.currentTimeMillis() + timeoutMs
+        while (System.currentTimeMillis() < deadline) {
+            if (pendingCount() == 0) return true
+            delay(100)
+        }
+        return pendingCount() == 0
+    }
+
+    fun close() {
+        synchronized(lock) {
+            closed = true
+            socket?.close(1000, "koniec lotu")
+            socket = null
+        }
+        handler.removeCallbacksAndMessages(null)
+    }
+
+    private fun onAck(from: WebSocket, ack: TelemetryAckFrame) {
+        synchronized(lock) {
+            if (from !== socket) return
+            val seq = ack.seq ?: 0L
+            if (!everAcked && seq >= 1 && pending.isNotEmpty() && pending.first().seq!! <= seq) {
+                // Nowa sesja dla lotu, który już ma zapisane punkty: przenumeruj bufor ponad ack serwera
+                val renumbered = pending.mapIndexed { i, p -> p.copy(seq = seq + 1 + i) }
+                pending.clear()
+                pending.addAll(renumbered)
+                nextSeq = seq + 1 + renumbered.size
+            } else if (!everAcked && nextSeq <= seq) {
+                nextSeq = seq + 1
+            }
+            everAcked = true
+            while (pending.isNotEmpty() && pending.first().seq!! <= seq) {
+                pending.removeFirst()
+            }
+            reconnectDelayMs = RECONNECT_MIN_MS
+            ack.zalecenia?.let { applyHint(it) }
+            val now = System.currentTimeMillis()
+            if (!resumed) {
+                resumed = true
+                if (pending.isNotEmpty()) {
+                    pending.chunked(RESEND_CHUNK).forEach {
+                        socket?.send(TelemetryBinaryEncoder.encode(it).toByteString())
+                    }
+                }
+                unsent = 0
+                lastSentAt = now
+            } else if (unsent > 0 && (unsent >= batchMax || now - lastSentAt >= sendIntervalMs)) {
+                // Obciążenie spadło - zaległa ramka idzie od razu
+                sendUnsent(now)
+            }
+        }
+    }
+
+    private fun scheduleReconnect(failed: WebSocket) {
+        val delayMs: Long
+        synchronized(lock) {
+            if (failed !== socket) return
+            socket = null
+            resumed = false
+            if (closed) return
+            delayMs = reconnectDelayMs
+            reconnectDelayMs = (reconnectDelayMs * 2).coerceAtMost(RECONNECT_MAX_MS)
+        }
+        Log.w(TAG, "Polaczenie zerwane, ponowna proba za ${delayMs} ms")
+        handler.postDelayed({ connect() }, delayMs)
+    }
+
+    private val listener = object : WebSocketListener() {
+        override fun onMessage(webSocket: WebSocket, text: String) {
+            val ack = try { ackAdapter.fromJson(text) } catch (_: Exception) { null } ?: return
+            if (ack.typ == "ack") onAck(webSocket, ack)
+        }
+
+        override fun onClosing(webSocket: WebSocket, code: Int, reason: String) {
+            webSocket.close(1000, null)
+        }
+
+        override fun onClosed(webSocket: WebSocket, code: Int, reason: String) {
+            if (code == 1008) {
+                // Lot zakończony albo nie istnieje - nie ma sensu się łączyć
+                Log.w(TAG, "Serwer odrzucil kanal: $reason")
+                synchronized(lock) { closed = true; socket = null }
+                return
+            }
+            scheduleReconnect(webSocket)
+        }
+
+        override fun onFailure(webSocket: WebSocket, t: Throwable, response: Response?) {
+            Log.w(TAG, "WebSocket blad: ${t.message}")
+            scheduleReconnect(webSocket)
+        }
+    }
+}
@@ -43,4 +43,11 @@ class FlightAdapter(
         items = newItems
         notifyDataSetChanged()
     }
+
+    fun append(more: List<FlightItem>) {
+        if (more.isEmpty()) return
+        val start = items.size
+        items = items + more
+        notifyItemRangeInserted(start, more.size)
+    }
 }
@@ -45,7 +45,8 @@ import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 import pl.twoja.apka.R
 import pl.twoja.apka.api.ApiClient
-import pl.twoja.apka.api.TelemetryCreateRequest
+import pl.twoja.apka.api.PolylineDecoder
+import pl.twoja.apka.api.TelemetrySocket
 import pl.twoja.apka.telemetry.TelemetrySession
 import java.util.Locale
 import kotlin.math.roundToInt
@@ -60,6 +61,7 @@ class FlightLiveActivity : AppCompatActivity() {
         private const val MAX_VALID_LAT = 90.0
         private const val MIN_VALID_LON = -180.0
         private const val MAX_VALID_LON = 180.0
+        private const val TELEMETRY_DRAIN_TIMEOUT_MS = 3000L
     }
 
     private lateinit var tvRemaining: TextView
@@ -88,7 +90,7 @@ class FlightLiveActivity : AppCompatActivity() {
     private var finishSent: Boolean = false
     private var abortSent: Boolean = false
     @Volatile private var telemetryUploadEnabled: Boolean = true
-    @Volatile private var telemetryUploadInProgress: Boolean = false
+    private var telemetrySocket: TelemetrySocket? = null
     private var routeId: Int = -1
     private var plannedTimeS: Int = 0
     private var flightId: Int = -1
@@ -135,6 +137,9 @@ class FlightLiveActivity : AppCompatActivity() {
             renderPlannedRouteIfReady()
         }
 
+        if (flightId > 0) {
+            telemetrySocket = ApiClient.telemetrySocket(flightId).also { it.connect() }
+        }
         startCountdownIfNeeded(plannedTimeS)
         loadPlannedRoute(routeId)
         if (usePhoneLocation) {
@@ -157,6 +162,8 @@ class FlightLiveActivity : AppCompatActivity() {
     override fun onDestroy() {
         super.onDestroy()
         telemetryUploadEnabled = false
+        telemetrySocket?.close()
+        telemetrySocket = null
         stopUiRefreshLoop()
         if (usePhoneLocation) stopPhoneLocation() else {
             stopDjiLocationListener()
@@ -277,18 +284,8 @@ class FlightLiveActivity : AppCompatActivity() {
     private fun loadPlannedRoute(routeId: Int) {
         lifecycleScope.launch {
             try {
-                val rawPoints: List<Map<String, Any?>> = withContext(Dispatchers.IO) {
-                    ApiClient.api.getRoutePoints(routeId)
-                }
-                plannedRoute = rawPoints.mapNotNull { p ->
-                    val lon = (p["lon"] as? Number)?.toDouble()
-                        ?: (p["lng"] as? Number)?.toDouble()
-                        ?: (p["longitude"] as? Number)?.toDouble()
-
-                    val lat = (p["lat"] as? Number)?.toDouble()
-                        ?: (p["latitude"] as? Number)?.toDouble()
-
-                    if (lat != null && lon != null) LatLng(lat, lon) else null
+                plannedRoute = withContext(Dispatchers.IO) {
+                    PolylineDecoder.decode(ApiClient.api.getRoutePolyline(routeId))
                 }
                 if (plannedRoute.isEmpty()) {
                     Toast.makeText(this@FlightLiveActivity, "Trasa nie ma punktów", Toast.LENGTH_SHORT).show()
@@ -371,6 +368,7 @@ class FlightLiveActivity : AppCompatActivity() {
         if (finishSent) return
         finishSent = true
         lifecycleScope.launch {
+            drainTelemetry()
             if (flightId > 0) {
                 try {
                     withContext(Dispatchers.IO) { ApiClient.api.finishFlight(flightId) }
@@ -391,6 +389,7 @@ class FlightLiveActivity : AppCompatActivity() {
         abortSent = true
         telemetryUploadEnabled = false
         lifecycleScope.launch {
+            drainTelemetry()
             if (flightId > 0) {
                 try {
                     withContext(Dispatchers.IO) { ApiClient.api.abortFlight(flightId) }
@@ -419,23 +418,17 @@ class FlightLiveActivity : AppCompatActivity() {
     private fun uploadTelemetryPoint(lat: Double, lon: Double, alt: Double?) {
         if (!telemetryUploadEnabled) return
         if (flightId <= 0) return
-        if (telemetryUploadInProgress) return
-        telemetryUploadInProgress = true
-        val req = TelemetryCreateRequest(
-            lat = lat,
-            lon = lon,
-            wysokosc_m = alt,
-            czas_ms = System.currentTimeMillis()
-        )
-        lifecycleScope.launch(Dispatchers.IO) {
-            try {
-                ApiClient.api.addFlightTelemetry(flightId, req)
-            } catch (e: Exception) {
-                Log.w(TAG, "uploadTelemetryPoint failed: ${e.message}")
-            } finally {
-                telemetryUploadInProgress = false
-            }
+        telemetrySocket?.send(lat, lon, alt, System.currentTimeMillis())
+    }
+
+    // Przed zakończeniem lotu w DB dajemy serwerowi chwilę na zapis zaległych punktów
+    private suspend fun drainTelemetry() {
+        val socket = telemetrySocket ?: return
+        if (!socket.awaitDrained(TELEMETRY_DRAIN_TIMEOUT_MS)) {
+            Log.w(TAG, "Niepotwierdzone punkty telemetrii: ${socket.pendingCount()}")
         }
+        socket.close()
+        telemetrySocket = null
     }
 
     private fun startPhoneLocation() {
@@ -0,0 +1,207 @@
+package com.example.notes;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Rejestr lotów w powietrzu (czas_konca IS NULL) trzymany w pamięci.
+// Odczyt bez blokad z niezmiennej tablicy int -> lot, zapis (start/koniec lotu) kopiuje tablicę.
+@Component
+public class ActiveFlightRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ActiveFlightRegistry.class);
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 64;
+
+    // Dane aktywnego lotu
+    public static final class ActiveFlight {
+        public final int idLotu;
+        public final Integer idTrasy;
+        public final Integer idDrona;
+        public final long czasStartuMs;
+        // Dystans i ostatni punkt liczone na bieżąco z przyjmowanej telemetrii
+        public final FlightProgress postep;
+        // Wysokość, prędkość, bateria, sygnał - dla GET /api/lot/{id}/stats i lot_statystyki
+        public final FlightStats statystyki;
+
+        ActiveFlight(int idLotu, Integer idTrasy, Integer idDrona, long czasStartuMs, boolean fromStart) {
+            this.idLotu = idLotu;
+            this.idTrasy = idTrasy;
+            this.idDrona = idDrona;
+            this.czasStartuMs = czasStartuMs;
+            this.postep = new FlightProgress(fromStart);
+            this.statystyki = new FlightStats(fromStart);
+        }
+    }
+
+    // Otwarte adresowanie z sondowaniem liniowym, klucz 0 = puste miejsce
+    private static final class Table {
+        final int[] keys;
+        final ActiveFlight[] values;
+        final int size;
+
+        Table(int capacity, int size) {
+            this.keys = new int[capacity];
+            this.values = new ActiveFlight[capacity];
+            this.size = size;
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private volatile Table table = new Table(MIN_CAPACITY, 0);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ActiveFlightRegistry(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Odbudowa po starcie aplikacji z loty bez czas_konca.
+    // Część telemetrii tych lotów przyszła przed restartem, więc ich bieżący dystans nie jest pełny.
+    @PostConstruct
+    public void rebuild() {
+        List<ActiveFlight> flights = jdbc.query("""
+            SELECT id_lotu, id_trasy, id_drona, czas_startu
+            FROM public.lot
+            WHERE czas_konca IS NULL
+        """, (rs, i) -> new ActiveFlight(
+                rs.getInt("id_lotu"),
+                (Integer) rs.getObject("id_trasy"),
+                (Integer) rs.getObject("id_drona"),
+                toMillis(rs.getTimestamp("czas_startu")),
+                false
+        ));
+        synchronized (this) {
+            Table t = new Table(capacityFor(flights.size()), flights.size());
+            for (ActiveFlight f : flights) {
+                insert(t, f);
+            }
+            table = t;
+        }
+        log.info("Rejestr aktywnych lotow: {} lotow", flights.size());
+    }
+
+    public ActiveFlight get(int idLotu) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = mix(idLotu) & mask; ; i = (i + 1) & mask) {
+            int k = t.keys[i];
+            if (k == idLotu) {
+                hits.increment();
+                return t.values[i];
+            }
+            if (k == EMPTY) {
+                misses.increment();
+                return null;
+            }
+        }
+    }
+
+    public boolean isActive(int idLotu) {
+        return get(idLotu) != null;
+    }
+
+    public ActiveFlight register(int idLotu, Integer idTrasy, Integer idDrona, Timestamp czasStartu) {
+        ActiveFlight f = new ActiveFlight(idLotu, idTrasy, idDrona, toMillis(czasStartu), true);
+        synchronized (this) {
+            Table old = table;
+            // ponowna rejestracja tego samego lotu zastępuje wpis, nie zwiększa liczby lotów
+            int size = old.size + (contains(old, idLotu) ? 0 : 1);
+            Table t = new Table(capacityFor(size), size);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] != EMPTY && old.keys[i] != idLotu) insert(t, old.values[i]);
+            }
+            insert(t, f);
+            table = t;
+        }
+        return f;
+    }
+
+    public ActiveFlight unregister(int idLotu) {
+        synchronized (this) {
+            Table old = table;
+            ActiveFlight removed = null;
+            List<ActiveFlight> rest = new ArrayList<>(old.size);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.keys[i] == EMPTY) continue;
+                if (old.keys[i] == idLotu) removed = old.values[i];
+                else rest.add(old.values[i]);
+            }
+            if (removed == null) return null;
+            Table t = new Table(capacityFor(rest.size()), rest.size());
+            for (ActiveFlight f : rest) {
+                insert(t, f);
+            }
+            table = t;
+            return removed;
+        }
+    }
+
+    // Przyjęte punkty aktywnego lotu do bieżącego dystansu i statystyk (punkty już zwalidowane)
+    public void recordPoints(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        ActiveFlight f = get(idLotu);
+        if (f == null || points.isEmpty()) return;
+        f.postep.addAll(points);
+        f.statystyki.addAll(points);
+    }
+
+    public List<ActiveFlight> all() {
+        Table t = table;
+        List<ActiveFlight> list = new ArrayList<>(t.size);
+        for (int i = 0; i < t.keys.length; i++) {
+            if (t.keys[i] != EMPTY) list.add(t.values[i]);
+        }
+        return list;
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("aktywne_loty", table.size);
+        m.put("trafienia", hits.sum());
+        m.put("chybienia", misses.sum());
+        return m;
+    }
+
+    private static boolean contains(Table t, int idLotu) {
+        int mask = t.keys.length - 1;
+        for (int i = mix(idLotu) & mask; ; i = (i + 1) & mask) {
+            if (t.keys[i] == idLotu) return true;
+            if (t.keys[i] == EMPTY) return false;
+        }
+    }
+
+    private static void insert(Table t, ActiveFlight f) {
+        int mask = t.keys.length - 1;
+        int i = mix(f.idLotu) & mask;
+        while (t.keys[i] != EMPTY && t.keys[i] != f.idLotu) {
+            i = (i + 1) & mask;
+        }
+        t.keys[i] = f.idLotu;
+        t.values[i] = f;
+    }
+
+    // Wypełnienie max 50%, rozmiar potęgą dwójki
+    private static int capacityFor(int size) {
+        int cap = MIN_CAPACITY;
+        while (cap < size * 2) cap <<= 1;
+        return cap;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long toMillis(Timestamp ts) {
+        return ts == null ? System.currentTimeMillis() : ts.getTime();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.notes;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/airspace")
+@CrossOrigin
+public class AirspaceController {
+
+    private final AirspaceSnapshot airspace;
+    private final GeofenceService geofence;
+
+    public AirspaceController(AirspaceSnapshot airspace, GeofenceService geofence) {
+        this.airspace = airspace;
+        this.geofence = geofence;
+    }
+
+    // Wszystkie loty w powietrzu z ostatnią pozycją, wysokością, prędkością, baterią i wiekiem odczytu.
+    // Opcjonalny prostokąt: min_lat, min_lon, max_lat, max_lon (wszystkie cztery naraz).
+    @GetMapping("/active")
+    public Map<String, Object> active(@RequestParam(name = "min_lat", required = false) Double minLat,
+                                      @RequestParam(name = "min_lon", required = false) Double minLon,
+                                      @RequestParam(name = "max_lat", required = false) Double maxLat,
+                                      @RequestParam(name = "max_lon", required = false) Double maxLon) {
+        int given = (minLat != null ? 1 : 0) + (minLon != null ? 1 : 0) + (maxLat != null ? 1 : 0) + (maxLon != null ? 1 : 0);
+        if (given != 0 && given != 4) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Prostokąt wymaga wszystkich parametrów: min_lat, min_lon, max_lat, max_lon");
+        }
+        if (given == 4 && (minLat < -90 || maxLat > 90 || minLat > maxLat
+                || minLon < -180 || minLon > 180 || maxLon < -180 || maxLon > 180)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nieprawidłowy prostokąt");
+        }
+
+        AirspaceSnapshot.Snapshot s = airspace.snapshot();
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> loty = AirspaceSnapshot.query(s, now, minLat, minLon, maxLat, maxLon);
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("wersja", s.wersja());
+        res.put("czas_ms", now);
+        res.put("liczba", loty.size());
+        res.put("loty", loty);
+        return res;
+    }
+
+    // Czy punkt jest w strefie zakazanej albo bliżej niż margines (strefy.margines-m) w chwili czas_ms
+    // (domyślnie teraz). Z indeksu w pamięci, bez zapytania do bazy.
+    @GetMapping("/strefy")
+    public Map<String, Object> zones(@RequestParam double lat,
+                                     @RequestParam double lon,
+                                     @RequestParam(name = "czas_ms", required = false) Long czasMs) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nieprawidłowe lat/lon");
+        }
+        long t = czasMs != null ? czasMs : System.currentTimeMillis();
+        List<GeofenceService.Hit> hits = geofence.check(lat, lon, t);
+
+        List<Map<String, Object>> strefy = new ArrayList<>(hits.size());
+        boolean inside = false;
+        for (GeofenceService.Hit h : hits) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id_strefy", h.idStrefy());
+            m.put("nazwa", h.nazwa());
+            m.put("powod", h.powod());
+            m.put("wewnatrz", h.wewnatrz());
+            m.put("odleglosc_m", h.odlegloscM());
+            strefy.add(m);
+            inside |= h.wewnatrz();
+        }
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("lat", lat);
+        res.put("lon", lon);
+        res.put("czas_ms", t);
+        res.put("margines_m", geofence.marginM());
+        res.put("wewnatrz", inside);
+        res.put("strefy", strefy);
+        return res;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.notes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Obraz przestrzeni powietrznej dla GET /api/airspace/active: aktywne loty z ostatnią pozycją.
+// Niezmienna tablica pozycji posortowana po id_lotu, podmieniana w całości (copy-on-write, CAS)
+// przy starcie/końcu lotu i przy każdej przyjętej partii telemetrii. Odczyt to jeden volatile read -
+// bez blokad i bez zapytań do bazy, niezależnie od liczby czytających.
+@Component
+public class AirspaceSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(AirspaceSnapshot.class);
+
+    // Ostatnia pozycja lotu; lat/lon = NaN, dopóki nie przyszedł żaden punkt
+    public record Position(int idLotu, Integer idDrona, Integer idTrasy, long czasStartuMs,
+                           double lat, double lon, Double wysokoscM, Double predkoscMS, Double bateriaPro,
+                           long czasMs, long odebranoMs) {
+
+        boolean hasFix() {
+            return !Double.isNaN(lat);
+        }
+    }
+
+    public record Snapshot(long wersja, Position[] loty) {}
+
+    private static final Snapshot EMPTY = new Snapshot(0, new Position[0]);
+
+    private final JdbcTemplate jdbc;
+    private final ActiveFlightRegistry activeFlights;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(EMPTY);
+
+    public AirspaceSnapshot(JdbcTemplate jdbc, ActiveFlightRegistry activeFlights) {
+        this.jdbc = jdbc;
+        this.activeFlights = activeFlights;
+    }
+
+    // Po starcie: aktywne loty z rejestru i ich ostatni punkt z telemetrii (jednorazowo)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int n = 0;
+        for (ActiveFlightRegistry.ActiveFlight f : activeFlights.all()) {
+            Position p = jdbc.query("""
+                SELECT ST_Y(tm.wspolrzedne::geometry), ST_X(tm.wspolrzedne::geometry),
+                       tm.wysokosc_m, tm.predkosc_m_s, tm.bateria_pro, tm.czas
+                FROM public.telemetria tm
+                WHERE tm.id_lotu = ? AND tm.wspolrzedne IS NOT NULL
+                """ + TelemetryPartitionManager.FLIGHT_WINDOW_SQL + """
+                ORDER BY tm.czas DESC, tm.id_telemetrii DESC
+                LIMIT 1
+                """, rs -> {
+                if (!rs.next()) return noFix(f);
+                Timestamp czas = rs.getTimestamp(6);
+                long czasMs = TelemetryArchiver.toEpochMs(czas);
+                return new Position(f.idLotu, f.idDrona, f.idTrasy, f.czasStartuMs,
+                        rs.getDouble(1), rs.getDouble(2),
+                        toDouble(rs.getObject(3)), toDouble(rs.getObject(4)), toDouble(rs.getObject(5)),
+                        czasMs, czasMs);
+            }, f.idLotu, f.idLotu, f.idLotu);
+            // punkty przyjęte w międzyczasie przez ingest są nowsze niż odczyt z bazy
+            replace(f.idLotu, old -> old != null && old.hasFix() || !activeFlights.isActive(f.idLotu) ? old : p);
+            n++;
+        }
+        log.info("Obraz przestrzeni: {} aktywnych lotow", n);
+    }
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public void flightStarted(ActiveFlightRegistry.ActiveFlight f) {
+        replace(f.idLotu, old -> old != null ? old : noFix(f));
+    }
+
+    public void flightEnded(int idLotu) {
+        replace(idLotu, old -> null);
+    }
+
+    // Ostatni punkt przyjętej partii (punkty już zwalidowane)
+    public void pointsAccepted(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        if (points.isEmpty()) return;
+        ActiveFlightRegistry.ActiveFlight f = activeFlights.get(idLotu);
+        if (f == null) return;
+        FlightController.TelemetryCreateRequest last = points.get(points.size() - 1);
+        long now = System.currentTimeMillis();
+        long czasMs = last.czas_ms != null ? last.czas_ms : now;
+        Position p = new Position(idLotu, f.idDrona, f.idTrasy, f.czasStartuMs, last.lat, last.lon,
+                last.wysokosc_m, last.predkosc_m_s, last.bateria_pro, czasMs, now);
+        // punkt starszy niż obecna pozycja (np. ponowna wysyłka bufora) nie cofa drona; lotu, którego
+        // nie ma w migawce (już zakończony), nie dodajemy - wpisy zakłada flightStarted i przebudowa
+        replace(idLotu, old -> old == null ? null
+                : old.hasFix() && old.czasMs() > czasMs ? old : p);
+    }
+
+    // Loty w prostokącie (null = bez filtra); minLon > maxLon oznacza prostokąt przez antypołudnik.
+    // Loty bez pozycji są zwracane tylko bez filtra.
+    public static List<Map<String, Object>> query(Snapshot s, long nowMs,
+                                                  Double minLat, Double minLon, Double maxLat, Double maxLon) {
+        boolean bbox = minLat != null;
+        List<Map<String, Object>> out = new ArrayList<>(s.loty().length);
+        for (Position p : s.loty()) {
+            if (bbox) {
+                if (!p.hasFix() || p.lat() < minLat || p.lat() > maxLat) continue;
+                boolean inLon = minLon <= maxLon
+                        ? p.lon() >= minLon && p.lon() <= maxLon
+                        : p.lon() >= minLon || p.lon() <= maxLon;
+                if (!inLon) continue;
+            }
+            out.add(toMap(p, nowMs));
+        }
+        return out;
+    }
+
+    private static Map<String, Object> toMap(Position p, long nowMs) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id_lotu", p.idLotu());
+        m.put("id_drona", p.idDrona());
+        m.put("id_trasy", p.idTrasy());
+        m.put("czas_startu_ms", p.czasStartuMs());
+        if (p.hasFix()) {
+            m.put("lat", p.lat());
+            m.put("lon", p.lon());
+            m.put("wysokosc_m", p.wysokoscM());
+            m.put("predkosc_m_s", p.predkoscMS());
+            m.put("bateria_pro", p.bateriaPro());
+            m.put("czas_ms", p.czasMs());
+            // wiek liczony od odebrania punktu przez serwer - zegar urządzenia może się różnić
+            m.put("wiek_s", Math.max(0, nowMs - p.odebranoMs()) / 1000.0);
+        } else {
+            m.put("lat", null);
+            m.put("lon", null);
+        }
+        return m;
+    }
+
+    // Kopia tablicy z podmienionym/dodanym/usuniętym wpisem; CAS z ponowieniem przy równoległym zapisie
+    private void replace(int idLotu, UnaryOperator<Position> update) {
+        while (true) {
+            Snapshot prev = current.get();
+            Position[] arr = prev.loty();
+            int i = indexOf(arr, idLotu);
+            Position old = i >= 0 ? arr[i] : null;
+            Position next = update.apply(old);
+            if (next == old) return;
+
+            Position[] copy;
+            if (i >= 0 && next != null) {
+                copy = arr.clone();
+                copy[i] = next;
+            } else if (i >= 0) {
+                copy = new Position[arr.length - 1];
+                System.arraycopy(arr, 0, copy, 0, i);
+                System.arraycopy(arr, i + 1, copy, i, arr.length - i - 1);
+            } else {
+                int at = -i - 1;
+                copy = new Position[arr.length + 1];
+                System.arraycopy(arr, 0, copy, 0, at);
+                copy[at] = next;
+                System.arraycopy(arr, at, copy, at + 1, arr.length - at);
+            }
+            if (current.compareAndSet(prev, new Snapshot(prev.wersja() + 1, copy))) return;
+        }
+    }
+
+    private static int indexOf(Position[] arr, int idLotu) {
+        int lo = 0;
+        int hi = arr.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int id = arr[mid].idLotu();
+            if (id < idLotu) lo = mid + 1;
+            else if (id > idLotu) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private static Position noFix(ActiveFlightRegistry.ActiveFlight f) {
+        return new Position(f.idLotu, f.idDrona, f.idTrasy, f.czasStartuMs,
+                Double.NaN, Double.NaN, null, null, null, 0, 0);
+    }
+
+    private static Double toDouble(Object v) {
+        return v == null ? null : ((Number) v).doubleValue();
+    }
+}
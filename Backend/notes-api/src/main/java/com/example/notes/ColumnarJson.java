@@ -0,0 +1,196 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+// Odpowiedź kolumnowa (format=columnar): jedna tablica na kolumnę zamiast obiektu na wiersz.
+//   {"format":"columnar","liczba":N,"id_telemetrii":[...],"lat":[...],...}
+// Kolumna z czasem X idzie jako "X_start_ms" (epoch ms pierwszej wartości) i "X_delta_ms"
+// (różnica względem poprzedniej niepustej wartości). Wartości puste to null.
+// Kolumny trzymamy w tablicach prymitywnych, typ ustalany po pierwszej niepustej wartości.
+public final class ColumnarJson implements JsonSerializable {
+
+    private enum Kind { UNKNOWN, LONG, DOUBLE, TIME, TEXT }
+
+    private static final class Column {
+        final String name;
+        Kind kind = Kind.UNKNOWN;
+        long[] longs;
+        double[] doubles;
+        String[] texts;
+        boolean[] nulls;
+
+        Column(String name) {
+            this.name = name;
+        }
+    }
+
+    private final Column[] columns;
+    private int capacity = 256;
+    private int rows;
+
+    public ColumnarJson(String[] names) {
+        columns = new Column[names.length];
+        for (int i = 0; i < names.length; i++) {
+            columns[i] = new Column(names[i]);
+            columns[i].nulls = new boolean[capacity];
+        }
+    }
+
+    // Kolumny podane z góry, żeby pusty wynik miał ten sam kształt co niepusty
+    // ("lat":[], "czas_start_ms":null, "czas_delta_ms":[], ...)
+    public static ColumnarJson of(List<Map<String, Object>> rows, String[] names, String... timeNames) {
+        ColumnarJson out = new ColumnarJson(names);
+        for (String t : timeNames) {
+            int i = Arrays.asList(names).indexOf(t);
+            if (i >= 0) out.timeColumn(i);
+        }
+        for (Map<String, Object> row : rows) {
+            for (int i = 0; i < names.length; i++) {
+                out.set(i, row.get(names[i]));
+            }
+            out.endRow();
+        }
+        return out;
+    }
+
+    // Kolumna czasu znana przed pierwszą wartością (z metadanych albo z góry)
+    public void timeColumn(int col) {
+        Column c = columns[col];
+        if (c.kind != Kind.UNKNOWN) return;
+        c.kind = Kind.TIME;
+        c.longs = new long[capacity];
+    }
+
+    public void set(int col, Object value) {
+        ensureCapacity();
+        Column c = columns[col];
+        if (value == null) {
+            c.nulls[rows] = true;
+            return;
+        }
+        if (c.kind == Kind.UNKNOWN) init(c, value);
+        switch (c.kind) {
+            case TIME -> c.longs[rows] = ((Date) value).getTime();
+            case LONG -> {
+                if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+                    c.longs[rows] = ((Number) value).longValue();
+                } else {
+                    // np. numeric po liczbach całkowitych - przechodzimy na double
+                    toDoubles(c);
+                    c.doubles[rows] = ((Number) value).doubleValue();
+                }
+            }
+            case DOUBLE -> c.doubles[rows] = ((Number) value).doubleValue();
+            default -> c.texts[rows] = value.toString();
+        }
+    }
+
+    public void endRow() {
+        rows++;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public void write(JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("format", "columnar");
+        gen.writeNumberField("liczba", rows);
+        for (Column c : columns) {
+            if (c.kind == Kind.TIME) {
+                writeTime(gen, c);
+                continue;
+            }
+            gen.writeArrayFieldStart(c.name);
+            for (int r = 0; r < rows; r++) {
+                if (c.nulls[r]) {
+                    gen.writeNull();
+                    continue;
+                }
+                switch (c.kind) {
+                    case LONG -> gen.writeNumber(c.longs[r]);
+                    case DOUBLE -> gen.writeNumber(c.doubles[r]);
+                    default -> gen.writeString(c.texts[r]);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        write(gen);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        write(gen);
+    }
+
+    private void writeTime(JsonGenerator gen, Column c) throws IOException {
+        Long prev = null;
+        for (int r = 0; r < rows && prev == null; r++) {
+            if (!c.nulls[r]) prev = c.longs[r];
+        }
+        gen.writeFieldName(c.name + "_start_ms");
+        if (prev == null) gen.writeNull();
+        else gen.writeNumber(prev);
+        gen.writeArrayFieldStart(c.name + "_delta_ms");
+        for (int r = 0; r < rows; r++) {
+            if (c.nulls[r]) {
+                gen.writeNull();
+                continue;
+            }
+            gen.writeNumber(c.longs[r] - prev);
+            prev = c.longs[r];
+        }
+        gen.writeEndArray();
+    }
+
+    private void init(Column c, Object value) {
+        if (value instanceof Date) {
+            c.kind = Kind.TIME;
+            c.longs = new long[capacity];
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            c.kind = Kind.LONG;
+            c.longs = new long[capacity];
+        } else if (value instanceof Number) {
+            c.kind = Kind.DOUBLE;
+            c.doubles = new double[capacity];
+        } else {
+            c.kind = Kind.TEXT;
+            c.texts = new String[capacity];
+        }
+    }
+
+    private void toDoubles(Column c) {
+        if (c.kind == Kind.DOUBLE) return;
+        c.doubles = new double[capacity];
+        for (int r = 0; r < rows; r++) c.doubles[r] = c.longs[r];
+        c.longs = null;
+        c.kind = Kind.DOUBLE;
+    }
+
+    private void ensureCapacity() {
+        if (rows < capacity) return;
+        capacity *= 2;
+        for (Column c : columns) {
+            c.nulls = Arrays.copyOf(c.nulls, capacity);
+            if (c.longs != null) c.longs = Arrays.copyOf(c.longs, capacity);
+            if (c.doubles != null) c.doubles = Arrays.copyOf(c.doubles, capacity);
+            if (c.texts != null) c.texts = Arrays.copyOf(c.texts, capacity);
+        }
+    }
+}
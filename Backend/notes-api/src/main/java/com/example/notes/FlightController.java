@@ -1,23 +1,116 @@
 package com.example.notes;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/lot")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {"X-Nastepny-Kursor", "X-Punkty-Oryginalnie"})
 public class FlightController {
 
+    private static final Logger log = LoggerFactory.getLogger(FlightController.class);
+
+    private static final int MAX_BATCH_POINTS = 5000;
+    private static final int DEFAULT_TELEMETRY_PAGE = 1000;
+    private static final int DEFAULT_FLIGHT_PAGE = 50;
+    private static final int MAX_FLIGHT_PAGE = 500;
+    private static final int MAX_TELEMETRY_PAGE = 10000;
+    // Kolumny odczytu telemetrii (SQL, archiwum, uproszczony ślad) - dla format=columnar przy pustym wyniku
+    private static final String[] TELEMETRY_COLUMNS = {
+            "id_telemetrii", "czas", "lat", "lon", "wysokosc_m", "predkosc_m_s", "bateria_pro", "sila_sygnalu"
+    };
+
     private final JdbcTemplate jdbc;
+    private final TelemetryIngestService telemetryIngest;
+    private final ActiveFlightRegistry activeFlights;
+    private final TelemetryCopyLoader telemetryCopyLoader;
+    private final TelemetryStreamUploader telemetryStreamUploader;
+    private final TelemetryUploadProgress telemetryUploadProgress;
+    private final SimplifiedTrackService simplifiedTracks;
+    private final JsonRowStreamer rowStreamer;
+    private final TelemetryArchiver telemetryArchiver;
+    private final RouteGeometryCache routeGeometries;
+    private final FlightDistanceReconciler distanceReconciler;
+    private final FlightStatsService flightStats;
+    private final LiveTelemetryHub liveHub;
+    private final AirspaceSnapshot airspace;
+    private final RouteDeviationMonitor deviations;
+    private final GeofenceMonitor geofenceMonitor;
+    private final GeofenceService geofence;
+    private final FlightEventLog eventLog;
+    private final RouteSafetyValidator routeValidator;
+    private final TelemetrySequenceFilter sequences;
+    private final FlightSummaryChecker summaryChecker;
+    private final TelemetryWebSocketHandler telemetryWs;
+    private final boolean blockUnsafeRoutes;
 
-    public FlightController(JdbcTemplate jdbc) {
+    public FlightController(JdbcTemplate jdbc,
+                            TelemetryIngestService telemetryIngest,
+                            ActiveFlightRegistry activeFlights,
+                            TelemetryCopyLoader telemetryCopyLoader,
+                            TelemetryStreamUploader telemetryStreamUploader,
+                            TelemetryUploadProgress telemetryUploadProgress,
+                            SimplifiedTrackService simplifiedTracks,
+                            JsonRowStreamer rowStreamer,
+                            TelemetryArchiver telemetryArchiver,
+                            RouteGeometryCache routeGeometries,
+                            FlightDistanceReconciler distanceReconciler,
+                            FlightStatsService flightStats,
+                            LiveTelemetryHub liveHub,
+                            AirspaceSnapshot airspace,
+                            RouteDeviationMonitor deviations,
+                            GeofenceMonitor geofenceMonitor,
+                            GeofenceService geofence,
+                            FlightEventLog eventLog,
+                            RouteSafetyValidator routeValidator,
+                            TelemetrySequenceFilter sequences,
+                            FlightSummaryChecker summaryChecker,
+                            TelemetryWebSocketHandler telemetryWs,
+                            @Value("${lot.start.blokuj-niebezpieczne:false}") boolean blockUnsafeRoutes) {
         this.jdbc = jdbc;
+        this.telemetryIngest = telemetryIngest;
+        this.activeFlights = activeFlights;
+        this.telemetryCopyLoader = telemetryCopyLoader;
+        this.telemetryStreamUploader = telemetryStreamUploader;
+        this.telemetryUploadProgress = telemetryUploadProgress;
+        this.simplifiedTracks = simplifiedTracks;
+        this.rowStreamer = rowStreamer;
+        this.telemetryArchiver = telemetryArchiver;
+        this.routeGeometries = routeGeometries;
+        this.distanceReconciler = distanceReconciler;
+        this.flightStats = flightStats;
+        this.liveHub = liveHub;
+        this.airspace = airspace;
+        this.deviations = deviations;
+        this.geofenceMonitor = geofenceMonitor;
+        this.geofence = geofence;
+        this.eventLog = eventLog;
+        this.routeValidator = routeValidator;
+        this.sequences = sequences;
+        this.summaryChecker = summaryChecker;
+        this.telemetryWs = telemetryWs;
+        this.blockUnsafeRoutes = blockUnsafeRoutes;
     }
 
     public static class StartFlightRequest {
@@ -37,6 +130,9 @@ public class FlightController {
         public Double predkosc_m_s;
         public Double bateria_pro;
         public String sila_sygnalu;
+
+        // Numer kolejny punktu nadany przez klienta (rosnący w obrębie lotu)
+        public Long seq;
     }
 
     // Tworzenie nowego rekordu przy nowej misji
@@ -54,6 +150,14 @@ public class FlightController {
             );
         }
 
+        // Werdykt walidacji trasy - zwykle gotowy w pamięci (RouteSafetyValidator odświeża go w tle)
+        Map<String, Object> validation = routeValidation(req.id_trasy);
+        if (blockUnsafeRoutes && validation != null && Boolean.FALSE.equals(validation.get("bezpieczna"))) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Trasa " + req.id_trasy + " narusza strefy zakazane lub infrastrukturę krytyczną"
+                            + " (GET /api/route/" + req.id_trasy + "/validation)");
+        }
+
         String sql = """
             INSERT INTO public.lot (
                 id_operatora, id_drona, id_trasy, czas_startu, status, id_typ
@@ -62,7 +166,7 @@ public class FlightController {
             RETURNING id_lotu, czas_startu, status, id_operatora, id_drona, id_trasy, id_typ
         """;
 
-        return jdbc.queryForMap(
+        Map<String, Object> row = jdbc.queryForMap(
                 sql,
                 req.id_operatora,
                 req.id_drona,
@@ -70,72 +174,130 @@ public class FlightController {
                 "Rozpoczęty",
                 req.id_typ
         );
+        ActiveFlightRegistry.ActiveFlight flight = activeFlights.register(
+                ((Number) row.get("id_lotu")).intValue(),
+                req.id_trasy,
+                req.id_drona,
+                (Timestamp) row.get("czas_startu")
+        );
+        airspace.flightStarted(flight);
+        deviations.flightStarted(flight);
+        sequences.flightStarted(flight.idLotu);
+        row.put("walidacja_trasy", validation);
+        return row;
+    }
+
+    // Skrót werdyktu do odpowiedzi startu; null, gdy walidacja się nie udała (start i tak przechodzi)
+    private Map<String, Object> routeValidation(int idTrasy) {
+        try {
+            Map<String, Object> body = routeValidator.toBody(routeValidator.validate(idTrasy), System.currentTimeMillis());
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("bezpieczna", body.get("bezpieczna"));
+            m.put("naruszenia", ((List<?>) body.get("naruszenia")).size());
+            return m;
+        } catch (RuntimeException e) {
+            log.warn("Walidacja trasy id_trasy={} przy starcie nieudana: {}", idTrasy, e.getMessage());
+            return null;
+        }
     }
 
     // Uaktualnienie nowego rekordu po skończeniu misji
     @PostMapping("/{id}/finish")
     public Map<String, Object> finishFlight(@PathVariable int id) {
-        String sql = """
-            UPDATE public.lot
-            SET status = ?, czas_konca = now()::timestamp
-            WHERE id_lotu = ? AND czas_konca IS NULL
-            RETURNING id_lotu, status, czas_startu, czas_konca
-        """;
-
-        try {
-            return jdbc.queryForMap(sql, "Zakończony", id);
-        } catch (EmptyResultDataAccessException e) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND,
-                    "Lot nie istnieje albo już zakończony: id_lotu=" + id
-            );
-        }
+        return endFlight(id, "Zakończony");
     }
 
     // Przerwanie lotu
     @PostMapping("/{id}/abort")
     public Map<String, Object> abortFlight(@PathVariable int id) {
+        return endFlight(id, "Przerwany");
+    }
+
+    // Dystans i czas lotu zapisujemy z wartości liczonych przy przyjmowaniu telemetrii.
+    // Gdy bieżący dystans nie jest pełny (restart, bulk, punkty nie po kolei), podajemy null
+    // i trigger lot_set_distance_on_finish liczy go jak dawniej z całej telemetrii.
+    private Map<String, Object> endFlight(int id, String status) {
         String sql = """
             UPDATE public.lot
-            SET status = ?, czas_konca = now()::timestamp
+            SET status = ?,
+                czas_konca = now()::timestamp,
+                rzeczywista_dlugosc_lotu_m = COALESCE(?::numeric, rzeczywista_dlugosc_lotu_m),
+                rzeczywisty_czas_s = GREATEST(0, EXTRACT(EPOCH FROM (now()::timestamp - czas_startu))::int)
             WHERE id_lotu = ? AND czas_konca IS NULL
             RETURNING id_lotu, status, czas_startu, czas_konca
         """;
 
+        requireActive(id);
+        // oczekujące punkty z WebSocket zapisujemy, a sesje lotu zamykamy - dalsze ramki trafiłyby do lotu zakończonego
+        telemetryWs.flightEnded(id);
+        // punkty z kolejki zapisu muszą trafić do lotu przed czas_konca (dystans, statystyki, zdarzenie "koniec")
+        boolean flushed = telemetryIngest.awaitFlushed(id);
+        ActiveFlightRegistry.ActiveFlight flight = activeFlights.get(id);
+        Double distanceM = flight == null || !flushed ? null : flight.postep.finalDistanceM();
         try {
-            return jdbc.queryForMap(sql, "Przerwany", id);
+            Map<String, Object> row = jdbc.queryForMap(sql, status, distanceM, id);
+            activeFlights.unregister(id);
+            airspace.flightEnded(id);
+            deviations.flightEnded(id);
+            geofenceMonitor.flightEnded(id);
+            sequences.flightEnded(id);
+            if (distanceM != null || !flushed) distanceReconciler.enqueue(id);
+            if (flushed) {
+                flightStats.saveFinished(id, flight);
+            } else {
+                // spóźnione punkty nie trafią już do flight.statystyki - wiersz policzy się z telemetrii
+                // przy odczycie; usuwamy go jeszcze raz po zapisie ostatniego punktu
+                flightStats.invalidate(id);
+                telemetryIngest.whenFlushed(id, () -> flightStats.invalidate(id));
+            }
+            liveHub.close(id);
+            return row;
         } catch (EmptyResultDataAccessException e) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND,
-                    "Lot nie istnieje albo już zakończony: id_lotu=" + id
-            );
+            activeFlights.unregister(id);
+            airspace.flightEnded(id);
+            deviations.flightEnded(id);
+            geofenceMonitor.flightEnded(id);
+            sequences.flightEnded(id);
+            throw notActive(id);
         }
     }
 
     // Dodanie telemetrii do bazy danych
     @PostMapping("/{id}/telemetria")
-    public Map<String, Object> addTelemetryPoint(@PathVariable int id,
-                                                 @RequestBody TelemetryCreateRequest req) {
+    public ResponseEntity<Map<String, Object>> addTelemetryPoint(@PathVariable int id,
+                                                                 @RequestBody TelemetryCreateRequest req) {
         if (req == null || req.lat == null || req.lon == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Brak lat/lon");
         }
 
-        if (req.lat < -90 || req.lat > 90 || req.lon < -180 || req.lon > 180) {
+        if (!hasValidLatLon(req)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nieprawidłowe lat/lon");
         }
 
-        Integer cnt = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM public.lot WHERE id_lotu = ?",
-                Integer.class,
-                id
-        );
-        if (cnt == null || cnt == 0) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Lot nie istnieje: id_lotu=" + id);
+        requireActive(id);
+
+        // Ponowienie punktu, który już mamy: odpowiedź jak przy sukcesie, bez drugiego wiersza
+        if (!sequences.admit(id, req)) {
+            Map<String, Object> res = new LinkedHashMap<>();
+            res.put("id_lotu", id);
+            res.put("seq", req.seq);
+            res.put("status", "duplikat");
+            return ResponseEntity.ok(withHint(res));
+        }
+
+        if (telemetryIngest.isAsync()) {
+            if (!telemetryIngest.enqueue(id, List.of(req))) {
+                return queueFull(id);
+            }
+            Map<String, Object> res = new LinkedHashMap<>();
+            res.put("id_lotu", id);
+            res.put("status", "w kolejce");
+            return ResponseEntity.accepted().body(withHint(res));
         }
 
         String sql = """
             INSERT INTO public.telemetria (
-                id_lotu, czas, wspolrzedne, wysokosc_m, predkosc_m_s, bateria_pro, sila_sygnalu
+                id_lotu, czas, wspolrzedne, wysokosc_m, predkosc_m_s, bateria_pro, sila_sygnalu, seq
             )
             VALUES (
                 ?,
@@ -147,13 +309,15 @@ public class FlightController {
                 ?,
                 ?,
                 ?,
+                ?,
                 ?
             )
             RETURNING id_telemetrii, id_lotu, czas
         """;
 
         try {
-            return jdbc.queryForMap(
+            long t0 = System.nanoTime();
+            Map<String, Object> row = jdbc.queryForMap(
                 sql,
                 id,
                 req.czas_ms,
@@ -162,82 +326,338 @@ public class FlightController {
                 req.wysokosc_m,
                 req.predkosc_m_s,
                 req.bateria_pro,
-                req.sila_sygnalu
+                req.sila_sygnalu,
+                req.seq
+            );
+            telemetryIngest.recordCommit(System.nanoTime() - t0);
+            telemetryIngest.accepted(id, List.of(req));
+            return ResponseEntity.ok(withHint(row));
+        } catch (Exception e) {
+            sequences.forget(id, List.of(req));
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Błąd zapisu telemetrii: " + e.getMessage()
+            );
+        }
+    }
+
+    // Dodanie wielu punktów telemetrii w jednym żądaniu
+    @PostMapping("/{id}/telemetria/batch")
+    public ResponseEntity<Map<String, Object>> addTelemetryBatch(@PathVariable int id,
+                                                                 @RequestBody List<TelemetryCreateRequest> req) {
+        if (req == null || req.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Brak punktów telemetrii");
+        }
+        if (req.size() > MAX_BATCH_POINTS) {
+            throw new ResponseStatusException(
+                    HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Za dużo punktów w jednym żądaniu (max " + MAX_BATCH_POINTS + ")"
+            );
+        }
+
+        requireActive(id);
+
+        List<TelemetryCreateRequest> valid = validPoints(req);
+        List<TelemetryCreateRequest> fresh = telemetryIngest.deduplicate(id, valid);
+        int duplicates = valid.size() - fresh.size();
+
+        if (telemetryIngest.isAsync()) {
+            if (!fresh.isEmpty() && !telemetryIngest.enqueue(id, fresh)) {
+                return queueFull(id);
+            }
+            return ResponseEntity.accepted().body(withHint(batchResult(id, fresh.size(), req.size(), duplicates)));
+        }
+
+        int accepted;
+        try {
+            accepted = telemetryIngest.writeNow(id, fresh);
+        } catch (Exception e) {
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Błąd zapisu telemetrii: " + e.getMessage()
             );
+        }
+        return ResponseEntity.ok(withHint(batchResult(id, accepted, req.size(), duplicates)));
+    }
+
+    // Ta sama partia w zwartym formacie binarnym (TelemetryBinaryCodec)
+    @PostMapping(value = "/{id}/telemetria/batch", consumes = TelemetryBinaryCodec.MEDIA_TYPE)
+    public ResponseEntity<Map<String, Object>> addTelemetryBatchBinary(@PathVariable int id,
+                                                                       @RequestBody byte[] body) {
+        return addTelemetryBatch(id, decodeBinary(body));
+    }
+
+    // Masowy zapis telemetrii (np. po locie) przez COPY, także dla lotów zakończonych
+    @PostMapping("/{id}/telemetria/bulk")
+    public Map<String, Object> addTelemetryBulk(@PathVariable int id,
+                                                @RequestBody List<TelemetryCreateRequest> req) {
+        if (req == null || req.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Brak punktów telemetrii");
+        }
+        requireExists(id);
+
+        List<TelemetryCreateRequest> valid = validPoints(req);
+
+        int accepted;
+        try {
+            accepted = valid.isEmpty() ? 0 : telemetryCopyLoader.load(id, valid);
         } catch (Exception e) {
             throw new ResponseStatusException(
                     HttpStatus.INTERNAL_SERVER_ERROR,
                     "Błąd zapisu telemetrii: " + e.getMessage()
             );
         }
+        afterUpload(id);
+        return batchResult(id, accepted, req.size());
+    }
+
+    @PostMapping(value = "/{id}/telemetria/bulk", consumes = TelemetryBinaryCodec.MEDIA_TYPE)
+    public Map<String, Object> addTelemetryBulkBinary(@PathVariable int id,
+                                                      @RequestBody byte[] body) {
+        return addTelemetryBulk(id, decodeBinary(body));
+    }
+
+    // Upload całej telemetrii lotu jako strumień NDJSON (jeden punkt w linii)
+    @PostMapping(value = "/{id}/telemetria/stream", consumes = "application/x-ndjson")
+    public ResponseEntity<Map<String, Object>> uploadTelemetryStream(@PathVariable int id,
+                                                                     HttpServletRequest request) throws IOException {
+        requireExists(id);
+        TelemetryStreamUploader.StreamResult r = telemetryStreamUploader.upload(id, request.getInputStream());
+        if (r.accepted() > 0) afterUpload(id);
+
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("id_lotu", id);
+        res.put("przyjete", r.accepted());
+        res.put("odrzucone", r.rejected());
+        res.put("pominiete", r.skipped());
+        res.put("partie", r.batches());
+        res.put("ostatni_seq", r.lastSeq());
+        res.put("zakonczono", r.error() == null);
+        if (r.error() != null) {
+            res.put("blad", r.error());
+            HttpStatus status = r.badInput() ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR;
+            return ResponseEntity.status(status).body(res);
+        }
+        return ResponseEntity.ok(res);
+    }
+
+    // Ostatni zapisany seq - od niego klient wznawia upload
+    @GetMapping("/{id}/telemetria/stream")
+    public Map<String, Object> telemetryStreamProgress(@PathVariable int id) {
+        requireExists(id);
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("id_lotu", id);
+        res.put("ostatni_seq", telemetryUploadProgress.lastSeq(id));
+        return res;
+    }
+
+    // Podgląd lotu na żywo (Server-Sent Events): tylko nowe punkty, zdarzenia "punkt", "luka", "koniec".
+    // Po zerwaniu połączenia przeglądarka wysyła Last-Event-ID i dostaje zaległe punkty.
+    @GetMapping(value = "/{id}/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter live(@PathVariable int id,
+                           @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        requireActive(id);
+        return liveHub.subscribe(id, lastEventId);
+    }
+
+    // Statystyki lotu: wysokość min/max, prędkość średnia/max, spadek baterii (%/min),
+    // rozkład siły sygnału, częstotliwość próbkowania. W trakcie lotu liczone na bieżąco.
+    @GetMapping("/{id}/stats")
+    public Map<String, Object> flightStats(@PathVariable int id) {
+        if (!activeFlights.isActive(id)) requireExists(id);
+        return flightStats.stats(id);
+    }
+
+    // Stan kolejki zapisu telemetrii i rejestru aktywnych lotów
+    @GetMapping("/ingest/metryki")
+    public Map<String, Object> ingestMetrics() {
+        Map<String, Object> m = telemetryIngest.metrics();
+        m.put("rejestr_lotow", activeFlights.metrics());
+        m.put("uzgadnianie_dystansu", distanceReconciler.metrics());
+        m.put("podglad_na_zywo", liveHub.metrics());
+        m.put("odchylenia_od_trasy", deviations.metrics());
+        m.put("strefy_zakazane", geofence.metrics());
+        m.put("zdarzenia_lotow", eventLog.metrics());
+        m.put("walidacja_tras", routeValidator.metrics());
+        m.put("numery_seq", sequences.metrics());
+        m.put("podsumowanie_lotow", summaryChecker.metrics());
+        return m;
+    }
+
+    // Telemetria dograna z pominięciem ingestu: uproszczenia są nieaktualne, a dystans i statystyki
+    // lotu trzeba policzyć od nowa (aktywny - przy zakończeniu, zakończony - w tle / przy odczycie)
+    private void afterUpload(int id) {
+        simplifiedTracks.invalidate(id);
+        sequences.invalidate(id);
+        ActiveFlightRegistry.ActiveFlight flight = activeFlights.get(id);
+        if (flight != null) {
+            flight.postep.invalidate();
+            flight.statystyki.invalidate();
+        } else {
+            distanceReconciler.enqueue(id);
+            flightStats.invalidate(id);
+        }
+    }
+
+    private void requireExists(int id) {
+        Integer cnt = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM public.lot WHERE id_lotu = ?",
+                Integer.class,
+                id
+        );
+        if (cnt == null || cnt == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Lot nie istnieje: id_lotu=" + id);
+        }
+    }
+
+    private void requireActive(int id) {
+        if (!activeFlights.isActive(id)) {
+            throw notActive(id);
+        }
+    }
+
+    private static ResponseStatusException notActive(int id) {
+        return new ResponseStatusException(
+                HttpStatus.NOT_FOUND,
+                "Lot nie istnieje albo już zakończony: id_lotu=" + id
+        );
+    }
+
+    private static Map<String, Object> batchResult(int id, int accepted, int total) {
+        return batchResult(id, accepted, total, 0);
+    }
+
+    // duplikaty - punkty z seq, który już przyjęliśmy (ponowienie żądania)
+    private static Map<String, Object> batchResult(int id, int accepted, int total, int duplicates) {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("id_lotu", id);
+        res.put("przyjete", accepted);
+        res.put("odrzucone", total - accepted - duplicates);
+        res.put("duplikaty", duplicates);
+        return res;
+    }
+
+    // Zalecenia dla klienta przy obciążonym zapisie: co ile wysyłać i ile punktów na raz
+    private Map<String, Object> withHint(Map<String, Object> res) {
+        res.put("zalecenia", telemetryIngest.hint().toBody());
+        return res;
+    }
+
+    // 503 z zaleceniami w treści; Retry-After (w sekundach, w górę) z zalecanego interwału
+    private ResponseEntity<Map<String, Object>> queueFull(int id) {
+        TelemetryBackpressure.Hint hint = telemetryIngest.hint();
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("id_lotu", id);
+        res.put("status", "kolejka pełna");
+        res.put("blad", "Kolejka telemetrii pełna, spróbuj ponownie");
+        res.put("zalecenia", hint.toBody());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (hint.interwalMs() + 999) / 1000)))
+                .body(res);
+    }
+
+    private static List<TelemetryCreateRequest> decodeBinary(byte[] body) {
+        try {
+            return TelemetryBinaryCodec.decodeToRequests(body);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static List<TelemetryCreateRequest> validPoints(List<TelemetryCreateRequest> req) {
+        List<TelemetryCreateRequest> valid = new ArrayList<>(req.size());
+        for (TelemetryCreateRequest p : req) {
+            if (isValidPoint(p)) {
+                valid.add(p);
+            }
+        }
+        return valid;
+    }
+
+    static boolean isValidPoint(TelemetryCreateRequest p) {
+        return p != null && p.lat != null && p.lon != null && hasValidLatLon(p);
     }
 
-    // Historia lotów
+    private static boolean hasValidLatLon(TelemetryCreateRequest p) {
+        return p.lat >= -90 && p.lat <= 90 && p.lon >= -180 && p.lon <= 180;
+    }
+
+    // Historia lotów od najnowszych, stronami: limit (domyślnie 50) i after=<czas_startu,id_lotu>
+    // z nagłówka X-Nastepny-Kursor. Filtry: id_operatora, id_drona, id_trasy, status, from/to (czas startu).
     @GetMapping
-    public List<Map<String, Object>> listFlights() {
-        String sql = """
-        SELECT l.id_lotu,
-               l.id_trasy,
-               t.nazwa AS nazwa_trasy,
-               l.czas_startu,
-               l.czas_konca,
-               COALESCE(l.rzeczywisty_czas_s,
-                        EXTRACT(EPOCH FROM (l.czas_konca - l.czas_startu)))::int AS czas_trwania_s,
-               COALESCE(o.imie || ' ' || o.nazwisko, '') AS operator,
-               l.status
-        FROM public.lot l
-        LEFT JOIN public.trasy    t ON t.id_trasy     = l.id_trasy
-        LEFT JOIN public.operator o ON o.id_operatora = l.id_operatora
-        ORDER BY l.czas_startu DESC NULLS LAST
-        """;
-        return jdbc.queryForList(sql);
+    public ResponseEntity<List<Map<String, Object>>> listFlights(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(name = "id_operatora", required = false) Integer idOperatora,
+            @RequestParam(name = "id_drona", required = false) Integer idDrona,
+            @RequestParam(name = "id_trasy", required = false) Integer idTrasy,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        int pageSize = limit == null ? DEFAULT_FLIGHT_PAGE : limit;
+        if (pageSize < 1 || pageSize > MAX_FLIGHT_PAGE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit musi być z zakresu 1.." + MAX_FLIGHT_PAGE);
+        }
+        FlightHistoryQuery query = new FlightHistoryQuery(idOperatora, idDrona, idTrasy,
+                status == null || status.isBlank() ? null : status, from, to,
+                after == null ? null : FlightCursor.parse(after), pageSize);
+        List<Map<String, Object>> rows = query.page(jdbc);
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok();
+        String next = query.nextCursor(rows);
+        if (next != null) res.header("X-Nastepny-Kursor", next);
+        return res.body(rows);
     }
 
-    // Szczególy lotu
+    // Szczególy lotu - jeden wiersz lot_podsumowanie (V11) zamiast złączenia pięciu tabel
     @GetMapping("/{id}")
     public Map<String, Object> flightDetail(@PathVariable int id) {
         String sql = """
         SELECT
-            l.id_lotu, l.id_trasy, l.czas_startu, l.czas_konca, l.status,
-            l.rzeczywista_dlugosc_lotu_m,
-            COALESCE(l.rzeczywisty_czas_s,
-                     EXTRACT(EPOCH FROM (l.czas_konca - l.czas_startu)))::int AS czas_trwania_s,
-
-            t.nazwa  AS nazwa_trasy,
-            t.opis   AS opis_trasy,
-
-            o.id_operatora,
-            o.imie, o.nazwisko, o.e_mail,
-            o.numer_operatora AS uid_operatora,
-            ed.id_drona,
-            ed.numer_seryjny,
-            ed.status AS status_drona,
-
-            md.producent,
-            md.nazwa_modelu,
-            md.klasa_drona,
-            md.masa_g,
-            md.zasieg_m,
-            md.predkosc_m_s,
-
-            tl.id_typ        AS id_typu_lotu,
-            tl.nazwa         AS typ_lotu,
-            tl.opis          AS opis_typu,
-            tl.metadane      AS metadane_typu
-        FROM public.lot l
-        LEFT JOIN public.trasy            t  ON t.id_trasy     = l.id_trasy
-        LEFT JOIN public.operator         o  ON o.id_operatora = l.id_operatora
-        LEFT JOIN public.egzemplarz_drona ed ON ed.id_drona    = l.id_drona
-        LEFT JOIN public.model_drona      md ON md.id_modelu   = ed.id_modelu
-        LEFT JOIN public.typ_lotu         tl ON tl.id_typ      = l.id_typ
-        WHERE l.id_lotu = ?
+            p.id_lotu, p.id_trasy, p.czas_startu, p.czas_konca, p.status,
+            p.rzeczywista_dlugosc_lotu_m,
+            p.czas_trwania_s,
+
+            p.nazwa_trasy,
+            p.opis_trasy,
+
+            p.id_operatora,
+            p.imie, p.nazwisko, p.e_mail,
+            p.uid_operatora,
+            p.id_drona,
+            p.numer_seryjny,
+            p.status_drona,
+
+            p.producent,
+            p.nazwa_modelu,
+            p.klasa_drona,
+            p.masa_g,
+            p.zasieg_m,
+            p.predkosc_m_s,
+
+            p.id_typu_lotu,
+            p.typ_lotu,
+            p.opis_typu,
+            p.metadane_typu
+        FROM public.lot_podsumowanie p
+        WHERE p.id_lotu = ?
         """;
         return jdbc.queryForMap(sql, id);
     }
 
-    // Wyświeltenie trasy danego lotu
+    // Wyświeltenie trasy danego lotu; encoding=polyline - zakodowana linia trasy z cache
     @GetMapping("/{id}/route-points")
-    public List<Map<String,Object>> flightRoutePoints(@PathVariable int id) {
+    public ResponseEntity<?> flightRoutePoints(@PathVariable int id,
+                                               @RequestParam(required = false) String encoding,
+                                               @RequestParam(defaultValue = "false") boolean altitude) {
+        if (isPolyline(encoding, false)) {
+            Integer idTrasy = jdbc.query("SELECT id_trasy FROM public.lot WHERE id_lotu = ?",
+                    rs -> rs.next() ? (Integer) rs.getObject(1) : null, id);
+            PolylineEncoder route = idTrasy == null ? new PolylineEncoder() : routeGeometries.get(idTrasy).polyline();
+            return ResponseEntity.ok(route.toBody(altitude));
+        }
         String sql = """
         SELECT
             tp.kolejnosc,
@@ -250,13 +670,67 @@ public class FlightController {
         WHERE l.id_lotu = ?
         ORDER BY tp.kolejnosc
         """;
-        return jdbc.queryForList(sql, id);
+        return rowStreamer.response(sql, id);
     }
 
     // Wyświetlenie telemetrii danego lotu
+    // Opcjonalnie uproszczony ślad: tolerance_m (Douglas-Peucker) i/lub max_points (Visvalingam).
+    // Stronicowanie kursorem: after=<czas,id_telemetrii> z nagłówka X-Nastepny-Kursor i limit,
+    // zapytanie idzie po indeksie telemetria_lot_czas_idx bez OFFSET. Okno czasu: from/to.
+    // encoding=polyline - ślad jako zakodowana linia (altitude=true dokłada wysokości).
     @GetMapping("/{id}/telemetria")
-    public List<Map<String, Object>> flightTelemetry(@PathVariable int id) {
-        String sql = """
+    public ResponseEntity<?> flightTelemetry(@PathVariable int id,
+                                             @RequestParam(name = "tolerance_m", required = false) Double toleranceM,
+                                             @RequestParam(name = "max_points", required = false) Integer maxPoints,
+                                             @RequestParam(required = false) String after,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                             @RequestParam(required = false) String format,
+                                             @RequestParam(required = false) String encoding,
+                                             @RequestParam(defaultValue = "false") boolean altitude) {
+        boolean columnar = isColumnar(format);
+        boolean polyline = isPolyline(encoding, columnar);
+        Function<List<Map<String, Object>>, Object> body = rows -> polyline
+                ? PolylineEncoder.of(rows).toBody(altitude)
+                : columnar ? ColumnarJson.of(rows, TELEMETRY_COLUMNS, "czas") : rows;
+        boolean paged = after != null || limit != null;
+        if (toleranceM != null || maxPoints != null) {
+            if (paged || from != null || to != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Uproszczenia śladu nie można łączyć z after/limit/from/to");
+            }
+            if (toleranceM != null && !(toleranceM > 0)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "tolerance_m musi być dodatnie");
+            }
+            if (maxPoints != null && maxPoints < 2) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "max_points musi być co najmniej 2");
+            }
+            SimplifiedTrackService.SimplifiedTrack track = simplifiedTracks.simplified(id, toleranceM, maxPoints);
+            return ResponseEntity.ok()
+                    .header("X-Punkty-Oryginalnie", String.valueOf(track.originalPoints()))
+                    .body(body.apply(track.rows()));
+        }
+
+        Integer pageSize = null;
+        if (paged) {
+            pageSize = limit == null ? DEFAULT_TELEMETRY_PAGE : limit;
+            if (pageSize < 1 || pageSize > MAX_TELEMETRY_PAGE) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "limit musi być z zakresu 1.." + MAX_TELEMETRY_PAGE);
+            }
+        }
+        TelemetryCursor cursor = after == null ? null : TelemetryCursor.parse(after);
+
+        // Lot skompaktowany do archiwum: te same filtry, ale na zdekodowanym śladzie
+        List<Map<String, Object>> archived = telemetryArchiver.readArchived(id);
+        if (archived != null) {
+            return archivedTelemetry(archived, from, to, cursor, pageSize, body);
+        }
+
+        StringBuilder sql = new StringBuilder("""
         SELECT
             tm.id_telemetrii,
             tm.czas,
@@ -268,8 +742,105 @@ public class FlightController {
             tm.sila_sygnalu
         FROM public.telemetria tm
         WHERE tm.id_lotu = ?
-        ORDER BY tm.czas ASC, tm.id_telemetrii ASC
-        """;
-        return jdbc.queryForList(sql, id);
+        """);
+        sql.append(TelemetryPartitionManager.FLIGHT_WINDOW_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(id);
+        args.add(id);
+        args.add(id);
+        if (from != null) {
+            sql.append("  AND tm.czas >= ?\n");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append("  AND tm.czas < ?\n");
+            args.add(Timestamp.valueOf(to));
+        }
+        if (cursor != null) {
+            sql.append("  AND (tm.czas, tm.id_telemetrii) > (?, ?)\n");
+            args.add(Timestamp.valueOf(cursor.czas()));
+            args.add(cursor.idTelemetrii());
+        }
+        sql.append("ORDER BY tm.czas ASC, tm.id_telemetrii ASC\n");
+
+        // Cały ślad (ew. w oknie czasu) strumieniowo; strony są ograniczone limitem,
+        // a nagłówek z kursorem wymaga znajomości ostatniego wiersza przed wysłaniem body
+        if (!paged && polyline) {
+            PolylineEncoder enc = new PolylineEncoder();
+            jdbc.query(sql.toString(), rs -> {
+                if (rs.getObject(3) == null || rs.getObject(4) == null) return;
+                double alt = rs.getDouble(5);
+                enc.add(rs.getDouble(3), rs.getDouble(4), rs.wasNull() ? null : alt);
+            }, args.toArray());
+            return ResponseEntity.ok(enc.toBody(altitude));
+        }
+        if (!paged) {
+            return columnar
+                    ? rowStreamer.columnarResponse(sql.toString(), args.toArray())
+                    : rowStreamer.response(sql.toString(), args.toArray());
+        }
+
+        sql.append("LIMIT ?\n");
+        args.add(pageSize);
+
+        return telemetryPage(jdbc.queryForList(sql.toString(), args.toArray()), pageSize, body);
+    }
+
+    private static ResponseEntity<Object> archivedTelemetry(List<Map<String, Object>> rows,
+                                                            LocalDateTime from,
+                                                            LocalDateTime to,
+                                                            TelemetryCursor cursor,
+                                                            Integer pageSize,
+                                                            Function<List<Map<String, Object>>, Object> body) {
+        Timestamp fromTs = from == null ? null : Timestamp.valueOf(from);
+        Timestamp toTs = to == null ? null : Timestamp.valueOf(to);
+        Timestamp afterTs = cursor == null ? null : Timestamp.valueOf(cursor.czas());
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Timestamp czas = (Timestamp) row.get("czas");
+            if (fromTs != null && czas.before(fromTs)) continue;
+            if (toTs != null && !czas.before(toTs)) continue;
+            if (afterTs != null) {
+                int c = czas.compareTo(afterTs);
+                if (c < 0 || (c == 0 && (Integer) row.get("id_telemetrii") <= cursor.idTelemetrii())) continue;
+            }
+            out.add(row);
+            if (pageSize != null && out.size() == pageSize) break;
+        }
+        if (pageSize == null) {
+            return ResponseEntity.ok(body.apply(out));
+        }
+        return telemetryPage(out, pageSize, body);
+    }
+
+    private static ResponseEntity<Object> telemetryPage(List<Map<String, Object>> rows,
+                                                        int pageSize,
+                                                        Function<List<Map<String, Object>>, Object> body) {
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok();
+        if (rows.size() == pageSize) {
+            Map<String, Object> last = rows.get(rows.size() - 1);
+            res.header("X-Nastepny-Kursor", TelemetryCursor.of(
+                    (Timestamp) last.get("czas"), ((Number) last.get("id_telemetrii")).intValue()));
+        }
+        return res.body(body.apply(rows));
+    }
+
+    // format=columnar - jedna tablica na kolumnę (ColumnarJson), brak albo rows - zwykła lista wierszy
+    static boolean isColumnar(String format) {
+        if (format == null || format.equals("rows")) return false;
+        if (format.equals("columnar")) return true;
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nieznany format: " + format);
+    }
+
+    // encoding=polyline - zakodowana linia Google (PolylineEncoder) zamiast punktów; nie łączy się z format=columnar
+    static boolean isPolyline(String encoding, boolean columnar) {
+        if (encoding == null) return false;
+        if (!encoding.equals("polyline")) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nieznane kodowanie: " + encoding);
+        }
+        if (columnar) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "encoding=polyline nie łączy się z format=columnar");
+        }
+        return true;
     }
 }
@@ -0,0 +1,35 @@
+package com.example.notes;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+// Kursor stronicowania historii lotów: "<czas_startu ISO>,<id_lotu>", np. 2025-05-01T10:15:30.123456,812.
+// Loty bez czasu startu są na końcu listy, ich kursor to ",<id_lotu>".
+public record FlightCursor(LocalDateTime czasStartu, int idLotu) {
+
+    public static FlightCursor parse(String value) {
+        int comma = value.lastIndexOf(',');
+        if (comma < 0) throw invalid(value);
+        try {
+            String czas = value.substring(0, comma).trim();
+            return new FlightCursor(
+                    czas.isEmpty() ? null : LocalDateTime.parse(czas),
+                    Integer.parseInt(value.substring(comma + 1).trim())
+            );
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw invalid(value);
+        }
+    }
+
+    public static String of(Timestamp czasStartu, int idLotu) {
+        return (czasStartu == null ? "" : czasStartu.toLocalDateTime().toString()) + "," + idLotu;
+    }
+
+    private static ResponseStatusException invalid(String value) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nieprawidłowy kursor after: " + value);
+    }
+}
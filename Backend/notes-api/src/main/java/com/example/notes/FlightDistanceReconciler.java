@@ -0,0 +1,101 @@
+package com.example.notes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Uzgadnianie w tle dystansu zapisanego przy zakończeniu lotu (FlightProgress) z calc_lot_distance_m.
+// Loty czekają w lot_do_uzgodnienia: po zakończeniu z dystansem backendu i po dograniu telemetrii
+// (bulk/stream) do lotu już zakończonego. Przy odchyłce ponad tolerancję poprawiamy lot.
+@Component
+public class FlightDistanceReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightDistanceReconciler.class);
+
+    private final JdbcTemplate jdbc;
+    private final double toleranceM;
+    private final double tolerancePct;
+    private final int flightsPerRun;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder corrected = new LongAdder();
+    // maksymalna odchyłka w mm
+    private final AtomicLong maxDiffMm = new AtomicLong();
+
+    public FlightDistanceReconciler(JdbcTemplate jdbc,
+                                    @Value("${lot.uzgadnianie.tolerancja-m:1}") double toleranceM,
+                                    @Value("${lot.uzgadnianie.tolerancja-proc:0.5}") double tolerancePct,
+                                    @Value("${lot.uzgadnianie.lotow-na-przebieg:100}") int flightsPerRun) {
+        this.jdbc = jdbc;
+        this.toleranceM = toleranceM;
+        this.tolerancePct = tolerancePct;
+        this.flightsPerRun = Math.max(1, flightsPerRun);
+    }
+
+    public void enqueue(int idLotu) {
+        jdbc.update("""
+            INSERT INTO public.lot_do_uzgodnienia (id_lotu) VALUES (?)
+            ON CONFLICT (id_lotu) DO UPDATE SET dodano = now()
+            """, idLotu);
+    }
+
+    @Scheduled(fixedDelayString = "${lot.uzgadnianie.co-ms:60000}", initialDelayString = "${lot.uzgadnianie.co-ms:60000}")
+    public void reconcilePending() {
+        List<Map<String, Object>> pending = jdbc.queryForList("""
+            SELECT u.id_lotu, u.dodano, l.rzeczywista_dlugosc_lotu_m,
+                   EXISTS (SELECT 1 FROM public.telemetria_archiwum a WHERE a.id_lotu = u.id_lotu) AS zarchiwizowany
+            FROM public.lot_do_uzgodnienia u
+            JOIN public.lot l ON l.id_lotu = u.id_lotu
+            WHERE l.czas_konca IS NOT NULL
+            ORDER BY u.dodano
+            LIMIT ?
+            """, flightsPerRun);
+        for (Map<String, Object> row : pending) {
+            int idLotu = ((Number) row.get("id_lotu")).intValue();
+            try {
+                // telemetrii w archiwum nie ma już w tabeli, calc_lot_distance_m by jej nie widział
+                if (!Boolean.TRUE.equals(row.get("zarchiwizowany"))) {
+                    reconcile(idLotu, (Number) row.get("rzeczywista_dlugosc_lotu_m"));
+                }
+                // wpis dodany ponownie w trakcie sprawdzania zostaje na następny przebieg
+                jdbc.update("DELETE FROM public.lot_do_uzgodnienia WHERE id_lotu = ? AND dodano = ?",
+                        idLotu, row.get("dodano"));
+            } catch (RuntimeException e) {
+                log.warn("Uzgadnianie dystansu: id_lotu={} nieudane: {}", idLotu, e.getMessage());
+            }
+        }
+    }
+
+    private void reconcile(int idLotu, Number stored) {
+        Double exact = jdbc.queryForObject("SELECT public.calc_lot_distance_m(?)::double precision",
+                Double.class, idLotu);
+        if (exact == null) exact = 0.0;
+        checked.increment();
+        double diff = stored == null ? Double.POSITIVE_INFINITY : Math.abs(stored.doubleValue() - exact);
+        if (Double.isFinite(diff)) {
+            maxDiffMm.accumulateAndGet(Math.round(diff * 1000), Math::max);
+        }
+        if (diff <= Math.max(toleranceM, exact * tolerancePct / 100)) return;
+
+        jdbc.update("UPDATE public.lot SET rzeczywista_dlugosc_lotu_m = ? WHERE id_lotu = ?", exact, idLotu);
+        corrected.increment();
+        log.info("Uzgadnianie dystansu: id_lotu={} zapisane={} PostGIS={} - poprawiono", idLotu, stored, exact);
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sprawdzone", checked.sum());
+        m.put("poprawione", corrected.sum());
+        m.put("odchylka_max_m", maxDiffMm.get() / 1000.0);
+        return m;
+    }
+}
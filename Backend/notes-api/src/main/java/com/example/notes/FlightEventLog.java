@@ -0,0 +1,74 @@
+package com.example.notes;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Zdarzenia lotu wykryte przy przyjmowaniu telemetrii (odchylenie od trasy, strefy zakazane).
+// Ingest tylko wrzuca je do kolejki; do logi_lotu trafiają jednym batchem co zdarzenia.zapis-co-ms.
+@Component
+public class FlightEventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightEventLog.class);
+
+    private final JdbcTemplate jdbc;
+    private final ConcurrentLinkedQueue<Object[]> pending = new ConcurrentLinkedQueue<>();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder saved = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public FlightEventLog(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void record(int idLotu, long czasMs, String typ, String wiadomosc) {
+        pending.add(new Object[] {
+                idLotu, OffsetDateTime.ofInstant(Instant.ofEpochMilli(czasMs), ZoneOffset.UTC), typ, wiadomosc});
+        recorded.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${zdarzenia.zapis-co-ms:1000}")
+    public void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Object[] e; (e = pending.poll()) != null; ) batch.add(e);
+        if (batch.isEmpty()) return;
+        try {
+            jdbc.batchUpdate("""
+                INSERT INTO public.logi_lotu (id_lotu, kiedy, typ_zdarzenia, wiadomosc)
+                VALUES (?, ?, ?, ?)
+                """, batch);
+            saved.add(batch.size());
+        } catch (RuntimeException e) {
+            // zdarzenia nie są krytyczne - nie blokujemy kolejki ponawianiem
+            failed.add(batch.size());
+            log.warn("Zapis zdarzen lotu ({}) nieudany: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("zdarzenia", recorded.sum());
+        m.put("zapisane", saved.sum());
+        m.put("nieudane", failed.sum());
+        m.put("oczekujace", pending.size());
+        return m;
+    }
+}
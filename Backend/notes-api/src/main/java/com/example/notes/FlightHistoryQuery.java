@@ -0,0 +1,98 @@
+package com.example.notes;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Historia lotów (GET /api/lot): strona od najnowszych, kursor (czas_startu, id_lotu) zamiast OFFSET.
+// Czyta samo lot_podsumowanie (V11) - nazwa trasy i operator są już w wierszu, bez złączeń.
+// Każdy filtr ma indeks (kolumna, czas_startu, id_lotu), więc strona to krótki skan indeksu
+// od pozycji kursora niezależnie od liczby lotów. Loty bez czasu startu idą na końcu (NULLS LAST)
+// osobnym zapytaniem po id_lotu, bo porównanie wierszy pomija NULL.
+public record FlightHistoryQuery(Integer idOperatora, Integer idDrona, Integer idTrasy, String status,
+                                 LocalDateTime from, LocalDateTime to, FlightCursor after, int limit) {
+
+    private static final String SELECT_SQL = """
+        SELECT l.id_lotu,
+               l.id_trasy,
+               l.nazwa_trasy,
+               l.czas_startu,
+               l.czas_konca,
+               l.czas_trwania_s,
+               l.operator,
+               l.status
+        FROM public.lot_podsumowanie l
+        WHERE true
+        """;
+
+    public List<Map<String, Object>> page(JdbcTemplate jdbc) {
+        List<Map<String, Object>> rows = new ArrayList<>(limit);
+        if (after == null || after.czasStartu() != null) {
+            rows.addAll(query(jdbc, false, limit));
+        }
+        // Zakres dat wyklucza loty bez czasu startu
+        if (rows.size() < limit && from == null && to == null) {
+            rows.addAll(query(jdbc, true, limit - rows.size()));
+        }
+        return rows;
+    }
+
+    // null, gdy strona nie jest pełna (dalej nic nie ma)
+    public String nextCursor(List<Map<String, Object>> rows) {
+        if (rows.size() < limit) return null;
+        Map<String, Object> last = rows.get(rows.size() - 1);
+        return FlightCursor.of((Timestamp) last.get("czas_startu"), ((Number) last.get("id_lotu")).intValue());
+    }
+
+    private List<Map<String, Object>> query(JdbcTemplate jdbc, boolean withoutStart, int n) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>();
+        if (idOperatora != null) {
+            sql.append("  AND l.id_operatora = ?\n");
+            args.add(idOperatora);
+        }
+        if (idDrona != null) {
+            sql.append("  AND l.id_drona = ?\n");
+            args.add(idDrona);
+        }
+        if (idTrasy != null) {
+            sql.append("  AND l.id_trasy = ?\n");
+            args.add(idTrasy);
+        }
+        if (status != null) {
+            sql.append("  AND l.status = ?\n");
+            args.add(status);
+        }
+        if (withoutStart) {
+            sql.append("  AND l.czas_startu IS NULL\n");
+            if (after != null && after.czasStartu() == null) {
+                sql.append("  AND l.id_lotu < ?\n");
+                args.add(after.idLotu());
+            }
+            sql.append("ORDER BY l.id_lotu DESC\n");
+        } else {
+            sql.append("  AND l.czas_startu IS NOT NULL\n");
+            if (from != null) {
+                sql.append("  AND l.czas_startu >= ?\n");
+                args.add(Timestamp.valueOf(from));
+            }
+            if (to != null) {
+                sql.append("  AND l.czas_startu < ?\n");
+                args.add(Timestamp.valueOf(to));
+            }
+            if (after != null) {
+                sql.append("  AND (l.czas_startu, l.id_lotu) < (?, ?)\n");
+                args.add(Timestamp.valueOf(after.czasStartu()));
+                args.add(after.idLotu());
+            }
+            sql.append("ORDER BY l.czas_startu DESC, l.id_lotu DESC\n");
+        }
+        sql.append("LIMIT ?\n");
+        args.add(n);
+        return jdbc.queryForList(sql.toString(), args.toArray());
+    }
+}
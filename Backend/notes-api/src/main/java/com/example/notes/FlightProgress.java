@@ -0,0 +1,75 @@
+package com.example.notes;
+
+import java.util.List;
+
+// Bieżący dystans, ostatni punkt i czas lotu liczone przy przyjmowaniu telemetrii (ActiveFlight.postep).
+// Dystans jest ważny tylko, gdy punkty przychodzą w kolejności czasu i od początku lotu;
+// w przeciwnym razie pelny = false i przy zakończeniu liczy go PostGIS (calc_lot_distance_m).
+public final class FlightProgress {
+
+    // Elipsoida WGS84 - ta sama, po której liczy ST_Length(geography)
+    private static final double A = 6378137.0;
+    private static final double E2 = 6.69437999014e-3;
+
+    public record Snapshot(int punkty, double dystansM, Double lat, Double lon, Double wysokoscM,
+                           Long ostatniCzasMs, boolean pelny) {}
+
+    private int points;
+    private double distanceM;
+    private double lastLat;
+    private double lastLon;
+    private Double lastAlt;
+    private long lastMs;
+    private boolean complete;
+
+    FlightProgress(boolean complete) {
+        this.complete = complete;
+    }
+
+    public synchronized void addAll(List<FlightController.TelemetryCreateRequest> batch) {
+        for (FlightController.TelemetryCreateRequest p : batch) {
+            // bez czas_ms baza wstawia now(), więc przyjmujemy czas przyjęcia
+            long t = p.czas_ms != null ? p.czas_ms : System.currentTimeMillis();
+            if (points > 0) {
+                if (t < lastMs) complete = false;
+                distanceM += segmentM(lastLat, lastLon, p.lat, p.lon);
+            }
+            lastLat = p.lat;
+            lastLon = p.lon;
+            lastAlt = p.wysokosc_m;
+            lastMs = t;
+            points++;
+        }
+    }
+
+    // Punkty dograne z pominięciem ingestu (bulk/stream) - bieżący dystans przestaje się zgadzać
+    public synchronized void invalidate() {
+        complete = false;
+    }
+
+    public synchronized Snapshot snapshot() {
+        if (points == 0) return new Snapshot(0, 0.0, null, null, null, null, complete);
+        return new Snapshot(points, distanceM, lastLat, lastLon, lastAlt, lastMs, complete);
+    }
+
+    // Dystans do zapisu przy zakończeniu lotu; null, gdy trzeba go policzyć z telemetrii
+    public synchronized Double finalDistanceM() {
+        return complete ? distanceM : null;
+    }
+
+    // Odcinek między kolejnymi punktami: lokalne przybliżenie elipsoidy (promienie krzywizny
+    // w środku odcinka). Dla odcinków rzędu metrów-kilometrów błąd jest pomijalny względem ST_Length.
+    static double segmentM(double lat1, double lon1, double lat2, double lon2) {
+        double phi = Math.toRadians((lat1 + lat2) / 2);
+        double sin = Math.sin(phi);
+        double w = 1 - E2 * sin * sin;
+        double n = A / Math.sqrt(w);
+        double m = n * (1 - E2) / w;
+        double dLon = lon2 - lon1;
+        if (dLon > 180) dLon -= 360;
+        else if (dLon < -180) dLon += 360;
+        double dy = m * Math.toRadians(lat2 - lat1);
+        double dx = n * Math.cos(phi) * Math.toRadians(dLon);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.notes;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Statystyki lotu liczone przyrostowo z przyjmowanej telemetrii (ActiveFlight.statystyki).
+// Każdy punkt to O(1) na polach prymitywnych, bez alokacji. Spadek baterii (%/min) to nachylenie
+// prostej regresji bateria(czas), więc pojedyncze skoki odczytu nie psują wyniku.
+public final class FlightStats {
+
+    // Rozkład siły sygnału: kilka pierwszych wartości osobno, reszta jako "inne"
+    private static final int MAX_SIGNALS = 8;
+
+    private int points;
+    private long firstMs = Long.MAX_VALUE;
+    private long lastMs = Long.MIN_VALUE;
+
+    private int altCount;
+    private double altMin;
+    private double altMax;
+
+    private int speedCount;
+    private double speedSum;
+    private double speedMax;
+
+    private int batCount;
+    private long batFirstMs;
+    private long batLastMs;
+    private double batFirst;
+    private double batLast;
+    // sumy do regresji, x w minutach od pierwszego odczytu baterii
+    private double sx;
+    private double sy;
+    private double sxx;
+    private double sxy;
+
+    private final String[] signals = new String[MAX_SIGNALS];
+    private final int[] signalCounts = new int[MAX_SIGNALS];
+    private int signalOther;
+
+    private boolean complete;
+
+    FlightStats(boolean complete) {
+        this.complete = complete;
+    }
+
+    public synchronized void addAll(List<FlightController.TelemetryCreateRequest> batch) {
+        for (FlightController.TelemetryCreateRequest p : batch) {
+            add(p.czas_ms != null ? p.czas_ms : System.currentTimeMillis(),
+                    p.wysokosc_m, p.predkosc_m_s, p.bateria_pro, p.sila_sygnalu);
+        }
+    }
+
+    public synchronized void add(long czasMs, Double wysokoscM, Double predkoscMS, Double bateriaPro, String silaSygnalu) {
+        points++;
+        if (czasMs < firstMs) firstMs = czasMs;
+        if (czasMs > lastMs) lastMs = czasMs;
+
+        if (wysokoscM != null) {
+            double a = wysokoscM;
+            if (altCount == 0 || a < altMin) altMin = a;
+            if (altCount == 0 || a > altMax) altMax = a;
+            altCount++;
+        }
+        if (predkoscMS != null) {
+            double v = predkoscMS;
+            speedSum += v;
+            if (speedCount == 0 || v > speedMax) speedMax = v;
+            speedCount++;
+        }
+        if (bateriaPro != null) {
+            double b = bateriaPro;
+            if (batCount == 0) {
+                batFirstMs = czasMs;
+                batFirst = b;
+            }
+            if (batCount == 0 || czasMs >= batLastMs) {
+                batLastMs = czasMs;
+                batLast = b;
+            }
+            double x = (czasMs - batFirstMs) / 60_000.0;
+            sx += x;
+            sy += b;
+            sxx += x * x;
+            sxy += x * b;
+            batCount++;
+        }
+        if (silaSygnalu != null) {
+            countSignal(silaSygnalu);
+        }
+    }
+
+    // Telemetria dograna z pominięciem ingestu - statystyki nie obejmują całego lotu
+    public synchronized void invalidate() {
+        complete = false;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    // Klucze jak kolumny lot_statystyki; czasy jako timestamp bez strefy (jak telemetria.czas)
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("liczba_punktow", points);
+        m.put("czas_pierwszy", points == 0 ? null : TelemetryArchiver.toTimestamp(firstMs));
+        m.put("czas_ostatni", points == 0 ? null : TelemetryArchiver.toTimestamp(lastMs));
+        m.put("wysokosc_min_m", altCount == 0 ? null : altMin);
+        m.put("wysokosc_max_m", altCount == 0 ? null : altMax);
+        m.put("predkosc_srednia_m_s", speedCount == 0 ? null : speedSum / speedCount);
+        m.put("predkosc_max_m_s", speedCount == 0 ? null : speedMax);
+        m.put("bateria_pierwsza_pro", batCount == 0 ? null : batFirst);
+        m.put("bateria_ostatnia_pro", batCount == 0 ? null : batLast);
+        m.put("bateria_spadek_pro_min", batteryDrainPerMin());
+        m.put("probkowanie_hz", points > 1 && lastMs > firstMs ? (points - 1) * 1000.0 / (lastMs - firstMs) : null);
+        Map<String, Object> sygnal = new LinkedHashMap<>();
+        for (int i = 0; i < MAX_SIGNALS && signals[i] != null; i++) {
+            sygnal.put(signals[i], signalCounts[i]);
+        }
+        if (signalOther > 0) sygnal.put("inne", signalOther);
+        m.put("sygnal", sygnal);
+        return m;
+    }
+
+    private Double batteryDrainPerMin() {
+        if (batCount < 2) return null;
+        double den = batCount * sxx - sx * sx;
+        if (den <= 0) return null;
+        return -(batCount * sxy - sx * sy) / den;
+    }
+
+    private void countSignal(String s) {
+        for (int i = 0; i < MAX_SIGNALS; i++) {
+            if (signals[i] == null) {
+                signals[i] = s;
+                signalCounts[i] = 1;
+                return;
+            }
+            if (signals[i].equals(s)) {
+                signalCounts[i]++;
+                return;
+            }
+        }
+        signalOther++;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Statystyki lotu dla GET /api/lot/{id}/stats: lot w powietrzu - z pamięci (FlightStats),
+// lot zakończony - z lot_statystyki. Brakujący wiersz (loty sprzed tabeli, dograna telemetria)
+// liczymy raz z telemetrii lub archiwum i zapisujemy.
+@Service
+public class FlightStatsService {
+
+    private static final String TELEMETRY_SQL = """
+        SELECT tm.czas, tm.wysokosc_m, tm.predkosc_m_s, tm.bateria_pro, tm.sila_sygnalu
+        FROM public.telemetria tm
+        WHERE tm.id_lotu = ?
+        """ + TelemetryPartitionManager.FLIGHT_WINDOW_SQL;
+
+    private static final String STORED_SQL = """
+        SELECT
+            s.liczba_punktow,
+            s.czas_pierwszy,
+            s.czas_ostatni,
+            s.wysokosc_min_m,
+            s.wysokosc_max_m,
+            s.predkosc_srednia_m_s,
+            s.predkosc_max_m_s,
+            s.bateria_pierwsza_pro,
+            s.bateria_ostatnia_pro,
+            s.bateria_spadek_pro_min,
+            s.probkowanie_hz,
+            s.sygnal::text AS sygnal,
+            l.rzeczywista_dlugosc_lotu_m AS dystans_m
+        FROM public.lot_statystyki s
+        JOIN public.lot l ON l.id_lotu = s.id_lotu
+        WHERE s.id_lotu = ?
+        """;
+
+    private final JdbcTemplate jdbc;
+    private final ActiveFlightRegistry activeFlights;
+    private final TelemetryArchiver archiver;
+    private final ObjectMapper mapper;
+
+    public FlightStatsService(JdbcTemplate jdbc,
+                              ActiveFlightRegistry activeFlights,
+                              TelemetryArchiver archiver,
+                              ObjectMapper mapper) {
+        this.jdbc = jdbc;
+        this.activeFlights = activeFlights;
+        this.archiver = archiver;
+        this.mapper = mapper;
+    }
+
+    public Map<String, Object> stats(int idLotu) {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("id_lotu", idLotu);
+
+        ActiveFlightRegistry.ActiveFlight flight = activeFlights.get(idLotu);
+        if (flight != null) {
+            res.put("aktywny", true);
+            // false po restarcie albo dograniu telemetrii z pominięciem ingestu
+            res.put("pelne", flight.statystyki.isComplete());
+            res.putAll(flight.statystyki.toMap());
+            res.put("dystans_m", flight.postep.snapshot().dystansM());
+            return res;
+        }
+
+        res.put("aktywny", false);
+        res.put("pelne", true);
+        Map<String, Object> stored = readStored(idLotu);
+        if (stored == null) {
+            save(idLotu, fromTelemetry(idLotu));
+            stored = readStored(idLotu);
+        }
+        if (stored != null) res.putAll(stored);
+        return res;
+    }
+
+    // Przy zakończeniu/przerwaniu lotu - tylko gdy statystyki obejmują cały lot
+    public void saveFinished(int idLotu, ActiveFlightRegistry.ActiveFlight flight) {
+        if (flight != null && flight.statystyki.isComplete()) {
+            save(idLotu, flight.statystyki);
+        }
+    }
+
+    // Telemetria dograna do zakończonego lotu - wiersz zostanie policzony od nowa przy odczycie
+    public void invalidate(int idLotu) {
+        jdbc.update("DELETE FROM public.lot_statystyki WHERE id_lotu = ?", idLotu);
+    }
+
+    private void save(int idLotu, FlightStats stats) {
+        Map<String, Object> m = stats.toMap();
+        jdbc.update("""
+            INSERT INTO public.lot_statystyki (
+                id_lotu, liczba_punktow, czas_pierwszy, czas_ostatni, wysokosc_min_m, wysokosc_max_m,
+                predkosc_srednia_m_s, predkosc_max_m_s, bateria_pierwsza_pro, bateria_ostatnia_pro,
+                bateria_spadek_pro_min, probkowanie_hz, sygnal
+            )
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?::jsonb)
+            ON CONFLICT (id_lotu) DO UPDATE
+                SET liczba_punktow = EXCLUDED.liczba_punktow,
+                    czas_pierwszy = EXCLUDED.czas_pierwszy,
+                    czas_ostatni = EXCLUDED.czas_ostatni,
+                    wysokosc_min_m = EXCLUDED.wysokosc_min_m,
+                    wysokosc_max_m = EXCLUDED.wysokosc_max_m,
+                    predkosc_srednia_m_s = EXCLUDED.predkosc_srednia_m_s,
+                    predkosc_max_m_s = EXCLUDED.predkosc_max_m_s,
+                    bateria_pierwsza_pro = EXCLUDED.bateria_pierwsza_pro,
+                    bateria_ostatnia_pro = EXCLUDED.bateria_ostatnia_pro,
+                    bateria_spadek_pro_min = EXCLUDED.bateria_spadek_pro_min,
+                    probkowanie_hz = EXCLUDED.probkowanie_hz,
+                    sygnal = EXCLUDED.sygnal,
+                    obliczono = now()
+            """,
+                idLotu, m.get("liczba_punktow"), m.get("czas_pierwszy"), m.get("czas_ostatni"),
+                m.get("wysokosc_min_m"), m.get("wysokosc_max_m"), m.get("predkosc_srednia_m_s"),
+                m.get("predkosc_max_m_s"), m.get("bateria_pierwsza_pro"), m.get("bateria_ostatnia_pro"),
+                m.get("bateria_spadek_pro_min"), m.get("probkowanie_hz"), toJson(m.get("sygnal")));
+    }
+
+    private Map<String, Object> readStored(int idLotu) {
+        List<Map<String, Object>> rows = jdbc.query(STORED_SQL, new ColumnMapRowMapper(), idLotu);
+        if (rows.isEmpty()) return null;
+        Map<String, Object> row = rows.get(0);
+        try {
+            row.put("sygnal", mapper.readValue((String) row.get("sygnal"), Map.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Błędny rozkład sygnału w lot_statystyki", e);
+        }
+        return row;
+    }
+
+    // Te same definicje co przy ingeście - przepuszczamy wiersze przez FlightStats
+    private FlightStats fromTelemetry(int idLotu) {
+        FlightStats stats = new FlightStats(true);
+        List<Map<String, Object>> archived = archiver.readArchived(idLotu);
+        if (archived != null) {
+            for (Map<String, Object> row : archived) {
+                stats.add(TelemetryArchiver.toEpochMs((Timestamp) row.get("czas")),
+                        toDouble(row.get("wysokosc_m")), toDouble(row.get("predkosc_m_s")),
+                        toDouble(row.get("bateria_pro")), (String) row.get("sila_sygnalu"));
+            }
+            return stats;
+        }
+        jdbc.query(TELEMETRY_SQL, rs -> {
+            stats.add(TelemetryArchiver.toEpochMs(rs.getTimestamp(1)),
+                    toDouble(rs.getObject(2)), toDouble(rs.getObject(3)),
+                    toDouble(rs.getObject(4)), rs.getString(5));
+        }, idLotu, idLotu, idLotu);
+        return stats;
+    }
+
+    private static Double toDouble(Object v) {
+        return v == null ? null : ((Number) v).doubleValue();
+    }
+
+    private String toJson(Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
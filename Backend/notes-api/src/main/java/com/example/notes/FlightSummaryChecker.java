@@ -0,0 +1,102 @@
+package com.example.notes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Sprawdzanie w tle, czy lot_podsumowanie (V11) zgadza się z widokiem lot_podsumowanie_zrodlo.
+// Triggery utrzymują tabelę na bieżąco; rozbieżność zostaje np. po imporcie z wyłączonymi triggerami
+// (session_replication_role = replica) albo po zmianie widoku. Każdy przebieg porównuje kolejny
+// zakres id_lotu, po ostatnim zaczyna od początku; różniące się loty przelicza lot_podsumowanie_odswiez.
+@Component
+public class FlightSummaryChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightSummaryChecker.class);
+
+    private static final String RANGE_END_SQL = """
+        SELECT max(k.id_lotu)
+        FROM (SELECT l.id_lotu FROM public.lot l WHERE l.id_lotu > ? ORDER BY l.id_lotu LIMIT ?) k
+        """;
+
+    // Widok i tabela w jednym zapytaniu, więc z tej samej migawki - trwające zapisy nie dają fałszywych różnic
+    private static final String DIFF_SQL = """
+        SELECT z.id_lotu
+        FROM public.lot_podsumowanie_zrodlo z
+        LEFT JOIN public.lot_podsumowanie p ON p.id_lotu = z.id_lotu
+        WHERE z.id_lotu > ? AND z.id_lotu <= ?
+          AND (p.id_lotu IS NULL OR (p.*) IS DISTINCT FROM (z.*))
+        ORDER BY z.id_lotu
+        """;
+
+    private final JdbcTemplate jdbc;
+    private final int flightsPerRun;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+    private final LongAdder repaired = new LongAdder();
+    private final LongAdder fullPasses = new LongAdder();
+    private final AtomicLong lastId = new AtomicLong();
+
+    public FlightSummaryChecker(JdbcTemplate jdbc,
+                                @Value("${lot.podsumowanie.lotow-na-przebieg:10000}") int flightsPerRun) {
+        this.jdbc = jdbc;
+        this.flightsPerRun = Math.max(1, flightsPerRun);
+    }
+
+    @Scheduled(fixedDelayString = "${lot.podsumowanie.sprawdzanie-co-ms:60000}",
+               initialDelayString = "${lot.podsumowanie.sprawdzanie-co-ms:60000}")
+    public void checkNext() {
+        long from = lastId.get();
+        try {
+            Integer to = jdbc.queryForObject(RANGE_END_SQL, Integer.class, from, flightsPerRun);
+            if (to == null) {
+                // koniec tabeli - następny przebieg od początku
+                lastId.set(0);
+                if (from > 0) fullPasses.increment();
+                return;
+            }
+            check(from, to);
+            lastId.set(to);
+        } catch (RuntimeException e) {
+            log.warn("Podsumowanie lotów: sprawdzanie od id_lotu={} nieudane: {}", from, e.getMessage());
+        }
+    }
+
+    // Porównuje loty z zakresu (from, to] i poprawia różnice; zwraca liczbę poprawionych
+    public int check(long from, long to) {
+        Integer count = jdbc.queryForObject(
+                "SELECT count(*) FROM public.lot l WHERE l.id_lotu > ? AND l.id_lotu <= ?", Integer.class, from, to);
+        checked.add(count == null ? 0 : count);
+
+        List<Integer> diff = jdbc.queryForList(DIFF_SQL, Integer.class, from, to);
+        if (diff.isEmpty()) return 0;
+        mismatched.add(diff.size());
+
+        Integer fixed = jdbc.queryForObject("SELECT public.lot_podsumowanie_odswiez(?)", Integer.class,
+                (Object) diff.toArray(Integer[]::new));
+        int n = fixed == null ? 0 : fixed;
+        repaired.add(n);
+        log.warn("Podsumowanie lotów: {} rozbieżnych w zakresie ({}, {}], poprawiono {}, np. id_lotu={}",
+                diff.size(), from, to, n, diff.get(0));
+        return n;
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sprawdzone", checked.sum());
+        m.put("rozbiezne", mismatched.sum());
+        m.put("poprawione", repaired.sum());
+        m.put("pelne_przebiegi", fullPasses.sum());
+        m.put("ostatni_id_lotu", lastId.get());
+        return m;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.notes;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Strefy zakazane przy przyjmowaniu telemetrii: każdy punkt aktywnego lotu przechodzi przez
+// GeofenceService. Zdarzenie powstaje tylko przy zmianie - wejście do strefy, wyjście, zbliżenie
+// na odległość marginesu - i trafia do podglądu na żywo ("strefa") oraz do logi_lotu.
+@Component
+public class GeofenceMonitor {
+
+    static final String WEJSCIE = "wejscie_w_strefe";
+    static final String WYJSCIE = "wyjscie_ze_strefy";
+    static final String ZBLIZENIE = "zblizenie_do_strefy";
+
+    private static final int[] NONE = new int[0];
+
+    private final GeofenceService geofence;
+    private final ActiveFlightRegistry activeFlights;
+    private final LiveTelemetryHub liveHub;
+    private final FlightEventLog eventLog;
+
+    // id stref, w których (i przy których) lot jest teraz; posortowane. lastMs - czas ostatniego
+    // sprawdzonego punktu: starszy punkt (ponowiona partia, spóźniony zapis async) nie zmienia stanu
+    private static final class State {
+        int[] inside = NONE;
+        int[] near = NONE;
+        long lastMs = Long.MIN_VALUE;
+    }
+
+    private final Map<Integer, State> states = new ConcurrentHashMap<>();
+
+    public GeofenceMonitor(GeofenceService geofence,
+                           ActiveFlightRegistry activeFlights,
+                           LiveTelemetryHub liveHub,
+                           FlightEventLog eventLog) {
+        this.geofence = geofence;
+        this.activeFlights = activeFlights;
+        this.liveHub = liveHub;
+        this.eventLog = eventLog;
+    }
+
+    public void flightEnded(int idLotu) {
+        states.remove(idLotu);
+    }
+
+    // Punkty już zwalidowane
+    public void pointsAccepted(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        if (!activeFlights.isActive(idLotu)) return;
+        State s = states.computeIfAbsent(idLotu, k -> new State());
+        synchronized (s) {
+            for (FlightController.TelemetryCreateRequest p : points) {
+                long czasMs = p.czas_ms != null ? p.czas_ms : System.currentTimeMillis();
+                if (czasMs < s.lastMs) continue;
+                s.lastMs = czasMs;
+                List<GeofenceService.Hit> hits = geofence.check(p.lat, p.lon, czasMs);
+                // typowy punkt: żadnej strefy w pobliżu, ani teraz, ani wcześniej
+                if (hits.isEmpty() && s.inside.length == 0 && s.near.length == 0) continue;
+                update(idLotu, s, hits, p, czasMs);
+            }
+        }
+    }
+
+    private void update(int idLotu, State s, List<GeofenceService.Hit> hits,
+                        FlightController.TelemetryCreateRequest p, long czasMs) {
+        int[] inside = ids(hits, true);
+        int[] near = ids(hits, false);
+        for (GeofenceService.Hit h : hits) {
+            if (h.wewnatrz() && !contains(s.inside, h.idStrefy())) {
+                emit(idLotu, WEJSCIE, czasMs, p, h.idStrefy(), h.nazwa(), 0,
+                        "Wejście w strefę zakazaną: " + describe(h));
+            } else if (!h.wewnatrz() && !contains(s.near, h.idStrefy()) && !contains(s.inside, h.idStrefy())) {
+                emit(idLotu, ZBLIZENIE, czasMs, p, h.idStrefy(), h.nazwa(), h.odlegloscM(),
+                        "Zbliżenie do strefy zakazanej na " + h.odlegloscM() + " m: " + describe(h));
+            }
+        }
+        for (int id : s.inside) {
+            if (!contains(inside, id)) {
+                emit(idLotu, WYJSCIE, czasMs, p, id, null, 0, "Wyjście ze strefy zakazanej id=" + id);
+            }
+        }
+        s.inside = inside;
+        s.near = near;
+    }
+
+    private void emit(int idLotu, String typ, long czasMs, FlightController.TelemetryCreateRequest p,
+                      int idStrefy, String nazwa, double odlegloscM, String msg) {
+        eventLog.record(idLotu, czasMs, typ, msg);
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id_lotu", idLotu);
+        data.put("typ", typ);
+        data.put("czas_ms", czasMs);
+        data.put("id_strefy", idStrefy);
+        if (nazwa != null) data.put("nazwa", nazwa);
+        if (ZBLIZENIE.equals(typ)) data.put("odleglosc_m", odlegloscM);
+        data.put("lat", p.lat);
+        data.put("lon", p.lon);
+        liveHub.publishEvent(idLotu, "strefa", data);
+    }
+
+    private static String describe(GeofenceService.Hit h) {
+        String s = h.nazwa() != null ? h.nazwa() : "id=" + h.idStrefy();
+        return h.powod() != null ? s + " (" + h.powod() + ")" : s;
+    }
+
+    private static int[] ids(List<GeofenceService.Hit> hits, boolean wewnatrz) {
+        int n = 0;
+        for (GeofenceService.Hit h : hits) if (h.wewnatrz() == wewnatrz) n++;
+        if (n == 0) return NONE;
+        int[] out = new int[n];
+        int i = 0;
+        for (GeofenceService.Hit h : hits) if (h.wewnatrz() == wewnatrz) out[i++] = h.idStrefy();
+        Arrays.sort(out);
+        return out;
+    }
+
+    private static boolean contains(int[] sorted, int id) {
+        return Arrays.binarySearch(sorted, id) >= 0;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.notes;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.geom.util.GeometryTransformer;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.operation.distance.IndexedFacetDistance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Strefy zakazane (public.strefy_zakazane) w pamięci: STR-tree po prostokątach stref, w liściach
+// przygotowane geometrie (PreparedGeometry do "wewnątrz", IndexedFacetDistance do "w pobliżu").
+// Sprawdzenie punktu nie dotyka bazy. Indeks budujemy w tle, gdy zmieni się strefy_zakazane_wersja,
+// i podmieniamy jednym zapisem pola volatile - odczyty nigdy nie widzą połowy przebudowy.
+// Tak samo trzymamy infrastruktura_krytyczna (walidacja tras przed lotem).
+@Service
+public class GeofenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeofenceService.class);
+
+    // Elipsoida WGS84 - promienie krzywizny do lokalnego przeliczenia stopni na metry
+    private static final double A = 6378137.0;
+    private static final double E2 = 6.69437999014e-3;
+    private static final GeometryFactory GEOMETRY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private static final String ZONES_SQL = """
+        SELECT id_strefy, nazwa, powod, ST_AsBinary(geometria) AS wkb, od_kiedy, do_kiedy
+        FROM public.strefy_zakazane
+        WHERE aktywna IS NOT FALSE
+          AND (do_kiedy IS NULL OR do_kiedy > now())
+        """;
+
+    private static final String INFRASTRUCTURE_SQL = """
+        SELECT id_infrastruktury, nazwa, kategoria, ST_AsBinary(geometria) AS wkb
+        FROM public.infrastruktura_krytyczna
+        WHERE geometria IS NOT NULL
+        """;
+
+    public record Hit(int idStrefy, String nazwa, String powod, boolean wewnatrz, double odlegloscM) {}
+
+    // Strefa gotowa do sprawdzania; od/do w ms epoki (MIN/MAX, gdy bez ograniczenia)
+    static final class Zone {
+        final int id;
+        final String nazwa;
+        final String powod;
+        final long odMs;
+        final long doMs;
+        final PreparedGeometry geometry;
+        // ta sama geometria w metrach względem środka strefy - odległość bez przeliczeń przy każdym punkcie
+        final IndexedFacetDistance metric;
+        final double lat0;
+        final double lon0;
+        final double kx;
+        final double ky;
+
+        Zone(int id, String nazwa, String powod, Geometry geometry, long odMs, long doMs) {
+            this.id = id;
+            this.nazwa = nazwa;
+            this.powod = powod;
+            this.odMs = odMs;
+            this.doMs = doMs;
+            this.geometry = PreparedGeometryFactory.prepare(geometry);
+            // indeksy PreparedGeometry powstają leniwie - budujemy je przed publikacją indeksu
+            this.geometry.covers(geometry.getInteriorPoint());
+            Coordinate c = geometry.getEnvelopeInternal().centre();
+            this.lat0 = c.y;
+            this.lon0 = c.x;
+            double phi = Math.toRadians(lat0);
+            double sin = Math.sin(phi);
+            double w = 1 - E2 * sin * sin;
+            double n = A / Math.sqrt(w);
+            this.kx = n * Math.cos(phi) * Math.PI / 180;
+            this.ky = n * (1 - E2) / w * Math.PI / 180;
+            this.metric = new IndexedFacetDistance(new GeometryTransformer() {
+                @Override
+                protected CoordinateSequence transformCoordinates(CoordinateSequence coords, Geometry parent) {
+                    CoordinateSequence out = coords.copy();
+                    for (int i = 0; i < out.size(); i++) {
+                        out.setOrdinate(i, 0, (coords.getX(i) - lon0) * kx);
+                        out.setOrdinate(i, 1, (coords.getY(i) - lat0) * ky);
+                    }
+                    return out;
+                }
+            }.transform(geometry));
+        }
+
+        boolean activeAt(long czasMs) {
+            return czasMs >= odMs && czasMs < doMs;
+        }
+
+        double distanceM(double lat, double lon) {
+            return metric.distance(GEOMETRY.createPoint(new Coordinate((lon - lon0) * kx, (lat - lat0) * ky)));
+        }
+
+        // Odległość odcinka od obszaru; 0, gdy odcinek go przecina albo leży w środku
+        double segmentDistanceM(double lat1, double lon1, double lat2, double lon2) {
+            if (geometry.intersects(GEOMETRY.createLineString(new Coordinate[] {
+                    new Coordinate(lon1, lat1), new Coordinate(lon2, lat2)}))) {
+                return 0;
+            }
+            return metric.distance(GEOMETRY.createLineString(new Coordinate[] {
+                    new Coordinate((lon1 - lon0) * kx, (lat1 - lat0) * ky),
+                    new Coordinate((lon2 - lon0) * kx, (lat2 - lat0) * ky)}));
+        }
+    }
+
+    record Index(long wersja, STRtree tree, int strefy, long zbudowanoMs) {}
+
+    private static final Index EMPTY = index(-1, List.of());
+
+    private final JdbcTemplate jdbc;
+    private final double marginM;
+    private volatile Index index = EMPTY;
+    // infrastruktura_krytyczna - te same obiekty Zone, bez okna czasowego; powod = kategoria
+    private volatile Index infrastructure = EMPTY;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder inside = new LongAdder();
+    private final LongAdder near = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private volatile long lastBuildMs;
+
+    public GeofenceService(JdbcTemplate jdbc,
+                           @Value("${strefy.margines-m:50}") double marginM) {
+        this.jdbc = jdbc;
+        this.marginM = Math.max(0, marginM);
+    }
+
+    // Przebudowa w tle, tylko gdy warstwa się zmieniła (triggery podbijają *_wersja)
+    @Scheduled(fixedDelayString = "${strefy.sprawdzanie-co-ms:5000}")
+    public synchronized void refresh() {
+        Map<String, Object> v = jdbc.queryForMap("""
+            SELECT (SELECT wersja FROM public.strefy_zakazane_wersja) AS strefy,
+                   (SELECT wersja FROM public.infrastruktura_krytyczna_wersja) AS infrastruktura
+            """);
+        Number zonesVersion = (Number) v.get("strefy");
+        if (zonesVersion != null && zonesVersion.longValue() != index.wersja()) {
+            long t0 = System.currentTimeMillis();
+            List<Zone> zones = jdbc.query(ZONES_SQL, (rs, i) -> new Zone(
+                    rs.getInt("id_strefy"), rs.getString("nazwa"), rs.getString("powod"),
+                    readWkb(rs.getBytes("wkb"), rs.getInt("id_strefy")),
+                    toMs(rs.getTimestamp("od_kiedy"), Long.MIN_VALUE),
+                    toMs(rs.getTimestamp("do_kiedy"), Long.MAX_VALUE)));
+            swap(index(zonesVersion.longValue(), zones));
+            lastBuildMs = System.currentTimeMillis() - t0;
+            log.info("Strefy zakazane: indeks wersja {} - {} stref ({} ms)", zonesVersion, zones.size(), lastBuildMs);
+        }
+        Number infraVersion = (Number) v.get("infrastruktura");
+        if (infraVersion != null && infraVersion.longValue() != infrastructure.wersja()) {
+            List<Zone> objects = jdbc.query(INFRASTRUCTURE_SQL, (rs, i) -> new Zone(
+                    rs.getInt("id_infrastruktury"), rs.getString("nazwa"), rs.getString("kategoria"),
+                    readWkb(rs.getBytes("wkb"), rs.getInt("id_infrastruktury")),
+                    Long.MIN_VALUE, Long.MAX_VALUE));
+            infrastructure = index(infraVersion.longValue(), objects);
+            log.info("Infrastruktura krytyczna: indeks wersja {} - {} obiektow", infraVersion, objects.size());
+        }
+    }
+
+    // Pierwsze użycie przed pierwszym przebiegiem harmonogramu
+    public void ensureLoaded() {
+        if (index == EMPTY || infrastructure == EMPTY) refresh();
+    }
+
+    Index zones() {
+        return index;
+    }
+
+    Index infrastructure() {
+        return infrastructure;
+    }
+
+    void swap(Index next) {
+        index = next;
+        rebuilds.increment();
+    }
+
+    static Index index(long wersja, List<Zone> zones) {
+        STRtree tree = new STRtree();
+        for (Zone z : zones) {
+            tree.insert(z.geometry.getGeometry().getEnvelopeInternal(), z);
+        }
+        // zbudowane drzewo jest tylko do odczytu, więc może być czytane z wielu wątków
+        tree.build();
+        return new Index(wersja, tree, zones.size(), System.currentTimeMillis());
+    }
+
+    // Strefy, w których punkt jest albo od których jest bliżej niż margines, aktywne w chwili czasMs.
+    // Pusta lista, gdy w pobliżu nie ma żadnej strefy.
+    public List<Hit> check(double lat, double lon, long czasMs) {
+        checks.increment();
+        Index idx = index;
+        if (idx.strefy() == 0) return List.of();
+        double dLat = marginM / 110_574.0;
+        double dLon = marginM / (111_320.0 * Math.max(0.01, Math.cos(Math.toRadians(lat))));
+        List<?> candidates = idx.tree().query(new Envelope(lon - dLon, lon + dLon, lat - dLat, lat + dLat));
+        if (candidates.isEmpty()) return List.of();
+
+        List<Hit> hits = null;
+        Point p = null;
+        for (Object o : candidates) {
+            Zone z = (Zone) o;
+            if (!z.activeAt(czasMs)) continue;
+            if (p == null) p = GEOMETRY.createPoint(new Coordinate(lon, lat));
+            Hit hit = null;
+            if (z.geometry.covers(p)) {
+                hit = new Hit(z.id, z.nazwa, z.powod, true, 0);
+                inside.increment();
+            } else if (marginM > 0) {
+                double d = z.distanceM(lat, lon);
+                if (d <= marginM) {
+                    hit = new Hit(z.id, z.nazwa, z.powod, false, Math.round(d * 10) / 10.0);
+                    near.increment();
+                }
+            }
+            if (hit != null) {
+                if (hits == null) hits = new ArrayList<>(2);
+                hits.add(hit);
+            }
+        }
+        return hits == null ? List.of() : hits;
+    }
+
+    public double marginM() {
+        return marginM;
+    }
+
+    public Map<String, Object> metrics() {
+        Index idx = index;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("wersja", idx.wersja());
+        m.put("strefy", idx.strefy());
+        m.put("infrastruktura_wersja", infrastructure.wersja());
+        m.put("infrastruktura_obiekty", infrastructure.strefy());
+        m.put("przebudowy", rebuilds.sum());
+        m.put("ostatnia_budowa_ms", lastBuildMs);
+        m.put("sprawdzenia", checks.sum());
+        m.put("wewnatrz", inside.sum());
+        m.put("w_poblizu", near.sum());
+        return m;
+    }
+
+    private static Geometry readWkb(byte[] wkb, int id) {
+        try {
+            return new WKBReader(GEOMETRY).read(wkb);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Nieprawidłowa geometria obiektu " + id, e);
+        }
+    }
+
+    private static long toMs(Timestamp ts, long dflt) {
+        return ts == null ? dflt : ts.getTime();
+    }
+}
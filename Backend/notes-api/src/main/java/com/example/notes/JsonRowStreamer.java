@@ -0,0 +1,154 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+// Odpowiedź JSON pisana wiersz po wierszu prosto z ResultSet, bez List<Map> w pamięci.
+// Zapytanie idzie kursorem (autocommit off + fetchSize), więc pamięć nie zależy od liczby wierszy.
+// Format wyjścia jest taki sam jak z jdbc.queryForList (te same nazwy kolumn i serializacja dat).
+@Component
+public class JsonRowStreamer {
+
+    private final DataSource dataSource;
+    private final ObjectMapper mapper;
+    private final int fetchSize;
+
+    public JsonRowStreamer(DataSource dataSource,
+                           ObjectMapper mapper,
+                           @Value("${odczyt.fetch-size:500}") int fetchSize) {
+        this.dataSource = dataSource;
+        this.mapper = mapper;
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    public ResponseEntity<StreamingResponseBody> response(String sql, Object... args) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> write(out, sql, args));
+    }
+
+    // To samo zapytanie w formacie kolumnowym (ColumnarJson); kolumny buforujemy w tablicach prymitywnych
+    public ResponseEntity<StreamingResponseBody> columnarResponse(String sql, Object... args) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> writeColumnar(out, sql, args));
+    }
+
+    public void write(OutputStream out, String sql, Object... args) throws IOException {
+        query(out, sql, args, JsonRowStreamer::writeRows);
+    }
+
+    public void writeColumnar(OutputStream out, String sql, Object... args) throws IOException {
+        query(out, sql, args, JsonRowStreamer::writeColumns);
+    }
+
+    private interface RowsWriter {
+        void write(ResultSet rs, JsonGenerator gen) throws SQLException, IOException;
+    }
+
+    // Body wykonuje się w wątku async MVC, dlatego połączenie bierzemy bezpośrednio z DataSource
+    private void query(OutputStream out, String sql, Object[] args, RowsWriter writer) throws IOException {
+        try (Connection con = dataSource.getConnection()) {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < args.length; i++) {
+                    ps.setObject(i + 1, args[i]);
+                }
+                try (ResultSet rs = ps.executeQuery();
+                     JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+                    writer.write(rs, gen);
+                }
+                con.commit();
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Błąd odczytu: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeRows(ResultSet rs, JsonGenerator gen) throws SQLException, IOException {
+        String[] names = columnNames(rs);
+        int columns = names.length;
+        gen.writeStartArray();
+        while (rs.next()) {
+            gen.writeStartObject();
+            for (int i = 0; i < columns; i++) {
+                gen.writeFieldName(names[i]);
+                writeValue(gen, JdbcUtils.getResultSetValue(rs, i + 1));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeColumns(ResultSet rs, JsonGenerator gen) throws SQLException, IOException {
+        String[] names = columnNames(rs);
+        ColumnarJson columns = new ColumnarJson(names);
+        // Typ kolumny czasu z metadanych - także przy pustym wyniku idzie jako X_start_ms/X_delta_ms
+        ResultSetMetaData md = rs.getMetaData();
+        for (int i = 0; i < names.length; i++) {
+            int type = md.getColumnType(i + 1);
+            if (type == Types.TIMESTAMP || type == Types.TIMESTAMP_WITH_TIMEZONE || type == Types.DATE) {
+                columns.timeColumn(i);
+            }
+        }
+        while (rs.next()) {
+            for (int i = 0; i < names.length; i++) {
+                columns.set(i, JdbcUtils.getResultSetValue(rs, i + 1));
+            }
+            columns.endRow();
+        }
+        columns.write(gen);
+    }
+
+    private static String[] columnNames(ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        String[] names = new String[md.getColumnCount()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = JdbcUtils.lookupColumnName(md, i + 1);
+        }
+        return names;
+    }
+
+    // Najczęstsze typy bez przechodzenia przez serializery ObjectMappera
+    private static void writeValue(JsonGenerator gen, Object v) throws IOException {
+        if (v == null) {
+            gen.writeNull();
+        } else if (v instanceof String s) {
+            gen.writeString(s);
+        } else if (v instanceof Integer n) {
+            gen.writeNumber(n);
+        } else if (v instanceof Long n) {
+            gen.writeNumber(n);
+        } else if (v instanceof Double n) {
+            gen.writeNumber(n);
+        } else if (v instanceof BigDecimal n) {
+            gen.writeNumber(n);
+        } else if (v instanceof Boolean b) {
+            gen.writeBoolean(b);
+        } else {
+            gen.writeObject(v);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Podgląd telemetrii na żywo (GET /api/lot/{id}/live, Server-Sent Events).
+// Punkty przyjęte przez ingest trafiają do kanału lotu: każdy jest serializowany raz do gotowego
+// zdarzenia SSE i wstawiany do pierścienia ostatnich zdarzeń oraz ograniczonych kolejek subskrybentów.
+// Wysyłką zajmuje się mała pula wątków; subskrybent, któremu kolejka się przepełni, jest rozłączany
+// (wraca z Last-Event-ID i dostaje brakujące punkty z pierścienia albo zdarzenie "luka").
+@Component
+public class LiveTelemetryHub {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveTelemetryHub.class);
+    private static final DataWithMediaType HEARTBEAT = new DataWithMediaType(":\n\n", MediaType.TEXT_PLAIN);
+
+    private final ObjectMapper mapper;
+    private final ActiveFlightRegistry activeFlights;
+    private final int ringSize;
+    private final int queueSize;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final ExecutorService senders;
+
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder droppedSlow = new LongAdder();
+
+    public LiveTelemetryHub(ObjectMapper mapper,
+                            ActiveFlightRegistry activeFlights,
+                            @Value("${telemetria.live.bufor-zdarzen:2000}") int ringSize,
+                            @Value("${telemetria.live.kolejka-subskrybenta:512}") int queueSize,
+                            @Value("${telemetria.live.max-subskrybentow-lotu:500}") int maxSubscribers,
+                            @Value("${telemetria.live.timeout-ms:0}") long timeoutMs,
+                            @Value("${telemetria.live.watki:4}") int threads) {
+        this.mapper = mapper;
+        this.activeFlights = activeFlights;
+        this.ringSize = Math.max(1, ringSize);
+        this.queueSize = Math.max(1, queueSize);
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger n = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "telemetria-live-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Zdarzenie SSE gotowe do wysłania: id "<start kanału>-<nr>", żeby Last-Event-ID z poprzedniego
+    // uruchomienia serwera nie pomylił się z bieżącą numeracją
+    private record Event(long nr, DataWithMediaType data) {}
+
+    private final class Channel {
+        final int idLotu;
+        final long epoch = System.currentTimeMillis();
+        final Event[] ring = new Event[ringSize];
+        long next = 1;
+        final List<Subscriber> subs = new CopyOnWriteArrayList<>();
+
+        Channel(int idLotu) {
+            this.idLotu = idLotu;
+        }
+
+        // Zdarzenia o numerze > after, które są jeszcze w pierścieniu; null, gdy część wypadła
+        synchronized List<Event> since(long after) {
+            long oldest = Math.max(1, next - ringSize);
+            if (after + 1 < oldest) return null;
+            List<Event> out = new ArrayList<>((int) Math.max(0, next - after - 1));
+            for (long nr = after + 1; nr < next; nr++) {
+                out.add(ring[(int) (nr % ringSize)]);
+            }
+            return out;
+        }
+    }
+
+    private final class Subscriber {
+        final Channel channel;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<DataWithMediaType> queue = new ArrayBlockingQueue<>(queueSize);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closed;
+        volatile boolean closeWhenDrained;
+
+        Subscriber(Channel channel, SseEmitter emitter) {
+            this.channel = channel;
+            this.emitter = emitter;
+        }
+
+        void offer(DataWithMediaType data) {
+            if (closed) return;
+            if (!queue.offer(data)) {
+                droppedSlow.increment();
+                log.debug("Podglad na zywo: id_lotu={} odbiorca nie nadaza, rozlaczony", channel.idLotu);
+                close(null);
+                return;
+            }
+            schedule();
+        }
+
+        // Ostatnie zdarzenie i zamknięcie po jego wysłaniu
+        void finish(DataWithMediaType last) {
+            offer(last);
+            closeWhenDrained = true;
+            schedule();
+        }
+
+        void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        // Wszystko, co czeka w kolejce, idzie jednym zapisem i jednym flushem
+        void drain() {
+            try {
+                while (!closed) {
+                    Set<DataWithMediaType> batch = new LinkedHashSet<>();
+                    for (DataWithMediaType d; (d = queue.poll()) != null; ) batch.add(d);
+                    if (batch.isEmpty()) break;
+                    emitter.send(batch);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (closeWhenDrained && queue.isEmpty()) {
+                close(null);
+            } else if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        // Połączenie zakończone po stronie serwletu (klient się rozłączył, błąd zapisu)
+        void detach() {
+            closed = true;
+            if (channel.subs.remove(this)) subscribers.decrementAndGet();
+        }
+
+        void close(Throwable error) {
+            if (closed) return;
+            detach();
+            if (error == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(error);
+            }
+        }
+    }
+
+    public SseEmitter subscribe(int idLotu, String lastEventId) {
+        Channel ch = channels.computeIfAbsent(idLotu, Channel::new);
+        if (ch.subs.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Za dużo odbiorców podglądu lotu (max " + maxSubscribers + ")");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber sub = new Subscriber(ch, emitter);
+        emitter.onCompletion(sub::detach);
+        emitter.onTimeout(() -> sub.close(null));
+        emitter.onError(e -> sub.detach());
+
+        // Rejestracja i odtworzenie zaległych zdarzeń pod blokadą kanału - nic nie zginie ani nie przyjdzie dwa razy
+        synchronized (ch) {
+            long after = resumePoint(ch, lastEventId);
+            List<Event> missed = after < 0 ? null : ch.since(after);
+            if (after >= 0 && missed == null) {
+                sub.offer(control("luka", "{\"id_lotu\":" + idLotu + "}"));
+            } else if (missed != null) {
+                for (Event e : missed) sub.offer(e.data());
+            }
+            ch.subs.add(sub);
+            subscribers.incrementAndGet();
+        }
+        return emitter;
+    }
+
+    // Punkty przyjęte przez ingest (już zwalidowane). Kanał zakłada subscribe - bez subskrybentów
+    // lotu nie trzymamy bufora (inaczej każdy lot zostawiałby kanał aż do close).
+    public void publish(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        Channel ch = channels.get(idLotu);
+        if (ch == null) return;
+        synchronized (ch) {
+            for (FlightController.TelemetryCreateRequest p : points) {
+                long nr = ch.next++;
+                Event e = new Event(nr, pointEvent(ch, nr, p));
+                ch.ring[(int) (nr % ringSize)] = e;
+                for (Subscriber s : ch.subs) s.offer(e.data());
+            }
+        }
+        published.add(points.size());
+    }
+
+    // Zdarzenie lotu inne niż punkt (np. odchylenie od trasy) - numerowane razem z punktami,
+    // więc też jest odtwarzane po wznowieniu z Last-Event-ID. Bez subskrybentów kanału nie zakładamy.
+    public void publishEvent(int idLotu, String event, Map<String, Object> data) {
+        Channel ch = channels.get(idLotu);
+        if (ch == null) return;
+        synchronized (ch) {
+            long nr = ch.next++;
+            Event e = new Event(nr, sseEvent(ch, nr, event, data));
+            ch.ring[(int) (nr % ringSize)] = e;
+            for (Subscriber s : ch.subs) s.offer(e.data());
+        }
+    }
+
+    // Koniec lotu: zdarzenie "koniec" i zamknięcie strumieni
+    public void close(int idLotu) {
+        Channel ch = channels.remove(idLotu);
+        if (ch == null) return;
+        synchronized (ch) {
+            DataWithMediaType end = control("koniec", "{\"id_lotu\":" + idLotu + "}");
+            for (Subscriber s : ch.subs) s.finish(end);
+        }
+    }
+
+    // Komentarz SSE co jakiś czas - proxy nie zamykają bezczynnych połączeń, a martwe wychodzą przy zapisie.
+    // Przy okazji zamykamy kanały lotów, które już nie są aktywne.
+    @Scheduled(fixedRateString = "${telemetria.live.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Channel ch : channels.values()) {
+            if (!activeFlights.isActive(ch.idLotu)) {
+                close(ch.idLotu);
+                continue;
+            }
+            for (Subscriber s : ch.subs) s.offer(HEARTBEAT);
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("kanaly", channels.size());
+        m.put("subskrybenci", subscribers.get());
+        m.put("opublikowane", published.sum());
+        m.put("rozlaczeni_wolni", droppedSlow.sum());
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Integer id : List.copyOf(channels.keySet())) close(id);
+        senders.shutdown();
+    }
+
+    // -1 = bez wznowienia (tylko nowe punkty); numer zdarzenia z bieżącego kanału; 0 = id z innej epoki
+    private static long resumePoint(Channel ch, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) return -1;
+        int dash = lastEventId.indexOf('-');
+        try {
+            if (dash > 0 && Long.parseLong(lastEventId.substring(0, dash)) == ch.epoch) {
+                return Long.parseLong(lastEventId.substring(dash + 1));
+            }
+        } catch (NumberFormatException ignored) {
+            // nieznany format - traktujemy jak id z innej epoki
+        }
+        return 0;
+    }
+
+    private DataWithMediaType pointEvent(Channel ch, long nr, FlightController.TelemetryCreateRequest p) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("czas_ms", p.czas_ms != null ? p.czas_ms : System.currentTimeMillis());
+        data.put("lat", p.lat);
+        data.put("lon", p.lon);
+        data.put("wysokosc_m", p.wysokosc_m);
+        data.put("predkosc_m_s", p.predkosc_m_s);
+        data.put("bateria_pro", p.bateria_pro);
+        data.put("sila_sygnalu", p.sila_sygnalu);
+        if (p.seq != null) data.put("seq", p.seq);
+        return sseEvent(ch, nr, "punkt", data);
+    }
+
+    private DataWithMediaType sseEvent(Channel ch, long nr, String event, Map<String, Object> data) {
+        try {
+            return new DataWithMediaType("id:" + ch.epoch + "-" + nr + "\nevent:" + event + "\ndata:"
+                    + mapper.writeValueAsString(data) + "\n\n", MediaType.TEXT_PLAIN);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataWithMediaType control(String event, String json) {
+        return new DataWithMediaType("event:" + event + "\ndata:" + json + "\n\n", MediaType.TEXT_PLAIN);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.notes;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Encoded polyline Google (precyzja 1e5) dla encoding=polyline:
+//   {"format":"polyline","liczba":N,"polyline":"...","wysokosci_m":[...]}
+// wysokosci_m (opcjonalnie) idą równolegle do punktów polyline, zaokrąglone do 0.1 m, brak wartości to null.
+// Punkty bez współrzędnych są pomijane.
+public final class PolylineEncoder {
+
+    private final StringBuilder out = new StringBuilder();
+    private final List<Double> altitudes = new ArrayList<>();
+    private long prevLat;
+    private long prevLon;
+    private int count;
+
+    public void add(double lat, double lon, Double altitudeM) {
+        long la = Math.round(lat * 1e5);
+        long lo = Math.round(lon * 1e5);
+        encodeValue(la - prevLat);
+        encodeValue(lo - prevLon);
+        prevLat = la;
+        prevLon = lo;
+        altitudes.add(altitudeM == null || altitudeM.isNaN() ? null : Math.round(altitudeM * 10) / 10.0);
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String polyline() {
+        return out.toString();
+    }
+
+    public Map<String, Object> toBody(boolean withAltitude) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("format", "polyline");
+        body.put("liczba", count);
+        body.put("polyline", polyline());
+        if (withAltitude) body.put("wysokosci_m", altitudes);
+        return body;
+    }
+
+    // Wiersze z kluczami lat, lon i wysokosc_m (jak w odpowiedziach telemetrii i punktów trasy)
+    public static PolylineEncoder of(List<Map<String, Object>> rows) {
+        PolylineEncoder enc = new PolylineEncoder();
+        for (Map<String, Object> row : rows) {
+            Object lat = row.get("lat");
+            Object lon = row.get("lon");
+            if (lat == null || lon == null) continue;
+            Object alt = row.get("wysokosc_m");
+            enc.add(((Number) lat).doubleValue(), ((Number) lon).doubleValue(),
+                    alt == null ? null : ((Number) alt).doubleValue());
+        }
+        return enc;
+    }
+
+    // Zigzag + grupy po 5 bitów od najmłodszych, każdy znak = grupa + 63 (0x20 = kolejna grupa)
+    private void encodeValue(long v) {
+        long z = v < 0 ? ~(v << 1) : v << 1;
+        while (z >= 0x20) {
+            out.append((char) ((0x20 | (z & 0x1f)) + 63));
+            z >>= 5;
+        }
+        out.append((char) (z + 63));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.notes;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -13,9 +14,16 @@ import java.util.Map;
 public class RouteController {
 
     private final JdbcTemplate jdbc;
+    private final JsonRowStreamer rowStreamer;
+    private final RouteGeometryCache routeGeometries;
+    private final RouteSafetyValidator routeValidator;
 
-    public RouteController(JdbcTemplate jdbc) {
+    public RouteController(JdbcTemplate jdbc, JsonRowStreamer rowStreamer, RouteGeometryCache routeGeometries,
+                           RouteSafetyValidator routeValidator) {
         this.jdbc = jdbc;
+        this.rowStreamer = rowStreamer;
+        this.routeGeometries = routeGeometries;
+        this.routeValidator = routeValidator;
     }
 
     // Lista tras
@@ -64,25 +72,42 @@ public class RouteController {
         }
     }
 
-    // Współrzędne danej trasy
+    // Współrzędne danej trasy; encoding=polyline - zakodowana linia z cache (altitude=true dokłada wysokości)
     @GetMapping("/{id}/points")
-    public List<Map<String, Object>> points(@PathVariable int id) {
-        try {
-            return jdbc.queryForList("""
-                SELECT
-                    id_punktu,
-                    id_trasy,
-                    kolejnosc,
-                    ST_X(wspolrzedne::geometry) AS lon,
-                    ST_Y(wspolrzedne::geometry) AS lat,
-                    wysokosc_m,
-                    opis
-                FROM public."trasy_punkty"
-                WHERE id_trasy = ?
-                ORDER BY kolejnosc
-            """, id);
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "DB error: " + e.getMessage(), e);
+    public ResponseEntity<?> points(@PathVariable int id,
+                                    @RequestParam(required = false) String format,
+                                    @RequestParam(required = false) String encoding,
+                                    @RequestParam(defaultValue = "false") boolean altitude) {
+        boolean columnar = FlightController.isColumnar(format);
+        if (FlightController.isPolyline(encoding, columnar)) {
+            return ResponseEntity.ok(routeGeometries.get(id).polyline().toBody(altitude));
+        }
+        String sql = """
+            SELECT
+                id_punktu,
+                id_trasy,
+                kolejnosc,
+                ST_X(wspolrzedne::geometry) AS lon,
+                ST_Y(wspolrzedne::geometry) AS lat,
+                wysokosc_m,
+                opis
+            FROM public."trasy_punkty"
+            WHERE id_trasy = ?
+            ORDER BY kolejnosc
+        """;
+        return columnar
+                ? rowStreamer.columnarResponse(sql, id)
+                : rowStreamer.response(sql, id);
+    }
+
+    // Bezpieczeństwo trasy: odcinki z korytarzem względem stref zakazanych i infrastruktury krytycznej.
+    // Werdykt z cache, dopóki wersje trasy i obu warstw się nie zmienią.
+    @GetMapping("/{id}/validation")
+    public Map<String, Object> validation(@PathVariable int id) {
+        Integer cnt = jdbc.queryForObject("SELECT count(*) FROM public.trasy WHERE id_trasy = ?", Integer.class, id);
+        if (cnt == null || cnt == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Route not found");
         }
+        return routeValidator.toBody(routeValidator.validate(id), System.currentTimeMillis());
     }
 }
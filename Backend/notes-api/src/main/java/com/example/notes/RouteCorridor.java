@@ -0,0 +1,202 @@
+package com.example.notes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Korytarz planowanej trasy (trasy_punkty) do sprawdzania odchylenia punktów telemetrii.
+// Odcinki trasy są rzutowane na lokalną płaszczyznę w metrach (promienie krzywizny WGS84 w środku
+// trasy) i wpisane do siatki kwadratów o boku 2 x półszerokość. Kwadrat zna odcinki, które mogą być
+// bliżej niż półszerokość od dowolnego jego punktu, więc sprawdzenie punktu to jedno wyszukanie
+// w tablicy z haszowaniem i kilka odległości punkt-odcinek. Pełny przegląd odcinków tylko poza korytarzem.
+public final class RouteCorridor {
+
+    private static final double A = 6378137.0;
+    private static final double E2 = 6.69437999014e-3;
+    private static final long EMPTY = Long.MIN_VALUE;
+    // kwadrat nie mniejszy niż tyle - przy bardzo wąskim korytarzu siatka byłaby za gęsta
+    private static final double MIN_CELL_M = 5;
+
+    private final double halfWidthM;
+    private final double lat0;
+    private final double lon0;
+    private final double kx;
+    private final double ky;
+    private final double cellM;
+
+    // odcinek i: (x[i], y[i]) -> (x[i+1], y[i+1]); przy jednym punkcie trasy - odcinek zerowej długości
+    private final double[] x;
+    private final double[] y;
+    private final int segments;
+
+    // otwarte adresowanie: klucz kwadratu -> odcinki cellSegs[cellStart[i] .. cellStart[i] + cellCount[i])
+    private final long[] cellKeys;
+    private final int[] cellStart;
+    private final int[] cellCount;
+    private final int[] cellSegs;
+
+    private RouteCorridor(double[] lat, double[] lon, double halfWidthM) {
+        this.halfWidthM = halfWidthM;
+        int n = lat.length;
+        double sumLat = 0;
+        for (double v : lat) sumLat += v;
+        this.lat0 = sumLat / n;
+        this.lon0 = lon[0];
+        double phi = Math.toRadians(lat0);
+        double sin = Math.sin(phi);
+        double w = 1 - E2 * sin * sin;
+        double nr = A / Math.sqrt(w);
+        this.kx = nr * Math.cos(phi) * Math.PI / 180;
+        this.ky = nr * (1 - E2) / w * Math.PI / 180;
+        this.cellM = Math.max(MIN_CELL_M, 2 * halfWidthM);
+
+        int pts = Math.max(2, n);
+        this.x = new double[pts];
+        this.y = new double[pts];
+        for (int i = 0; i < pts; i++) {
+            int j = Math.min(i, n - 1);
+            x[i] = projectX(lon[j]);
+            y[i] = projectY(lat[j]);
+        }
+        this.segments = pts - 1;
+
+        // kwadraty, których środek jest bliżej odcinka niż półszerokość + pół przekątnej kwadratu
+        double reach = halfWidthM + cellM * Math.sqrt(0.5);
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        int total = 0;
+        for (int s = 0; s < segments; s++) {
+            double ax = x[s], ay = y[s], bx = x[s + 1], by = y[s + 1];
+            int cx0 = cell(Math.min(ax, bx) - reach);
+            int cx1 = cell(Math.max(ax, bx) + reach);
+            for (int cx = cx0; cx <= cx1; cx++) {
+                // zakres y odcinka w pasie kolumny (poszerzonym o zasięg) - bez przeglądania całego prostokąta
+                double yMin = Math.min(ay, by);
+                double yMax = Math.max(ay, by);
+                if (Math.abs(bx - ax) > 1e-9) {
+                    double t0 = clamp((cx * cellM - reach - ax) / (bx - ax));
+                    double t1 = clamp(((cx + 1) * cellM + reach - ax) / (bx - ax));
+                    double y0 = ay + t0 * (by - ay);
+                    double y1 = ay + t1 * (by - ay);
+                    yMin = Math.min(y0, y1);
+                    yMax = Math.max(y0, y1);
+                }
+                for (int cy = cell(yMin - reach), cy1 = cell(yMax + reach); cy <= cy1; cy++) {
+                    if (segmentDistance(s, (cx + 0.5) * cellM, (cy + 0.5) * cellM) <= reach) {
+                        cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>(2)).add(s);
+                        total++;
+                    }
+                }
+            }
+        }
+
+        int cap = 16;
+        while (cap < cells.size() * 2) cap <<= 1;
+        this.cellKeys = new long[cap];
+        this.cellStart = new int[cap];
+        this.cellCount = new int[cap];
+        this.cellSegs = new int[total];
+        Arrays.fill(cellKeys, EMPTY);
+        int at = 0;
+        for (Map.Entry<Long, List<Integer>> e : cells.entrySet()) {
+            int mask = cap - 1;
+            int i = mix(e.getKey()) & mask;
+            while (cellKeys[i] != EMPTY) i = (i + 1) & mask;
+            cellKeys[i] = e.getKey();
+            cellStart[i] = at;
+            cellCount[i] = e.getValue().size();
+            for (int s : e.getValue()) cellSegs[at++] = s;
+        }
+    }
+
+    // null, gdy trasa nie ma żadnego punktu
+    public static RouteCorridor of(double[] lat, double[] lon, double halfWidthM) {
+        if (lat.length == 0 || lat.length != lon.length) return null;
+        return new RouteCorridor(lat, lon, halfWidthM);
+    }
+
+    public double halfWidthM() {
+        return halfWidthM;
+    }
+
+    public int segments() {
+        return segments;
+    }
+
+    public int cells() {
+        int n = 0;
+        for (long k : cellKeys) if (k != EMPTY) n++;
+        return n;
+    }
+
+    // Odległość w metrach od najbliższego odcinka trasy (w poziomie)
+    public double distanceM(double lat, double lon) {
+        double px = projectX(lon);
+        double py = projectY(lat);
+        double best = Double.POSITIVE_INFINITY;
+        int mask = cellKeys.length - 1;
+        long k = key(cell(px), cell(py));
+        for (int i = mix(k) & mask; ; i = (i + 1) & mask) {
+            long c = cellKeys[i];
+            if (c == k) {
+                for (int j = cellStart[i], end = j + cellCount[i]; j < end; j++) {
+                    double d = segmentDistance(cellSegs[j], px, py);
+                    if (d < best) best = d;
+                }
+                break;
+            }
+            if (c == EMPTY) break;
+        }
+        if (best <= halfWidthM) return best;
+
+        // poza korytarzem - kwadrat nie musi znać najbliższego odcinka
+        for (int s = 0; s < segments; s++) {
+            double d = segmentDistance(s, px, py);
+            if (d < best) best = d;
+        }
+        return best;
+    }
+
+    private double segmentDistance(int s, double px, double py) {
+        double ax = x[s];
+        double ay = y[s];
+        double dx = x[s + 1] - ax;
+        double dy = y[s + 1] - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / len2;
+        if (t < 0) t = 0;
+        else if (t > 1) t = 1;
+        double ex = px - ax - t * dx;
+        double ey = py - ay - t * dy;
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+
+    private static double clamp(double t) {
+        return t < 0 ? 0 : t > 1 ? 1 : t;
+    }
+
+    private double projectX(double lon) {
+        double d = lon - lon0;
+        if (d > 180) d -= 360;
+        else if (d < -180) d += 360;
+        return d * kx;
+    }
+
+    private double projectY(double lat) {
+        return (lat - lat0) * ky;
+    }
+
+    private int cell(double v) {
+        return (int) Math.floor(v / cellM);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.notes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Odchylenie od planowanej trasy przy przyjmowaniu telemetrii. Przy starcie lotu trasa z trasy_punkty
+// trafia do RouteCorridor, a każdy przyjęty punkt dostaje odległość od najbliższego odcinka.
+// Zejście z korytarza i powrót (potwierdzone kilkoma punktami z rzędu, żeby szum GPS nie mnożył
+// zdarzeń) idą od razu do podglądu na żywo i przez FlightEventLog do logi_lotu.
+@Component
+public class RouteDeviationMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteDeviationMonitor.class);
+
+    static final String ZEJSCIE = "odchylenie_od_trasy";
+    static final String POWROT = "powrot_na_trase";
+
+    private final RouteGeometryCache routeGeometries;
+    private final ActiveFlightRegistry activeFlights;
+    private final LiveTelemetryHub liveHub;
+    private final FlightEventLog eventLog;
+    private final double halfWidthM;
+    private final int confirmPoints;
+
+    private final Map<Integer, Tracker> trackers = new ConcurrentHashMap<>();
+
+    private final LongAdder checkedPoints = new LongAdder();
+    private final LongAdder checkNanos = new LongAdder();
+    private final LongAdder events = new LongAdder();
+
+    public RouteDeviationMonitor(RouteGeometryCache routeGeometries,
+                                 ActiveFlightRegistry activeFlights,
+                                 LiveTelemetryHub liveHub,
+                                 FlightEventLog eventLog,
+                                 @Value("${trasy.korytarz.polszerokosc-m:10}") double halfWidthM,
+                                 @Value("${trasy.korytarz.potwierdzenie-punktow:3}") int confirmPoints) {
+        this.routeGeometries = routeGeometries;
+        this.activeFlights = activeFlights;
+        this.liveHub = liveHub;
+        this.eventLog = eventLog;
+        this.halfWidthM = halfWidthM;
+        this.confirmPoints = Math.max(1, confirmPoints);
+    }
+
+    // Stan jednego lotu; punkty lotu przychodzą z jednego źródła naraz, blokada tylko dla porządku
+    private static final class Tracker {
+        final RouteCorridor corridor;
+        long lastMs = Long.MIN_VALUE;
+        double distanceM = Double.NaN;
+        boolean off;
+        // punkty z rzędu po drugiej stronie granicy korytarza
+        int streak;
+        double maxM;
+        long offSinceMs;
+        int offPoints;
+
+        Tracker(RouteCorridor corridor) {
+            this.corridor = corridor;
+        }
+    }
+
+    // Po restarcie - korytarze lotów, które są w powietrzu (stan odchylenia od zera)
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        for (ActiveFlightRegistry.ActiveFlight f : activeFlights.all()) {
+            flightStarted(f);
+        }
+        log.info("Korytarze tras: {} aktywnych lotow", trackers.size());
+    }
+
+    public void flightStarted(ActiveFlightRegistry.ActiveFlight f) {
+        if (f.idTrasy == null) return;
+        try {
+            RouteCorridor corridor = load(f.idTrasy);
+            if (corridor != null && activeFlights.isActive(f.idLotu)) {
+                trackers.put(f.idLotu, new Tracker(corridor));
+            }
+        } catch (RuntimeException e) {
+            // bez korytarza lot leci dalej, tylko bez sprawdzania odchylenia
+            log.warn("Korytarz trasy: id_lotu={} id_trasy={} nieudany: {}", f.idLotu, f.idTrasy, e.getMessage());
+        }
+    }
+
+    public void flightEnded(int idLotu) {
+        trackers.remove(idLotu);
+    }
+
+    // Punkty już zwalidowane; starsze niż ostatni sprawdzony (ponowna wysyłka bufora) pomijamy
+    public void pointsAccepted(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        Tracker t = trackers.get(idLotu);
+        if (t == null || points.isEmpty()) return;
+        long t0 = System.nanoTime();
+        int n = 0;
+        synchronized (t) {
+            for (FlightController.TelemetryCreateRequest p : points) {
+                long czasMs = p.czas_ms != null ? p.czas_ms : System.currentTimeMillis();
+                if (czasMs < t.lastMs) continue;
+                t.lastMs = czasMs;
+                double d = t.corridor.distanceM(p.lat, p.lon);
+                t.distanceM = d;
+                n++;
+                check(idLotu, t, d, czasMs);
+            }
+        }
+        checkedPoints.add(n);
+        checkNanos.add(System.nanoTime() - t0);
+    }
+
+    private void check(int idLotu, Tracker t, double d, long czasMs) {
+        boolean outside = d > t.corridor.halfWidthM();
+        if (outside) {
+            // zejście liczymy od pierwszego punktu poza korytarzem, jeszcze przed potwierdzeniem
+            if (!t.off && t.streak == 0) {
+                t.offSinceMs = czasMs;
+                t.maxM = 0;
+                t.offPoints = 0;
+            }
+            t.offPoints++;
+            if (d > t.maxM) t.maxM = d;
+        }
+        if (outside == t.off) {
+            t.streak = 0;
+            return;
+        }
+        if (++t.streak < confirmPoints) return;
+        t.streak = 0;
+        t.off = outside;
+        emit(idLotu, outside ? ZEJSCIE : POWROT, czasMs, d, t);
+    }
+
+    private void emit(int idLotu, String typ, long czasMs, double d, Tracker t) {
+        double korytarz = t.corridor.halfWidthM();
+        String msg = ZEJSCIE.equals(typ)
+                ? String.format(Locale.ROOT, "Dron poza korytarzem trasy: %.1f m od trasy (korytarz %.0f m)", d, korytarz)
+                : String.format(Locale.ROOT, "Powrót na trasę po %.0f s, maks. odchylenie %.1f m (korytarz %.0f m)",
+                        Math.max(0, czasMs - t.offSinceMs) / 1000.0, t.maxM, korytarz);
+        eventLog.record(idLotu, czasMs, typ, msg);
+        events.increment();
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id_lotu", idLotu);
+        data.put("typ", typ);
+        data.put("czas_ms", czasMs);
+        data.put("odleglosc_m", round(d));
+        data.put("max_odleglosc_m", round(t.maxM));
+        data.put("korytarz_m", korytarz);
+        data.put("punkty_poza", t.offPoints);
+        liveHub.publishEvent(idLotu, "trasa", data);
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        long n = checkedPoints.sum();
+        m.put("loty_z_korytarzem", trackers.size());
+        m.put("sprawdzone_punkty", n);
+        m.put("sredni_czas_ns", n == 0 ? null : checkNanos.sum() / n);
+        m.put("zdarzenia", events.sum());
+        return m;
+    }
+
+    private RouteCorridor load(int idTrasy) {
+        RouteGeometryCache.RouteGeometry route = routeGeometries.get(idTrasy);
+        return RouteCorridor.of(route.lat(), route.lon(), halfWidthM);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 10) / 10.0;
+    }
+}
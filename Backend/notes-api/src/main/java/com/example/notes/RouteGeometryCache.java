@@ -0,0 +1,81 @@
+package com.example.notes;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Geometrie tras trzymane w pamięci: zakodowane (encoding=polyline) i jako tablice lat/lon.
+// Trasy zmieniają się rzadko: wpis jest ważny, dopóki trasy_wersja.wersja (trigger na trasy_punkty,
+// V4__trasy_wersja.sql) się nie zmieni - na żądanie sprawdzamy tylko jeden wiersz wersji.
+@Component
+public class RouteGeometryCache {
+
+    // lat/lon - punkty trasy w kolejności (korytarz trasy, walidacja względem stref)
+    public record RouteGeometry(long wersja, PolylineEncoder polyline, double[] lat, double[] lon) {}
+
+    private static final String POINTS_SQL = """
+        SELECT
+            ST_Y(tp.wspolrzedne::geometry) AS lat,
+            ST_X(tp.wspolrzedne::geometry) AS lon,
+            tp.wysokosc_m
+        FROM public.trasy_punkty tp
+        WHERE tp.id_trasy = ? AND tp.wspolrzedne IS NOT NULL
+        ORDER BY tp.kolejnosc
+        """;
+
+    private final JdbcTemplate jdbc;
+    private final Map<Integer, RouteGeometry> cache;
+
+    public RouteGeometryCache(JdbcTemplate jdbc,
+                              @Value("${trasy.polyline.cache-max:512}") int cacheMax) {
+        this.jdbc = jdbc;
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, RouteGeometry> eldest) {
+                return size() > cacheMax;
+            }
+        };
+    }
+
+    public RouteGeometry get(int idTrasy) {
+        long wersja = version(idTrasy);
+        synchronized (cache) {
+            RouteGeometry hit = cache.get(idTrasy);
+            if (hit != null && hit.wersja() == wersja) return hit;
+        }
+
+        PolylineEncoder enc = new PolylineEncoder();
+        List<double[]> points = new ArrayList<>();
+        jdbc.query(POINTS_SQL, rs -> {
+            double lat = rs.getDouble(1);
+            double lon = rs.getDouble(2);
+            double alt = rs.getDouble(3);
+            enc.add(lat, lon, rs.wasNull() ? null : alt);
+            points.add(new double[] {lat, lon});
+        }, idTrasy);
+        double[] lat = new double[points.size()];
+        double[] lon = new double[points.size()];
+        for (int i = 0; i < lat.length; i++) {
+            lat[i] = points.get(i)[0];
+            lon[i] = points.get(i)[1];
+        }
+        RouteGeometry geometry = new RouteGeometry(wersja, enc, lat, lon);
+
+        synchronized (cache) {
+            cache.put(idTrasy, geometry);
+        }
+        return geometry;
+    }
+
+    // Wersja punktów trasy; 0, gdy trasa nie była zmieniana od założenia trasy_wersja
+    public long version(int idTrasy) {
+        Long v = jdbc.query("SELECT wersja FROM public.trasy_wersja WHERE id_trasy = ?",
+                rs -> rs.next() ? rs.getLong(1) : 0L, idTrasy);
+        return v == null ? 0L : v;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.notes;
+
+import org.locationtech.jts.geom.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Walidacja trasy przed lotem (GET /api/route/{id}/validation, POST /api/lot/start).
+// Każdy odcinek trasy z korytarzem trasy.korytarz.polszerokosc-m sprawdzamy względem stref zakazanych
+// i infrastruktury krytycznej z indeksów GeofenceService (STR-tree w pamięci, bez PostGIS).
+// Werdykt trzymamy pod kluczem (wersja trasy, wersja stref, wersja infrastruktury); okna czasowe
+// stref oceniamy przy odczycie, więc upływ czasu nie unieważnia wpisu. Werdykty wszystkich tras
+// są odświeżane w tle, żeby start lotu zwykle trafiał w gotowy wpis.
+@Service
+public class RouteSafetyValidator {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteSafetyValidator.class);
+
+    static final String STREFA = "strefa_zakazana";
+    static final String INFRASTRUKTURA = "infrastruktura_krytyczna";
+
+    // Odcinek bliżej obiektu niż korytarz; od/do w ms epoki (MIN/MAX bez ograniczenia)
+    public record Violation(String warstwa, int id, String nazwa, String opis, int odcinek,
+                            double odlegloscM, long odMs, long doMs) {}
+
+    public record Verdict(int idTrasy, long wersjaTrasy, long wersjaStref, long wersjaInfrastruktury,
+                          double korytarzM, int odcinki, List<Violation> naruszenia, double obliczonoMs) {}
+
+    private final JdbcTemplate jdbc;
+    private final RouteGeometryCache routeGeometries;
+    private final GeofenceService geofence;
+    private final double halfWidthM;
+    private final Map<Integer, Verdict> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder computed = new LongAdder();
+
+    public RouteSafetyValidator(JdbcTemplate jdbc,
+                                RouteGeometryCache routeGeometries,
+                                GeofenceService geofence,
+                                @Value("${trasy.korytarz.polszerokosc-m:10}") double halfWidthM,
+                                @Value("${trasy.walidacja.cache-max:1024}") int cacheMax) {
+        this.jdbc = jdbc;
+        this.routeGeometries = routeGeometries;
+        this.geofence = geofence;
+        this.halfWidthM = halfWidthM;
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Verdict> eldest) {
+                return size() > cacheMax;
+            }
+        };
+    }
+
+    // Werdykt dla bieżących wersji; jedno zapytanie o wersję trasy, reszta z pamięci
+    public Verdict validate(int idTrasy) {
+        return validate(idTrasy, routeGeometries.version(idTrasy));
+    }
+
+    private Verdict validate(int idTrasy, long routeVersion) {
+        geofence.ensureLoaded();
+        GeofenceService.Index zones = geofence.zones();
+        GeofenceService.Index infrastructure = geofence.infrastructure();
+        synchronized (cache) {
+            Verdict v = cache.get(idTrasy);
+            if (v != null && v.wersjaTrasy() == routeVersion && v.wersjaStref() == zones.wersja()
+                    && v.wersjaInfrastruktury() == infrastructure.wersja()) {
+                hits.increment();
+                return v;
+            }
+        }
+        RouteGeometryCache.RouteGeometry route = routeGeometries.get(idTrasy);
+        Verdict v = compute(idTrasy, route.wersja(), route.lat(), route.lon(), zones, infrastructure, halfWidthM);
+        computed.increment();
+        synchronized (cache) {
+            cache.put(idTrasy, v);
+        }
+        return v;
+    }
+
+    static Verdict compute(int idTrasy, long routeVersion, double[] lat, double[] lon,
+                           GeofenceService.Index zones, GeofenceService.Index infrastructure, double halfWidthM) {
+        long t0 = System.nanoTime();
+        List<Violation> out = new ArrayList<>();
+        // jeden punkt trasy to odcinek zerowej długości
+        int segments = lat.length == 0 ? 0 : Math.max(1, lat.length - 1);
+        for (int s = 0; s < segments; s++) {
+            int e = Math.min(s + 1, lat.length - 1);
+            double midLat = (lat[s] + lat[e]) / 2;
+            double dLat = halfWidthM / 110_574.0;
+            double dLon = halfWidthM / (111_320.0 * Math.max(0.01, Math.cos(Math.toRadians(midLat))));
+            Envelope env = new Envelope(Math.min(lon[s], lon[e]) - dLon, Math.max(lon[s], lon[e]) + dLon,
+                    Math.min(lat[s], lat[e]) - dLat, Math.max(lat[s], lat[e]) + dLat);
+            collect(out, STREFA, zones, env, s, lat[s], lon[s], lat[e], lon[e], halfWidthM);
+            collect(out, INFRASTRUKTURA, infrastructure, env, s, lat[s], lon[s], lat[e], lon[e], halfWidthM);
+        }
+        return new Verdict(idTrasy, routeVersion, zones.wersja(), infrastructure.wersja(), halfWidthM, segments,
+                List.copyOf(out), Math.round((System.nanoTime() - t0) / 10_000.0) / 100.0);
+    }
+
+    private static void collect(List<Violation> out, String warstwa, GeofenceService.Index idx, Envelope env, int s,
+                                double lat1, double lon1, double lat2, double lon2, double halfWidthM) {
+        if (idx.strefy() == 0) return;
+        for (Object o : idx.tree().query(env)) {
+            GeofenceService.Zone z = (GeofenceService.Zone) o;
+            double d = z.segmentDistanceM(lat1, lon1, lat2, lon2);
+            if (d <= halfWidthM) {
+                out.add(new Violation(warstwa, z.id, z.nazwa, z.powod, s, Math.round(d * 10) / 10.0, z.odMs, z.doMs));
+            }
+        }
+    }
+
+    // Odpowiedź dla GET /api/route/{id}/validation; strefy, których okno już minęło, pomijamy
+    public Map<String, Object> toBody(Verdict v, long nowMs) {
+        List<Map<String, Object>> naruszenia = new ArrayList<>();
+        boolean safe = true;
+        for (Violation n : v.naruszenia()) {
+            if (n.doMs() <= nowMs) continue;
+            boolean activeNow = n.odMs() <= nowMs;
+            if (activeNow) safe = false;
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("warstwa", n.warstwa());
+            m.put("id", n.id());
+            m.put("nazwa", n.nazwa());
+            m.put(STREFA.equals(n.warstwa()) ? "powod" : "kategoria", n.opis());
+            m.put("odcinek", n.odcinek());
+            m.put("odleglosc_m", n.odlegloscM());
+            m.put("przecina", n.odlegloscM() == 0);
+            if (STREFA.equals(n.warstwa())) {
+                m.put("od_kiedy_ms", n.odMs() == Long.MIN_VALUE ? null : n.odMs());
+                m.put("do_kiedy_ms", n.doMs() == Long.MAX_VALUE ? null : n.doMs());
+                m.put("aktywna_teraz", activeNow);
+            }
+            naruszenia.add(m);
+        }
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("id_trasy", v.idTrasy());
+        res.put("bezpieczna", safe);
+        res.put("korytarz_m", v.korytarzM());
+        res.put("odcinki", v.odcinki());
+        res.put("wersja_trasy", v.wersjaTrasy());
+        res.put("wersja_stref", v.wersjaStref());
+        res.put("wersja_infrastruktury", v.wersjaInfrastruktury());
+        res.put("czas_obliczenia_ms", v.obliczonoMs());
+        res.put("naruszenia", naruszenia);
+        return res;
+    }
+
+    // Werdykty wszystkich tras przeliczane w tle po zmianie trasy albo warstw
+    @Scheduled(fixedDelayString = "${trasy.walidacja.odswiezanie-co-ms:60000}",
+            initialDelayString = "${trasy.walidacja.opoznienie-startu-ms:10000}")
+    public void refreshAll() {
+        List<Map<String, Object>> routes = jdbc.queryForList("""
+            SELECT t.id_trasy, COALESCE(w.wersja, 0) AS wersja
+            FROM public.trasy t
+            LEFT JOIN public.trasy_wersja w ON w.id_trasy = t.id_trasy
+            """);
+        long before = computed.sum();
+        for (Map<String, Object> r : routes) {
+            int id = ((Number) r.get("id_trasy")).intValue();
+            try {
+                validate(id, ((Number) r.get("wersja")).longValue());
+            } catch (RuntimeException e) {
+                log.warn("Walidacja trasy id_trasy={} nieudana: {}", id, e.getMessage());
+            }
+        }
+        long n = computed.sum() - before;
+        if (n > 0) log.info("Walidacja tras: przeliczono {} z {}", n, routes.size());
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (cache) {
+            m.put("werdykty", cache.size());
+        }
+        m.put("trafienia", hits.sum());
+        m.put("obliczenia", computed.sum());
+        return m;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.notes;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Uproszczony ślad lotu dla GET /api/lot/{id}/telemetria?tolerance_m=&max_points=.
+// Najpierw czytamy tylko id i współrzędne, upraszczamy, a pełne wiersze pobieramy tylko dla zostawionych punktów.
+// Wyniki dla lotów zakończonych trzymamy w małym cache LRU.
+@Service
+public class SimplifiedTrackService {
+
+    public record SimplifiedTrack(int originalPoints, List<Map<String, Object>> rows) {}
+
+    private record CacheKey(int idLotu, Double toleranceM, Integer maxPoints) {}
+
+    private static final String COORDS_SQL = """
+        SELECT tm.id_telemetrii,
+               tm.czas,
+               ST_Y(tm.wspolrzedne::geometry) AS lat,
+               ST_X(tm.wspolrzedne::geometry) AS lon
+        FROM public.telemetria tm
+        WHERE tm.id_lotu = ? AND tm.wspolrzedne IS NOT NULL
+        """ + TelemetryPartitionManager.FLIGHT_WINDOW_SQL + """
+        ORDER BY tm.czas ASC, tm.id_telemetrii ASC
+        """;
+
+    private static final String ROWS_SQL = """
+        SELECT
+            tm.id_telemetrii,
+            tm.czas,
+            ST_Y(tm.wspolrzedne::geometry) AS lat,
+            ST_X(tm.wspolrzedne::geometry) AS lon,
+            tm.wysokosc_m,
+            tm.predkosc_m_s,
+            tm.bateria_pro,
+            tm.sila_sygnalu
+        FROM public.telemetria tm
+        WHERE tm.id_lotu = ? AND tm.id_telemetrii = ANY (?)
+        """ + TelemetryPartitionManager.FLIGHT_WINDOW_SQL + """
+        ORDER BY tm.czas ASC, tm.id_telemetrii ASC
+        """;
+
+    private final JdbcTemplate jdbc;
+    private final ActiveFlightRegistry activeFlights;
+    private final TelemetryArchiver archiver;
+    private final Map<CacheKey, SimplifiedTrack> cache;
+
+    public SimplifiedTrackService(JdbcTemplate jdbc,
+                                  ActiveFlightRegistry activeFlights,
+                                  TelemetryArchiver archiver,
+                                  @Value("${telemetria.uproszczenie.cache-max:256}") int cacheMax) {
+        this.jdbc = jdbc;
+        this.activeFlights = activeFlights;
+        this.archiver = archiver;
+        this.cache = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, SimplifiedTrack> eldest) {
+                return size() > cacheMax;
+            }
+        };
+    }
+
+    public SimplifiedTrack simplified(int idLotu, Double toleranceM, Integer maxPoints) {
+        // Ślad lotu w trakcie ciągle rośnie, więc cache tylko dla zakończonych
+        boolean cacheable = !activeFlights.isActive(idLotu);
+        CacheKey key = new CacheKey(idLotu, toleranceM, maxPoints);
+        if (cacheable) {
+            synchronized (cache) {
+                SimplifiedTrack hit = cache.get(key);
+                if (hit != null) return hit;
+            }
+        }
+
+        SimplifiedTrack track = compute(idLotu, toleranceM, maxPoints);
+
+        if (cacheable && !activeFlights.isActive(idLotu)) {
+            synchronized (cache) {
+                cache.put(key, track);
+            }
+        }
+        return track;
+    }
+
+    // Po dopisaniu telemetrii do lotu (bulk/stream) jego uproszczenia są nieaktualne
+    public void invalidate(int idLotu) {
+        synchronized (cache) {
+            cache.keySet().removeIf(k -> k.idLotu() == idLotu);
+        }
+    }
+
+    private SimplifiedTrack compute(int idLotu, Double toleranceM, Integer maxPoints) {
+        // Lot zarchiwizowany: współrzędne i wiersze z archiwum, bez zapytań do telemetria
+        List<Map<String, Object>> archived = archiver.readArchived(idLotu);
+        Coords c = new Coords();
+        if (archived != null) {
+            archived.removeIf(row -> row.get("lat") == null || row.get("lon") == null);
+            for (Map<String, Object> row : archived) {
+                c.add(((Number) row.get("id_telemetrii")).intValue(), ((Timestamp) row.get("czas")).getTime(),
+                        ((Number) row.get("lat")).doubleValue(), ((Number) row.get("lon")).doubleValue());
+            }
+        } else {
+            jdbc.query(COORDS_SQL, rs -> {
+                c.add(rs.getInt(1), rs.getTimestamp(2).getTime(), rs.getDouble(3), rs.getDouble(4));
+            }, idLotu, idLotu, idLotu);
+        }
+        if (c.size == 0) return new SimplifiedTrack(0, List.of());
+
+        int[] idx = TrackSimplifier.simplify(c.lat, c.lon, c.size, toleranceM, maxPoints, eventPoints(idLotu, c));
+        if (archived != null) {
+            List<Map<String, Object>> rows = new ArrayList<>(idx.length);
+            for (int i : idx) rows.add(archived.get(i));
+            return new SimplifiedTrack(c.size, rows);
+        }
+        Integer[] ids = new Integer[idx.length];
+        for (int i = 0; i < idx.length; i++) ids[i] = c.ids[idx[i]];
+        List<Map<String, Object>> rows = jdbc.queryForList(ROWS_SQL, idLotu, ids, idLotu, idLotu);
+        return new SimplifiedTrack(c.size, rows);
+    }
+
+    // Punkty bezpośrednio przed i po każdym zdarzeniu z logi_lotu (ślad jest posortowany po czasie).
+    // telemetria.czas to czas UTC bez strefy, więc kiedy (timestamptz) też sprowadzamy do UTC,
+    // niezależnie od strefy sesji
+    private boolean[] eventPoints(int idLotu, Coords c) {
+        List<Timestamp> events = jdbc.queryForList(
+                "SELECT kiedy AT TIME ZONE 'UTC' FROM public.logi_lotu WHERE id_lotu = ?", Timestamp.class, idLotu);
+        if (events.isEmpty()) return null;
+        boolean[] keep = new boolean[c.size];
+        for (Timestamp e : events) {
+            int pos = Arrays.binarySearch(c.czas, 0, c.size, e.getTime());
+            int after = pos >= 0 ? pos : -pos - 1;
+            if (after < c.size) keep[after] = true;
+            if (after > 0) keep[after - 1] = true;
+        }
+        return keep;
+    }
+
+    private static final class Coords {
+        int[] ids = new int[1024];
+        long[] czas = new long[1024];
+        double[] lat = new double[1024];
+        double[] lon = new double[1024];
+        int size;
+
+        void add(int id, long t, double la, double lo) {
+            if (size == ids.length) {
+                int cap = size * 2;
+                ids = Arrays.copyOf(ids, cap);
+                czas = Arrays.copyOf(czas, cap);
+                lat = Arrays.copyOf(lat, cap);
+                lon = Arrays.copyOf(lon, cap);
+            }
+            ids[size] = id;
+            czas[size] = t;
+            lat[size] = la;
+            lon[size] = lo;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.notes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Archiwum telemetrii zakończonych lotów: cały ślad jako jeden blob w telemetria_archiwum
+// (TelemetryBinaryCodec, seq = id_telemetrii, opcjonalnie deflate), wiersze w telemetria są usuwane.
+// Za punktami kodeka leży kanał seq: seq nadany przez klienta, żeby ponowiony upload lotu
+// z archiwum nie dograł tych punktów drugi raz (archivedSeqs). Archiwa "dt1" sprzed kanału go nie mają.
+// Kompaktowane są loty zakończone dawniej niż po-dniach; świeże i trwające zostają wierszami.
+// Odczyt łączy blob z ewentualnymi wierszami dogranymi później (bulk/stream).
+// Kodek jest stratny poza współrzędnymi: czas do ms, wysokość do 0.1 m, prędkość do 0.01 m/s, bateria do 0.5%.
+@Component
+public class TelemetryArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryArchiver.class);
+
+    static final String ENCODING_RAW = "dt1";
+    static final String ENCODING_DEFLATE = "dt1+deflate";
+    static final String ENCODING_SEQ = "dt1+seq";
+    static final String ENCODING_SEQ_DEFLATE = "dt1+seq+deflate";
+
+    private static final String HOT_ROWS_SQL = hotRowsSql("");
+    // Kompaktowanie przenosi też seq klienta do kanału seq
+    private static final String HOT_ROWS_WITH_SEQ_SQL = hotRowsSql(",\n    tm.seq");
+
+    private static final Comparator<Map<String, Object>> ROW_ORDER =
+            Comparator.<Map<String, Object>, Timestamp>comparing(r -> (Timestamp) r.get("czas"))
+                    .thenComparingInt(r -> ((Number) r.get("id_telemetrii")).intValue());
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int afterDays;
+    private final boolean deflate;
+    private final int flightsPerRun;
+
+    public TelemetryArchiver(JdbcTemplate jdbc,
+                             PlatformTransactionManager txManager,
+                             @Value("${telemetria.archiwum.po-dniach:7}") int afterDays,
+                             @Value("${telemetria.archiwum.kompresja:deflate}") String compression,
+                             @Value("${telemetria.archiwum.lotow-na-przebieg:50}") int flightsPerRun) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.afterDays = afterDays;
+        this.deflate = !"brak".equalsIgnoreCase(compression);
+        this.flightsPerRun = Math.max(1, flightsPerRun);
+    }
+
+    private static String hotRowsSql(String extraColumns) {
+        return """
+            SELECT
+                tm.id_telemetrii,
+                tm.czas,
+                ST_Y(tm.wspolrzedne::geometry) AS lat,
+                ST_X(tm.wspolrzedne::geometry) AS lon,
+                tm.wysokosc_m,
+                tm.predkosc_m_s,
+                tm.bateria_pro,
+                tm.sila_sygnalu""" + extraColumns + """
+
+            FROM public.telemetria tm
+            WHERE tm.id_lotu = ?
+            """ + TelemetryPartitionManager.FLIGHT_WINDOW_SQL + """
+            ORDER BY tm.czas ASC, tm.id_telemetrii ASC
+            """;
+    }
+
+    // ---------- odczyt ----------
+
+    // Ślad lotu z archiwum razem z późniejszymi wierszami; null, gdy lot nie jest zarchiwizowany
+    public List<Map<String, Object>> readArchived(int idLotu) {
+        List<Map<String, Object>> archived = jdbc.query(
+                "SELECT kodowanie, dane FROM public.telemetria_archiwum WHERE id_lotu = ?",
+                rs -> rs.next() ? decodeRows(rs.getString(1), rs.getBytes(2)) : null,
+                idLotu);
+        if (archived == null) return null;
+        List<Map<String, Object>> hot = jdbc.queryForList(HOT_ROWS_SQL, idLotu, idLotu, idLotu);
+        if (!hot.isEmpty()) {
+            archived.addAll(hot);
+            archived.sort(ROW_ORDER);
+        }
+        return archived;
+    }
+
+    // Seq klienta zapisane w archiwum lotu; pusty zbiór, gdy lot nie jest zarchiwizowany
+    public Set<Long> archivedSeqs(int idLotu) {
+        return jdbc.query(
+                "SELECT kodowanie, dane FROM public.telemetria_archiwum WHERE id_lotu = ?",
+                rs -> rs.next() ? seqsOf(rs.getString(1), rs.getBytes(2)) : Set.<Long>of(),
+                idLotu);
+    }
+
+    static Set<Long> seqsOf(String encoding, byte[] data) {
+        if (!hasSeqChannel(encoding)) return Set.of();
+        ByteBuffer buf = ByteBuffer.wrap(isDeflated(encoding) ? inflate(data) : data);
+        int count = TelemetryBinaryCodec.decode(buf, (seq, czasMs, lat, lon, alt, speed, battery, signal) -> { });
+        Set<Long> seqs = new HashSet<>();
+        for (long seq : readSeqs(buf, count)) {
+            if (seq != TelemetryBinaryCodec.NO_VALUE) seqs.add(seq);
+        }
+        return seqs;
+    }
+
+    static List<Map<String, Object>> decodeRows(String encoding, byte[] data) {
+        return decodeRows(encoding, data, false);
+    }
+
+    // withSeq: wiersze dostają też "seq" z kanału seq (null w archiwach sprzed kanału)
+    static List<Map<String, Object>> decodeRows(String encoding, byte[] data, boolean withSeq) {
+        ByteBuffer buf = ByteBuffer.wrap(isDeflated(encoding) ? inflate(data) : data);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        TelemetryBinaryCodec.decode(buf, (seq, czasMs, lat, lon, alt, speed, battery, signal) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id_telemetrii", (int) seq);
+            row.put("czas", toTimestamp(czasMs));
+            row.put("lat", lat);
+            row.put("lon", lon);
+            row.put("wysokosc_m", Double.isNaN(alt) ? null : alt);
+            row.put("predkosc_m_s", Double.isNaN(speed) ? null : speed);
+            row.put("bateria_pro", Double.isNaN(battery) ? null : battery);
+            row.put("sila_sygnalu", signal);
+            rows.add(row);
+        });
+        if (withSeq) {
+            long[] seqs = hasSeqChannel(encoding) ? readSeqs(buf, rows.size()) : null;
+            for (int i = 0; i < rows.size(); i++) {
+                long seq = seqs == null ? TelemetryBinaryCodec.NO_VALUE : seqs[i];
+                rows.get(i).put("seq", seq == TelemetryBinaryCodec.NO_VALUE ? null : seq);
+            }
+        }
+        return rows;
+    }
+
+    // Blob archiwum: punkty w formacie kodeka (seq = id_telemetrii), za nimi kanał seq
+    static byte[] encodeRows(List<Map<String, Object>> rows) {
+        List<FlightController.TelemetryCreateRequest> points = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            points.add(toPoint(row));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows.size() * 16 + 64);
+        out.writeBytes(TelemetryBinaryCodec.encode(points));
+        writeSeqs(out, rows);
+        return out.toByteArray();
+    }
+
+    // Kanał seq: varint na punkt, 0 = brak seq, inaczej zigzag(delta względem poprzedniego seq) + 1
+    private static void writeSeqs(ByteArrayOutputStream out, List<Map<String, Object>> rows) {
+        long prev = 0;
+        for (Map<String, Object> row : rows) {
+            Object seq = row.get("seq");
+            if (seq == null) {
+                out.write(0);
+                continue;
+            }
+            long v = ((Number) seq).longValue();
+            long d = v - prev;
+            TelemetryBinaryCodec.writeVarLong(out, ((d << 1) ^ (d >> 63)) + 1);
+            prev = v;
+        }
+    }
+
+    private static long[] readSeqs(ByteBuffer buf, int count) {
+        long[] seqs = new long[count];
+        long prev = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                long v = TelemetryBinaryCodec.readVarLong(buf);
+                if (v == 0) {
+                    seqs[i] = TelemetryBinaryCodec.NO_VALUE;
+                    continue;
+                }
+                v--;
+                prev += (v >>> 1) ^ -(v & 1);
+                seqs[i] = prev;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Uszkodzone archiwum telemetrii", e);
+        }
+        return seqs;
+    }
+
+    private static boolean isDeflated(String encoding) {
+        return ENCODING_DEFLATE.equals(encoding) || ENCODING_SEQ_DEFLATE.equals(encoding);
+    }
+
+    private static boolean hasSeqChannel(String encoding) {
+        return ENCODING_SEQ.equals(encoding) || ENCODING_SEQ_DEFLATE.equals(encoding);
+    }
+
+    // ---------- kompaktowanie ----------
+
+    @Scheduled(fixedDelayString = "${telemetria.archiwum.co-ms:600000}", initialDelayString = "${telemetria.archiwum.co-ms:600000}")
+    public void compactFinished() {
+        if (afterDays < 0) return;
+        List<Integer> flights = jdbc.queryForList("""
+            SELECT l.id_lotu
+            FROM public.lot l
+            WHERE l.czas_konca IS NOT NULL
+              AND l.czas_konca < now()::timestamp - make_interval(days => ?)
+              AND EXISTS (SELECT 1 FROM public.telemetria t WHERE t.id_lotu = l.id_lotu)
+            ORDER BY l.czas_konca
+            LIMIT ?
+            """, Integer.class, afterDays, flightsPerRun);
+        for (int idLotu : flights) {
+            try {
+                int n = compact(idLotu);
+                log.debug("Archiwum telemetrii: id_lotu={} punktow={}", idLotu, n);
+            } catch (RuntimeException e) {
+                log.warn("Archiwum telemetrii: id_lotu={} nieudane: {}", idLotu, e.getMessage());
+            }
+        }
+    }
+
+    // Zwraca liczbę punktów w archiwum lotu po kompaktowaniu (0 = lot pominięty)
+    public int compact(int idLotu) {
+        Integer n = tx.execute(status -> {
+            jdbc.queryForList("SELECT pg_advisory_xact_lock(hashtext('telemetria_archiwum'), ?)", idLotu);
+
+            List<Map<String, Object>> hot = jdbc.queryForList(HOT_ROWS_WITH_SEQ_SQL, idLotu, idLotu, idLotu);
+            if (hot.isEmpty()) return 0;
+            // Punkty bez współrzędnych nie mieszczą się w kodeku - taki lot zostaje wierszami
+            for (Map<String, Object> row : hot) {
+                if (row.get("lat") == null || row.get("lon") == null) return 0;
+            }
+
+            List<Map<String, Object>> all = jdbc.query(
+                    "SELECT kodowanie, dane FROM public.telemetria_archiwum WHERE id_lotu = ? FOR UPDATE",
+                    rs -> rs.next() ? decodeRows(rs.getString(1), rs.getBytes(2), true) : new ArrayList<>(),
+                    idLotu);
+            all.addAll(hot);
+            all.sort(ROW_ORDER);
+
+            byte[] raw = encodeRows(all);
+            byte[] data = deflate ? deflate(raw) : raw;
+
+            jdbc.update("""
+                INSERT INTO public.telemetria_archiwum (id_lotu, liczba_punktow, czas_min, czas_max, kodowanie, dane)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT (id_lotu) DO UPDATE
+                    SET liczba_punktow = EXCLUDED.liczba_punktow,
+                        czas_min = EXCLUDED.czas_min,
+                        czas_max = EXCLUDED.czas_max,
+                        kodowanie = EXCLUDED.kodowanie,
+                        dane = EXCLUDED.dane,
+                        utworzono = now()
+                """,
+                    idLotu, all.size(), all.get(0).get("czas"), all.get(all.size() - 1).get("czas"),
+                    deflate ? ENCODING_SEQ_DEFLATE : ENCODING_SEQ, data);
+
+            // Usuwamy tylko przeczytane wiersze - równoległy bulk nie straci swoich punktów
+            Integer[] ids = hot.stream().map(r -> ((Number) r.get("id_telemetrii")).intValue()).toArray(Integer[]::new);
+            jdbc.update("DELETE FROM public.telemetria tm WHERE tm.id_lotu = ? AND tm.id_telemetrii = ANY (?)"
+                    + TelemetryPartitionManager.FLIGHT_WINDOW_SQL, idLotu, ids, idLotu, idLotu);
+            return all.size();
+        });
+        return n == null ? 0 : n;
+    }
+
+    private static FlightController.TelemetryCreateRequest toPoint(Map<String, Object> row) {
+        FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+        p.seq = ((Number) row.get("id_telemetrii")).longValue();
+        p.czas_ms = toEpochMs((Timestamp) row.get("czas"));
+        p.lat = ((Number) row.get("lat")).doubleValue();
+        p.lon = ((Number) row.get("lon")).doubleValue();
+        p.wysokosc_m = toDouble(row.get("wysokosc_m"));
+        p.predkosc_m_s = toDouble(row.get("predkosc_m_s"));
+        p.bateria_pro = toDouble(row.get("bateria_pro"));
+        p.sila_sygnalu = (String) row.get("sila_sygnalu");
+        return p;
+    }
+
+    private static Double toDouble(Object v) {
+        return v == null ? null : ((Number) v).doubleValue();
+    }
+
+    // czas to timestamp bez strefy - kodujemy sam zapis daty i godziny, jakby był w UTC
+    static long toEpochMs(Timestamp czas) {
+        return czas.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static Timestamp toTimestamp(long epochMs) {
+        return Timestamp.valueOf(LocalDateTime.ofEpochSecond(
+                Math.floorDiv(epochMs, 1000), Math.floorMod(epochMs, 1000) * 1_000_000, ZoneOffset.UTC));
+    }
+
+    static byte[] deflate(byte[] raw) {
+        Deflater d = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            d.setInput(raw);
+            d.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buf = new byte[8192];
+            while (!d.finished()) {
+                out.write(buf, 0, d.deflate(buf));
+            }
+            return out.toByteArray();
+        } finally {
+            d.end();
+        }
+    }
+
+    static byte[] inflate(byte[] data) {
+        Inflater inf = new Inflater();
+        try {
+            inf.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buf = new byte[8192];
+            while (!inf.finished()) {
+                int n = inf.inflate(buf);
+                if (n == 0 && (inf.needsInput() || inf.needsDictionary())) {
+                    throw new IllegalStateException("Uszkodzone archiwum telemetrii");
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Uszkodzone archiwum telemetrii", e);
+        } finally {
+            inf.end();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.notes;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Zalecenia dla klientów telemetrii przy przeciążeniu zapisu. Obciążenie 0..1 to większe z:
+// zapełnienia kolejki (tryb async) i średniego czasu commitu ponad cel. Przy 0 klient wysyła co
+// interwal-min-ms do partia-max punktów; przy 1 co interwal-max-ms najwyżej partia-min punktów,
+// czyli próbkuje rzadziej. Średnia czasu commitu wygasa, gdy zapisów nie ma, więc po spadku
+// obciążenia zalecenia same wracają do pełnej częstotliwości.
+@Component
+public class TelemetryBackpressure {
+
+    // Wygaszanie średniej czasu commitu bez nowych pomiarów
+    private static final double DECAY_MS = 5000;
+    private static final double ALPHA = 0.2;
+    // Poniżej tego zapełnienia kolejka nie świadczy o przeciążeniu
+    private static final double QUEUE_FILL_FROM = 0.1;
+    private static final double QUEUE_FILL_FULL = 0.8;
+
+    public record Hint(double obciazenie, long interwalMs, int partiaMax) {
+        public Map<String, Object> toBody() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("obciazenie", obciazenie);
+            m.put("interwal_ms", interwalMs);
+            m.put("partia_max", partiaMax);
+            return m;
+        }
+    }
+
+    private final double commitTargetMs;
+    private final double commitMaxMs;
+    private final long intervalMinMs;
+    private final long intervalMaxMs;
+    private final int batchMin;
+    private final int batchMax;
+
+    private double commitMsAvg;
+    private long lastSampleMs;
+
+    public TelemetryBackpressure(@Value("${telemetria.backpressure.commit-cel-ms:50}") double commitTargetMs,
+                                 @Value("${telemetria.backpressure.commit-max-ms:1000}") double commitMaxMs,
+                                 @Value("${telemetria.backpressure.interwal-min-ms:1000}") long intervalMinMs,
+                                 @Value("${telemetria.backpressure.interwal-max-ms:15000}") long intervalMaxMs,
+                                 @Value("${telemetria.backpressure.partia-min:1}") int batchMin,
+                                 @Value("${telemetria.backpressure.partia-max:100}") int batchMax) {
+        this.commitTargetMs = commitTargetMs;
+        this.commitMaxMs = Math.max(commitTargetMs + 1, commitMaxMs);
+        this.intervalMinMs = Math.max(1, intervalMinMs);
+        this.intervalMaxMs = Math.max(this.intervalMinMs, intervalMaxMs);
+        this.batchMin = Math.max(1, batchMin);
+        this.batchMax = Math.max(this.batchMin, batchMax);
+    }
+
+    // Czas zapisu partii (sync albo commit z kolejki)
+    public synchronized void recordCommit(long nanos, long nowMs) {
+        double ms = nanos / 1e6;
+        double avg = decayed(nowMs);
+        commitMsAvg = avg + ALPHA * (ms - avg);
+        lastSampleMs = nowMs;
+    }
+
+    public synchronized double commitMsAvg(long nowMs) {
+        return decayed(nowMs);
+    }
+
+    private double decayed(long nowMs) {
+        if (lastSampleMs == 0) return 0;
+        return commitMsAvg * Math.exp(-Math.max(0, nowMs - lastSampleMs) / DECAY_MS);
+    }
+
+    // queueFill: głębokość / pojemność kolejki (0 w trybie sync)
+    public Hint hint(double queueFill, long nowMs) {
+        double fromQueue = clamp((queueFill - QUEUE_FILL_FROM) / (QUEUE_FILL_FULL - QUEUE_FILL_FROM));
+        double fromCommit = clamp((commitMsAvg(nowMs) - commitTargetMs) / (commitMaxMs - commitTargetMs));
+        // Kroki co 0,05, żeby klienci nie przestawiali się przy każdej odpowiedzi
+        double load = Math.round(Math.max(fromQueue, fromCommit) * 20) / 20.0;
+        // Interpolacja geometryczna: pierwsze oznaki obciążenia zmieniają zalecenia łagodnie
+        long interval = Math.round(intervalMinMs * Math.pow((double) intervalMaxMs / intervalMinMs, load));
+        int batch = (int) Math.round(batchMax * Math.pow((double) batchMin / batchMax, load));
+        return new Hint(load, interval, Math.max(batchMin, batch));
+    }
+
+    private static double clamp(double v) {
+        return v <= 0 || Double.isNaN(v) ? 0 : Math.min(1, v);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.notes;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+// Zapis wielu punktów telemetrii jednym batchem JDBC w jednej transakcji
+@Component
+public class TelemetryBatchWriter {
+
+    static final String INSERT_SQL = """
+        INSERT INTO public.telemetria (
+            id_lotu, czas, wspolrzedne, wysokosc_m, predkosc_m_s, bateria_pro, sila_sygnalu, seq
+        )
+        VALUES (
+            ?,
+            COALESCE(
+                (to_timestamp((?::double precision)/1000.0) AT TIME ZONE 'UTC')::timestamp,
+                now()::timestamp
+            ),
+            ST_SetSRID(ST_MakePoint(?, ?), 4326)::geography,
+            ?,
+            ?,
+            ?,
+            ?,
+            ?
+        )
+    """;
+
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbc;
+
+    public TelemetryBatchWriter(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // Punkty muszą być wcześniej zwalidowane, zwraca liczbę zapisanych wierszy
+    @Transactional
+    public int write(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        if (points.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbc.batchUpdate(INSERT_SQL, points, JDBC_BATCH_SIZE,
+                (ps, p) -> bindRow(ps, idLotu, p));
+        return points.size() - countFailed(counts);
+    }
+
+    // Wiersze z kolejki mogą należeć do różnych lotów
+    @Transactional
+    public int writeRows(List<TelemetryIngestService.QueuedPoint> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbc.batchUpdate(INSERT_SQL, rows, JDBC_BATCH_SIZE,
+                (ps, r) -> bindRow(ps, r.idLotu(), r.point()));
+        return rows.size() - countFailed(counts);
+    }
+
+    private static void bindRow(PreparedStatement ps, int idLotu,
+                                FlightController.TelemetryCreateRequest p) throws SQLException {
+        ps.setInt(1, idLotu);
+        ps.setObject(2, p.czas_ms, Types.BIGINT);
+        ps.setDouble(3, p.lon);
+        ps.setDouble(4, p.lat);
+        ps.setObject(5, p.wysokosc_m, Types.DOUBLE);
+        ps.setObject(6, p.predkosc_m_s, Types.DOUBLE);
+        ps.setObject(7, p.bateria_pro, Types.DOUBLE);
+        ps.setObject(8, p.sila_sygnalu, Types.VARCHAR);
+        ps.setObject(9, p.seq, Types.BIGINT);
+    }
+
+    private static int countFailed(int[][] counts) {
+        int failed = 0;
+        for (int[] batch : counts) {
+            for (int c : batch) {
+                if (c == 0) failed++;
+            }
+        }
+        return failed;
+    }
+}
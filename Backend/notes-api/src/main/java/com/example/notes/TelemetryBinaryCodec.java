@@ -0,0 +1,235 @@
+package com.example.notes;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Zwarty binarny format partii telemetrii (Content-Type: application/x-telemetria).
+//
+// Nagłówek: 'D' 'T', wersja (1 bajt), liczba punktów (varint).
+// Punkt: bajt flag, potem pola obecne wg flag, liczby jako varint (ze znakiem: zigzag):
+//   czas     - delta ms względem poprzedniego punktu
+//   lat/lon  - delta stałoprzecinkowa 1e-7 stopnia (zawsze obecne)
+//   wysokość - delta w decymetrach
+//   prędkość - cm/s
+//   bateria  - 1 bajt, pół procenta (0..255)
+//   sygnał   - długość + UTF-8, tylko gdy zmienił się względem poprzedniego punktu
+//   seq      - delta względem poprzedniego seq
+public final class TelemetryBinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-telemetria";
+
+    static final byte MAGIC_0 = 'D';
+    static final byte MAGIC_1 = 'T';
+    static final byte VERSION = 1;
+
+    static final int F_TIME = 1;
+    static final int F_ALT = 1 << 1;
+    static final int F_SPEED = 1 << 2;
+    static final int F_BATTERY = 1 << 3;
+    static final int F_SIGNAL = 1 << 4;
+    static final int F_SEQ = 1 << 5;
+    static final int F_SIGNAL_NULL = 1 << 6;
+
+    static final double COORD_SCALE = 1e7;
+    static final double ALT_SCALE = 10.0;
+    static final double SPEED_SCALE = 100.0;
+    static final double BATTERY_SCALE = 2.0;
+
+    // Brak wartości: NaN dla liczb zmiennoprzecinkowych, NO_VALUE dla czasu i seq
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    // Odbiorca zdekodowanych punktów; dekoder nie tworzy obiektów na punkt
+    // (nowy String sygnału powstaje tylko, gdy sygnał się zmienia)
+    public interface PointVisitor {
+        void point(long seq, long czasMs, double lat, double lon,
+                   double wysokoscM, double predkoscMS, double bateriaPro, String silaSygnalu);
+    }
+
+    private TelemetryBinaryCodec() {
+    }
+
+    // ---------- dekodowanie ----------
+
+    public static int decode(ByteBuffer buf, PointVisitor visitor) {
+        try {
+            if (buf.get() != MAGIC_0 || buf.get() != MAGIC_1) {
+                throw new IllegalArgumentException("Nieprawidłowy nagłówek telemetrii binarnej");
+            }
+            byte version = buf.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Nieobsługiwana wersja telemetrii binarnej: " + version);
+            }
+            int count = (int) readVarLong(buf);
+
+            long time = 0;
+            long lat = 0;
+            long lon = 0;
+            long alt = 0;
+            long seq = 0;
+            String signal = null;
+            for (int i = 0; i < count; i++) {
+                int flags = buf.get() & 0xFF;
+                long czas = NO_VALUE;
+                if ((flags & F_TIME) != 0) {
+                    time += readZigZag(buf);
+                    czas = time;
+                }
+                lat += readZigZag(buf);
+                lon += readZigZag(buf);
+                double wysokosc = Double.NaN;
+                if ((flags & F_ALT) != 0) {
+                    alt += readZigZag(buf);
+                    wysokosc = alt / ALT_SCALE;
+                }
+                double predkosc = (flags & F_SPEED) != 0 ? readZigZag(buf) / SPEED_SCALE : Double.NaN;
+                double bateria = (flags & F_BATTERY) != 0 ? (buf.get() & 0xFF) / BATTERY_SCALE : Double.NaN;
+                if ((flags & F_SIGNAL_NULL) != 0) {
+                    signal = null;
+                } else if ((flags & F_SIGNAL) != 0) {
+                    signal = readString(buf);
+                }
+                long s = NO_VALUE;
+                if ((flags & F_SEQ) != 0) {
+                    seq += readZigZag(buf);
+                    s = seq;
+                }
+                visitor.point(s, czas, lat / COORD_SCALE, lon / COORD_SCALE, wysokosc, predkosc, bateria, signal);
+            }
+            return count;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Ucięte dane telemetrii binarnej", e);
+        }
+    }
+
+    // Wygodna wersja dla endpointów, które i tak zapisują listę obiektów
+    public static List<FlightController.TelemetryCreateRequest> decodeToRequests(byte[] data) {
+        return decodeToRequests(ByteBuffer.wrap(data));
+    }
+
+    public static List<FlightController.TelemetryCreateRequest> decodeToRequests(ByteBuffer data) {
+        List<FlightController.TelemetryCreateRequest> list = new ArrayList<>();
+        decode(data, (seq, czasMs, lat, lon, alt, speed, battery, signal) -> {
+            FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+            p.seq = seq == NO_VALUE ? null : seq;
+            p.czas_ms = czasMs == NO_VALUE ? null : czasMs;
+            p.lat = lat;
+            p.lon = lon;
+            p.wysokosc_m = Double.isNaN(alt) ? null : alt;
+            p.predkosc_m_s = Double.isNaN(speed) ? null : speed;
+            p.bateria_pro = Double.isNaN(battery) ? null : battery;
+            p.sila_sygnalu = signal;
+            list.add(p);
+        });
+        return list;
+    }
+
+    // ---------- kodowanie ----------
+
+    public static byte[] encode(List<FlightController.TelemetryCreateRequest> points) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + points.size() * 16);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(VERSION);
+        writeVarLong(out, points.size());
+
+        long time = 0;
+        long lat = 0;
+        long lon = 0;
+        long alt = 0;
+        long seq = 0;
+        String signal = null;
+        for (FlightController.TelemetryCreateRequest p : points) {
+            int flags = 0;
+            if (p.czas_ms != null) flags |= F_TIME;
+            if (p.wysokosc_m != null) flags |= F_ALT;
+            if (p.predkosc_m_s != null) flags |= F_SPEED;
+            if (p.bateria_pro != null) flags |= F_BATTERY;
+            boolean signalChanged = !Objects.equals(signal, p.sila_sygnalu);
+            if (signalChanged) flags |= p.sila_sygnalu == null ? F_SIGNAL_NULL : F_SIGNAL;
+            if (p.seq != null) flags |= F_SEQ;
+            out.write(flags);
+
+            if (p.czas_ms != null) {
+                writeZigZag(out, p.czas_ms - time);
+                time = p.czas_ms;
+            }
+            long la = Math.round(p.lat * COORD_SCALE);
+            long lo = Math.round(p.lon * COORD_SCALE);
+            writeZigZag(out, la - lat);
+            writeZigZag(out, lo - lon);
+            lat = la;
+            lon = lo;
+            if (p.wysokosc_m != null) {
+                long a = Math.round(p.wysokosc_m * ALT_SCALE);
+                writeZigZag(out, a - alt);
+                alt = a;
+            }
+            if (p.predkosc_m_s != null) {
+                writeZigZag(out, Math.round(p.predkosc_m_s * SPEED_SCALE));
+            }
+            if (p.bateria_pro != null) {
+                out.write((int) Math.max(0, Math.min(255, Math.round(p.bateria_pro * BATTERY_SCALE))));
+            }
+            if (signalChanged && p.sila_sygnalu != null) {
+                byte[] b = p.sila_sygnalu.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, b.length);
+                out.write(b, 0, b.length);
+            }
+            signal = p.sila_sygnalu;
+            if (p.seq != null) {
+                writeZigZag(out, p.seq - seq);
+                seq = p.seq;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    // ---------- varint ----------
+
+    static long readVarLong(ByteBuffer buf) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buf.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IllegalArgumentException("Za długi varint");
+    }
+
+    static String readString(ByteBuffer buf) {
+        int len = (int) readVarLong(buf);
+        if (len < 0 || len > buf.remaining()) throw new BufferUnderflowException();
+        String value;
+        if (buf.hasArray()) {
+            value = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+            buf.position(buf.position() + len);
+        } else {
+            byte[] b = new byte[len];
+            buf.get(b);
+            value = new String(b, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    static long readZigZag(ByteBuffer buf) {
+        long v = readVarLong(buf);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    static void writeZigZag(ByteArrayOutputStream out, long v) {
+        writeVarLong(out, (v << 1) ^ (v >> 63));
+    }
+}
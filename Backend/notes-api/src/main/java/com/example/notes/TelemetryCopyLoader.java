@@ -0,0 +1,161 @@
+package com.example.notes;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Masowe ładowanie telemetrii jednego lotu: COPY FROM STDIN do tabeli tymczasowej,
+// a potem jedno INSERT ... SELECT z konwersją na geography. Punkty z seq już zapisanym dla lotu
+// są pomijane (ponowiony upload), tu wystarczy indeks telemetria_lot_seq_idx - to nie gorąca ścieżka.
+// Lot skompaktowany do archiwum nie ma już tych wierszy, więc jego seq sprawdzamy w kanale seq archiwum.
+@Component
+public class TelemetryCopyLoader {
+
+    private static final int FLUSH_BYTES = 64 * 1024;
+
+    private static final String CREATE_STAGING_SQL = """
+        CREATE TEMP TABLE telemetria_staging (
+            czas_ms      bigint,
+            lon          double precision,
+            lat          double precision,
+            wysokosc_m   double precision,
+            predkosc_m_s double precision,
+            bateria_pro  double precision,
+            sila_sygnalu text,
+            seq          bigint
+        ) ON COMMIT DROP
+    """;
+
+    private static final String COPY_SQL = """
+        COPY telemetria_staging (czas_ms, lon, lat, wysokosc_m, predkosc_m_s, bateria_pro, sila_sygnalu, seq)
+        FROM STDIN (FORMAT text)
+    """;
+
+    private static final String MOVE_SQL = """
+        INSERT INTO public.telemetria (
+            id_lotu, czas, wspolrzedne, wysokosc_m, predkosc_m_s, bateria_pro, sila_sygnalu, seq
+        )
+        SELECT
+            ?,
+            COALESCE(
+                (to_timestamp(s.czas_ms / 1000.0) AT TIME ZONE 'UTC')::timestamp,
+                now()::timestamp
+            ),
+            ST_SetSRID(ST_MakePoint(s.lon, s.lat), 4326)::geography,
+            s.wysokosc_m,
+            s.predkosc_m_s,
+            s.bateria_pro,
+            s.sila_sygnalu,
+            s.seq
+        FROM telemetria_staging s
+        WHERE s.seq IS NULL
+           OR NOT EXISTS (SELECT 1 FROM public.telemetria t WHERE t.id_lotu = ? AND t.seq = s.seq)
+        ORDER BY s.czas_ms
+    """;
+
+    private final DataSource dataSource;
+    private final TelemetryArchiver archiver;
+
+    public TelemetryCopyLoader(DataSource dataSource, TelemetryArchiver archiver) {
+        this.dataSource = dataSource;
+        this.archiver = archiver;
+    }
+
+    // Punkty muszą być wcześniej zwalidowane, zwraca liczbę zapisanych wierszy
+    @Transactional
+    public int load(int idLotu, Iterable<FlightController.TelemetryCreateRequest> points) throws SQLException {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        Set<Long> archived = archiver.archivedSeqs(idLotu);
+        return load(con, idLotu, archived.isEmpty() ? points : withoutSeqs(points, archived));
+    }
+
+    private static List<FlightController.TelemetryCreateRequest> withoutSeqs(
+            Iterable<FlightController.TelemetryCreateRequest> points, Set<Long> seqs) {
+        List<FlightController.TelemetryCreateRequest> out = new ArrayList<>();
+        for (FlightController.TelemetryCreateRequest p : points) {
+            if (p.seq == null || !seqs.contains(p.seq)) out.add(p);
+        }
+        return out;
+    }
+
+    // Wersja na gołym połączeniu (benchmark), transakcją zarządza wywołujący
+    static int load(Connection con, int idLotu,
+                    Iterable<FlightController.TelemetryCreateRequest> points) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(CREATE_STAGING_SQL);
+        }
+
+        CopyIn copy = con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try {
+            StringBuilder sb = new StringBuilder(FLUSH_BYTES + 256);
+            for (FlightController.TelemetryCreateRequest p : points) {
+                appendRow(sb, p);
+                if (sb.length() >= FLUSH_BYTES) {
+                    writeTo(copy, sb);
+                }
+            }
+            writeTo(copy, sb);
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(MOVE_SQL)) {
+            ps.setInt(1, idLotu);
+            ps.setInt(2, idLotu);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void writeTo(CopyIn copy, StringBuilder sb) throws SQLException {
+        if (sb.length() == 0) return;
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        sb.setLength(0);
+    }
+
+    // Format tekstowy COPY: kolumny rozdzielone tabulatorem, NULL jako \N
+    private static void appendRow(StringBuilder sb, FlightController.TelemetryCreateRequest p) {
+        appendValue(sb, p.czas_ms).append('\t');
+        sb.append(p.lon).append('\t');
+        sb.append(p.lat).append('\t');
+        appendValue(sb, p.wysokosc_m).append('\t');
+        appendValue(sb, p.predkosc_m_s).append('\t');
+        appendValue(sb, p.bateria_pro).append('\t');
+        appendText(sb, p.sila_sygnalu).append('\t');
+        appendValue(sb, p.seq).append('\n');
+    }
+
+    private static StringBuilder appendValue(StringBuilder sb, Object v) {
+        return v == null ? sb.append("\\N") : sb.append(v);
+    }
+
+    private static StringBuilder appendText(StringBuilder sb, String v) {
+        if (v == null) return sb.append("\\N");
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb;
+    }
+}
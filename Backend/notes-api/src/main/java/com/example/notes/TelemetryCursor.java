@@ -0,0 +1,34 @@
+package com.example.notes;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+// Kursor stronicowania telemetrii: "<czas ISO>,<id_telemetrii>", np. 2025-05-01T10:15:30.123456,812.
+// Czas w pełnej precyzji (mikrosekundy), bo porównanie (czas, id) > (?, ?) musi trafić dokładnie.
+public record TelemetryCursor(LocalDateTime czas, int idTelemetrii) {
+
+    public static TelemetryCursor parse(String value) {
+        int comma = value.lastIndexOf(',');
+        if (comma <= 0) throw invalid(value);
+        try {
+            return new TelemetryCursor(
+                    LocalDateTime.parse(value.substring(0, comma).trim()),
+                    Integer.parseInt(value.substring(comma + 1).trim())
+            );
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw invalid(value);
+        }
+    }
+
+    public static String of(Timestamp czas, int idTelemetrii) {
+        return czas.toLocalDateTime() + "," + idTelemetrii;
+    }
+
+    private static ResponseStatusException invalid(String value) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nieprawidłowy kursor after: " + value);
+    }
+}
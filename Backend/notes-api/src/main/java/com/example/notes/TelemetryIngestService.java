@@ -0,0 +1,375 @@
+package com.example.notes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Przyjmowanie telemetrii: zapis synchroniczny albo kolejka + wątki zapisujące (group commit)
+@Service
+public class TelemetryIngestService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryIngestService.class);
+    private static final int MAX_COMMIT_RETRIES = 3;
+    // Zatrzymanie po serwerze WWW (nie ma już nowych żądań), ale przed zamknięciem DataSource
+    private static final int LIFECYCLE_PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    public record QueuedPoint(int idLotu, FlightController.TelemetryCreateRequest point) {}
+
+    private final TelemetryBatchWriter writer;
+    private final ActiveFlightRegistry activeFlights;
+    private final LiveTelemetryHub liveHub;
+    private final AirspaceSnapshot airspace;
+    private final RouteDeviationMonitor deviations;
+    private final GeofenceMonitor geofence;
+    private final TelemetrySequenceFilter sequences;
+    private final TelemetryBackpressure backpressure;
+    private final boolean async;
+    private final int queueCapacity;
+    private final int writerThreads;
+    private final int commitMaxPoints;
+    private final long commitMaxNanos;
+    private final long shutdownTimeoutMs;
+    private final long flightEndTimeoutMs;
+
+    // Lock-free kolejka wielu producentów, limit pilnowany licznikiem
+    private final ConcurrentLinkedQueue<QueuedPoint> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    // Punkty w kolejce per lot (jeszcze nie zapisane); wpis znika przy zerze
+    private final ConcurrentHashMap<Integer, Integer> pendingByFlight = new ConcurrentHashMap<>();
+    // Akcje do wykonania, gdy kolejka lotu się opróżni (lot zakończony przed zapisem wszystkich punktów)
+    private final ConcurrentHashMap<Integer, Runnable> afterFlush = new ConcurrentHashMap<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean accepting = true;
+    private volatile boolean running = false;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder committedPoints = new LongAdder();
+    private final LongAdder droppedPoints = new LongAdder();
+    private final LongAdder commitNanosTotal = new LongAdder();
+    private final AtomicLong commitNanosMax = new AtomicLong();
+    private final AtomicInteger lastCommitSize = new AtomicInteger();
+    private final AtomicInteger maxCommitSize = new AtomicInteger();
+
+    public TelemetryIngestService(
+            TelemetryBatchWriter writer,
+            ActiveFlightRegistry activeFlights,
+            LiveTelemetryHub liveHub,
+            AirspaceSnapshot airspace,
+            RouteDeviationMonitor deviations,
+            GeofenceMonitor geofence,
+            TelemetrySequenceFilter sequences,
+            TelemetryBackpressure backpressure,
+            @Value("${telemetria.ingest.tryb:sync}") String mode,
+            @Value("${telemetria.ingest.kolejka-max:100000}") int queueCapacity,
+            @Value("${telemetria.ingest.watki:2}") int writerThreads,
+            @Value("${telemetria.ingest.commit-max-punktow:1000}") int commitMaxPoints,
+            @Value("${telemetria.ingest.commit-max-ms:200}") long commitMaxMs,
+            @Value("${telemetria.ingest.zamkniecie-max-ms:30000}") long shutdownTimeoutMs,
+            @Value("${telemetria.ingest.koniec-lotu-max-ms:5000}") long flightEndTimeoutMs) {
+        this.writer = writer;
+        this.activeFlights = activeFlights;
+        this.liveHub = liveHub;
+        this.airspace = airspace;
+        this.deviations = deviations;
+        this.geofence = geofence;
+        this.sequences = sequences;
+        this.backpressure = backpressure;
+        this.async = "async".equalsIgnoreCase(mode);
+        this.queueCapacity = queueCapacity;
+        this.writerThreads = Math.max(1, writerThreads);
+        this.commitMaxPoints = Math.max(1, commitMaxPoints);
+        this.commitMaxNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, commitMaxMs));
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.flightEndTimeoutMs = flightEndTimeoutMs;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!async) return;
+        for (int i = 0; i < writerThreads; i++) {
+            Thread t = new Thread(this::writerLoop, "telemetria-writer-" + i);
+            t.setDaemon(false);
+            t.start();
+            writers.add(t);
+        }
+        log.info("Telemetria: tryb async, kolejka={}, watki={}, commit={} pkt / {} ms",
+                queueCapacity, writerThreads, commitMaxPoints, TimeUnit.NANOSECONDS.toMillis(commitMaxNanos));
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    // Punkty bez duplikatów (po seq); wywołujący zapisuje już tylko te
+    public List<FlightController.TelemetryCreateRequest> deduplicate(int idLotu,
+                                                                    List<FlightController.TelemetryCreateRequest> points) {
+        return sequences.admit(idLotu, points);
+    }
+
+    // Zapis synchroniczny punktów po deduplicate(), zwraca liczbę zapisanych punktów.
+    // Przy błędzie (albo rollbacku transakcji wywołującego) seq wracają do puli, żeby ponowienie przeszło.
+    public int writeNow(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) sequences.forget(idLotu, points);
+                }
+            });
+        }
+        long t0 = System.nanoTime();
+        int written;
+        try {
+            written = writer.write(idLotu, points);
+        } catch (RuntimeException e) {
+            sequences.forget(idLotu, points);
+            throw e;
+        }
+        recordCommit(System.nanoTime() - t0);
+        accepted(idLotu, points);
+        return written;
+    }
+
+    // Czas zapisu poza writeNow (pojedynczy punkt w FlightController)
+    public void recordCommit(long nanos) {
+        backpressure.recordCommit(nanos, System.currentTimeMillis());
+    }
+
+    // Zalecany interwał wysyłki i rozmiar partii dla klienta przy bieżącym obciążeniu zapisu
+    public TelemetryBackpressure.Hint hint() {
+        double fill = async ? (double) queueDepth.get() / queueCapacity : 0;
+        return backpressure.hint(fill, System.currentTimeMillis());
+    }
+
+    // Punkty przyjęte do zapisu: bieżący dystans i statystyki lotu, podgląd na żywo, obraz przestrzeni
+    public void accepted(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        activeFlights.recordPoints(idLotu, points);
+        liveHub.publish(idLotu, points);
+        airspace.pointsAccepted(idLotu, points);
+        deviations.pointsAccepted(idLotu, points);
+        geofence.pointsAccepted(idLotu, points);
+    }
+
+    // Wrzuca wszystkie punkty (po deduplicate()) do kolejki albo żaden, gdy brakuje miejsca.
+    // accepted() dopiero po commicie - punkty utracone w kolejce nie trafiają do dystansu ani zdarzeń
+    public boolean enqueue(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        if (!accepting) {
+            sequences.forget(idLotu, points);
+            return false;
+        }
+        int n = points.size();
+        int depth;
+        do {
+            depth = queueDepth.get();
+            if (depth + n > queueCapacity) {
+                rejectedFull.add(n);
+                sequences.forget(idLotu, points);
+                return false;
+            }
+        } while (!queueDepth.compareAndSet(depth, depth + n));
+
+        // przed wrzuceniem do kolejki, żeby wątek zapisujący nie zszedł poniżej zera
+        pendingByFlight.merge(idLotu, n, TelemetryIngestService::sumOrNull);
+        for (FlightController.TelemetryCreateRequest p : points) {
+            queue.offer(new QueuedPoint(idLotu, p));
+        }
+        enqueued.add(n);
+        return true;
+    }
+
+    // Czeka, aż punkty lotu z kolejki zostaną zapisane (i przeliczone w accepted()), zanim lot
+    // dostanie czas_konca. false po przekroczeniu czasu - część punktów dojdzie po zakończeniu.
+    public boolean awaitFlushed(int idLotu) {
+        if (!async) return true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flightEndTimeoutMs);
+        while (pendingByFlight.containsKey(idLotu)) {
+            if (System.nanoTime() >= deadline) {
+                log.warn("Telemetria: id_lotu={} konczy sie z {} pkt w kolejce",
+                        idLotu, pendingByFlight.getOrDefault(idLotu, 0));
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    // Uruchamia action po zapisie ostatniego punktu lotu z kolejki (od razu, gdy kolejka lotu jest pusta)
+    public void whenFlushed(int idLotu, Runnable action) {
+        afterFlush.put(idLotu, action);
+        if (!pendingByFlight.containsKey(idLotu)) runAfterFlush(idLotu);
+    }
+
+    // remove() rozstrzyga wyścig z wątkiem zapisującym - akcja wykona się raz
+    private void runAfterFlush(int idLotu) {
+        Runnable action = afterFlush.remove(idLotu);
+        if (action == null) return;
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.warn("Telemetria: akcja po zapisie kolejki id_lotu={} nieudana: {}", idLotu, e.getMessage());
+        }
+    }
+
+    private static Integer sumOrNull(Integer a, Integer b) {
+        int sum = a + b;
+        return sum == 0 ? null : sum;
+    }
+
+    private void writerLoop() {
+        List<QueuedPoint> batch = new ArrayList<>(commitMaxPoints);
+        while (running || !queue.isEmpty()) {
+            long deadline = System.nanoTime() + commitMaxNanos;
+            while (batch.size() < commitMaxPoints) {
+                QueuedPoint p = queue.poll();
+                if (p != null) {
+                    batch.add(p);
+                    continue;
+                }
+                if (!running || System.nanoTime() >= deadline) break;
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<QueuedPoint> batch) {
+        long t0 = System.nanoTime();
+        int written = -1;
+        for (int attempt = 1; attempt <= MAX_COMMIT_RETRIES && written < 0; attempt++) {
+            try {
+                written = writer.writeRows(batch);
+            } catch (Exception e) {
+                log.warn("Telemetria: commit {} pkt nieudany (proba {}): {}", batch.size(), attempt, e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L * attempt));
+            }
+        }
+        if (written < 0) {
+            written = commitOneByOne(batch);
+        } else {
+            acceptedRows(batch);
+        }
+        long nanos = System.nanoTime() - t0;
+        recordCommit(nanos);
+
+        queueDepth.addAndGet(-batch.size());
+        Map<Integer, Integer> perFlight = new HashMap<>();
+        for (QueuedPoint p : batch) {
+            perFlight.merge(p.idLotu(), 1, Integer::sum);
+        }
+        perFlight.forEach((id, n) -> {
+            if (pendingByFlight.merge(id, -n, TelemetryIngestService::sumOrNull) == null) runAfterFlush(id);
+        });
+        commits.increment();
+        committedPoints.add(written);
+        commitNanosTotal.add(nanos);
+        commitNanosMax.accumulateAndGet(nanos, Math::max);
+        lastCommitSize.set(batch.size());
+        maxCommitSize.accumulateAndGet(batch.size(), Math::max);
+    }
+
+    // Zapisane wiersze z kolejki, po locie w kolejności kolejki
+    private void acceptedRows(List<QueuedPoint> rows) {
+        Map<Integer, List<FlightController.TelemetryCreateRequest>> byFlight = new LinkedHashMap<>();
+        for (QueuedPoint p : rows) {
+            byFlight.computeIfAbsent(p.idLotu(), k -> new ArrayList<>()).add(p.point());
+        }
+        byFlight.forEach(this::accepted);
+    }
+
+    // Ostatnia próba: pojedyncze wiersze, żeby jeden zły punkt nie blokował reszty
+    private int commitOneByOne(List<QueuedPoint> batch) {
+        int written = 0;
+        for (QueuedPoint p : batch) {
+            try {
+                written += writer.writeRows(List.of(p));
+            } catch (Exception e) {
+                droppedPoints.increment();
+                sequences.forget(p.idLotu(), List.of(p.point()));
+                log.error("Telemetria: punkt odrzucony po przyjeciu, id_lotu={}: {}", p.idLotu(), e.getMessage());
+                continue;
+            }
+            accepted(p.idLotu(), List.of(p.point()));
+        }
+        return written;
+    }
+
+    public Map<String, Object> metrics() {
+        long commitCount = commits.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("tryb", async ? "async" : "sync");
+        m.put("kolejka_glebokosc", queueDepth.get());
+        m.put("kolejka_max", queueCapacity);
+        m.put("przyjete", enqueued.sum());
+        m.put("odrzucone_pelna_kolejka", rejectedFull.sum());
+        m.put("zapisane", committedPoints.sum());
+        m.put("utracone_po_przyjeciu", droppedPoints.sum());
+        m.put("commity", commitCount);
+        m.put("commit_rozmiar_ostatni", lastCommitSize.get());
+        m.put("commit_rozmiar_max", maxCommitSize.get());
+        m.put("commit_rozmiar_sredni", commitCount == 0 ? 0.0 : (double) committedPoints.sum() / commitCount);
+        m.put("commit_ms_sredni", commitCount == 0 ? 0.0 : commitNanosTotal.sum() / 1e6 / commitCount);
+        m.put("commit_ms_max", commitNanosMax.get() / 1e6);
+        m.put("commit_ms_srednia_biezaca", backpressure.commitMsAvg(System.currentTimeMillis()));
+        m.put("zalecenia", hint().toBody());
+        return m;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return LIFECYCLE_PHASE;
+    }
+
+    // Przy zamknięciu: nie przyjmujemy nowych punktów i zapisujemy wszystko, co już potwierdzone
+    @Override
+    public void stop() {
+        accepting = false;
+        running = false;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+        for (Thread t : writers) {
+            try {
+                t.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        List<QueuedPoint> rest = new ArrayList<>();
+        for (QueuedPoint p; (p = queue.poll()) != null; ) {
+            rest.add(p);
+        }
+        if (!rest.isEmpty()) {
+            commit(rest);
+        }
+        if (async) {
+            log.info("Telemetria: kolejka oprozniona, zapisano {} pkt", committedPoints.sum());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.notes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+// Partycje miesięczne tabeli telemetria (V2__telemetria_partycje.sql): zakładanie z wyprzedzeniem
+// i opcjonalne odłączanie starych. DDL robią funkcje SECURITY DEFINER, bo appuser nie jest właścicielem tabeli.
+@Component
+public class TelemetryPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryPartitionManager.class);
+
+    // Zawężenie odczytu telemetrii lotu do jego zakresu czasu - bez tego zapytanie po id_lotu
+    // musi zajrzeć do indeksu każdej partycji. Parametry: id_lotu, id_lotu.
+    static final String FLIGHT_WINDOW_SQL = """
+          AND tm.czas >= (SELECT z.czas_min FROM public.telemetria_zakres z WHERE z.id_lotu = ?)
+          AND tm.czas <= (SELECT z.czas_max FROM public.telemetria_zakres z WHERE z.id_lotu = ?)
+        """;
+
+    private final JdbcTemplate jdbc;
+    private final int monthsAhead;
+    private final int detachAfterMonths;
+
+    public TelemetryPartitionManager(JdbcTemplate jdbc,
+                                     @Value("${telemetria.partycje.miesiecy-naprzod:3}") int monthsAhead,
+                                     @Value("${telemetria.partycje.odlacz-po-miesiacach:0}") int detachAfterMonths) {
+        this.jdbc = jdbc;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.detachAfterMonths = detachAfterMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${telemetria.partycje.cron:0 15 3 * * *}")
+    public void maintain() {
+        try {
+            Integer created = jdbc.queryForObject(
+                    "SELECT public.telemetria_zapewnij_partycje(?)", Integer.class, monthsAhead);
+            if (created != null && created > 0) {
+                log.info("Telemetria: utworzono {} partycji", created);
+            }
+            if (detachAfterMonths > 0) {
+                detachOlderThan(LocalDate.now().withDayOfMonth(1).minusMonths(detachAfterMonths));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Telemetria: utrzymanie partycji nieudane: {}", e.getMessage());
+        }
+    }
+
+    // Odłączone partycje zostają jako zwykłe tabele telemetria_pRRRR_MM (do zrzutu i usunięcia)
+    public List<String> detachOlderThan(LocalDate before) {
+        List<String> detached = jdbc.queryForList(
+                "SELECT public.telemetria_odlacz_partycje(?)",
+                String.class, Timestamp.valueOf(before.atStartOfDay()));
+        if (!detached.isEmpty()) {
+            log.info("Telemetria: odłączono partycje {}", detached);
+        }
+        return detached;
+    }
+}
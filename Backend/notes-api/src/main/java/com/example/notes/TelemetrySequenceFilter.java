@@ -0,0 +1,229 @@
+package com.example.notes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Idempotentne przyjmowanie telemetrii po seq nadanym przez klienta (rosnący w obrębie lotu).
+// Per lot trzymamy najwyższy przyjęty seq i bitmapę ostatnich telemetria.seq.okno numerów, więc
+// ponowienie po zerwaniu sieci odrzucamy w O(1) bez zapytania do bazy. Baza jest potrzebna tylko
+// po restarcie (odtworzenie okna z kolumny telemetria.seq) i dla punktów starszych niż okno.
+// Punkty bez seq przechodzą bez sprawdzania.
+@Component
+public class TelemetrySequenceFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetrySequenceFilter.class);
+
+    private static final String MAX_SEQ_SQL = """
+        SELECT max(tm.seq)
+        FROM public.telemetria tm
+        WHERE tm.id_lotu = ? AND tm.seq IS NOT NULL
+        """ + TelemetryPartitionManager.FLIGHT_WINDOW_SQL;
+
+    private static final String RECENT_SEQ_SQL = """
+        SELECT tm.seq
+        FROM public.telemetria tm
+        WHERE tm.id_lotu = ? AND tm.seq > ?
+        """ + TelemetryPartitionManager.FLIGHT_WINDOW_SQL;
+
+    private static final String EXISTS_SQL = """
+        SELECT EXISTS (
+            SELECT 1
+            FROM public.telemetria tm
+            WHERE tm.id_lotu = ? AND tm.seq = ?
+        """ + TelemetryPartitionManager.FLIGHT_WINDOW_SQL + """
+        )
+        """;
+
+    // Okno ostatnich numerów: najwyższy seq + bitmapa w buforze cyklicznym (bit = seq mod rozmiar)
+    static final class Window {
+        static final int NEW = 0;
+        static final int DUPLICATE = 1;
+        static final int TOO_OLD = 2;
+
+        private final long[] bits;
+        private final long mask;
+        private boolean empty = true;
+        private long highest;
+
+        Window(int size) {
+            bits = new long[size >>> 6];
+            mask = size - 1;
+        }
+
+        // Zaznacza seq; TOO_OLD - poza oknem, trzeba sprawdzić w bazie
+        int mark(long seq) {
+            if (empty || seq > highest) {
+                if (empty || seq - highest > mask) {
+                    Arrays.fill(bits, 0);
+                } else {
+                    for (long s = highest + 1; s < seq; s++) clearBit(s);
+                }
+                empty = false;
+                highest = seq;
+                setBit(seq);
+                return NEW;
+            }
+            if (highest - seq > mask) return TOO_OLD;
+            int i = (int) ((seq & mask) >>> 6);
+            long bit = 1L << seq;
+            if ((bits[i] & bit) != 0) return DUPLICATE;
+            bits[i] |= bit;
+            return NEW;
+        }
+
+        // Cofnięcie zaznaczenia po nieudanym zapisie; najwyższego seq nie cofamy, wystarczy bit
+        void forget(long seq) {
+            if (!empty && seq <= highest && highest - seq <= mask) clearBit(seq);
+        }
+
+        private void setBit(long seq) {
+            bits[(int) ((seq & mask) >>> 6)] |= 1L << seq;
+        }
+
+        private void clearBit(long seq) {
+            bits[(int) ((seq & mask) >>> 6)] &= ~(1L << seq);
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final ActiveFlightRegistry activeFlights;
+    private final int windowSize;
+    private final Map<Integer, Window> windows = new ConcurrentHashMap<>();
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder tooOld = new LongAdder();
+    private final LongAdder restored = new LongAdder();
+
+    public TelemetrySequenceFilter(JdbcTemplate jdbc,
+                                   ActiveFlightRegistry activeFlights,
+                                   @Value("${telemetria.seq.okno:1024}") int windowSize) {
+        this.jdbc = jdbc;
+        this.activeFlights = activeFlights;
+        this.windowSize = windowSizeFor(windowSize);
+    }
+
+    // Potęga dwójki, co najmniej 64
+    static int windowSizeFor(int requested) {
+        return Math.max(64, Integer.highestOneBit(Math.max(1, requested - 1)) << 1);
+    }
+
+    // Nowy lot nie ma jeszcze telemetrii - okno puste, bez zapytania do bazy
+    public void flightStarted(int idLotu) {
+        windows.putIfAbsent(idLotu, new Window(windowSize));
+    }
+
+    public void flightEnded(int idLotu) {
+        windows.remove(idLotu);
+    }
+
+    // Telemetria dograna z pominięciem ingestu: okno odtworzy się z bazy przy następnym punkcie
+    public void invalidate(int idLotu) {
+        windows.remove(idLotu);
+    }
+
+    // Punkty, których seq jeszcze nie widzieliśmy (zaznaczone jako przyjęte); duplikaty odpadają.
+    // Gdy nic nie odpadło, zwraca tę samą listę.
+    public List<FlightController.TelemetryCreateRequest> admit(int idLotu,
+                                                              List<FlightController.TelemetryCreateRequest> points) {
+        Window w = null;
+        List<FlightController.TelemetryCreateRequest> out = null;
+        for (int i = 0; i < points.size(); i++) {
+            FlightController.TelemetryCreateRequest p = points.get(i);
+            boolean fresh = true;
+            if (p.seq != null) {
+                if (w == null) {
+                    w = window(idLotu);
+                    if (w == null) return points;
+                }
+                fresh = admit(idLotu, w, p.seq);
+            }
+            if (fresh) {
+                if (out != null) out.add(p);
+            } else if (out == null) {
+                out = new ArrayList<>(points.size());
+                out.addAll(points.subList(0, i));
+            }
+        }
+        return out == null ? points : out;
+    }
+
+    public boolean admit(int idLotu, FlightController.TelemetryCreateRequest point) {
+        return admit(idLotu, List.of(point)).size() == 1;
+    }
+
+    // Zapis przyjętych punktów się nie udał - klient je ponowi, więc nie mogą zostać duplikatami
+    public void forget(int idLotu, List<FlightController.TelemetryCreateRequest> points) {
+        Window w = windows.get(idLotu);
+        if (w == null) return;
+        synchronized (w) {
+            for (FlightController.TelemetryCreateRequest p : points) {
+                if (p.seq != null) w.forget(p.seq);
+            }
+        }
+    }
+
+    private boolean admit(int idLotu, Window w, long seq) {
+        checked.increment();
+        int r;
+        synchronized (w) {
+            r = w.mark(seq);
+        }
+        if (r == Window.TOO_OLD) {
+            // Spóźniony punkt sprzed okna - rzadkie, tu wolno zapytać bazę
+            tooOld.increment();
+            Boolean exists = jdbc.queryForObject(EXISTS_SQL, Boolean.class, idLotu, seq, idLotu, idLotu);
+            r = Boolean.TRUE.equals(exists) ? Window.DUPLICATE : Window.NEW;
+        }
+        if (r == Window.DUPLICATE) {
+            duplicates.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // null dla lotu nieaktywnego - wtedy nie filtrujemy
+    private Window window(int idLotu) {
+        Window w = windows.get(idLotu);
+        if (w != null || !activeFlights.isActive(idLotu)) return w;
+        Window loaded = restore(idLotu);
+        w = windows.putIfAbsent(idLotu, loaded);
+        return w != null ? w : loaded;
+    }
+
+    // Po restarcie: najwyższy zapisany seq i zapisane numery z okna pod nim
+    private Window restore(int idLotu) {
+        Window w = new Window(windowSize);
+        Long max = jdbc.queryForObject(MAX_SEQ_SQL, Long.class, idLotu, idLotu, idLotu);
+        if (max != null) {
+            List<Long> recent = jdbc.queryForList(RECENT_SEQ_SQL, Long.class, idLotu, max - windowSize, idLotu, idLotu);
+            w.mark(max);
+            for (Long s : recent) w.mark(s);
+            log.info("Telemetria seq: odtworzono okno id_lotu={}, ostatni seq={}, w oknie {}", idLotu, max, recent.size());
+        }
+        restored.increment();
+        return w;
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("okno", windowSize);
+        m.put("loty", windows.size());
+        m.put("sprawdzone", checked.sum());
+        m.put("duplikaty", duplicates.sum());
+        m.put("poza_oknem", tooOld.sum());
+        m.put("odtworzone_z_bazy", restored.sum());
+        return m;
+    }
+}
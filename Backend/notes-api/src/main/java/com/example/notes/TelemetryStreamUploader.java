@@ -0,0 +1,124 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Upload telemetrii jako strumień NDJSON: parsowanie przyrostowe i zapis stałymi partiami,
+// więc pamięć nie zależy od długości lotu
+@Component
+public class TelemetryStreamUploader {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryStreamUploader.class);
+
+    public record StreamResult(int accepted,
+                               int rejected,
+                               int skipped,
+                               int batches,
+                               Long lastSeq,
+                               String error,
+                               boolean badInput) {}
+
+    private final ObjectReader reader;
+    private final ObjectMapper mapper;
+    private final TelemetryCopyLoader copyLoader;
+    private final TelemetryUploadProgress progress;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    public TelemetryStreamUploader(ObjectMapper mapper,
+                                   TelemetryCopyLoader copyLoader,
+                                   TelemetryUploadProgress progress,
+                                   PlatformTransactionManager txManager,
+                                   @Value("${telemetria.stream.partia:1000}") int batchSize) {
+        this.mapper = mapper;
+        this.reader = mapper.readerFor(FlightController.TelemetryCreateRequest.class);
+        this.copyLoader = copyLoader;
+        this.progress = progress;
+        this.tx = new TransactionTemplate(txManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // Punkty z seq <= ostatnio zapisanemu są pomijane, więc ponowny upload od początku jest bezpieczny.
+    // Dlatego seq w strumieniu musi rosnąć - inaczej wznowienie pominęłoby punkty jeszcze niezapisane.
+    public StreamResult upload(int idLotu, InputStream body) {
+        Long committedSeq = progress.lastSeq(idLotu);
+        List<FlightController.TelemetryCreateRequest> batch = new ArrayList<>(batchSize);
+        int accepted = 0;
+        int rejected = 0;
+        int skipped = 0;
+        int batches = 0;
+        Long batchMaxSeq = null;
+        Long prevSeq = null;
+
+        try (JsonParser parser = mapper.getFactory().createParser(body);
+             MappingIterator<FlightController.TelemetryCreateRequest> it = reader.readValues(parser)) {
+            while (it.hasNextValue()) {
+                FlightController.TelemetryCreateRequest p = it.nextValue();
+                if (!FlightController.isValidPoint(p)) {
+                    rejected++;
+                    continue;
+                }
+                if (p.seq != null) {
+                    if (prevSeq != null && p.seq <= prevSeq) {
+                        // bieżąca partia przepada jak przy błędzie parsowania, klient wznawia od ostatni_seq
+                        String error = "seq musi rosnąć: " + p.seq + " po " + prevSeq;
+                        log.warn("Upload NDJSON id_lotu={} przerwany po {} partiach: {}", idLotu, batches, error);
+                        return new StreamResult(accepted, rejected, skipped, batches, committedSeq, error, true);
+                    }
+                    prevSeq = p.seq;
+                    if (committedSeq != null && p.seq <= committedSeq) {
+                        skipped++;
+                        continue;
+                    }
+                    batchMaxSeq = batchMaxSeq == null ? p.seq : Math.max(batchMaxSeq, p.seq);
+                }
+                batch.add(p);
+                if (batch.size() >= batchSize) {
+                    accepted += flush(idLotu, batch, batchMaxSeq);
+                    batches++;
+                    if (batchMaxSeq != null) committedSeq = batchMaxSeq;
+                    batch.clear();
+                    batchMaxSeq = null;
+                }
+            }
+            if (!batch.isEmpty()) {
+                accepted += flush(idLotu, batch, batchMaxSeq);
+                batches++;
+                if (batchMaxSeq != null) committedSeq = batchMaxSeq;
+            }
+        } catch (IOException | RuntimeException e) {
+            boolean badInput = e instanceof IOException || e instanceof RuntimeJsonMappingException;
+            log.warn("Upload NDJSON id_lotu={} przerwany po {} partiach: {}", idLotu, batches, e.getMessage());
+            return new StreamResult(accepted, rejected, skipped, batches, committedSeq, e.getMessage(), badInput);
+        }
+        return new StreamResult(accepted, rejected, skipped, batches, committedSeq, null, false);
+    }
+
+    private int flush(int idLotu, List<FlightController.TelemetryCreateRequest> batch, Long maxSeq) {
+        Integer written = tx.execute(status -> {
+            try {
+                int n = copyLoader.load(idLotu, batch);
+                if (maxSeq != null) progress.save(idLotu, maxSeq);
+                return n;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Błąd zapisu partii: " + e.getMessage(), e);
+            }
+        });
+        return written == null ? 0 : written;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.notes;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Ostatni zapisany numer sekwencyjny telemetrii per lot (wznawianie uploadu)
+@Component
+public class TelemetryUploadProgress {
+
+    private final JdbcTemplate jdbc;
+
+    public TelemetryUploadProgress(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // null, gdy dla lotu nic jeszcze nie zapisano
+    public Long lastSeq(int idLotu) {
+        List<Long> rows = jdbc.queryForList(
+                "SELECT ostatni_seq FROM public.telemetria_upload WHERE id_lotu = ?",
+                Long.class,
+                idLotu
+        );
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // Wywoływane w tej samej transakcji co zapis punktów
+    public void save(int idLotu, long seq) {
+        jdbc.update("""
+            INSERT INTO public.telemetria_upload (id_lotu, ostatni_seq, zaktualizowano)
+            VALUES (?, ?, now())
+            ON CONFLICT (id_lotu) DO UPDATE
+            SET ostatni_seq    = GREATEST(telemetria_upload.ostatni_seq, EXCLUDED.ostatni_seq),
+                zaktualizowano = now()
+        """, idLotu, seq);
+    }
+}
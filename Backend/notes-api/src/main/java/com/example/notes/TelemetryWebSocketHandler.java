@@ -0,0 +1,277 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Kanał WebSocket /ws/lot/{id}/telemetria: ciągły strumień punktów jednego lotu.
+// Punkty zapisujemy partiami, a ack (ostatni zapisany seq) wysyłamy dopiero po commicie.
+// Po (ponownym) połączeniu serwer od razu wysyła ack z ostatnim seq, od którego klient wznawia.
+// Ramki tekstowe to JSON (punkt albo tablica), binarne - partia w formacie TelemetryBinaryCodec.
+// Ack niesie też zalecenia (TelemetryBackpressure): co ile wysyłać i ile punktów na raz.
+@Component
+public class TelemetryWebSocketHandler extends AbstractWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryWebSocketHandler.class);
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int SEND_BUFFER_LIMIT = 64 * 1024;
+
+    private static final class SessionState {
+        final int idLotu;
+        final WebSocketSession session;
+        final List<FlightController.TelemetryCreateRequest> pending = new ArrayList<>();
+        Long ackedSeq;
+        Long pendingMaxSeq;
+
+        SessionState(int idLotu, WebSocketSession session, Long ackedSeq) {
+            this.idLotu = idLotu;
+            this.session = session;
+            this.ackedSeq = ackedSeq;
+        }
+    }
+
+    private final ObjectMapper mapper;
+    private final ActiveFlightRegistry activeFlights;
+    private final TelemetryIngestService ingest;
+    private final TelemetryUploadProgress progress;
+    private final TransactionTemplate tx;
+    private final int ackPoints;
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "telemetria-ws-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public TelemetryWebSocketHandler(ObjectMapper mapper,
+                                     ActiveFlightRegistry activeFlights,
+                                     TelemetryIngestService ingest,
+                                     TelemetryUploadProgress progress,
+                                     PlatformTransactionManager txManager,
+                                     @Value("${telemetria.ws.ack-punktow:50}") int ackPoints,
+                                     @Value("${telemetria.ws.ack-ms:1000}") long ackMs) {
+        this.mapper = mapper;
+        this.activeFlights = activeFlights;
+        this.ingest = ingest;
+        this.progress = progress;
+        this.tx = new TransactionTemplate(txManager);
+        this.ackPoints = Math.max(1, ackPoints);
+        flusher.scheduleWithFixedDelay(this::flushAll, ackMs, ackMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession raw) throws Exception {
+        WebSocketSession session = new ConcurrentWebSocketSessionDecorator(raw, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT);
+        Integer idLotu = flightIdFrom(raw);
+        if (idLotu == null || !activeFlights.isActive(idLotu)) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Lot nie istnieje albo już zakończony"));
+            return;
+        }
+        SessionState state = new SessionState(idLotu, session, progress.lastSeq(idLotu));
+        sessions.put(raw.getId(), state);
+        sendAck(state, 0);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession raw, TextMessage message) throws Exception {
+        SessionState state = sessions.get(raw.getId());
+        if (state == null) return;
+
+        JsonNode node = mapper.readTree(message.getPayload());
+        List<FlightController.TelemetryCreateRequest> points = new ArrayList<>();
+        if (node.isArray()) {
+            for (JsonNode n : node) {
+                points.add(mapper.treeToValue(n, FlightController.TelemetryCreateRequest.class));
+            }
+        } else {
+            points.add(mapper.treeToValue(node, FlightController.TelemetryCreateRequest.class));
+        }
+        accept(state, points);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession raw, BinaryMessage message) {
+        SessionState state = sessions.get(raw.getId());
+        if (state == null) return;
+        accept(state, TelemetryBinaryCodec.decodeToRequests(message.getPayload()));
+    }
+
+    private void accept(SessionState state, List<FlightController.TelemetryCreateRequest> points) {
+        boolean flushNow;
+        synchronized (state) {
+            if (!activeFlights.isActive(state.idLotu)) {
+                closeEnded(state, CloseStatus.POLICY_VIOLATION.withReason("Lot nie istnieje albo już zakończony"));
+                return;
+            }
+            List<FlightController.TelemetryCreateRequest> valid = new ArrayList<>(points.size());
+            for (FlightController.TelemetryCreateRequest p : points) {
+                if (!FlightController.isValidPoint(p)) continue;
+                if (p.seq != null) {
+                    // Po wznowieniu klient może powtórzyć punkty, które już potwierdziliśmy
+                    if (state.ackedSeq != null && p.seq <= state.ackedSeq) continue;
+                    state.pendingMaxSeq = state.pendingMaxSeq == null ? p.seq : Math.max(state.pendingMaxSeq, p.seq);
+                }
+                valid.add(p);
+            }
+            // Duplikaty spoza potwierdzonego zakresu (np. ten sam punkt wysłany też przez REST) też odpadają,
+            // ale ich seq wchodzi do ack, żeby klient przestał je ponawiać
+            state.pending.addAll(ingest.deduplicate(state.idLotu, valid));
+            flushNow = state.pending.size() >= ackPoints;
+        }
+        if (flushNow) flush(state);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession raw, CloseStatus status) {
+        SessionState state = sessions.remove(raw.getId());
+        if (state == null) return;
+        try {
+            flush(state);
+        } catch (RuntimeException e) {
+            // Niepotwierdzone punkty klient wyśle ponownie po wznowieniu
+            log.warn("WS telemetria: flush przy zamknieciu id_lotu={} nieudany: {}", state.idLotu, e.getMessage());
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession raw, Throwable exception) {
+        log.debug("WS telemetria: blad transportu {}: {}", raw.getId(), exception.getMessage());
+    }
+
+    private void flushAll() {
+        for (SessionState state : sessions.values()) {
+            try {
+                flush(state);
+            } catch (RuntimeException e) {
+                log.warn("WS telemetria: flush id_lotu={} nieudany: {}", state.idLotu, e.getMessage());
+            }
+        }
+    }
+
+    private void flush(SessionState state) {
+        synchronized (state) {
+            if (state.pending.isEmpty() && state.pendingMaxSeq == null) return;
+            // lot zakończony w międzyczasie - bez zapisu i bez ack, okno seq lotu już nie istnieje
+            if (!activeFlights.isActive(state.idLotu)) {
+                closeEnded(state, CloseStatus.POLICY_VIOLATION.withReason("Lot nie istnieje albo już zakończony"));
+                return;
+            }
+            List<FlightController.TelemetryCreateRequest> batch = new ArrayList<>(state.pending);
+            Long maxSeq = state.pendingMaxSeq;
+            Integer written;
+            try {
+                written = tx.execute(s -> {
+                    int n = batch.isEmpty() ? 0 : ingest.writeNow(state.idLotu, batch);
+                    if (maxSeq != null) progress.save(state.idLotu, maxSeq);
+                    return n;
+                });
+            } catch (RuntimeException e) {
+                // Bez ponawiania tej samej partii: seq już wróciły do puli (writeNow), więc klient
+                // po ponownym połączeniu wyśle punkty od ostatniego ack i zapiszą się raz
+                state.pending.clear();
+                state.pendingMaxSeq = null;
+                closeAfterFailure(state);
+                throw e;
+            }
+            state.pending.clear();
+            state.pendingMaxSeq = null;
+            if (maxSeq != null) state.ackedSeq = maxSeq;
+            sendAck(state, written == null ? 0 : written);
+        }
+    }
+
+    // Przy zakończeniu lotu, przed czas_konca: zapisuje oczekujące punkty i zamyka sesje lotu
+    public void flightEnded(int idLotu) {
+        for (SessionState state : sessions.values()) {
+            if (state.idLotu != idLotu) continue;
+            try {
+                flush(state);
+            } catch (RuntimeException e) {
+                // sesja już zamknięta w closeAfterFailure
+                log.warn("WS telemetria: flush przy koncu lotu id_lotu={} nieudany: {}", idLotu, e.getMessage());
+                continue;
+            }
+            synchronized (state) {
+                closeEnded(state, CloseStatus.NORMAL.withReason("Lot zakończony"));
+            }
+        }
+    }
+
+    private void closeEnded(SessionState state, CloseStatus status) {
+        state.pending.clear();
+        state.pendingMaxSeq = null;
+        sessions.values().remove(state);
+        try {
+            state.session.close(status);
+        } catch (IOException e) {
+            log.debug("WS telemetria: nie zamknieto sesji id_lotu={}: {}", state.idLotu, e.getMessage());
+        }
+    }
+
+    private void closeAfterFailure(SessionState state) {
+        sessions.values().remove(state);
+        try {
+            state.session.close(CloseStatus.SERVER_ERROR.withReason("Zapis telemetrii nieudany"));
+        } catch (IOException e) {
+            log.debug("WS telemetria: nie zamknieto sesji id_lotu={}: {}", state.idLotu, e.getMessage());
+        }
+    }
+
+    private void sendAck(SessionState state, int written) {
+        if (!state.session.isOpen()) return;
+        Map<String, Object> ack = new LinkedHashMap<>();
+        ack.put("typ", "ack");
+        ack.put("seq", state.ackedSeq);
+        ack.put("przyjete", written);
+        ack.put("zalecenia", ingest.hint().toBody());
+        try {
+            state.session.sendMessage(new TextMessage(mapper.writeValueAsString(ack)));
+        } catch (IOException e) {
+            log.debug("WS telemetria: nie wyslano ack id_lotu={}: {}", state.idLotu, e.getMessage());
+        }
+    }
+
+    private static Integer flightIdFrom(WebSocketSession session) {
+        if (session.getUri() == null) return null;
+        // /ws/lot/{id}/telemetria
+        String[] parts = session.getUri().getPath().split("/");
+        for (int i = 0; i + 1 < parts.length; i++) {
+            if ("lot".equals(parts[i])) {
+                try {
+                    return Integer.parseInt(parts[i + 1]);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdown();
+        flushAll();
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.notes;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+// Upraszczanie śladu lotu w lokalnym rzucie metrycznym (równoodległościowym wokół środka śladu).
+// Tolerancja w metrach - Douglas-Peucker, limit liczby punktów - Visvalingam (najmniejsze pole trójkąta).
+// Pierwszy i ostatni punkt oraz punkty oznaczone w keep zostają zawsze.
+public final class TrackSimplifier {
+
+    private static final double EARTH_RADIUS_M = 6_371_008.8;
+
+    private TrackSimplifier() {
+    }
+
+    // Zwraca rosnące indeksy punktów, które zostają
+    public static int[] simplify(double[] lat, double[] lon, int n,
+                                 Double toleranceM, Integer maxPoints, boolean[] keep) {
+        if (n <= 2) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = i;
+            return all;
+        }
+        double[] x = new double[n];
+        double[] y = new double[n];
+        project(lat, lon, n, x, y);
+
+        boolean[] kept = new boolean[n];
+        if (toleranceM != null) {
+            douglasPeucker(x, y, n, toleranceM, keep, kept);
+        } else {
+            Arrays.fill(kept, 0, n, true);
+        }
+        if (maxPoints != null) {
+            visvalingam(x, y, n, maxPoints, keep, kept);
+        }
+
+        int count = 0;
+        for (int i = 0; i < n; i++) if (kept[i]) count++;
+        int[] out = new int[count];
+        int j = 0;
+        for (int i = 0; i < n; i++) if (kept[i]) out[j++] = i;
+        return out;
+    }
+
+    static void project(double[] lat, double[] lon, int n, double[] x, double[] y) {
+        double lat0 = 0;
+        double lon0 = 0;
+        for (int i = 0; i < n; i++) {
+            lat0 += lat[i];
+            lon0 += lon[i];
+        }
+        lat0 /= n;
+        lon0 /= n;
+        double kx = Math.toRadians(1) * EARTH_RADIUS_M * Math.cos(Math.toRadians(lat0));
+        double ky = Math.toRadians(1) * EARTH_RADIUS_M;
+        for (int i = 0; i < n; i++) {
+            x[i] = (lon[i] - lon0) * kx;
+            y[i] = (lat[i] - lat0) * ky;
+        }
+    }
+
+    // Iteracyjny DP (bez rekurencji - ślady mają setki tysięcy punktów);
+    // odcinki dzielimy najpierw na punktach obowiązkowych
+    private static void douglasPeucker(double[] x, double[] y, int n, double tolerance,
+                                       boolean[] keep, boolean[] kept) {
+        kept[0] = true;
+        kept[n - 1] = true;
+        if (keep != null) {
+            for (int i = 0; i < n; i++) if (keep[i]) kept[i] = true;
+        }
+        double tol2 = tolerance * tolerance;
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        int from = 0;
+        for (int i = 1; i < n; i++) {
+            if (kept[i]) {
+                if (i - from > 1) stack.push(new int[]{from, i});
+                from = i;
+            }
+        }
+        while (!stack.isEmpty()) {
+            int[] seg = stack.pop();
+            int a = seg[0];
+            int b = seg[1];
+            double maxD = -1;
+            int maxI = -1;
+            for (int i = a + 1; i < b; i++) {
+                double d = segmentDistance2(x[i], y[i], x[a], y[a], x[b], y[b]);
+                if (d > maxD) {
+                    maxD = d;
+                    maxI = i;
+                }
+            }
+            if (maxD > tol2) {
+                kept[maxI] = true;
+                if (maxI - a > 1) stack.push(new int[]{a, maxI});
+                if (b - maxI > 1) stack.push(new int[]{maxI, b});
+            }
+        }
+    }
+
+    // Usuwa punkty o najmniejszym polu trójkąta z sąsiadami, aż zostanie maxPoints
+    // (punkty obowiązkowe nie są usuwane, więc wynik może być od limitu większy)
+    private static void visvalingam(double[] x, double[] y, int n, int maxPoints,
+                                    boolean[] keep, boolean[] kept) {
+        int[] prev = new int[n];
+        int[] next = new int[n];
+        int count = 0;
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+            if (!kept[i]) continue;
+            prev[i] = last;
+            if (last >= 0) next[last] = i;
+            last = i;
+            count++;
+        }
+        if (last >= 0) next[last] = -1;
+        if (count <= maxPoints) return;
+
+        double[] area = new double[n];
+        PriorityQueue<long[]> heap = new PriorityQueue<>(
+                (p, q) -> Double.compare(Double.longBitsToDouble(p[0]), Double.longBitsToDouble(q[0])));
+        for (int i = 0; i < n; i++) {
+            if (kept[i] && removable(i, prev, next, keep)) {
+                area[i] = triangleArea(x, y, prev[i], i, next[i]);
+                heap.add(new long[]{Double.doubleToLongBits(area[i]), i});
+            }
+        }
+        double maxRemoved = 0;
+        while (count > maxPoints && !heap.isEmpty()) {
+            long[] e = heap.poll();
+            int i = (int) e[1];
+            // Wpis nieaktualny (punkt już usunięty albo pole się zmieniło)
+            if (!kept[i] || Double.longBitsToDouble(e[0]) != area[i]) continue;
+            kept[i] = false;
+            count--;
+            maxRemoved = Math.max(maxRemoved, area[i]);
+            int p = prev[i];
+            int q = next[i];
+            next[p] = q;
+            prev[q] = p;
+            for (int k : new int[]{p, q}) {
+                if (removable(k, prev, next, keep)) {
+                    // Pole sąsiada nie może spaść poniżej już usuniętego, inaczej kolejność się psuje
+                    area[k] = Math.max(triangleArea(x, y, prev[k], k, next[k]), maxRemoved);
+                    heap.add(new long[]{Double.doubleToLongBits(area[k]), k});
+                }
+            }
+        }
+    }
+
+    private static boolean removable(int i, int[] prev, int[] next, boolean[] keep) {
+        return prev[i] >= 0 && next[i] >= 0 && (keep == null || !keep[i]);
+    }
+
+    private static double triangleArea(double[] x, double[] y, int a, int b, int c) {
+        return Math.abs((x[b] - x[a]) * (y[c] - y[a]) - (x[c] - x[a]) * (y[b] - y[a])) / 2.0;
+    }
+
+    private static double segmentDistance2(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double len2 = dx * dx + dy * dy;
+        double t = len2 == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / len2;
+        t = Math.max(0, Math.min(1, t));
+        double ex = ax + t * dx - px;
+        double ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+}
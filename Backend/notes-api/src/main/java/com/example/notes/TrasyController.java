@@ -1,7 +1,7 @@
 package com.example.notes;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -13,11 +13,13 @@ import java.util.Map;
 public class TrasyController {
 
     private final JdbcTemplate jdbcTemplate;
-    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final JsonRowStreamer rowStreamer;
+    private final RouteGeometryCache routeGeometries;
 
-    public TrasyController(JdbcTemplate jdbcTemplate) {
+    public TrasyController(JdbcTemplate jdbcTemplate, JsonRowStreamer rowStreamer, RouteGeometryCache routeGeometries) {
         this.jdbcTemplate = jdbcTemplate;
-        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.rowStreamer = rowStreamer;
+        this.routeGeometries = routeGeometries;
     }
 
     // Lista tras
@@ -54,9 +56,14 @@ public class TrasyController {
         return jdbcTemplate.queryForMap(sql, id);
     }
 
-    // Współrzędne danej trasy
+    // Współrzędne danej trasy; encoding=polyline - zakodowana linia z cache (altitude=true dokłada wysokości)
     @GetMapping("/{id}/punkty")
-    public List<Map<String, Object>> getTrasaPunkty(@PathVariable("id") long trasaId) {
+    public ResponseEntity<?> getTrasaPunkty(@PathVariable("id") int trasaId,
+                                            @RequestParam(required = false) String encoding,
+                                            @RequestParam(defaultValue = "false") boolean altitude) {
+        if (FlightController.isPolyline(encoding, false)) {
+            return ResponseEntity.ok(routeGeometries.get(trasaId).polyline().toBody(altitude));
+        }
 
         String sql = """
                 SELECT
@@ -67,12 +74,10 @@ public class TrasyController {
                     ST_X(geom) AS lon,   -- długość geogr.
                     wysokosc_m
                 FROM trasy_punkty
-                WHERE id_trasy = :trasaId
+                WHERE id_trasy = ?
                 ORDER BY kolejnosc ASC
                 """;
 
-        Map<String, Object> params = Map.of("trasaId", trasaId);
-
-        return namedJdbcTemplate.queryForList(sql, params);
+        return rowStreamer.response(sql, trasaId);
     }
 }
@@ -0,0 +1,23 @@
+package com.example.notes;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final TelemetryWebSocketHandler telemetryHandler;
+
+    public WebSocketConfig(TelemetryWebSocketHandler telemetryHandler) {
+        this.telemetryHandler = telemetryHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(telemetryHandler, "/ws/lot/*/telemetria")
+                .setAllowedOrigins("*");
+    }
+}
@@ -0,0 +1,11 @@
+-- Historia lotów stronicowana kursorem (czas_startu, id_lotu) od najnowszych (FlightHistoryQuery).
+-- Indeks bez filtra i po jednym na każdy filtr z równością na początku: strona to skan wstecz
+-- od pozycji kursora, bez sortowania i bez OFFSET, więc czas nie rośnie z liczbą lotów.
+CREATE INDEX IF NOT EXISTS lot_czas_startu_idx ON public.lot USING btree (czas_startu, id_lotu);
+CREATE INDEX IF NOT EXISTS lot_operator_czas_startu_idx ON public.lot USING btree (id_operatora, czas_startu, id_lotu);
+CREATE INDEX IF NOT EXISTS lot_dron_czas_startu_idx ON public.lot USING btree (id_drona, czas_startu, id_lotu);
+CREATE INDEX IF NOT EXISTS lot_trasa_czas_startu_idx ON public.lot USING btree (id_trasy, czas_startu, id_lotu);
+CREATE INDEX IF NOT EXISTS lot_status_czas_startu_idx ON public.lot USING btree (status, czas_startu, id_lotu);
+
+-- (id_drona) zawiera się w nowym indeksie złożonym
+DROP INDEX IF EXISTS public.idx_lot_id_drona;
@@ -0,0 +1,235 @@
+-- Podsumowanie lotów: jeden wiersz na lot z danymi tras, operatora, drona, modelu i typu lotu.
+-- Historia (FlightHistoryQuery) i szczegóły lotu (GET /api/lot/{id}) czytają tylko tę tabelę,
+-- bez złączeń. Definicja wiersza jest w widoku lot_podsumowanie_zrodlo; tabelę utrzymują triggery
+-- (start, zakończenie, przerwanie, uzgodnienie dystansu oraz zmiany danych słownikowych),
+-- a FlightSummaryChecker porównuje ją w tle z widokiem i poprawia rozbieżności.
+
+CREATE OR REPLACE VIEW public.lot_podsumowanie_zrodlo AS
+SELECT
+    l.id_lotu,
+    l.id_trasy,
+    l.id_operatora,
+    l.id_drona,
+    l.id_typ AS id_typu_lotu,
+    l.czas_startu,
+    l.czas_konca,
+    l.status,
+    l.rzeczywista_dlugosc_lotu_m,
+    COALESCE(l.rzeczywisty_czas_s,
+             EXTRACT(EPOCH FROM (l.czas_konca - l.czas_startu)))::int AS czas_trwania_s,
+
+    t.nazwa AS nazwa_trasy,
+    t.opis  AS opis_trasy,
+
+    COALESCE(o.imie || ' ' || o.nazwisko, '') AS operator,
+    o.imie, o.nazwisko, o.e_mail,
+    o.numer_operatora AS uid_operatora,
+
+    ed.numer_seryjny,
+    ed.status AS status_drona,
+
+    md.producent,
+    md.nazwa_modelu,
+    md.klasa_drona,
+    md.masa_g,
+    md.zasieg_m,
+    md.predkosc_m_s,
+
+    tl.nazwa    AS typ_lotu,
+    tl.opis     AS opis_typu,
+    tl.metadane AS metadane_typu
+FROM public.lot l
+LEFT JOIN public.trasy            t  ON t.id_trasy     = l.id_trasy
+LEFT JOIN public.operator         o  ON o.id_operatora = l.id_operatora
+LEFT JOIN public.egzemplarz_drona ed ON ed.id_drona    = l.id_drona
+LEFT JOIN public.model_drona      md ON md.id_modelu   = ed.id_modelu
+LEFT JOIN public.typ_lotu         tl ON tl.id_typ      = l.id_typ;
+
+-- Te same kolumny i typy co widok, więc wiersze porównuje się wprost (IS DISTINCT FROM)
+CREATE TABLE IF NOT EXISTS public.lot_podsumowanie AS
+    SELECT * FROM public.lot_podsumowanie_zrodlo WITH NO DATA;
+
+ALTER TABLE public.lot_podsumowanie
+    ADD PRIMARY KEY (id_lotu),
+    ADD FOREIGN KEY (id_lotu) REFERENCES public.lot(id_lotu) ON DELETE CASCADE;
+
+INSERT INTO public.lot_podsumowanie
+SELECT * FROM public.lot_podsumowanie_zrodlo
+ON CONFLICT (id_lotu) DO NOTHING;
+
+-- Kursor (czas_startu, id_lotu) jak w V10, teraz na podsumowaniu
+CREATE INDEX IF NOT EXISTS lot_podsumowanie_czas_startu_idx
+    ON public.lot_podsumowanie USING btree (czas_startu, id_lotu);
+CREATE INDEX IF NOT EXISTS lot_podsumowanie_operator_czas_startu_idx
+    ON public.lot_podsumowanie USING btree (id_operatora, czas_startu, id_lotu);
+CREATE INDEX IF NOT EXISTS lot_podsumowanie_dron_czas_startu_idx
+    ON public.lot_podsumowanie USING btree (id_drona, czas_startu, id_lotu);
+CREATE INDEX IF NOT EXISTS lot_podsumowanie_trasa_czas_startu_idx
+    ON public.lot_podsumowanie USING btree (id_trasy, czas_startu, id_lotu);
+CREATE INDEX IF NOT EXISTS lot_podsumowanie_status_czas_startu_idx
+    ON public.lot_podsumowanie USING btree (status, czas_startu, id_lotu);
+
+-- Na lot zostają indeksy (operator/dron/trasa, ...) - z nich korzystają triggery słownikowe niżej
+DROP INDEX IF EXISTS public.lot_czas_startu_idx;
+DROP INDEX IF EXISTS public.lot_status_czas_startu_idx;
+
+ANALYZE public.lot_podsumowanie;
+
+-- Backend tylko czyta; zapis wyłącznie przez funkcje niżej (właściciel schematu)
+GRANT SELECT ON TABLE public.lot_podsumowanie TO appuser;
+GRANT SELECT ON TABLE public.lot_podsumowanie_zrodlo TO appuser;
+
+-- Przelicza podane loty z widoku. Zwraca liczbę wierszy, które faktycznie się zmieniły.
+CREATE OR REPLACE FUNCTION public.lot_podsumowanie_odswiez(p_ids integer[]) RETURNS integer
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path = public
+    AS $$
+DECLARE
+    v_cnt integer;
+BEGIN
+    INSERT INTO public.lot_podsumowanie AS p
+    SELECT * FROM public.lot_podsumowanie_zrodlo z
+    WHERE z.id_lotu = ANY (p_ids)
+    ON CONFLICT (id_lotu) DO UPDATE SET
+        id_trasy                   = EXCLUDED.id_trasy,
+        id_operatora               = EXCLUDED.id_operatora,
+        id_drona                   = EXCLUDED.id_drona,
+        id_typu_lotu               = EXCLUDED.id_typu_lotu,
+        czas_startu                = EXCLUDED.czas_startu,
+        czas_konca                 = EXCLUDED.czas_konca,
+        status                     = EXCLUDED.status,
+        rzeczywista_dlugosc_lotu_m = EXCLUDED.rzeczywista_dlugosc_lotu_m,
+        czas_trwania_s             = EXCLUDED.czas_trwania_s,
+        nazwa_trasy                = EXCLUDED.nazwa_trasy,
+        opis_trasy                 = EXCLUDED.opis_trasy,
+        operator                   = EXCLUDED.operator,
+        imie                       = EXCLUDED.imie,
+        nazwisko                   = EXCLUDED.nazwisko,
+        e_mail                     = EXCLUDED.e_mail,
+        uid_operatora              = EXCLUDED.uid_operatora,
+        numer_seryjny              = EXCLUDED.numer_seryjny,
+        status_drona               = EXCLUDED.status_drona,
+        producent                  = EXCLUDED.producent,
+        nazwa_modelu               = EXCLUDED.nazwa_modelu,
+        klasa_drona                = EXCLUDED.klasa_drona,
+        masa_g                     = EXCLUDED.masa_g,
+        zasieg_m                   = EXCLUDED.zasieg_m,
+        predkosc_m_s               = EXCLUDED.predkosc_m_s,
+        typ_lotu                   = EXCLUDED.typ_lotu,
+        opis_typu                  = EXCLUDED.opis_typu,
+        metadane_typu              = EXCLUDED.metadane_typu
+    -- bez martwych krotek, gdy nic się nie zmieniło
+    WHERE (p.*) IS DISTINCT FROM (EXCLUDED.*);
+    GET DIAGNOSTICS v_cnt = ROW_COUNT;
+    RETURN v_cnt;
+END;
+$$;
+
+GRANT EXECUTE ON FUNCTION public.lot_podsumowanie_odswiez(integer[]) TO appuser;
+
+-- Start, zakończenie, przerwanie, poprawka dystansu: AFTER, więc wiersz ma już wartości
+-- z triggerów BEFORE (dystans, czas lotu)
+CREATE OR REPLACE FUNCTION public.lot_podsumowanie_po_zmianie_lotu() RETURNS trigger
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path = public
+    AS $$
+BEGIN
+    PERFORM public.lot_podsumowanie_odswiez(ARRAY[NEW.id_lotu]);
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER lot_podsumowanie_ai
+    AFTER INSERT ON public.lot
+    FOR EACH ROW EXECUTE FUNCTION public.lot_podsumowanie_po_zmianie_lotu();
+
+CREATE TRIGGER lot_podsumowanie_au
+    AFTER UPDATE ON public.lot
+    FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW)
+    EXECUTE FUNCTION public.lot_podsumowanie_po_zmianie_lotu();
+
+-- Zmiana danych słownikowych: przeliczamy loty, które się do nich odwołują. Wiersze lot blokujemy
+-- (FOR NO KEY UPDATE), żeby równoległe zakończenie lotu nie nadpisało podsumowania starszym
+-- odczytem słownika ani odwrotnie. Usunięcie kaskadowo usuwa loty, a z nimi podsumowania.
+CREATE OR REPLACE FUNCTION public.lot_podsumowanie_po_zmianie_slownika() RETURNS trigger
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path = public
+    AS $$
+DECLARE
+    v_ids integer[];
+BEGIN
+    IF TG_TABLE_NAME = 'trasy' THEN
+        v_ids := ARRAY(SELECT id_lotu FROM public.lot
+                       WHERE id_trasy IN (OLD.id_trasy, NEW.id_trasy)
+                       ORDER BY id_lotu FOR NO KEY UPDATE);
+    ELSIF TG_TABLE_NAME = 'operator' THEN
+        v_ids := ARRAY(SELECT id_lotu FROM public.lot
+                       WHERE id_operatora IN (OLD.id_operatora, NEW.id_operatora)
+                       ORDER BY id_lotu FOR NO KEY UPDATE);
+    ELSIF TG_TABLE_NAME = 'egzemplarz_drona' THEN
+        v_ids := ARRAY(SELECT id_lotu FROM public.lot
+                       WHERE id_drona IN (OLD.id_drona, NEW.id_drona)
+                       ORDER BY id_lotu FOR NO KEY UPDATE);
+    ELSIF TG_TABLE_NAME = 'model_drona' THEN
+        v_ids := ARRAY(SELECT l.id_lotu FROM public.lot l
+                       JOIN public.egzemplarz_drona ed ON ed.id_drona = l.id_drona
+                       WHERE ed.id_modelu IN (OLD.id_modelu, NEW.id_modelu)
+                       ORDER BY l.id_lotu FOR NO KEY UPDATE OF l);
+    ELSIF TG_TABLE_NAME = 'typ_lotu' THEN
+        v_ids := ARRAY(SELECT id_lotu FROM public.lot
+                       WHERE id_typ IN (OLD.id_typ, NEW.id_typ)
+                       ORDER BY id_lotu FOR NO KEY UPDATE);
+    END IF;
+    IF cardinality(v_ids) > 0 THEN
+        PERFORM public.lot_podsumowanie_odswiez(v_ids);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+-- Tylko kolumny, które trafiają do podsumowania (np. edycja geometrii trasy w QGIS nic nie przelicza)
+CREATE TRIGGER lot_podsumowanie_trasy
+    AFTER UPDATE ON public.trasy
+    FOR EACH ROW WHEN (OLD.id_trasy IS DISTINCT FROM NEW.id_trasy
+                       OR OLD.nazwa IS DISTINCT FROM NEW.nazwa
+                       OR OLD.opis IS DISTINCT FROM NEW.opis)
+    EXECUTE FUNCTION public.lot_podsumowanie_po_zmianie_slownika();
+
+CREATE TRIGGER lot_podsumowanie_operator
+    AFTER UPDATE ON public.operator
+    FOR EACH ROW WHEN (OLD.id_operatora IS DISTINCT FROM NEW.id_operatora
+                       OR OLD.imie IS DISTINCT FROM NEW.imie
+                       OR OLD.nazwisko IS DISTINCT FROM NEW.nazwisko
+                       OR OLD.e_mail IS DISTINCT FROM NEW.e_mail
+                       OR OLD.numer_operatora IS DISTINCT FROM NEW.numer_operatora)
+    EXECUTE FUNCTION public.lot_podsumowanie_po_zmianie_slownika();
+
+CREATE TRIGGER lot_podsumowanie_egzemplarz_drona
+    AFTER UPDATE ON public.egzemplarz_drona
+    FOR EACH ROW WHEN (OLD.id_drona IS DISTINCT FROM NEW.id_drona
+                       OR OLD.id_modelu IS DISTINCT FROM NEW.id_modelu
+                       OR OLD.numer_seryjny IS DISTINCT FROM NEW.numer_seryjny
+                       OR OLD.status IS DISTINCT FROM NEW.status)
+    EXECUTE FUNCTION public.lot_podsumowanie_po_zmianie_slownika();
+
+CREATE TRIGGER lot_podsumowanie_model_drona
+    AFTER UPDATE ON public.model_drona
+    FOR EACH ROW WHEN (OLD.id_modelu IS DISTINCT FROM NEW.id_modelu
+                       OR OLD.producent IS DISTINCT FROM NEW.producent
+                       OR OLD.nazwa_modelu IS DISTINCT FROM NEW.nazwa_modelu
+                       OR OLD.klasa_drona IS DISTINCT FROM NEW.klasa_drona
+                       OR OLD.masa_g IS DISTINCT FROM NEW.masa_g
+                       OR OLD.zasieg_m IS DISTINCT FROM NEW.zasieg_m
+                       OR OLD.predkosc_m_s IS DISTINCT FROM NEW.predkosc_m_s)
+    EXECUTE FUNCTION public.lot_podsumowanie_po_zmianie_slownika();
+
+CREATE TRIGGER lot_podsumowanie_typ_lotu
+    AFTER UPDATE ON public.typ_lotu
+    FOR EACH ROW WHEN (OLD.id_typ IS DISTINCT FROM NEW.id_typ
+                       OR OLD.nazwa IS DISTINCT FROM NEW.nazwa
+                       OR OLD.opis IS DISTINCT FROM NEW.opis
+                       OR OLD.metadane IS DISTINCT FROM NEW.metadane)
+    EXECUTE FUNCTION public.lot_podsumowanie_po_zmianie_slownika();
@@ -0,0 +1,6 @@
+-- Postęp uploadu telemetrii (NDJSON): ostatni zapisany numer sekwencyjny punktu per lot
+CREATE TABLE IF NOT EXISTS public.telemetria_upload (
+    id_lotu        integer PRIMARY KEY,
+    ostatni_seq    bigint NOT NULL,
+    zaktualizowano timestamp with time zone NOT NULL DEFAULT now()
+);
@@ -0,0 +1,180 @@
+-- Telemetria jako tabela partycjonowana zakresem po czas (domyślnie miesięcznie).
+-- Migrację musi wykonać właściciel tabeli telemetria (postgres) - patrz spring.flyway.user.
+-- appuser dostaje tylko DML oraz funkcje SECURITY DEFINER do zarządzania partycjami.
+
+-- 1. Stara tabela na bok (nazwy ograniczeń i indeksów muszą się zwolnić)
+ALTER TABLE public.telemetria RENAME TO telemetria_stara;
+ALTER TABLE public.telemetria_stara RENAME CONSTRAINT telemetria_pkey TO telemetria_stara_pkey;
+ALTER TABLE public.telemetria_stara RENAME CONSTRAINT fk_lot_tel TO fk_lot_tel_stara;
+ALTER INDEX public.telemetria_lot_czas_idx RENAME TO telemetria_stara_lot_czas_idx;
+ALTER TABLE public.telemetria_stara ALTER COLUMN id_telemetrii DROP DEFAULT;
+
+-- 2. Nowa tabela nadrzędna; klucz partycjonowania musi wchodzić w klucz główny
+CREATE TABLE public.telemetria (
+    id_telemetrii integer NOT NULL DEFAULT nextval('public.telemetria_id_telemetrii_seq'::regclass),
+    id_lotu       integer,
+    czas          timestamp without time zone NOT NULL DEFAULT now(),
+    wspolrzedne   public.geography(Point,4326),
+    wysokosc_m    numeric,
+    predkosc_m_s  numeric,
+    bateria_pro   numeric,
+    sila_sygnalu  text,
+    CONSTRAINT telemetria_pkey PRIMARY KEY (id_telemetrii, czas),
+    CONSTRAINT fk_lot_tel FOREIGN KEY (id_lotu) REFERENCES public.lot(id_lotu) ON DELETE CASCADE
+) PARTITION BY RANGE (czas);
+
+ALTER SEQUENCE public.telemetria_id_telemetrii_seq OWNED BY public.telemetria.id_telemetrii;
+
+CREATE INDEX telemetria_lot_czas_idx ON public.telemetria USING btree (id_lotu, czas, id_telemetrii);
+
+-- Punkty z czasem spoza istniejących partycji (np. zły zegar urządzenia);
+-- telemetria_zapewnij_partycje() przenosi je do właściwych partycji
+CREATE TABLE public.telemetria_domyslna PARTITION OF public.telemetria DEFAULT;
+
+GRANT SELECT, INSERT, DELETE, UPDATE ON TABLE public.telemetria TO appuser;
+
+-- 3. Zakres czasu telemetrii per lot - odczyty zawężają nim czas, żeby Postgres mógł pominąć partycje
+CREATE TABLE public.telemetria_zakres (
+    id_lotu  integer PRIMARY KEY REFERENCES public.lot(id_lotu) ON DELETE CASCADE,
+    czas_min timestamp without time zone NOT NULL,
+    czas_max timestamp without time zone NOT NULL
+);
+
+GRANT SELECT, INSERT, DELETE, UPDATE ON TABLE public.telemetria_zakres TO appuser;
+
+CREATE FUNCTION public.telemetria_zakres_po_insercie() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    INSERT INTO public.telemetria_zakres AS z (id_lotu, czas_min, czas_max)
+    SELECT n.id_lotu, min(n.czas), max(n.czas)
+    FROM nowe n
+    WHERE n.id_lotu IS NOT NULL
+    GROUP BY n.id_lotu
+    ON CONFLICT (id_lotu) DO UPDATE
+        SET czas_min = LEAST(z.czas_min, EXCLUDED.czas_min),
+            czas_max = GREATEST(z.czas_max, EXCLUDED.czas_max)
+        WHERE EXCLUDED.czas_min < z.czas_min OR EXCLUDED.czas_max > z.czas_max;
+    RETURN NULL;
+END;
+$$;
+
+-- Trigger na poziomie instrukcji: jeden upsert na partię, nie na wiersz
+CREATE TRIGGER telemetria_zakres_ins
+    AFTER INSERT ON public.telemetria
+    REFERENCING NEW TABLE AS nowe
+    FOR EACH STATEMENT EXECUTE FUNCTION public.telemetria_zakres_po_insercie();
+
+-- 4. Zarządzanie partycjami: telemetria_pRRRR_MM = [początek miesiąca, początek następnego)
+CREATE FUNCTION public.telemetria_zapewnij_partycje(p_miesiecy_naprzod integer) RETURNS integer
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path = public, pg_temp
+    AS $$
+DECLARE
+    v_od        timestamp;
+    v_do        timestamp;
+    v_nazwa     text;
+    v_utworzone integer := 0;
+BEGIN
+    -- jedna instancja naraz, reszta czeka
+    PERFORM pg_advisory_xact_lock(hashtext('telemetria_partycje'));
+
+    FOR v_od IN
+        SELECT m FROM generate_series(date_trunc('month', now()::timestamp),
+                                      date_trunc('month', now()::timestamp) + make_interval(months => p_miesiecy_naprzod),
+                                      interval '1 month') AS m
+        UNION
+        SELECT DISTINCT date_trunc('month', d.czas) FROM public.telemetria_domyslna d
+        ORDER BY 1
+    LOOP
+        v_do := v_od + interval '1 month';
+        v_nazwa := 'telemetria_p' || to_char(v_od, 'YYYY_MM');
+        CONTINUE WHEN to_regclass('public.' || v_nazwa) IS NOT NULL;
+
+        -- Tworzymy osobno, przenosimy wiersze z partycji domyślnej i dopiero podpinamy
+        -- (CREATE ... PARTITION OF nie przejdzie, gdy domyślna ma wiersze z tego zakresu)
+        EXECUTE format('CREATE TABLE public.%I (LIKE public.telemetria INCLUDING DEFAULTS)', v_nazwa);
+        EXECUTE format('WITH m AS (DELETE FROM public.telemetria_domyslna WHERE czas >= %L AND czas < %L RETURNING *) '
+                       'INSERT INTO public.%I SELECT * FROM m', v_od, v_do, v_nazwa);
+        EXECUTE format('ALTER TABLE public.telemetria ATTACH PARTITION public.%I FOR VALUES FROM (%L) TO (%L)',
+                       v_nazwa, v_od, v_do);
+        v_utworzone := v_utworzone + 1;
+    END LOOP;
+    RETURN v_utworzone;
+END;
+$$;
+
+-- Odłącza partycje kończące się przed p_przed; zostają jako zwykłe tabele (do pg_dump / DROP)
+CREATE FUNCTION public.telemetria_odlacz_partycje(p_przed timestamp) RETURNS SETOF text
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path = public, pg_temp
+    AS $$
+DECLARE
+    v_nazwa text;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('telemetria_partycje'));
+
+    FOR v_nazwa IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'public.telemetria'::regclass
+          AND c.relname ~ '^telemetria_p[0-9]{4}_[0-9]{2}$'
+          AND to_timestamp(substr(c.relname, 13), 'YYYY_MM')::timestamp + interval '1 month' <= p_przed
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE public.telemetria DETACH PARTITION public.%I', v_nazwa);
+        RETURN NEXT v_nazwa;
+    END LOOP;
+END;
+$$;
+
+REVOKE ALL ON FUNCTION public.telemetria_zapewnij_partycje(integer) FROM PUBLIC;
+REVOKE ALL ON FUNCTION public.telemetria_odlacz_partycje(timestamp) FROM PUBLIC;
+GRANT EXECUTE ON FUNCTION public.telemetria_zapewnij_partycje(integer) TO appuser;
+GRANT EXECUTE ON FUNCTION public.telemetria_odlacz_partycje(timestamp) TO appuser;
+
+-- 5. Przeniesienie danych: najpierw partycje na cały zakres istniejących danych
+DO $$
+DECLARE
+    v_od timestamp;
+BEGIN
+    FOR v_od IN
+        SELECT DISTINCT date_trunc('month', COALESCE(s.czas, now()::timestamp))
+        FROM public.telemetria_stara s
+    LOOP
+        EXECUTE format('CREATE TABLE public.%I PARTITION OF public.telemetria FOR VALUES FROM (%L) TO (%L)',
+                       'telemetria_p' || to_char(v_od, 'YYYY_MM'), v_od, v_od + interval '1 month');
+    END LOOP;
+END;
+$$;
+
+SELECT public.telemetria_zapewnij_partycje(3);
+
+INSERT INTO public.telemetria (id_telemetrii, id_lotu, czas, wspolrzedne, wysokosc_m, predkosc_m_s, bateria_pro, sila_sygnalu)
+SELECT id_telemetrii, id_lotu, COALESCE(czas, now()::timestamp), wspolrzedne, wysokosc_m, predkosc_m_s, bateria_pro, sila_sygnalu
+FROM public.telemetria_stara;
+
+DROP TABLE public.telemetria_stara;
+
+-- 6. Odległość lotu z zawężeniem czasu do zakresu lotu (pruning partycji)
+CREATE OR REPLACE FUNCTION public.calc_lot_distance_m(p_id_lotu integer) RETURNS numeric
+    LANGUAGE sql STABLE
+    AS $$
+    SELECT COALESCE(
+        ST_Length(
+            ST_MakeLine(tm.wspolrzedne::geometry ORDER BY tm.czas ASC, tm.id_telemetrii ASC)::geography
+        ),
+        0
+    )::numeric
+    FROM public.telemetria tm
+    WHERE tm.id_lotu = p_id_lotu
+      AND tm.czas >= (SELECT z.czas_min FROM public.telemetria_zakres z WHERE z.id_lotu = p_id_lotu)
+      AND tm.czas <= (SELECT z.czas_max FROM public.telemetria_zakres z WHERE z.id_lotu = p_id_lotu)
+      AND tm.wspolrzedne IS NOT NULL;
+$$;
+
+-- Tabela z V1 - na wypadek gdyby migracje od początku wykonywał właściciel bazy
+GRANT SELECT, INSERT, DELETE, UPDATE ON TABLE public.telemetria_upload TO appuser;
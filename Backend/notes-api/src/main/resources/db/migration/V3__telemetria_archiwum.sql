@@ -0,0 +1,13 @@
+-- Telemetria zakończonych lotów skompaktowana do jednego bloba na lot (TelemetryArchiver).
+-- dane: format TelemetryBinaryCodec (seq = id_telemetrii), opcjonalnie skompresowany deflate.
+CREATE TABLE IF NOT EXISTS public.telemetria_archiwum (
+    id_lotu        integer PRIMARY KEY REFERENCES public.lot(id_lotu) ON DELETE CASCADE,
+    liczba_punktow integer NOT NULL,
+    czas_min       timestamp without time zone,
+    czas_max       timestamp without time zone,
+    kodowanie      text NOT NULL,
+    dane           bytea NOT NULL,
+    utworzono      timestamp with time zone NOT NULL DEFAULT now()
+);
+
+GRANT SELECT, INSERT, DELETE, UPDATE ON TABLE public.telemetria_archiwum TO appuser;
@@ -0,0 +1,36 @@
+-- Wersja punktów trasy - podbijana przy każdej zmianie trasy_punkty.
+-- Backend trzyma zakodowane geometrie tras w pamięci (RouteGeometryCache) i porównuje z nią wersję.
+CREATE TABLE IF NOT EXISTS public.trasy_wersja (
+    id_trasy  integer PRIMARY KEY REFERENCES public.trasy(id_trasy) ON DELETE CASCADE,
+    wersja    bigint NOT NULL DEFAULT 1,
+    zmieniono timestamp with time zone NOT NULL DEFAULT now()
+);
+
+GRANT SELECT, INSERT, DELETE, UPDATE ON TABLE public.trasy_wersja TO appuser;
+
+-- Trigger wierszowy wystarczy: punkty tras edytuje się rzadko i w małych ilościach
+CREATE OR REPLACE FUNCTION public.trasy_wersja_po_zmianie() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+DECLARE
+    v_id integer;
+BEGIN
+    FOREACH v_id IN ARRAY ARRAY[
+        CASE WHEN TG_OP <> 'INSERT' THEN OLD.id_trasy END,
+        CASE WHEN TG_OP <> 'DELETE' THEN NEW.id_trasy END
+    ] LOOP
+        CONTINUE WHEN v_id IS NULL;
+        -- trasa mogła być właśnie usunięta (kaskada na trasy_punkty)
+        CONTINUE WHEN NOT EXISTS (SELECT 1 FROM public.trasy t WHERE t.id_trasy = v_id);
+        INSERT INTO public.trasy_wersja AS w (id_trasy) VALUES (v_id)
+        ON CONFLICT (id_trasy) DO UPDATE
+            SET wersja = w.wersja + 1,
+                zmieniono = now();
+    END LOOP;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trasy_punkty_wersja
+    AFTER INSERT OR UPDATE OR DELETE ON public.trasy_punkty
+    FOR EACH ROW EXECUTE FUNCTION public.trasy_wersja_po_zmianie();
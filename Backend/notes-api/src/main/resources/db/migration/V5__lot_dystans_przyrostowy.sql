@@ -0,0 +1,38 @@
+-- Dystans i czas lotu liczone przez backend w trakcie lotu (FlightProgress).
+-- Triggery przy zakończeniu lotu liczą wartości tylko wtedy, gdy UPDATE ich nie podał;
+-- ST_MakeLine po całej telemetrii zostaje jako rezerwa i do uzgadniania w tle.
+
+CREATE OR REPLACE FUNCTION public.trg_lot_set_distance_on_finish() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    -- uruchom tylko w momencie pierwszego ustawienia czas_konca i gdy backend nie podał dystansu
+    IF NEW.czas_konca IS NOT NULL AND OLD.czas_konca IS NULL
+       AND NEW.rzeczywista_dlugosc_lotu_m IS NOT DISTINCT FROM OLD.rzeczywista_dlugosc_lotu_m THEN
+        NEW.rzeczywista_dlugosc_lotu_m := public.calc_lot_distance_m(NEW.id_lotu);
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION public.trg_uzupelnij_czas_lotu_po_zakonczeniu() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    -- tylko przy pierwszym ustawieniu czas_konca i gdy backend nie podał czasu
+    IF NEW.czas_konca IS NOT NULL AND OLD.czas_konca IS NULL
+       AND NEW.rzeczywisty_czas_s IS NOT DISTINCT FROM OLD.rzeczywisty_czas_s THEN
+        NEW.rzeczywisty_czas_s :=
+            GREATEST(0, EXTRACT(EPOCH FROM (NEW.czas_konca - NEW.czas_startu))::int);
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+-- Loty do porównania dystansu backendu z calc_lot_distance_m (FlightDistanceReconciler)
+CREATE TABLE IF NOT EXISTS public.lot_do_uzgodnienia (
+    id_lotu integer PRIMARY KEY REFERENCES public.lot(id_lotu) ON DELETE CASCADE,
+    dodano  timestamp with time zone NOT NULL DEFAULT now()
+);
+
+GRANT SELECT, INSERT, DELETE, UPDATE ON TABLE public.lot_do_uzgodnienia TO appuser;
@@ -0,0 +1,20 @@
+-- Podsumowanie statystyk lotu zapisywane przy zakończeniu/przerwaniu (FlightStatsService).
+-- Dla lotów sprzed tej tabeli wiersz powstaje przy pierwszym GET /api/lot/{id}/stats.
+CREATE TABLE IF NOT EXISTS public.lot_statystyki (
+    id_lotu                integer PRIMARY KEY REFERENCES public.lot(id_lotu) ON DELETE CASCADE,
+    liczba_punktow         integer NOT NULL,
+    czas_pierwszy          timestamp without time zone,
+    czas_ostatni           timestamp without time zone,
+    wysokosc_min_m         double precision,
+    wysokosc_max_m         double precision,
+    predkosc_srednia_m_s   double precision,
+    predkosc_max_m_s       double precision,
+    bateria_pierwsza_pro   double precision,
+    bateria_ostatnia_pro   double precision,
+    bateria_spadek_pro_min double precision,
+    probkowanie_hz         double precision,
+    sygnal                 jsonb NOT NULL DEFAULT '{}'::jsonb,
+    obliczono              timestamp with time zone NOT NULL DEFAULT now()
+);
+
+GRANT SELECT, INSERT, DELETE, UPDATE ON TABLE public.lot_statystyki TO appuser;
@@ -0,0 +1,29 @@
+-- Wersja stref zakazanych - jeden wiersz podbijany przy każdej zmianie strefy_zakazane.
+-- Backend trzyma indeks stref w pamięci (GeofenceService) i przebudowuje go, gdy wersja się zmieni.
+CREATE TABLE IF NOT EXISTS public.strefy_zakazane_wersja (
+    id        boolean PRIMARY KEY DEFAULT true CHECK (id),
+    wersja    bigint NOT NULL DEFAULT 1,
+    zmieniono timestamp with time zone NOT NULL DEFAULT now()
+);
+
+INSERT INTO public.strefy_zakazane_wersja (id) VALUES (true) ON CONFLICT DO NOTHING;
+
+GRANT SELECT ON TABLE public.strefy_zakazane_wersja TO appuser;
+
+-- Trigger na poziomie instrukcji: import wielu stref naraz to jedno podbicie
+CREATE OR REPLACE FUNCTION public.strefy_zakazane_wersja_po_zmianie() RETURNS trigger
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path = public
+    AS $$
+BEGIN
+    UPDATE public.strefy_zakazane_wersja
+    SET wersja = wersja + 1,
+        zmieniono = now();
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER strefy_zakazane_wersja
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON public.strefy_zakazane
+    FOR EACH STATEMENT EXECUTE FUNCTION public.strefy_zakazane_wersja_po_zmianie();
@@ -0,0 +1,28 @@
+-- Wersja warstwy infrastruktury krytycznej - jak strefy_zakazane_wersja (V7).
+-- Walidacja tras (RouteSafetyValidator) trzyma werdykty tak długo, jak wersje tras i obu warstw się nie zmienią.
+CREATE TABLE IF NOT EXISTS public.infrastruktura_krytyczna_wersja (
+    id        boolean PRIMARY KEY DEFAULT true CHECK (id),
+    wersja    bigint NOT NULL DEFAULT 1,
+    zmieniono timestamp with time zone NOT NULL DEFAULT now()
+);
+
+INSERT INTO public.infrastruktura_krytyczna_wersja (id) VALUES (true) ON CONFLICT DO NOTHING;
+
+GRANT SELECT ON TABLE public.infrastruktura_krytyczna_wersja TO appuser;
+
+CREATE OR REPLACE FUNCTION public.infrastruktura_krytyczna_wersja_po_zmianie() RETURNS trigger
+    LANGUAGE plpgsql
+    SECURITY DEFINER
+    SET search_path = public
+    AS $$
+BEGIN
+    UPDATE public.infrastruktura_krytyczna_wersja
+    SET wersja = wersja + 1,
+        zmieniono = now();
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER infrastruktura_krytyczna_wersja
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON public.infrastruktura_krytyczna
+    FOR EACH STATEMENT EXECUTE FUNCTION public.infrastruktura_krytyczna_wersja_po_zmianie();
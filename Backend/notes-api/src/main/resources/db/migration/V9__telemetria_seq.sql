@@ -0,0 +1,7 @@
+-- Numer kolejny punktu nadany przez klienta (rosnący w obrębie lotu).
+-- Duplikaty przy ponowieniach odrzuca backend w pamięci (TelemetrySequenceFilter);
+-- z bazy czyta seq tylko po restarcie i dla punktów starszych niż okno w pamięci.
+ALTER TABLE public.telemetria ADD COLUMN IF NOT EXISTS seq bigint;
+
+CREATE INDEX IF NOT EXISTS telemetria_lot_seq_idx ON public.telemetria USING btree (id_lotu, seq)
+    WHERE seq IS NOT NULL;
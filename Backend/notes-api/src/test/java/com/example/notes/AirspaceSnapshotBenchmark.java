@@ -0,0 +1,129 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Obraz przestrzeni: odczyty GET /api/airspace/active (cała mapa, prostokąt, z serializacją JSON)
+// przy N wątkach czytających i jednym wątku zapisującym pozycje wszystkich lotów. Nie wymaga bazy:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.AirspaceSnapshotBenchmark
+//
+// Wyniki (1 rdzeń, JDK 17, 1000 lotów, 1 wątek czytający, zapisy 5000/s, 3 s na pomiar; dwa przebiegi):
+//   odczyt                  zapytania/s
+//   cała mapa               3.7k / 3.1k
+//   prostokąt (Warszawa)    112k / 125k
+//   cała mapa + JSON        367 / 395
+// Zapisujący za każdym razem utrzymał 5000/s. Cała mapa to ok. 0.3 ms na odczyt, a z JSON ok. 2.6 ms -
+// przy pełnej mapie czas idzie w serializację, nie w obraz przestrzeni.
+public class AirspaceSnapshotBenchmark {
+
+    private static final int FLIGHTS = Integer.getInteger("bench.loty", 1000);
+    private static final int READERS = Integer.getInteger("bench.czytajacy", Runtime.getRuntime().availableProcessors());
+    private static final int SECONDS = Integer.getInteger("bench.sekundy", 3);
+    // zapisy na sekundę łącznie (0 = bez limitu); 1000 lotów po 5 Hz = 5000
+    private static final int WRITES_PER_S = Integer.getInteger("bench.zapisy-na-s", 5000);
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        ActiveFlightRegistry registry = new ActiveFlightRegistry(null);
+        AirspaceSnapshot airspace = new AirspaceSnapshot(null, registry);
+        Timestamp start = new Timestamp(System.currentTimeMillis());
+        for (int id = 1; id <= FLIGHTS; id++) {
+            airspace.flightStarted(registry.register(id, 1, id, start));
+            airspace.pointsAccepted(id, List.of(point(System.currentTimeMillis())));
+        }
+        ObjectMapper mapper = new ObjectMapper();
+
+        System.out.printf("loty: %d, czytajacy: %d, zapisy/s: %s%n",
+                FLIGHTS, READERS, WRITES_PER_S == 0 ? "bez limitu" : WRITES_PER_S);
+        System.out.printf("%-24s %14s %14s%n", "odczyt", "zapytania/s", "zapisy/s");
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+            run(print, "cala mapa", airspace, s ->
+                    sink += AirspaceSnapshot.query(s, System.currentTimeMillis(), null, null, null, null).size());
+            run(print, "prostokat (Warszawa)", airspace, s ->
+                    sink += AirspaceSnapshot.query(s, System.currentTimeMillis(), 52.20, 20.95, 52.23, 21.05).size());
+            run(print, "cala mapa + JSON", airspace, s -> {
+                Map<String, Object> res = new LinkedHashMap<>();
+                res.put("wersja", s.wersja());
+                res.put("loty", AirspaceSnapshot.query(s, System.currentTimeMillis(), null, null, null, null));
+                sink += mapper.writeValueAsBytes(res).length;
+            });
+        }
+    }
+
+    private interface Reader {
+        void read(AirspaceSnapshot.Snapshot s) throws Exception;
+    }
+
+    private static void run(boolean print, String name, AirspaceSnapshot airspace, Reader reader) throws Exception {
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder reads = new LongAdder();
+        LongAdder writes = new LongAdder();
+
+        Thread writer = new Thread(() -> {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            long t0 = System.nanoTime();
+            long n = 0;
+            while (!stop.get()) {
+                int id = rnd.nextInt(1, FLIGHTS + 1);
+                airspace.pointsAccepted(id, List.of(point(System.currentTimeMillis())));
+                writes.increment();
+                n++;
+                if (WRITES_PER_S > 0) {
+                    long due = t0 + n * 1_000_000_000L / WRITES_PER_S;
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) LockSupport.parkNanos(wait);
+                }
+            }
+        });
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (!stop.get()) {
+                        reader.read(airspace.snapshot());
+                        reads.increment();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        writer.start();
+        threads.forEach(Thread::start);
+        long t0 = System.nanoTime();
+        Thread.sleep(SECONDS * 1000L);
+        stop.set(true);
+        long ns = System.nanoTime() - t0;
+        writer.join();
+        for (Thread t : threads) t.join();
+        if (print) {
+            System.out.printf("%-24s %,14.0f %,14.0f%n", name, reads.sum() * 1e9 / ns, writes.sum() * 1e9 / ns);
+        }
+    }
+
+    // ~60% lotów w okolicy Warszawy, reszta rozrzucona po kraju
+    private static FlightController.TelemetryCreateRequest point(long czasMs) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+        boolean local = rnd.nextInt(10) < 6;
+        p.lat = local ? rnd.nextDouble(52.10, 52.35) : rnd.nextDouble(49.0, 54.8);
+        p.lon = local ? rnd.nextDouble(20.85, 21.25) : rnd.nextDouble(14.1, 24.1);
+        p.wysokosc_m = Math.round(rnd.nextDouble(20, 120) * 10) / 10.0;
+        p.predkosc_m_s = Math.round(rnd.nextDouble(0, 15) * 100) / 100.0;
+        p.bateria_pro = rnd.nextDouble(20, 100);
+        p.czas_ms = czasMs;
+        return p;
+    }
+}
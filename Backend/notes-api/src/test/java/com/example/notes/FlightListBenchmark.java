@@ -0,0 +1,125 @@
+package com.example.notes;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// Historia lotów: czas strony (FlightHistoryQuery, kursor) na różnej głębokości listy vs LIMIT/OFFSET,
+// także z filtrami. Wymaga bazy po migracji V11, np.:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.FlightListBenchmark \
+//       -Dbench.url=jdbc:postgresql://localhost:5432/Drony -Dbench.user=appuser -Dbench.password=appsecret
+// Benchmark dokłada bench.loty lotów z lat 2000-2019 i usuwa je na końcu.
+//
+// Wyniki (PostgreSQL 16, 1 rdzeń, shared_buffers 256 MB, 1M lotów, mediana z 20; jako postgres;
+// zamiast PostGIS zaślepka geography na typie point):
+//   strona 50 lotów                     kursor ms    OFFSET ms
+//   od pozycji 0                            21.56        14.92
+//   od pozycji 100000                       13.81        49.61
+//   od pozycji 500000                       14.68       190.77
+//   od pozycji 900000                        9.86       314.13
+//   od pozycji 999000                       11.84       297.08
+//   status=Przerwany, 1. strona / od połowy    10.64 / 7.65
+//   zakres 2010-03, 1. strona                   5.80
+//   id_operatora, od połowy                     6.87
+// Kursor trzyma stały czas na każdej głębokości, OFFSET rośnie liniowo z pozycją.
+public class FlightListBenchmark {
+
+    private static final int FLIGHTS = Integer.getInteger("bench.loty", 1_000_000);
+    private static final int PAGE = Integer.getInteger("bench.strona", 50);
+    private static final int REPEATS = Integer.getInteger("bench.powtorzenia", 20);
+    private static final String SEED_TO = "2020-01-01";
+
+    public static void main(String[] args) {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/Drony"),
+                System.getProperty("bench.user", "appuser"),
+                System.getProperty("bench.password", "appsecret")
+        );
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        Integer maxBefore = jdbc.queryForObject("SELECT COALESCE(max(id_lotu), 0) FROM public.lot", Integer.class);
+        Integer operator = jdbc.queryForObject("SELECT min(id_operatora) FROM public.operator", Integer.class);
+
+        long t0 = System.nanoTime();
+        // co 10. lot ma operatora (jeśli jakiś istnieje), statusy w proporcji 8:1:1
+        jdbc.update("""
+            INSERT INTO public.lot (id_operatora, czas_startu, czas_konca, status)
+            SELECT CASE WHEN g % 10 = 0 THEN ? END,
+                   ts,
+                   ts + interval '20 minutes',
+                   CASE WHEN g % 10 = 1 THEN 'Przerwany' WHEN g % 10 = 2 THEN 'Rozpoczęty' ELSE 'Zakończony' END
+            FROM generate_series(1, ?) g,
+                 LATERAL (SELECT timestamp '2000-01-01' + (random() * (timestamp '2019-12-31' - timestamp '2000-01-01')) AS ts) x
+            """, operator, FLIGHTS);
+        jdbc.execute("ANALYZE public.lot");
+        jdbc.execute("ANALYZE public.lot_podsumowanie");
+        System.out.printf("dolozono %,d lotow w %.1f s%n", FLIGHTS, (System.nanoTime() - t0) / 1e9);
+
+        try {
+            System.out.printf("%-36s %12s %12s%n", "", "kursor ms", "OFFSET ms");
+            for (double depth : new double[]{0, 0.1, 0.5, 0.9, 0.999}) {
+                int offset = (int) (FLIGHTS * depth);
+                FlightCursor cursor = offset == 0 ? null : cursorAt(jdbc, offset);
+                FlightHistoryQuery q = new FlightHistoryQuery(null, null, null, null, null, null, cursor, PAGE);
+                double keyset = medianMs(() -> q.page(jdbc));
+                double offsetMs = medianMs(() -> jdbc.queryForList("""
+                    SELECT l.id_lotu, l.czas_startu, l.status
+                    FROM public.lot_podsumowanie l
+                    WHERE l.czas_startu IS NOT NULL
+                    ORDER BY l.czas_startu DESC, l.id_lotu DESC
+                    LIMIT ? OFFSET ?
+                    """, PAGE, offset));
+                System.out.printf("%-36s %12.2f %12.2f%n", "strona od pozycji " + offset, keyset, offsetMs);
+            }
+
+            FlightCursor mid = cursorAt(jdbc, FLIGHTS / 2);
+            report("status=Przerwany, pierwsza strona", new FlightHistoryQuery(
+                    null, null, null, "Przerwany", null, null, null, PAGE), jdbc);
+            report("status=Przerwany, od polowy", new FlightHistoryQuery(
+                    null, null, null, "Przerwany", null, null, mid, PAGE), jdbc);
+            report("zakres 2010-03, pierwsza strona", new FlightHistoryQuery(null, null, null, null,
+                    LocalDateTime.parse("2010-03-01T00:00"), LocalDateTime.parse("2010-04-01T00:00"), null, PAGE), jdbc);
+            if (operator != null) {
+                report("id_operatora=" + operator + ", od polowy", new FlightHistoryQuery(
+                        operator, null, null, null, null, null, mid, PAGE), jdbc);
+            }
+        } finally {
+            int removed = jdbc.update("DELETE FROM public.lot WHERE id_lotu > ? AND czas_startu < ?::timestamp",
+                    maxBefore, SEED_TO);
+            System.out.printf("usunieto %,d lotow testowych%n", removed);
+        }
+    }
+
+    private static void report(String label, FlightHistoryQuery q, JdbcTemplate jdbc) {
+        System.out.printf("%-36s %12.2f%n", label, medianMs(() -> q.page(jdbc)));
+    }
+
+    private static FlightCursor cursorAt(JdbcTemplate jdbc, int offset) {
+        Map<String, Object> row = jdbc.queryForMap("""
+            SELECT l.czas_startu, l.id_lotu
+            FROM public.lot_podsumowanie l
+            WHERE l.czas_startu IS NOT NULL
+            ORDER BY l.czas_startu DESC, l.id_lotu DESC
+            LIMIT 1 OFFSET ?
+            """, offset);
+        return new FlightCursor(((Timestamp) row.get("czas_startu")).toLocalDateTime(),
+                ((Number) row.get("id_lotu")).intValue());
+    }
+
+    private static double medianMs(Supplier<List<Map<String, Object>>> page) {
+        double[] ms = new double[REPEATS];
+        for (int i = 0; i < REPEATS + 3; i++) {
+            long t0 = System.nanoTime();
+            page.get();
+            if (i >= 3) ms[i - 3] = (System.nanoTime() - t0) / 1e6;
+        }
+        Arrays.sort(ms);
+        return ms[REPEATS / 2];
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.notes;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Odczyty lotów przed i po lot_podsumowanie (V11): szczegóły lotu i strona historii ze złączeniem
+// tabel słownikowych vs jeden odczyt z podsumowania. Koszt zapisu: start i zakończenie lotu z triggerami
+// V11 na lot i bez nich (telemetria triggerów podsumowania nie ma). Na końcu sprawdza tabelę
+// FlightSummaryChecker. Wymaga bazy po migracji V11 i właściciela tabel (wyłącza triggery), np.:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.FlightSummaryBenchmark \
+//       -Dbench.url=jdbc:postgresql://localhost:5432/Drony -Dbench.user=postgres -Dbench.password=...
+// Benchmark dokłada bench.loty lotów z lat 2000-2019 i usuwa je na końcu.
+//
+// Wyniki (PostgreSQL 16, 1 rdzeń, shared_buffers 256 MB, 1M lotów jednego operatora i drona, mediany;
+// zamiast PostGIS zaślepka geography na typie point; każde wywołanie otwiera połączenie, samo
+// SELECT 1 to ok. 9 ms):
+//   odczyt                                 złączenie ms   podsum. ms
+//   szczegóły lotu (losowy id)                   19.10        11.55
+//   historia, id_operatora, 1. strona            15.55         8.97
+//   zapis (2000 lotów)                      bez trig. ms   z trig. ms
+//   start lotu (INSERT)                           7.73        14.22
+//   zakończenie lotu (UPDATE)                     7.99        13.87
+//   zmiana operatora (2x 1M lotów)              111.8 s
+//   FlightSummaryChecker, 1M lotów               12.2 s, 0 poprawek
+// Odczyt tańszy o ok. 7 ms, start i zakończenie lotu droższe o ok. 6 ms - lot zapisuje się raz
+// lub dwa razy, a czyta wielokrotnie. Zmiana słownika przelicza wszystkie loty w jednej transakcji.
+public class FlightSummaryBenchmark {
+
+    private static final int FLIGHTS = Integer.getInteger("bench.loty", 1_000_000);
+    private static final int PAGE = Integer.getInteger("bench.strona", 50);
+    private static final int REPEATS = Integer.getInteger("bench.powtorzenia", 200);
+    private static final int WRITES = Integer.getInteger("bench.zapisy", 2000);
+    private static final String SEED_TO = "2020-01-01";
+
+    // Szczegóły lotu sprzed V11
+    private static final String DETAIL_JOIN_SQL = """
+        SELECT
+            l.id_lotu, l.id_trasy, l.czas_startu, l.czas_konca, l.status,
+            l.rzeczywista_dlugosc_lotu_m,
+            COALESCE(l.rzeczywisty_czas_s,
+                     EXTRACT(EPOCH FROM (l.czas_konca - l.czas_startu)))::int AS czas_trwania_s,
+            t.nazwa AS nazwa_trasy, t.opis AS opis_trasy,
+            o.id_operatora, o.imie, o.nazwisko, o.e_mail, o.numer_operatora AS uid_operatora,
+            ed.id_drona, ed.numer_seryjny, ed.status AS status_drona,
+            md.producent, md.nazwa_modelu, md.klasa_drona, md.masa_g, md.zasieg_m, md.predkosc_m_s,
+            tl.id_typ AS id_typu_lotu, tl.nazwa AS typ_lotu, tl.opis AS opis_typu, tl.metadane AS metadane_typu
+        FROM public.lot l
+        LEFT JOIN public.trasy            t  ON t.id_trasy     = l.id_trasy
+        LEFT JOIN public.operator         o  ON o.id_operatora = l.id_operatora
+        LEFT JOIN public.egzemplarz_drona ed ON ed.id_drona    = l.id_drona
+        LEFT JOIN public.model_drona      md ON md.id_modelu   = ed.id_modelu
+        LEFT JOIN public.typ_lotu         tl ON tl.id_typ      = l.id_typ
+        WHERE l.id_lotu = ?
+        """;
+
+    private static final String DETAIL_SUMMARY_SQL = """
+        SELECT p.id_lotu, p.id_trasy, p.czas_startu, p.czas_konca, p.status,
+               p.rzeczywista_dlugosc_lotu_m, p.czas_trwania_s, p.nazwa_trasy, p.opis_trasy,
+               p.id_operatora, p.imie, p.nazwisko, p.e_mail, p.uid_operatora,
+               p.id_drona, p.numer_seryjny, p.status_drona,
+               p.producent, p.nazwa_modelu, p.klasa_drona, p.masa_g, p.zasieg_m, p.predkosc_m_s,
+               p.id_typu_lotu, p.typ_lotu, p.opis_typu, p.metadane_typu
+        FROM public.lot_podsumowanie p
+        WHERE p.id_lotu = ?
+        """;
+
+    // Strona historii sprzed V11 (FlightHistoryQuery ze złączeniami), filtr po operatorze
+    private static final String PAGE_JOIN_SQL = """
+        SELECT l.id_lotu, l.id_trasy, t.nazwa AS nazwa_trasy, l.czas_startu, l.czas_konca,
+               COALESCE(l.rzeczywisty_czas_s,
+                        EXTRACT(EPOCH FROM (l.czas_konca - l.czas_startu)))::int AS czas_trwania_s,
+               COALESCE(o.imie || ' ' || o.nazwisko, '') AS operator,
+               l.status
+        FROM public.lot l
+        LEFT JOIN public.trasy    t ON t.id_trasy     = l.id_trasy
+        LEFT JOIN public.operator o ON o.id_operatora = l.id_operatora
+        WHERE l.id_operatora = ? AND l.czas_startu IS NOT NULL
+        ORDER BY l.czas_startu DESC, l.id_lotu DESC
+        LIMIT ?
+        """;
+
+    public static void main(String[] args) {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/Drony"),
+                System.getProperty("bench.user", "postgres"),
+                System.getProperty("bench.password", "")
+        );
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        int maxBefore = jdbc.queryForObject("SELECT COALESCE(max(id_lotu), 0) FROM public.lot", Integer.class);
+        Integer operator = jdbc.queryForObject("SELECT min(id_operatora) FROM public.operator", Integer.class);
+        Integer drone = jdbc.queryForObject("SELECT min(id_drona) FROM public.egzemplarz_drona", Integer.class);
+        Integer route = jdbc.queryForObject("SELECT min(id_trasy) FROM public.trasy", Integer.class);
+        Integer type = jdbc.queryForObject("SELECT min(id_typ) FROM public.typ_lotu", Integer.class);
+
+        // trigger serwisowy liczy przy każdym zakończonym locie wszystkie loty drona - przy milionie lotów
+        // jednego drona zasiew i zakończenia mierzyłyby jego, a nie podsumowanie
+        jdbc.execute("ALTER TABLE public.lot DISABLE TRIGGER tr_lot_serwis_ai, DISABLE TRIGGER tr_lot_serwis_au");
+        try {
+            run(jdbc, maxBefore, operator, drone, route, type);
+        } finally {
+            jdbc.execute("ALTER TABLE public.lot ENABLE TRIGGER tr_lot_serwis_ai, ENABLE TRIGGER tr_lot_serwis_au");
+        }
+    }
+
+    private static void run(JdbcTemplate jdbc, int maxBefore, Integer operator, Integer drone, Integer route, Integer type) {
+        long t0 = System.nanoTime();
+        // wszystkie loty z operatorem, dronem, trasą i typem - złączenia mają co robić;
+        // triggery V11 zakładają wiersze podsumowania
+        jdbc.update("""
+            INSERT INTO public.lot (id_operatora, id_drona, id_trasy, id_typ, czas_startu, czas_konca, status)
+            SELECT ?, ?, ?, ?, ts, ts + interval '20 minutes', 'Zakończony'
+            FROM generate_series(1, ?) g,
+                 LATERAL (SELECT timestamp '2000-01-01' + (random() * (timestamp '2019-12-31' - timestamp '2000-01-01')) AS ts) x
+            """, operator, drone, route, type, FLIGHTS);
+        jdbc.execute("ANALYZE public.lot");
+        jdbc.execute("ANALYZE public.lot_podsumowanie");
+        int maxAfter = jdbc.queryForObject("SELECT max(id_lotu) FROM public.lot", Integer.class);
+        System.out.printf("dolozono %,d lotow w %.1f s%n", FLIGHTS, (System.nanoTime() - t0) / 1e9);
+
+        try {
+            System.out.printf("%-36s %12s %12s%n", "", "zlaczenie ms", "podsum. ms");
+            Supplier<Integer> randomId = () -> ThreadLocalRandom.current().nextInt(maxBefore + 1, maxAfter + 1);
+            double detailJoin = medianMs(() -> jdbc.queryForList(DETAIL_JOIN_SQL, randomId.get()));
+            double detailSummary = medianMs(() -> jdbc.queryForList(DETAIL_SUMMARY_SQL, randomId.get()));
+            System.out.printf("%-36s %12.3f %12.3f%n", "szczegoly lotu (losowy id)", detailJoin, detailSummary);
+
+            if (operator != null) {
+                double pageJoin = medianMs(() -> jdbc.queryForList(PAGE_JOIN_SQL, operator, PAGE));
+                FlightHistoryQuery q = new FlightHistoryQuery(operator, null, null, null, null, null, null, PAGE);
+                double pageSummary = medianMs(() -> q.page(jdbc));
+                System.out.printf("%-36s %12.3f %12.3f%n", "historia, id_operatora, 1. strona", pageJoin, pageSummary);
+            }
+
+            // start (INSERT) i zakończenie (UPDATE) lotu, każde w osobnej transakcji
+            System.out.printf("%-36s %12s %12s%n", "", "bez trig. ms", "z trig. ms");
+            jdbc.execute("ALTER TABLE public.lot DISABLE TRIGGER lot_podsumowanie_ai, DISABLE TRIGGER lot_podsumowanie_au");
+            double[] off;
+            try {
+                off = writeMs(jdbc, operator, drone, route, type);
+            } finally {
+                jdbc.execute("ALTER TABLE public.lot ENABLE TRIGGER lot_podsumowanie_ai, ENABLE TRIGGER lot_podsumowanie_au");
+            }
+            double[] on = writeMs(jdbc, operator, drone, route, type);
+            System.out.printf("%-36s %12.3f %12.3f%n", "start lotu (INSERT)", off[0], on[0]);
+            System.out.printf("%-36s %12.3f %12.3f%n", "zakonczenie lotu (UPDATE)", off[1], on[1]);
+
+            // zmiana słownika przelicza wszystkie loty operatora w triggerze
+            if (operator != null) {
+                String email = jdbc.queryForObject("SELECT e_mail FROM public.operator WHERE id_operatora = ?",
+                        String.class, operator);
+                long t1 = System.nanoTime();
+                jdbc.update("UPDATE public.operator SET e_mail = 'bench@example.com' WHERE id_operatora = ?", operator);
+                jdbc.update("UPDATE public.operator SET e_mail = ? WHERE id_operatora = ?", email, operator);
+                System.out.printf("zmiana operatora (2x %,d lotow): %.1f s%n", FLIGHTS, (System.nanoTime() - t1) / 1e9);
+            }
+
+            FlightSummaryChecker checker = new FlightSummaryChecker(jdbc, 10_000);
+            long t2 = System.nanoTime();
+            int fixed = checker.check(maxBefore, maxAfter);
+            System.out.printf("sprawdzenie spojnosci %,d lotow: %.1f s, poprawiono %d%n",
+                    FLIGHTS, (System.nanoTime() - t2) / 1e9, fixed);
+        } finally {
+            int removed = jdbc.update("DELETE FROM public.lot WHERE id_lotu > ? AND czas_startu < ?::timestamp",
+                    maxBefore, SEED_TO);
+            System.out.printf("usunieto %,d lotow testowych%n", removed);
+        }
+    }
+
+    // Mediany [INSERT, UPDATE] w ms; loty z 2019 r., więc usuwa je DELETE na końcu
+    private static double[] writeMs(JdbcTemplate jdbc, Integer operator, Integer drone, Integer route, Integer type) {
+        double[] insert = new double[WRITES];
+        double[] update = new double[WRITES];
+        for (int i = 0; i < WRITES; i++) {
+            long t0 = System.nanoTime();
+            Integer id = jdbc.queryForObject("""
+                INSERT INTO public.lot (id_operatora, id_drona, id_trasy, id_typ, czas_startu, status)
+                VALUES (?, ?, ?, ?, timestamp '2019-12-31 12:00', 'Rozpoczęty')
+                RETURNING id_lotu
+                """, Integer.class, operator, drone, route, type);
+            long t1 = System.nanoTime();
+            jdbc.update("""
+                UPDATE public.lot
+                SET czas_konca = czas_startu + interval '20 minutes', status = 'Zakończony',
+                    rzeczywista_dlugosc_lotu_m = 1234.5
+                WHERE id_lotu = ?
+                """, id);
+            long t2 = System.nanoTime();
+            insert[i] = (t1 - t0) / 1e6;
+            update[i] = (t2 - t1) / 1e6;
+        }
+        Arrays.sort(insert);
+        Arrays.sort(update);
+        return new double[]{insert[WRITES / 2], update[WRITES / 2]};
+    }
+
+    private static double medianMs(Supplier<List<Map<String, Object>>> query) {
+        double[] ms = new double[REPEATS];
+        for (int i = 0; i < REPEATS + 3; i++) {
+            long t0 = System.nanoTime();
+            query.get();
+            if (i >= 3) ms[i - 3] = (System.nanoTime() - t0) / 1e6;
+        }
+        Arrays.sort(ms);
+        return ms[REPEATS / 2];
+    }
+}
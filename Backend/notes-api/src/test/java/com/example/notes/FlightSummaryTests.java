@@ -0,0 +1,215 @@
+package com.example.notes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Triggery lot_podsumowanie (V11) i FlightSummaryChecker na prawdziwej bazie po migracjach.
+// Wszystko w jednej transakcji wycofywanej po teście. Test psuje lot_podsumowanie ręcznie, więc łączy
+// się jako właściciel tabel (jak Flyway); bez bazy jest pomijany. Inna baza:
+//   mvn test -Dtest=FlightSummaryTests -Dtest.db.url=jdbc:postgresql://host:5432/Drony \
+//       -Dtest.db.user=postgres -Dtest.db.password=...
+class FlightSummaryTests {
+
+    private SingleConnectionDataSource ds;
+    private JdbcTemplate jdbc;
+    private int operator;
+    private int model;
+    private int drone;
+    private int route;
+    private int type;
+
+    @BeforeEach
+    void connect() throws SQLException {
+        Connection con;
+        try {
+            con = DriverManager.getConnection(
+                    System.getProperty("test.db.url", "jdbc:postgresql://localhost:5432/Drony"),
+                    System.getProperty("test.db.user", "postgres"),
+                    System.getProperty("test.db.password", ""));
+        } catch (SQLException e) {
+            assumeTrue(false, "Brak bazy: " + e.getMessage());
+            return;
+        }
+        con.setAutoCommit(false);
+        ds = new SingleConnectionDataSource(con, true);
+        jdbc = new JdbcTemplate(ds);
+        assumeTrue(Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT to_regclass('public.lot_podsumowanie') IS NOT NULL", Boolean.class)), "Baza bez V11");
+
+        model = id("INSERT INTO public.model_drona (producent, nazwa_modelu, klasa_drona, masa_g, zasieg_m, predkosc_m_s) "
+                + "VALUES ('Test', 'M1', 'C0', 249, 5000, 16.5) RETURNING id_modelu");
+        drone = id("INSERT INTO public.egzemplarz_drona (id_modelu, numer_seryjny, status) "
+                + "VALUES (?, 'SN-TEST-1', 'Dostępny') RETURNING id_drona", model);
+        operator = id("INSERT INTO public.operator (imie, nazwisko, e_mail, numer_operatora) "
+                + "VALUES ('Jan', 'Testowy', 'jan.testowy@example.com', 'POL-TEST') RETURNING id_operatora");
+        route = id("INSERT INTO public.trasy (nazwa, opis) VALUES ('Trasa testowa', 'opis') RETURNING id_trasy");
+        type = id("INSERT INTO public.typ_lotu (nazwa, opis) VALUES ('Inspekcja', 'test') RETURNING id_typ");
+    }
+
+    @AfterEach
+    void rollback() throws SQLException {
+        if (ds != null) {
+            ds.getConnection().rollback();
+            ds.destroy();
+        }
+    }
+
+    @Test
+    void insertCreatesSummaryRow() {
+        int lot = startFlight();
+
+        Map<String, Object> p = summary(lot);
+        assertEquals(route, p.get("id_trasy"));
+        assertEquals("Trasa testowa", p.get("nazwa_trasy"));
+        assertEquals("Jan Testowy", p.get("operator"));
+        assertEquals("POL-TEST", p.get("uid_operatora"));
+        assertEquals("SN-TEST-1", p.get("numer_seryjny"));
+        assertEquals("M1", p.get("nazwa_modelu"));
+        assertEquals("Inspekcja", p.get("typ_lotu"));
+        assertEquals("Rozpoczęty", p.get("status"));
+        assertSameAsView(lot);
+    }
+
+    @Test
+    void finishUpdatesSummaryWithValuesFromBeforeTriggers() {
+        int lot = startFlight();
+        jdbc.update("""
+            UPDATE public.lot
+            SET czas_konca = czas_startu + interval '125 seconds', status = 'Zakończony',
+                rzeczywista_dlugosc_lotu_m = 812.5
+            WHERE id_lotu = ?
+            """, lot);
+
+        Map<String, Object> p = summary(lot);
+        assertEquals("Zakończony", p.get("status"));
+        // rzeczywisty_czas_s uzupełnia trigger BEFORE, podsumowanie (AFTER) już go widzi
+        assertEquals(125, p.get("czas_trwania_s"));
+        assertEquals(0, new BigDecimal("812.5").compareTo((BigDecimal) p.get("rzeczywista_dlugosc_lotu_m")));
+        assertSameAsView(lot);
+    }
+
+    @Test
+    void dictionaryChangesReachFlights() {
+        int lot = startFlight();
+
+        jdbc.update("UPDATE public.operator SET nazwisko = 'Zmieniony' WHERE id_operatora = ?", operator);
+        jdbc.update("UPDATE public.trasy SET nazwa = 'Nowa nazwa' WHERE id_trasy = ?", route);
+        jdbc.update("UPDATE public.model_drona SET nazwa_modelu = 'M2' WHERE id_modelu = ?", model);
+        jdbc.update("UPDATE public.egzemplarz_drona SET status = 'serwis' WHERE id_drona = ?", drone);
+        jdbc.update("UPDATE public.typ_lotu SET metadane = '{\"a\": 1}'::jsonb WHERE id_typ = ?", type);
+
+        Map<String, Object> p = summary(lot);
+        assertEquals("Jan Zmieniony", p.get("operator"));
+        assertEquals("Nowa nazwa", p.get("nazwa_trasy"));
+        assertEquals("M2", p.get("nazwa_modelu"));
+        assertEquals("serwis", p.get("status_drona"));
+        assertSameAsView(lot);
+    }
+
+    @Test
+    void unrelatedChangesDoNotRewriteSummary() {
+        int lot = startFlight();
+        String before = ctid(lot);
+
+        // kolumny spoza podsumowania - triggery słownikowe nie odpalają
+        jdbc.update("UPDATE public.operator SET obywatelstwo = 'PL' WHERE id_operatora = ?", operator);
+        jdbc.update("UPDATE public.trasy SET planowana_dlugosc_m = 1000 WHERE id_trasy = ?", route);
+        // zmiana lot w kolumnie spoza podsumowania - trigger odpala, ale upsert nie zapisuje nowej wersji
+        int weather = id("INSERT INTO public.obserwacja_pogody (temperatura_c) VALUES (4.5) RETURNING id_obserwacji_pogodowej");
+        jdbc.update("UPDATE public.lot SET id_obserwacji_pogodowej = ? WHERE id_lotu = ?", weather, lot);
+        assertEquals(before, ctid(lot));
+
+        jdbc.update("UPDATE public.operator SET imie = 'Janusz' WHERE id_operatora = ?", operator);
+        assertNotEquals(before, ctid(lot));
+    }
+
+    @Test
+    void deletingFlightRemovesSummary() {
+        int lot = startFlight();
+        jdbc.update("DELETE FROM public.lot WHERE id_lotu = ?", lot);
+        assertEquals(0, count(lot));
+    }
+
+    @Test
+    void checkerRepairsDriftInRange() {
+        int first = startFlight();
+        int second = startFlight();
+        int third = startFlight();
+
+        // rozjazd jak po imporcie z wyłączonymi triggerami
+        jdbc.update("UPDATE public.lot_podsumowanie SET nazwa_trasy = 'stara' WHERE id_lotu = ?", first);
+        jdbc.update("DELETE FROM public.lot_podsumowanie WHERE id_lotu = ?", second);
+
+        FlightSummaryChecker checker = new FlightSummaryChecker(jdbc, 100);
+        assertEquals(2, checker.check(first - 1, third));
+        assertSameAsView(first);
+        assertSameAsView(second);
+        assertSameAsView(third);
+
+        Map<String, Object> m = checker.metrics();
+        assertEquals(3L, m.get("sprawdzone"));
+        assertEquals(2L, m.get("rozbiezne"));
+        assertEquals(2L, m.get("poprawione"));
+
+        // drugi raz nic do poprawy
+        assertEquals(0, checker.check(first - 1, third));
+    }
+
+    @Test
+    void checkerLeavesFlightsOutsideRange() {
+        int first = startFlight();
+        int second = startFlight();
+        jdbc.update("UPDATE public.lot_podsumowanie SET nazwa_trasy = 'stara' WHERE id_lotu IN (?, ?)", first, second);
+
+        FlightSummaryChecker checker = new FlightSummaryChecker(jdbc, 100);
+        assertEquals(1, checker.check(first - 1, first));
+        assertEquals("stara", summary(second).get("nazwa_trasy"));
+        assertEquals(1, checker.check(first, second));
+    }
+
+    private int startFlight() {
+        return id("""
+            INSERT INTO public.lot (id_operatora, id_drona, id_trasy, id_typ, czas_startu, status)
+            VALUES (?, ?, ?, ?, timestamp '2026-01-10 12:00:00', 'Rozpoczęty')
+            RETURNING id_lotu
+            """, operator, drone, route, type);
+    }
+
+    private Map<String, Object> summary(int lot) {
+        return jdbc.queryForMap("SELECT * FROM public.lot_podsumowanie WHERE id_lotu = ?", lot);
+    }
+
+    private void assertSameAsView(int lot) {
+        assertEquals(Boolean.TRUE, jdbc.queryForObject("""
+            SELECT (p.*) IS NOT DISTINCT FROM (z.*)
+            FROM public.lot_podsumowanie_zrodlo z
+            JOIN public.lot_podsumowanie p ON p.id_lotu = z.id_lotu
+            WHERE z.id_lotu = ?
+            """, Boolean.class, lot), "id_lotu " + lot);
+    }
+
+    private String ctid(int lot) {
+        return jdbc.queryForObject("SELECT ctid::text FROM public.lot_podsumowanie WHERE id_lotu = ?", String.class, lot);
+    }
+
+    private int count(int lot) {
+        return jdbc.queryForObject("SELECT count(*) FROM public.lot_podsumowanie WHERE id_lotu = ?", Integer.class, lot);
+    }
+
+    private int id(String sql, Object... args) {
+        return jdbc.queryForObject(sql, Integer.class, args);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.notes;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Strefy zakazane: sprawdzenia punktów na sekundę przez GeofenceService (STR-tree + PreparedGeometry),
+// jeden wątek i N wątków przy równoległej podmianie indeksu. Nie wymaga bazy:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.GeofenceBenchmark
+//
+// Wyniki (1 rdzeń, JDK 17, 2000 stref, 500k punktów, 29.7% w strefie, 2.7% przy strefie; dwa przebiegi):
+//                                       sprawdzenia/s
+//   1 wątek                             537k / 576k
+//   1 wątek, podmiana indeksu co 100 ms 477k / 536k
+// Cel 100k/s na wątek spełniony z ok. 5x zapasem, podmiana indeksu kosztuje ok. 7-11%.
+public class GeofenceBenchmark {
+
+    private static final int ZONES = Integer.getInteger("bench.strefy", 2000);
+    private static final int POINTS = Integer.getInteger("bench.punkty", 500_000);
+    private static final int THREADS = Integer.getInteger("bench.watki", Runtime.getRuntime().availableProcessors());
+    private static final int SWAP_MS = Integer.getInteger("bench.podmiana-ms", 100);
+    private static final int ROUNDS = Integer.getInteger("bench.rundy", 5);
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory(new PrecisionModel(), 4326);
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        List<GeofenceService.Zone> zones = new ArrayList<>(ZONES);
+        for (int i = 0; i < ZONES; i++) {
+            // ~30% stref w okolicy Warszawy (lotnisko, obiekty rządowe), reszta po całym kraju
+            boolean local = rnd.nextInt(10) < 3;
+            double lat = local ? rnd.nextDouble(52.10, 52.35) : rnd.nextDouble(49.0, 54.8);
+            double lon = local ? rnd.nextDouble(20.85, 21.25) : rnd.nextDouble(14.1, 24.1);
+            zones.add(new GeofenceService.Zone(i + 1, "Strefa " + (i + 1), "test",
+                    polygon(lat, lon, rnd.nextDouble(100, 1000), 32), Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+
+        GeofenceService service = new GeofenceService(null, 50);
+        long b0 = System.nanoTime();
+        service.swap(GeofenceService.index(1, zones));
+        long buildMs = (System.nanoTime() - b0) / 1_000_000;
+
+        double[] lat = new double[POINTS];
+        double[] lon = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            boolean local = rnd.nextInt(10) < 5;
+            lat[i] = local ? rnd.nextDouble(52.10, 52.35) : rnd.nextDouble(49.0, 54.8);
+            lon[i] = local ? rnd.nextDouble(20.85, 21.25) : rnd.nextDouble(14.1, 24.1);
+        }
+        long now = System.currentTimeMillis();
+        int inside = 0;
+        int near = 0;
+        for (int i = 0; i < POINTS; i += 50) {
+            List<GeofenceService.Hit> hits = service.check(lat[i], lon[i], now);
+            boolean brute = false;
+            for (GeofenceService.Zone z : zones) {
+                brute |= z.geometry.covers(GEOMETRY.createPoint(new Coordinate(lon[i], lat[i])));
+            }
+            boolean in = hits.stream().anyMatch(GeofenceService.Hit::wewnatrz);
+            if (in != brute) throw new IllegalStateException("Punkt " + i + ": indeks " + in + ", przegląd " + brute);
+            if (in) inside++;
+            else if (!hits.isEmpty()) near++;
+        }
+
+        System.out.printf("strefy: %d, budowa indeksu: %d ms, punkty w strefie: %.1f%%, w pobliżu: %.1f%%%n",
+                ZONES, buildMs, inside * 100.0 / (POINTS / 50), near * 100.0 / (POINTS / 50));
+        System.out.printf("%-34s %14s%n", "", "sprawdzenia/s");
+        for (int r = 0; r < ROUNDS; r++) {
+            boolean last = r == ROUNDS - 1;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < POINTS; i++) sink += service.check(lat[i], lon[i], now).size();
+            long ns = System.nanoTime() - t0;
+            if (last) System.out.printf("%-34s %,14.0f%n", "1 watek", POINTS * 1e9 / ns);
+        }
+        parallel(service, zones, lat, lon, now);
+    }
+
+    // N wątków sprawdza punkty, a osobny wątek co SWAP_MS buduje i podmienia indeks
+    private static void parallel(GeofenceService service, List<GeofenceService.Zone> zones,
+                                 double[] lat, double[] lon, long now) throws Exception {
+        AtomicBoolean stop = new AtomicBoolean();
+        LongAdder done = new LongAdder();
+        LongAdder swaps = new LongAdder();
+        Thread swapper = new Thread(() -> {
+            long v = 2;
+            while (!stop.get()) {
+                service.swap(GeofenceService.index(v++, zones));
+                swaps.increment();
+                try {
+                    Thread.sleep(SWAP_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * 7919;
+            threads.add(new Thread(() -> {
+                int i = offset % POINTS;
+                long n = 0;
+                while (!stop.get()) {
+                    sink += service.check(lat[i], lon[i], now).size();
+                    if (++i == POINTS) i = 0;
+                    n++;
+                }
+                done.add(n);
+            }));
+        }
+        swapper.start();
+        threads.forEach(Thread::start);
+        long t0 = System.nanoTime();
+        Thread.sleep(3000);
+        stop.set(true);
+        long ns = System.nanoTime() - t0;
+        for (Thread t : threads) t.join();
+        swapper.join();
+        System.out.printf("%-34s %,14.0f%n",
+                "watki: " + THREADS + ", podmiana co " + SWAP_MS + " ms (" + swaps.sum() + ")", done.sum() * 1e9 / ns);
+    }
+
+    // Wielokąt przybliżający okrąg o promieniu r metrów
+    private static Geometry polygon(double lat, double lon, double r, int n) {
+        Coordinate[] ring = new Coordinate[n + 1];
+        double dLat = r / 111_132.0;
+        double dLon = r / (111_320.0 * Math.cos(Math.toRadians(lat)));
+        for (int i = 0; i < n; i++) {
+            double a = 2 * Math.PI * i / n;
+            ring[i] = new Coordinate(lon + dLon * Math.cos(a), lat + dLat * Math.sin(a));
+        }
+        ring[n] = ring[0];
+        return GEOMETRY.createPolygon(ring);
+    }
+}
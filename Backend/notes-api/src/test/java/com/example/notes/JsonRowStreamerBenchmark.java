@@ -0,0 +1,167 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Odczyt telemetrii jako JSON: queryForList + Jackson vs JsonRowStreamer.
+// Mierzy czas, bajty zaalokowane przez wątek i przyrost zajętej sterty w trakcie (po GC przed pomiarem).
+// Wymaga bazy z PostGIS, np.:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.JsonRowStreamerBenchmark \
+//       -Dbench.url=jdbc:postgresql://localhost:5432/Drony -Dbench.user=appuser -Dbench.password=appsecret
+// Z małym -Xmx (np. MAVEN_OPTS=-Xmx192m) widać, że bufor całej odpowiedzi przestaje się mieścić.
+//
+// Wyniki (PostgreSQL 16, 1 rdzeń, -Xmx192m; zamiast PostGIS zaślepka geography na typie point):
+//   punkty   metoda          czas_ms  alokacja_MB  sterta_MB
+//   10000    queryForList      311.2         29.3       25.1
+//   10000    streamer          242.9         19.9       20.3
+//   100000   queryForList     1620.8        285.4      176.8
+//   100000   streamer          747.2        199.6       51.5
+//   500000   queryForList        OOM
+//   500000   streamer         3649.7        999.4       49.0
+// Bez limitu sterty (domyślnie 1/4 RAM): 500000 punktów - queryForList 7784 ms i 1044 MB sterty,
+// streamer 3679 ms i 341 MB (większa sterta, więc GC rzadziej sprząta śmieci, nie więcej żywych obiektów).
+public class JsonRowStreamerBenchmark {
+
+    private static final int[] SIZES = {10_000, 100_000, 500_000};
+    private static final int ROUNDS = Integer.getInteger("bench.rundy", 3);
+
+    private static final String SQL = """
+        SELECT
+            tm.id_telemetrii,
+            tm.czas,
+            ST_Y(tm.wspolrzedne::geometry) AS lat,
+            ST_X(tm.wspolrzedne::geometry) AS lon,
+            tm.wysokosc_m,
+            tm.predkosc_m_s,
+            tm.bateria_pro,
+            tm.sila_sygnalu
+        FROM public.telemetria tm
+        WHERE tm.id_lotu = ?
+        ORDER BY tm.czas ASC, tm.id_telemetrii ASC
+        """;
+
+    private interface Body {
+        void run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/Drony"),
+                System.getProperty("bench.user", "appuser"),
+                System.getProperty("bench.password", "appsecret")
+        );
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        JsonRowStreamer streamer = new JsonRowStreamer(ds, mapper, 500);
+
+        Integer idLotu = jdbc.queryForObject("""
+            INSERT INTO public.lot (czas_startu, status)
+            VALUES (now()::timestamp, 'Rozpoczęty')
+            RETURNING id_lotu
+        """, Integer.class);
+
+        try {
+            System.out.printf("%-8s %-12s %10s %16s %16s%n", "punkty", "metoda", "czas_ms", "alokacja_MB", "sterta_MB");
+            for (int n : SIZES) {
+                List<FlightController.TelemetryCreateRequest> points = generate(n);
+                tx.executeWithoutResult(s -> {
+                    try {
+                        TelemetryCopyLoader.load(DataSourceUtils.getConnection(ds), idLotu, points);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                points.clear();
+
+                for (int r = 0; r < ROUNDS; r++) {
+                    boolean last = r == ROUNDS - 1;
+                    measure(last, n, "queryForList", () ->
+                            mapper.writeValue(OutputStream.nullOutputStream(), jdbc.queryForList(SQL, idLotu)));
+                    measure(last, n, "streamer", () ->
+                            streamer.write(OutputStream.nullOutputStream(), SQL, idLotu));
+                }
+                jdbc.update("DELETE FROM public.telemetria WHERE id_lotu = ?", idLotu);
+            }
+        } finally {
+            jdbc.update("DELETE FROM public.telemetria WHERE id_lotu = ?", idLotu);
+            jdbc.update("DELETE FROM public.lot WHERE id_lotu = ?", idLotu);
+        }
+    }
+
+    // Sterta: maksimum zajętej pamięci próbkowane w tle, względem stanu po GC
+    private static void measure(boolean print, int n, String name, Body body) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long base = rt.totalMemory() - rt.freeMemory();
+        long[] peak = {base};
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peak[0] = Math.max(peak[0], rt.totalMemory() - rt.freeMemory());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        long tid = Thread.currentThread().getId();
+        long a0 = threads.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        try {
+            body.run();
+        } catch (OutOfMemoryError e) {
+            // przy małym -Xmx bufor całej odpowiedzi się nie mieści - to też jest wynik
+            sampler.interrupt();
+            sampler.join();
+            if (print) System.out.printf(Locale.ROOT, "%-8d %-12s %10s%n", n, name, "OOM");
+            return;
+        }
+        long ns = System.nanoTime() - t0;
+        long alloc = threads.getThreadAllocatedBytes(tid) - a0;
+        sampler.interrupt();
+        sampler.join();
+        if (print) {
+            System.out.printf(Locale.ROOT, "%-8d %-12s %10.1f %16.1f %16.1f%n",
+                    n, name, ns / 1e6, alloc / 1048576.0, (peak[0] - base) / 1048576.0);
+        }
+    }
+
+    private static List<FlightController.TelemetryCreateRequest> generate(int n) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        List<FlightController.TelemetryCreateRequest> list = new ArrayList<>(n);
+        long t = System.currentTimeMillis() - n * 100L;
+        double lat = 50.06;
+        double lon = 19.94;
+        for (int i = 0; i < n; i++) {
+            FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+            lat += (rnd.nextDouble() - 0.5) * 1e-5;
+            lon += (rnd.nextDouble() - 0.5) * 1e-5;
+            p.lat = lat;
+            p.lon = lon;
+            p.wysokosc_m = 40 + rnd.nextDouble() * 5;
+            p.predkosc_m_s = rnd.nextDouble() * 10;
+            p.bateria_pro = 100.0 - i * 80.0 / n;
+            p.sila_sygnalu = "dobry";
+            p.czas_ms = t + i * 100L;
+            list.add(p);
+        }
+        return list;
+    }
+}
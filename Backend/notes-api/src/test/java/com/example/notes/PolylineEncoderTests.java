@@ -0,0 +1,87 @@
+package com.example.notes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Wektory z opisu algorytmu Google (Encoded Polyline Algorithm Format) i przypadki zaokrągleń
+class PolylineEncoderTests {
+
+    @Test
+    void referenceThreePointLine() {
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@",
+                encode(38.5, -120.2, 40.7, -120.95, 43.252, -126.453));
+    }
+
+    @Test
+    void referenceSingleNegativeValue() {
+        // -179.9832104 z opisu algorytmu to "`~oia@"; tu jako długość przy szerokości 0
+        assertEquals("?`~oia@", encode(0, -179.9832104));
+    }
+
+    @Test
+    void negativeAndPositiveDeltas() {
+        assertEquals("~~umEca|y[__vmEba|y[", encode(-33.8688, 151.2093, 0, 0));
+    }
+
+    @Test
+    void repeatedPointIsZeroDelta() {
+        assertEquals("obx}Hm}f_C??", encode(52.229676, 21.012229, 52.229676, 21.012229));
+    }
+
+    @Test
+    void roundsToFiveDecimals() {
+        // 0.4e-5 -> 0, 0.6e-5 -> 1 (z obu stron zera)
+        assertEquals("??A@", encode(0.000004, -0.000004, 0.000006, -0.000006));
+        // 1.49e-5 -> 1, -1.51e-5 -> -2
+        assertEquals("AB", encode(0.0000149, -0.0000151));
+    }
+
+    @Test
+    void bodyWithAltitudesRoundedAndMissing() {
+        PolylineEncoder enc = new PolylineEncoder();
+        enc.add(38.5, -120.2, 120.26);
+        enc.add(40.7, -120.95, null);
+        enc.add(43.252, -126.453, Double.NaN);
+
+        Map<String, Object> body = enc.toBody(true);
+        assertEquals("polyline", body.get("format"));
+        assertEquals(3, body.get("liczba"));
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", body.get("polyline"));
+        assertEquals(Arrays.asList(120.3, null, null), body.get("wysokosci_m"));
+        assertEquals(false, enc.toBody(false).containsKey("wysokosci_m"));
+    }
+
+    @Test
+    void rowsWithoutCoordinatesAreSkipped() {
+        PolylineEncoder enc = PolylineEncoder.of(List.of(
+                row(38.5, -120.2, 10.0),
+                row(null, -120.5, 11.0),
+                row(40.7, -120.95, null),
+                row(43.252, -126.453, 12)));
+        assertEquals(3, enc.size());
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", enc.polyline());
+        assertEquals(Arrays.asList(10.0, null, 12.0), enc.toBody(true).get("wysokosci_m"));
+    }
+
+    private static String encode(double... latLon) {
+        PolylineEncoder enc = new PolylineEncoder();
+        for (int i = 0; i < latLon.length; i += 2) {
+            enc.add(latLon[i], latLon[i + 1], null);
+        }
+        return enc.polyline();
+    }
+
+    private static Map<String, Object> row(Number lat, Number lon, Number alt) {
+        Map<String, Object> r = new HashMap<>();
+        r.put("lat", lat);
+        r.put("lon", lon);
+        r.put("wysokosc_m", alt);
+        return r;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.notes;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Odległość punktu telemetrii od planowanej trasy: siatka RouteCorridor vs przegląd wszystkich odcinków.
+// Punkty lecą wzdłuż trasy z szumem (większość w korytarzu, część poza). Nie wymaga bazy:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.RouteCorridorBenchmark
+public class RouteCorridorBenchmark {
+
+    private static final int ROUTE_POINTS = Integer.getInteger("bench.punkty-trasy", 200);
+    private static final int POINTS = Integer.getInteger("bench.punkty", 1_000_000);
+    private static final double HALF_WIDTH_M = Double.parseDouble(System.getProperty("bench.korytarz-m", "10"));
+    private static final int ROUNDS = Integer.getInteger("bench.rundy", 5);
+
+    private static double sink;
+
+    public static void main(String[] args) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        // trasa ~20 km w okolicy Warszawy, odcinki po ~100 m ze zmianami kierunku
+        double[] lat = new double[ROUTE_POINTS];
+        double[] lon = new double[ROUTE_POINTS];
+        lat[0] = 52.2297;
+        lon[0] = 21.0122;
+        double heading = 0;
+        for (int i = 1; i < ROUTE_POINTS; i++) {
+            heading += rnd.nextDouble(-0.6, 0.6);
+            lat[i] = lat[i - 1] + Math.cos(heading) * 0.0009;
+            lon[i] = lon[i - 1] + Math.sin(heading) * 0.0009 / Math.cos(Math.toRadians(52.23));
+        }
+
+        long b0 = System.nanoTime();
+        RouteCorridor corridor = RouteCorridor.of(lat, lon, HALF_WIDTH_M);
+        long buildUs = (System.nanoTime() - b0) / 1000;
+        // jeden kwadrat na całą trasę = przegląd wszystkich odcinków
+        RouteCorridor brute = RouteCorridor.of(lat, lon, 1e7);
+
+        double[] pLat = new double[POINTS];
+        double[] pLon = new double[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            int s = rnd.nextInt(ROUTE_POINTS - 1);
+            double t = rnd.nextDouble();
+            // ~90% w promieniu 8 m od trasy, reszta do 60 m
+            double noise = (rnd.nextInt(10) < 9 ? 8 : 60) / 111_000.0;
+            pLat[i] = lat[s] + t * (lat[s + 1] - lat[s]) + rnd.nextDouble(-noise, noise);
+            pLon[i] = lon[s] + t * (lon[s + 1] - lon[s]) + rnd.nextDouble(-noise, noise) * 1.6;
+        }
+
+        int outside = 0;
+        for (int i = 0; i < POINTS; i += 97) {
+            double a = corridor.distanceM(pLat[i], pLon[i]);
+            double b = brute.distanceM(pLat[i], pLon[i]);
+            if (Math.abs(a - b) > 1e-6) {
+                throw new IllegalStateException("Punkt " + i + ": siatka " + a + " m, przegląd " + b + " m");
+            }
+            if (a > HALF_WIDTH_M) outside++;
+        }
+
+        System.out.printf("trasa: %d odcinkow, korytarz %.0f m, kwadratow: %d, budowa: %d us%n",
+                corridor.segments(), HALF_WIDTH_M, corridor.cells(), buildUs);
+        System.out.printf("punkty poza korytarzem: %.1f%%%n", outside * 100.0 / ((POINTS + 96) / 97));
+        System.out.printf("%-22s %12s%n", "", "ns/punkt");
+        for (int r = 0; r < ROUNDS; r++) {
+            boolean last = r == ROUNDS - 1;
+            measure(last, "siatka", () -> {
+                for (int i = 0; i < POINTS; i++) sink += corridor.distanceM(pLat[i], pLon[i]);
+            });
+            measure(last, "wszystkie odcinki", () -> {
+                for (int i = 0; i < POINTS; i++) sink += brute.distanceM(pLat[i], pLon[i]);
+            });
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static void measure(boolean print, String name, Runnable body) {
+        long t0 = System.nanoTime();
+        body.run();
+        long ns = System.nanoTime() - t0;
+        if (print) System.out.printf("%-22s %12.1f%n", name, ns / (double) POINTS);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.notes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Punkt w korytarzu, gdy distanceM <= halfWidthM (tak jak w RouteDeviationMonitor)
+class RouteCorridorTests {
+
+    // Metry na stopień szerokości i długości na równiku (promienie krzywizny WGS84)
+    private static final double M_PER_DEG_LAT = 6378137.0 * (1 - 6.69437999014e-3) * Math.PI / 180;
+    private static final double M_PER_DEG_LON = 6378137.0 * Math.PI / 180;
+
+    // Trasa wzdłuż równika, ok. 1113 m na wschód, z wierzchołkiem w środku (dł. 0.005)
+    private static final double[] LAT = {0, 0, 0};
+    private static final double[] LON = {0, 0.005, 0.01};
+
+    @Test
+    void pointInsideCorridor() {
+        RouteCorridor c = RouteCorridor.of(LAT, LON, 10);
+        double d = c.distanceM(5 / M_PER_DEG_LAT, 0.0025);
+        assertEquals(5, d, 1e-6);
+        assertTrue(d <= c.halfWidthM());
+        assertEquals(0, c.distanceM(0, 0.007), 1e-6);
+    }
+
+    @Test
+    void pointOutsideCorridor() {
+        RouteCorridor c = RouteCorridor.of(LAT, LON, 10);
+        double d = c.distanceM(-15 / M_PER_DEG_LAT, 0.0075);
+        assertEquals(15, d, 1e-6);
+        assertTrue(d > c.halfWidthM());
+        // daleko od siatki korytarza - odległość z pełnego przeglądu odcinków
+        assertEquals(1000, c.distanceM(1000 / M_PER_DEG_LAT, 0.005), 1e-6);
+    }
+
+    @Test
+    void pointBeyondRouteEndMeasuredToEndpoint() {
+        RouteCorridor c = RouteCorridor.of(LAT, LON, 10);
+        // 6 m na północ i 6 m za końcem trasy: ~8.49 m od punktu końcowego, jeszcze w korytarzu
+        double d = c.distanceM(6 / M_PER_DEG_LAT, 0.01 + 6 / M_PER_DEG_LON);
+        assertEquals(Math.hypot(6, 6), d, 1e-6);
+        assertTrue(d <= c.halfWidthM());
+        // 8 m na północ i 8 m za końcem: ~11.3 m, poza, choć każda ze składowych mieści się w 10 m
+        assertTrue(c.distanceM(8 / M_PER_DEG_LAT, 0.01 + 8 / M_PER_DEG_LON) > c.halfWidthM());
+    }
+
+    @Test
+    void pointExactlyOnBoundaryIsInside() {
+        // punkt prostopadle nad wierzchołkiem trasy - odległość bez błędu rzutu na odcinek
+        double lat = 10 / M_PER_DEG_LAT;
+        double d = RouteCorridor.of(LAT, LON, 10).distanceM(lat, 0.005);
+        assertEquals(10, d, 1e-9);
+
+        // korytarz o półszerokości równej dokładnie tej odległości
+        RouteCorridor edge = RouteCorridor.of(LAT, LON, d);
+        assertEquals(d, edge.distanceM(lat, 0.005));
+        assertTrue(edge.distanceM(lat, 0.005) <= edge.halfWidthM());
+        // centymetr dalej już poza
+        assertTrue(edge.distanceM(lat + 0.01 / M_PER_DEG_LAT, 0.005) > edge.halfWidthM());
+        assertTrue(edge.distanceM(lat - 0.01 / M_PER_DEG_LAT, 0.005) <= edge.halfWidthM());
+    }
+
+    @Test
+    void gridAgreesWithFullScan() {
+        // zygzak w Warszawie; siatka nie może zgubić odcinka dla punktów w korytarzu ani przy granicy
+        double[] lat = {52.2297, 52.2310, 52.2301, 52.2330, 52.2335, 52.2320};
+        double[] lon = {21.0122, 21.0150, 21.0190, 21.0200, 21.0160, 21.0130};
+        double half = 10;
+        RouteCorridor c = RouteCorridor.of(lat, lon, half);
+        Planar plane = new Planar(lat, lon);
+
+        Random rnd = new Random(42);
+        int inside = 0;
+        for (int i = 0; i < 20_000; i++) {
+            double pLat = 52.2290 + rnd.nextDouble() * 0.0055;
+            double pLon = 21.0115 + rnd.nextDouble() * 0.0095;
+            double expected = plane.distance(pLat, pLon);
+            double d = c.distanceM(pLat, pLon);
+            assertEquals(expected, d, 1e-6, pLat + "," + pLon);
+            if (d <= half) inside++;
+        }
+        assertTrue(inside > 100, "punktów w korytarzu: " + inside);
+    }
+
+    @Test
+    void singlePointRouteIsACircle() {
+        RouteCorridor c = RouteCorridor.of(new double[]{0}, new double[]{0}, 10);
+        assertEquals(1, c.segments());
+        assertEquals(7, c.distanceM(7 / M_PER_DEG_LAT, 0), 1e-6);
+    }
+
+    @Test
+    void emptyOrMismatchedRoute() {
+        assertNull(RouteCorridor.of(new double[0], new double[0], 10));
+        assertNull(RouteCorridor.of(new double[]{0, 1}, new double[]{0}, 10));
+    }
+
+    // Ta sama płaszczyzna lokalna co RouteCorridor, ale odległość liczona po wszystkich odcinkach
+    private static final class Planar {
+        final double lat0, lon0, kx, ky;
+        final double[] x, y;
+
+        Planar(double[] lat, double[] lon) {
+            double sum = 0;
+            for (double v : lat) sum += v;
+            lat0 = sum / lat.length;
+            lon0 = lon[0];
+            double sin = Math.sin(Math.toRadians(lat0));
+            double w = 1 - 6.69437999014e-3 * sin * sin;
+            double nr = 6378137.0 / Math.sqrt(w);
+            kx = nr * Math.cos(Math.toRadians(lat0)) * Math.PI / 180;
+            ky = nr * (1 - 6.69437999014e-3) / w * Math.PI / 180;
+            x = new double[lat.length];
+            y = new double[lat.length];
+            for (int i = 0; i < lat.length; i++) {
+                x[i] = (lon[i] - lon0) * kx;
+                y[i] = (lat[i] - lat0) * ky;
+            }
+        }
+
+        double distance(double lat, double lon) {
+            double px = (lon - lon0) * kx;
+            double py = (lat - lat0) * ky;
+            double best = Double.POSITIVE_INFINITY;
+            for (int s = 0; s + 1 < x.length; s++) {
+                double dx = x[s + 1] - x[s], dy = y[s + 1] - y[s];
+                double t = Math.max(0, Math.min(1, ((px - x[s]) * dx + (py - y[s]) * dy) / (dx * dx + dy * dy)));
+                best = Math.min(best, Math.hypot(px - x[s] - t * dx, py - y[s] - t * dy));
+            }
+            return best;
+        }
+    }
+}
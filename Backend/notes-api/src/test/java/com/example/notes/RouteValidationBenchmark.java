@@ -0,0 +1,98 @@
+package com.example.notes;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Walidacja trasy względem stref zakazanych i infrastruktury krytycznej (RouteSafetyValidator.compute):
+// czas pełnego przeliczenia trasy przez indeksy STR-tree vs przegląd wszystkich obiektów. Nie wymaga bazy:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.RouteValidationBenchmark
+public class RouteValidationBenchmark {
+
+    private static final int ZONES = Integer.getInteger("bench.strefy", 2000);
+    private static final int INFRASTRUCTURE = Integer.getInteger("bench.infrastruktura", 5000);
+    private static final int ROUTE_POINTS = Integer.getInteger("bench.punkty-trasy", 200);
+    private static final int ROUNDS = Integer.getInteger("bench.rundy", 200);
+
+    private static final GeometryFactory GEOMETRY = new GeometryFactory(new PrecisionModel(), 4326);
+    private static long sink;
+
+    public static void main(String[] args) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        List<GeofenceService.Zone> zones = areas(ZONES, 100, 1000);
+        List<GeofenceService.Zone> infra = areas(INFRASTRUCTURE, 20, 200);
+        GeofenceService.Index zoneIndex = GeofenceService.index(1, zones);
+        GeofenceService.Index infraIndex = GeofenceService.index(1, infra);
+
+        // trasa ~20 km przez Warszawę
+        double[] lat = new double[ROUTE_POINTS];
+        double[] lon = new double[ROUTE_POINTS];
+        lat[0] = 52.15;
+        lon[0] = 20.90;
+        double heading = 0.8;
+        for (int i = 1; i < ROUTE_POINTS; i++) {
+            heading += rnd.nextDouble(-0.3, 0.3);
+            lat[i] = lat[i - 1] + Math.cos(heading) * 0.0009;
+            lon[i] = lon[i - 1] + Math.sin(heading) * 0.0009 / Math.cos(Math.toRadians(52.2));
+        }
+
+        RouteSafetyValidator.Verdict v = RouteSafetyValidator.compute(1, 1, lat, lon, zoneIndex, infraIndex, 10);
+        int brute = 0;
+        for (int s = 0; s < ROUTE_POINTS - 1; s++) {
+            for (GeofenceService.Zone z : zones) if (z.segmentDistanceM(lat[s], lon[s], lat[s + 1], lon[s + 1]) <= 10) brute++;
+            for (GeofenceService.Zone z : infra) if (z.segmentDistanceM(lat[s], lon[s], lat[s + 1], lon[s + 1]) <= 10) brute++;
+        }
+        if (brute != v.naruszenia().size()) {
+            throw new IllegalStateException("Indeks: " + v.naruszenia().size() + " naruszeń, przegląd: " + brute);
+        }
+        System.out.printf("strefy: %d, infrastruktura: %d, odcinki: %d, naruszenia: %d%n",
+                ZONES, INFRASTRUCTURE, v.odcinki(), v.naruszenia().size());
+
+        long t0 = 0;
+        for (int r = 0; r < ROUNDS * 2; r++) {
+            if (r == ROUNDS) t0 = System.nanoTime();
+            sink += RouteSafetyValidator.compute(1, 1, lat, lon, zoneIndex, infraIndex, 10).naruszenia().size();
+        }
+        System.out.printf("przeliczenie trasy (STR-tree):   %8.3f ms%n", (System.nanoTime() - t0) / 1e6 / ROUNDS);
+
+        t0 = System.nanoTime();
+        for (int s = 0; s < ROUTE_POINTS - 1; s++) {
+            for (GeofenceService.Zone z : zones) sink += (long) z.segmentDistanceM(lat[s], lon[s], lat[s + 1], lon[s + 1]);
+            for (GeofenceService.Zone z : infra) sink += (long) z.segmentDistanceM(lat[s], lon[s], lat[s + 1], lon[s + 1]);
+        }
+        System.out.printf("przeglad wszystkich obiektow:    %8.3f ms%n", (System.nanoTime() - t0) / 1e6);
+        if (sink == 42) System.out.println();
+    }
+
+    // Wielokąty ~okrągłe o promieniu rMin..rMax m; połowa w okolicy Warszawy
+    private static List<GeofenceService.Zone> areas(int n, double rMin, double rMax) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        List<GeofenceService.Zone> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            boolean local = rnd.nextBoolean();
+            double lat = local ? rnd.nextDouble(52.10, 52.35) : rnd.nextDouble(49.0, 54.8);
+            double lon = local ? rnd.nextDouble(20.85, 21.25) : rnd.nextDouble(14.1, 24.1);
+            out.add(new GeofenceService.Zone(i + 1, "Obiekt " + (i + 1), "test",
+                    polygon(lat, lon, rnd.nextDouble(rMin, rMax), 24), Long.MIN_VALUE, Long.MAX_VALUE));
+        }
+        return out;
+    }
+
+    private static Geometry polygon(double lat, double lon, double r, int n) {
+        Coordinate[] ring = new Coordinate[n + 1];
+        double dLat = r / 111_132.0;
+        double dLon = r / (111_320.0 * Math.cos(Math.toRadians(lat)));
+        for (int i = 0; i < n; i++) {
+            double a = 2 * Math.PI * i / n;
+            ring[i] = new Coordinate(lon + dLon * Math.cos(a), lat + dLat * Math.sin(a));
+        }
+        ring[n] = ring[0];
+        return GEOMETRY.createPolygon(ring);
+    }
+}
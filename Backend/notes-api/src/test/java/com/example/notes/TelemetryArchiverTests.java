@@ -0,0 +1,92 @@
+package com.example.notes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Blob archiwum bez bazy: punkty kodeka plus kanał seq klienta
+class TelemetryArchiverTests {
+
+    @Test
+    void seqChannelRoundTrip() {
+        // seq rosnące, z luką, bez seq i mniejsze od poprzedniego (delta ujemna)
+        List<Map<String, Object>> rows = List.of(
+                row(101, 0, 5L),
+                row(102, 1000, 6L),
+                row(105, 2000, null),
+                row(107, 3000, 1_000_000_000_000L),
+                row(110, 4000, 2L));
+
+        for (boolean deflate : new boolean[]{false, true}) {
+            byte[] raw = TelemetryArchiver.encodeRows(rows);
+            byte[] data = deflate ? TelemetryArchiver.deflate(raw) : raw;
+            String encoding = deflate ? TelemetryArchiver.ENCODING_SEQ_DEFLATE : TelemetryArchiver.ENCODING_SEQ;
+
+            List<Map<String, Object>> decoded = TelemetryArchiver.decodeRows(encoding, data, true);
+            assertEquals(rows.size(), decoded.size());
+            for (int i = 0; i < rows.size(); i++) {
+                assertEquals(rows.get(i).get("id_telemetrii"), decoded.get(i).get("id_telemetrii"), "id " + i);
+                assertEquals(rows.get(i).get("seq"), decoded.get(i).get("seq"), "seq " + i);
+                assertEquals(rows.get(i).get("czas"), decoded.get(i).get("czas"), "czas " + i);
+            }
+
+            // odczyt dla API - bez seq, jak wiersze z telemetria
+            assertFalse(TelemetryArchiver.decodeRows(encoding, data).get(0).containsKey("seq"));
+
+            assertEquals(Set.of(5L, 6L, 1_000_000_000_000L, 2L), TelemetryArchiver.seqsOf(encoding, data));
+        }
+    }
+
+    @Test
+    void recompactionKeepsSeq() {
+        // ponowne kompaktowanie dokleja wiersze dograne po archiwizacji do zdekodowanego bloba
+        List<Map<String, Object>> all = TelemetryArchiver.decodeRows(TelemetryArchiver.ENCODING_SEQ,
+                TelemetryArchiver.encodeRows(List.of(row(1, 0, 10L), row(2, 1000, 11L))), true);
+        all.add(row(3, 2000, 12L));
+
+        byte[] again = TelemetryArchiver.encodeRows(all);
+        assertEquals(Set.of(10L, 11L, 12L), TelemetryArchiver.seqsOf(TelemetryArchiver.ENCODING_SEQ, again));
+    }
+
+    @Test
+    void archiveWithoutSeqChannel() {
+        // blob "dt1" sprzed kanału seq: sam kodek, seq klienta nieznane
+        List<FlightController.TelemetryCreateRequest> points = new ArrayList<>();
+        FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+        p.seq = 42L;
+        p.czas_ms = 1_700_000_000_000L;
+        p.lat = 52.0;
+        p.lon = 21.0;
+        points.add(p);
+        byte[] data = TelemetryBinaryCodec.encode(points);
+
+        List<Map<String, Object>> decoded = TelemetryArchiver.decodeRows(TelemetryArchiver.ENCODING_RAW, data, true);
+        assertEquals(42, decoded.get(0).get("id_telemetrii"));
+        assertTrue(decoded.get(0).containsKey("seq"));
+        assertNull(decoded.get(0).get("seq"));
+        assertTrue(TelemetryArchiver.seqsOf(TelemetryArchiver.ENCODING_RAW, data).isEmpty());
+    }
+
+    private static Map<String, Object> row(int id, long offsetMs, Long seq) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id_telemetrii", id);
+        row.put("czas", TelemetryArchiver.toTimestamp(1_700_000_000_000L + offsetMs));
+        row.put("lat", 52.0 + id * 1e-5);
+        row.put("lon", 21.0 - id * 1e-5);
+        row.put("wysokosc_m", 120.5);
+        row.put("predkosc_m_s", 12.25);
+        row.put("bateria_pro", 80.0);
+        row.put("sila_sygnalu", "dobry");
+        row.put("seq", seq);
+        return row;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.notes;
+
+// Zalecenia TelemetryBackpressure w symulowanym przebiegu: baza zwalnia (czas commitu rośnie do
+// bench.commit-max-ms), potem wraca do normy. Wypisuje obciążenie, interwał i partię co 5 s oraz
+// ile punktów/s i żądań/s wysłałoby bench.klienci klientów próbkujących co bench.probkowanie-ms.
+// Nie wymaga bazy:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.TelemetryBackpressureBenchmark
+public class TelemetryBackpressureBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("bench.klienci", 500);
+    private static final int SAMPLE_MS = Integer.getInteger("bench.probkowanie-ms", 1000);
+    private static final int COMMIT_MAX_MS = Integer.getInteger("bench.commit-max-ms", 800);
+    private static final int DURATION_S = Integer.getInteger("bench.czas-s", 120);
+
+    public static void main(String[] args) {
+        TelemetryBackpressure bp = new TelemetryBackpressure(50, 1000, 1000, 15000, 1, 100);
+        long start = 1_000_000L;
+        double fullRate = CLIENTS * 1000.0 / SAMPLE_MS;
+        System.out.printf("%6s %10s %8s %11s %7s %10s %10s%n",
+                "t [s]", "commit ms", "obciaz.", "interwal ms", "partia", "pkt/s", "zadan/s");
+        for (long t = 0; t <= DURATION_S * 1000L; t += 100) {
+            long now = start + t;
+            double commitMs = commitMs(t);
+            // commit co 100 ms, dopóki klienci cokolwiek wysyłają
+            bp.recordCommit((long) (commitMs * 1e6), now);
+            if (t % 5000 == 0) {
+                TelemetryBackpressure.Hint h = bp.hint(0, now);
+                // klient: najwyżej partia punktów na interwał, ale nie częściej niż własne próbkowanie
+                double perClientPts = Math.min(1000.0 / SAMPLE_MS, h.partiaMax() * 1000.0 / h.interwalMs());
+                double perClientReq = Math.min(1000.0 / SAMPLE_MS, 1000.0 / h.interwalMs());
+                System.out.printf("%6d %10.0f %8.2f %11d %7d %10.0f %10.1f%n", t / 1000, commitMs, h.obciazenie(),
+                        h.interwalMs(), h.partiaMax(), CLIENTS * perClientPts, CLIENTS * perClientReq);
+            }
+        }
+        System.out.printf("bez zalecen: %.0f pkt/s, %.0f zadan/s przez caly czas%n", fullRate, fullRate);
+    }
+
+    // 0-20 s norma, 20-50 s narastanie, 50-80 s przeciążenie, potem powrót
+    private static double commitMs(long t) {
+        double s = t / 1000.0;
+        if (s < 20) return 20;
+        if (s < 50) return 20 + (COMMIT_MAX_MS - 20) * (s - 20) / 30;
+        if (s < 80) return COMMIT_MAX_MS;
+        if (s < 90) return COMMIT_MAX_MS - (COMMIT_MAX_MS - 20) * (s - 80) / 10;
+        return 20;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Telemetria JSON vs format binarny: bajty na punkt, przepustowość dekodowania i alokacje.
+// Nie wymaga bazy:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.TelemetryBinaryCodecBenchmark
+//
+// Wyniki (1 rdzeń, JDK 17, 100k punktów w partiach po 500, trzy przebiegi):
+//   bajty/punkt: json 170.6, binarny 11.4 (15x mniej)
+//   dekodowanie                  punkty/s                alokacja B/punkt
+//   json (Jackson)               398k / 345k / 364k      1357
+//   binarny -> obiekty           10.4M / 2.6M / 10.0M     230
+//   binarny (visitor)            20.1M / 17.1M / 15.2M    0.6
+// Binarny dekoduje 25-50x szybciej niż JSON; 2.6M w drugim przebiegu odstaje, przyczyny nie badano.
+public class TelemetryBinaryCodecBenchmark {
+
+    private static final int BATCH = Integer.getInteger("bench.partia", 500);
+    private static final int BATCHES = Integer.getInteger("bench.partie", 200);
+    private static final int ROUNDS = Integer.getInteger("bench.rundy", 5);
+    private static final TypeReference<List<FlightController.TelemetryCreateRequest>> LIST =
+            new TypeReference<>() {};
+
+    private static double sink;
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        List<byte[]> json = new ArrayList<>();
+        List<byte[]> binary = new ArrayList<>();
+        long t = System.currentTimeMillis();
+        for (int b = 0; b < BATCHES; b++) {
+            List<FlightController.TelemetryCreateRequest> points = generate(b * BATCH, t + b * BATCH * 200L);
+            json.add(mapper.writeValueAsBytes(points));
+            binary.add(TelemetryBinaryCodec.encode(points));
+        }
+        checkRoundTrip(mapper, json.get(0), binary.get(0));
+
+        long points = (long) BATCH * BATCHES;
+        System.out.printf("punkty: %d (partie po %d)%n", points, BATCH);
+        System.out.printf("bajty/punkt  json: %.1f  binarny: %.1f%n",
+                totalBytes(json) / (double) points, totalBytes(binary) / (double) points);
+
+        System.out.printf("%-22s %14s %16s%n", "dekodowanie", "punkty/s", "alokacja B/punkt");
+        for (int r = 0; r < ROUNDS; r++) {
+            boolean last = r == ROUNDS - 1;
+            measure(last, "json (Jackson)", points, () -> {
+                for (byte[] b : json) sink += mapper.readValue(b, LIST).size();
+            });
+            measure(last, "binarny -> obiekty", points, () -> {
+                for (byte[] b : binary) sink += TelemetryBinaryCodec.decodeToRequests(b).size();
+            });
+            measure(last, "binarny (visitor)", points, () -> {
+                for (byte[] b : binary) {
+                    TelemetryBinaryCodec.decode(ByteBuffer.wrap(b),
+                            (seq, czas, lat, lon, alt, speed, battery, signal) -> sink += lat);
+                }
+            });
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private interface Body {
+        void run() throws Exception;
+    }
+
+    private static void measure(boolean print, String name, long points, Body body) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long a0 = threads.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        body.run();
+        long ns = System.nanoTime() - t0;
+        long alloc = threads.getThreadAllocatedBytes(tid) - a0;
+        if (print) {
+            System.out.printf("%-22s %,14.0f %16.1f%n", name, points * 1e9 / ns, alloc / (double) points);
+        }
+    }
+
+    private static void checkRoundTrip(ObjectMapper mapper, byte[] json, byte[] binary) throws Exception {
+        List<FlightController.TelemetryCreateRequest> a = mapper.readValue(json, LIST);
+        List<FlightController.TelemetryCreateRequest> b = TelemetryBinaryCodec.decodeToRequests(binary);
+        if (a.size() != b.size()) throw new IllegalStateException("Różna liczba punktów");
+        for (int i = 0; i < a.size(); i++) {
+            FlightController.TelemetryCreateRequest x = a.get(i);
+            FlightController.TelemetryCreateRequest y = b.get(i);
+            if (Math.abs(x.lat - y.lat) > 1e-7 || Math.abs(x.lon - y.lon) > 1e-7
+                    || Math.abs(x.wysokosc_m - y.wysokosc_m) > 0.05
+                    || !x.czas_ms.equals(y.czas_ms) || !x.seq.equals(y.seq)
+                    || !x.sila_sygnalu.equals(y.sila_sygnalu)) {
+                throw new IllegalStateException("Punkt " + i + " różni się po dekodowaniu");
+            }
+        }
+    }
+
+    private static long totalBytes(List<byte[]> list) {
+        long n = 0;
+        for (byte[] b : list) n += b.length;
+        return n;
+    }
+
+    // Lot ~5 Hz: płynny ruch, powoli rosnąca wysokość i spadająca bateria
+    private static List<FlightController.TelemetryCreateRequest> generate(int seqFrom, long czasFrom) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        List<FlightController.TelemetryCreateRequest> list = new ArrayList<>(BATCH);
+        double lat = 52.2297 + rnd.nextDouble(-0.01, 0.01);
+        double lon = 21.0122 + rnd.nextDouble(-0.01, 0.01);
+        double alt = 50 + rnd.nextDouble(0, 50);
+        for (int i = 0; i < BATCH; i++) {
+            lat += rnd.nextDouble(-0.00002, 0.00002);
+            lon += rnd.nextDouble(-0.00002, 0.00002);
+            alt += rnd.nextDouble(-0.3, 0.3);
+            FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+            p.lat = lat;
+            p.lon = lon;
+            p.wysokosc_m = Math.round(alt * 10) / 10.0;
+            p.czas_ms = czasFrom + i * 200L + rnd.nextInt(-5, 6);
+            p.predkosc_m_s = Math.round(rnd.nextDouble(0, 15) * 100) / 100.0;
+            p.bateria_pro = 100 - (seqFrom + i) / 2000.0;
+            p.sila_sygnalu = (i / 100) % 2 == 0 ? "dobry" : "sredni";
+            p.seq = (long) (seqFrom + i + 1);
+            list.add(p);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.notes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Format wspólny z TelemetryBinaryEncoder w aplikacji mobilnej - ramka wzorcowa pilnuje,
+// że żadna ze stron nie zmieni go po cichu
+class TelemetryBinaryCodecTests {
+
+    // Dwa punkty: pełny z sygnałem "dobry" i drugi z prędkością, baterią i ujemnymi deltami
+    private static final byte[] GOLDEN = {
+            0x44, 0x54, 0x01, 0x02,
+            0x33, (byte) 0xD0, 0x0F, (byte) 0xD0, (byte) 0xFA, (byte) 0x8C, (byte) 0xF2, 0x03,
+            (byte) 0xA0, (byte) 0xD4, (byte) 0xB1, (byte) 0xC8, 0x01, (byte) 0xDA, 0x0F,
+            0x05, 0x64, 0x6F, 0x62, 0x72, 0x79, 0x0E,
+            0x2F, (byte) 0xE8, 0x07, (byte) 0xCF, 0x0F, (byte) 0xD0, 0x0F, 0x1D, (byte) 0xA4, 0x13, (byte) 0xAF, 0x02
+    };
+
+    @Test
+    void encodesGoldenFrame() {
+        assertArrayEquals(GOLDEN, TelemetryBinaryCodec.encode(goldenPoints()));
+    }
+
+    @Test
+    void decodesGoldenFrame() {
+        List<FlightController.TelemetryCreateRequest> points = TelemetryBinaryCodec.decodeToRequests(GOLDEN);
+        assertEquals(2, points.size());
+
+        FlightController.TelemetryCreateRequest a = points.get(0);
+        assertEquals(1000L, a.czas_ms);
+        assertEquals(52.2297, a.lat, 1e-9);
+        assertEquals(21.0122, a.lon, 1e-9);
+        assertEquals(100.5, a.wysokosc_m, 1e-9);
+        assertNull(a.predkosc_m_s);
+        assertNull(a.bateria_pro);
+        assertEquals("dobry", a.sila_sygnalu);
+        assertEquals(7L, a.seq);
+
+        FlightController.TelemetryCreateRequest b = points.get(1);
+        assertEquals(1500L, b.czas_ms);
+        assertEquals(52.2296, b.lat, 1e-9);
+        assertEquals(21.0123, b.lon, 1e-9);
+        assertEquals(99.0, b.wysokosc_m, 1e-9);
+        assertEquals(12.34, b.predkosc_m_s, 1e-9);
+        assertEquals(87.5, b.bateria_pro, 1e-9);
+        // sygnał bez zmiany nie jest powtarzany w ramce, ale wraca przy dekodowaniu
+        assertEquals("dobry", b.sila_sygnalu);
+        assertEquals(8L, b.seq);
+    }
+
+    @Test
+    void roundTripKeepsNullsAndSignalChanges() {
+        List<FlightController.TelemetryCreateRequest> in = List.of(
+                point(null, -33.8688, 151.2093, null, null, null, "słaby", null),
+                point(5_000L, -33.8687, 151.2092, -12.3, 0.0, 0.0, null, 100L),
+                point(4_000L, -33.8689, 151.2094, 8848.8, -1.5, 127.5, "średni", 99L),
+                point(4_000L, 89.9999999, -179.9999999, null, null, null, "średni", 101L));
+
+        List<FlightController.TelemetryCreateRequest> out =
+                TelemetryBinaryCodec.decodeToRequests(TelemetryBinaryCodec.encode(in));
+
+        assertEquals(in.size(), out.size());
+        for (int i = 0; i < in.size(); i++) {
+            FlightController.TelemetryCreateRequest e = in.get(i);
+            FlightController.TelemetryCreateRequest a = out.get(i);
+            assertEquals(e.czas_ms, a.czas_ms, "czas_ms " + i);
+            assertEquals(e.lat, a.lat, 1e-7, "lat " + i);
+            assertEquals(e.lon, a.lon, 1e-7, "lon " + i);
+            assertNullableEquals(e.wysokosc_m, a.wysokosc_m, 0.05, "wysokosc_m " + i);
+            assertNullableEquals(e.predkosc_m_s, a.predkosc_m_s, 0.005, "predkosc_m_s " + i);
+            assertNullableEquals(e.bateria_pro, a.bateria_pro, 0.25, "bateria_pro " + i);
+            assertEquals(e.sila_sygnalu, a.sila_sygnalu, "sila_sygnalu " + i);
+            assertEquals(e.seq, a.seq, "seq " + i);
+        }
+    }
+
+    @Test
+    void roundsToFormatResolution() {
+        List<FlightController.TelemetryCreateRequest> out = TelemetryBinaryCodec.decodeToRequests(
+                TelemetryBinaryCodec.encode(List.of(point(0L, 1.23456785, -1.23456785, 10.25, 3.14159, 200.0, null, 1L))));
+
+        FlightController.TelemetryCreateRequest p = out.get(0);
+        assertEquals(1.2345679, p.lat, 1e-12);
+        assertEquals(-1.2345678, p.lon, 1e-12);
+        assertEquals(10.3, p.wysokosc_m, 1e-12);
+        assertEquals(3.14, p.predkosc_m_s, 1e-12);
+        // bateria ponad zakres bajtu jest przycinana
+        assertEquals(127.5, p.bateria_pro, 1e-12);
+    }
+
+    @Test
+    void emptyBatch() {
+        byte[] frame = TelemetryBinaryCodec.encode(List.of());
+        assertArrayEquals(new byte[]{0x44, 0x54, 0x01, 0x00}, frame);
+        assertTrue(TelemetryBinaryCodec.decodeToRequests(frame).isEmpty());
+    }
+
+    @Test
+    void rejectsEveryTruncatedPrefix() {
+        for (int len = 0; len < GOLDEN.length; len++) {
+            byte[] cut = Arrays.copyOf(GOLDEN, len);
+            assertThrows(IllegalArgumentException.class, () -> TelemetryBinaryCodec.decodeToRequests(cut),
+                    "ucięte do " + len + " B");
+        }
+    }
+
+    @Test
+    void rejectsOtherVersion() {
+        byte[] frame = GOLDEN.clone();
+        frame[2] = 2;
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TelemetryBinaryCodec.decodeToRequests(frame));
+        assertTrue(e.getMessage().contains("wersja"), e.getMessage());
+    }
+
+    @Test
+    void rejectsBadMagic() {
+        byte[] frame = GOLDEN.clone();
+        frame[0] = '{';
+        assertThrows(IllegalArgumentException.class, () -> TelemetryBinaryCodec.decodeToRequests(frame));
+    }
+
+    private static List<FlightController.TelemetryCreateRequest> goldenPoints() {
+        return List.of(
+                point(1000L, 52.2297, 21.0122, 100.5, null, null, "dobry", 7L),
+                point(1500L, 52.2296, 21.0123, 99.0, 12.34, 87.5, "dobry", 8L));
+    }
+
+    private static FlightController.TelemetryCreateRequest point(Long czasMs, double lat, double lon, Double alt,
+                                                                 Double speed, Double battery, String signal, Long seq) {
+        FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+        p.czas_ms = czasMs;
+        p.lat = lat;
+        p.lon = lon;
+        p.wysokosc_m = alt;
+        p.predkosc_m_s = speed;
+        p.bateria_pro = battery;
+        p.sila_sygnalu = signal;
+        p.seq = seq;
+        return p;
+    }
+
+    private static void assertNullableEquals(Double expected, Double actual, double delta, String message) {
+        if (expected == null) {
+            assertNull(actual, message);
+        } else {
+            assertEquals(expected, actual, delta, message);
+        }
+    }
+}
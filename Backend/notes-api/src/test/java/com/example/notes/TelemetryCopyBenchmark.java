@@ -0,0 +1,114 @@
+package com.example.notes;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Przepustowość zapisu telemetrii: batch INSERT vs COPY (punkty/s) dla 10k, 100k i 1M punktów.
+// Wymaga bazy z PostGIS, np.:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.TelemetryCopyBenchmark \
+//       -Dbench.url=jdbc:postgresql://localhost:5432/Drony -Dbench.user=appuser -Dbench.password=appsecret
+// Benchmark tworzy własny lot testowy i usuwa go razem z telemetrią na końcu.
+//
+// Wyniki (PostgreSQL 16, 1 rdzeń, shared_buffers 256 MB, -Dbench.batchMax=1000000, jako postgres,
+// dwa przebiegi; zamiast PostGIS zaślepka geography na typie point), punkty/s:
+//   punkty      batch            copy
+//   10k         10.8k / 12.6k    14.6k / 23.1k
+//   100k        23.9k / 29.5k    27.5k / 29.7k
+//   1M          27.2k / 30.1k    30.3k / 32.5k
+// COPY wyraźnie wygrywa tylko przy 10k; od 100k różnica spada do kilku procent, oba dochodzą
+// do ok. 30k punktów/s (gdzie idzie czas - zapis do telemetria czy transfer - nie profilowano).
+public class TelemetryCopyBenchmark {
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    // Batch INSERT dla 1M punktów trwa długo, domyślnie mierzymy go do 100k
+    private static final int BATCH_MAX = Integer.getInteger("bench.batchMax", 100_000);
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/Drony");
+        if (!url.contains("reWriteBatchedInserts")) {
+            url += (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+        }
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                url,
+                System.getProperty("bench.user", "appuser"),
+                System.getProperty("bench.password", "appsecret")
+        );
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+        TelemetryBatchWriter batchWriter = new TelemetryBatchWriter(jdbc);
+
+        Integer idLotu = jdbc.queryForObject("""
+            INSERT INTO public.lot (czas_startu, status)
+            VALUES (now()::timestamp, 'Rozpoczęty')
+            RETURNING id_lotu
+        """, Integer.class);
+
+        try {
+            System.out.printf("%-10s %-8s %12s %14s%n", "punkty", "metoda", "czas_ms", "punkty/s");
+            for (int n : SIZES) {
+                List<FlightController.TelemetryCreateRequest> points = generate(n);
+
+                if (n <= BATCH_MAX) {
+                    long t0 = System.nanoTime();
+                    tx.executeWithoutResult(s -> batchWriter.write(idLotu, points));
+                    report(n, "batch", System.nanoTime() - t0);
+                    clear(jdbc, idLotu);
+                }
+
+                long t0 = System.nanoTime();
+                tx.executeWithoutResult(s -> {
+                    try {
+                        TelemetryCopyLoader.load(DataSourceUtils.getConnection(ds), idLotu, points);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                report(n, "copy", System.nanoTime() - t0);
+                clear(jdbc, idLotu);
+            }
+        } finally {
+            clear(jdbc, idLotu);
+            jdbc.update("DELETE FROM public.lot WHERE id_lotu = ?", idLotu);
+        }
+    }
+
+    private static List<FlightController.TelemetryCreateRequest> generate(int n) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        List<FlightController.TelemetryCreateRequest> list = new ArrayList<>(n);
+        long t = System.currentTimeMillis() - n * 100L;
+        double lat = 50.06;
+        double lon = 19.94;
+        for (int i = 0; i < n; i++) {
+            FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+            lat += (rnd.nextDouble() - 0.5) * 1e-5;
+            lon += (rnd.nextDouble() - 0.5) * 1e-5;
+            p.lat = lat;
+            p.lon = lon;
+            p.wysokosc_m = 40 + rnd.nextDouble() * 5;
+            p.predkosc_m_s = rnd.nextDouble() * 10;
+            p.bateria_pro = 100.0 - i * 80.0 / n;
+            p.sila_sygnalu = "dobry";
+            p.czas_ms = t + i * 100L;
+            list.add(p);
+        }
+        return list;
+    }
+
+    private static void clear(JdbcTemplate jdbc, int idLotu) {
+        jdbc.update("DELETE FROM public.telemetria WHERE id_lotu = ?", idLotu);
+    }
+
+    private static void report(int n, String method, long nanos) {
+        double ms = nanos / 1e6;
+        System.out.printf(Locale.ROOT, "%-10d %-8s %12.1f %14.0f%n", n, method, ms, n / (ms / 1000.0));
+    }
+}
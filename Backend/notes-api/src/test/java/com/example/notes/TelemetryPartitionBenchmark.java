@@ -0,0 +1,183 @@
+package com.example.notes;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Telemetria: jedna tabela vs partycje miesięczne przy 10M+ wierszy.
+// Mierzy opóźnienie zapisu partii (500 punktów) i odczytu śladu jednego lotu (p50/p99).
+// Tabele powstają we własnym schemacie bench_partycje (potrzebne prawo CREATE w bazie), np.:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.TelemetryPartitionBenchmark \
+//       -Dbench.url=jdbc:postgresql://localhost:5432/Drony -Dbench.user=postgres -Dbench.password=... \
+//       -Dbench.wiersze=10000000
+//
+// Wyniki (PostgreSQL 16, 1 rdzeń, shared_buffers 256 MB, 10M wierszy, dwa przebiegi;
+// zamiast PostGIS zaślepka geography na typie point):
+//   pomiar                          p50_ms        p99_ms
+//   telemetria_plaska zapis 500     71.7 / 70.1   144 / 213
+//   telemetria_part zapis 500       46.1 / 55.0   175 / 215
+//   telemetria_plaska odczyt lotu   23.2 / 19.4   111 /  79
+//   telemetria_part odczyt lotu     22.8 / 23.1    80 /  66
+// Zapis do bieżącej partycji jest szybszy (mniejszy indeks), odczyt lotu bez zmian - zysk z partycji
+// to głównie zapis i odłączanie starych miesięcy, nie szybszy odczyt śladu.
+public class TelemetryPartitionBenchmark {
+
+    private static final long ROWS = Long.getLong("bench.wiersze", 10_000_000L);
+    private static final int FLIGHTS = Integer.getInteger("bench.loty", 2000);
+    private static final int MONTHS = 12;
+    private static final int BATCH = 500;
+    private static final int INGEST_BATCHES = Integer.getInteger("bench.partie", 200);
+    private static final int READS = Integer.getInteger("bench.odczyty", 300);
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) {
+        String url = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/Drony");
+        if (!url.contains("reWriteBatchedInserts")) {
+            url += (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+        }
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                url,
+                System.getProperty("bench.user", "postgres"),
+                System.getProperty("bench.password", "")
+        );
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+        try {
+            setup(jdbc);
+            System.out.printf("wiersze: %d, loty: %d, partycje: %d%n", ROWS, FLIGHTS, MONTHS);
+            System.out.printf("%-24s %10s %10s%n", "pomiar", "p50_ms", "p99_ms");
+            for (String table : new String[]{"telemetria_plaska", "telemetria_part"}) {
+                ingest(jdbc, table);
+                read(jdbc, table);
+            }
+        } finally {
+            if (!Boolean.getBoolean("bench.zostaw")) {
+                jdbc.execute("DROP SCHEMA IF EXISTS bench_partycje CASCADE");
+            }
+        }
+    }
+
+    private static void setup(JdbcTemplate jdbc) {
+        jdbc.execute("DROP SCHEMA IF EXISTS bench_partycje CASCADE");
+        jdbc.execute("CREATE SCHEMA bench_partycje");
+        // typ współrzędnych jak w public.telemetria (geography(Point,4326) z PostGIS)
+        String pointType = jdbc.queryForObject("""
+            SELECT format_type(atttypid, atttypmod) FROM pg_attribute
+            WHERE attrelid = 'public.telemetria'::regclass AND attname = 'wspolrzedne'
+            """, String.class);
+        String columns = """
+            id_telemetrii bigint NOT NULL,
+            id_lotu       integer,
+            czas          timestamp without time zone NOT NULL,
+            wspolrzedne   %s,
+            wysokosc_m    numeric,
+            predkosc_m_s  numeric,
+            bateria_pro   numeric,
+            sila_sygnalu  text
+            """.formatted(pointType);
+        jdbc.execute("CREATE SEQUENCE bench_partycje.id_seq");
+        jdbc.execute("CREATE TABLE bench_partycje.telemetria_plaska (" + columns + ", PRIMARY KEY (id_telemetrii))");
+        jdbc.execute("CREATE TABLE bench_partycje.telemetria_part (" + columns
+                + ", PRIMARY KEY (id_telemetrii, czas)) PARTITION BY RANGE (czas)");
+        for (int m = 0; m <= MONTHS; m++) {
+            LocalDateTime from = START.plusMonths(m);
+            jdbc.execute(String.format(
+                    "CREATE TABLE bench_partycje.telemetria_part_%02d PARTITION OF bench_partycje.telemetria_part "
+                            + "FOR VALUES FROM ('%s') TO ('%s')", m, from, from.plusMonths(1)));
+        }
+        jdbc.execute("""
+            CREATE TABLE bench_partycje.telemetria_zakres (
+                id_lotu integer PRIMARY KEY, czas_min timestamp NOT NULL, czas_max timestamp NOT NULL)
+            """);
+
+        // Każdy lot to ciągły ślad co 1 s, starty rozłożone na cały rok
+        long perFlight = ROWS / FLIGHTS;
+        long t0 = System.nanoTime();
+        jdbc.execute(String.format(Locale.ROOT, """
+            INSERT INTO bench_partycje.telemetria_plaska
+            SELECT g, (g / %1$d)::int + 1,
+                   timestamp '%2$s' + ((g / %1$d) * interval '%3$d seconds') + ((g %% %1$d) * interval '1 second'),
+                   ST_SetSRID(ST_MakePoint(19.9 + random() * 0.1, 50.0 + random() * 0.1), 4326)::geography,
+                   40 + random() * 10, random() * 15, 100 - (g %% %1$d) * 80.0 / %1$d, 'dobry'
+            FROM generate_series(0, %4$d - 1) g
+            """, perFlight, START, (MONTHS * 30L * 86400L) / FLIGHTS, perFlight * FLIGHTS));
+        jdbc.execute("INSERT INTO bench_partycje.telemetria_part SELECT * FROM bench_partycje.telemetria_plaska");
+        jdbc.execute("""
+            INSERT INTO bench_partycje.telemetria_zakres
+            SELECT id_lotu, min(czas), max(czas) FROM bench_partycje.telemetria_plaska GROUP BY id_lotu
+            """);
+        jdbc.execute("CREATE INDEX ON bench_partycje.telemetria_plaska (id_lotu, czas, id_telemetrii)");
+        jdbc.execute("CREATE INDEX ON bench_partycje.telemetria_part (id_lotu, czas, id_telemetrii)");
+        jdbc.execute("SELECT setval('bench_partycje.id_seq', " + (perFlight * FLIGHTS) + ")");
+        jdbc.execute("ANALYZE bench_partycje.telemetria_plaska");
+        jdbc.execute("ANALYZE bench_partycje.telemetria_part");
+        System.out.printf(Locale.ROOT, "przygotowanie: %.1f s%n", (System.nanoTime() - t0) / 1e9);
+    }
+
+    // Partie jak z ingestu na żywo: bieżący miesiąc (ostatnia partycja), jeden lot
+    private static void ingest(JdbcTemplate jdbc, String table) {
+        String sql = "INSERT INTO bench_partycje." + table + """
+             (id_telemetrii, id_lotu, czas, wspolrzedne, wysokosc_m, predkosc_m_s, bateria_pro, sila_sygnalu)
+            VALUES (nextval('bench_partycje.id_seq'), ?, ?, ST_SetSRID(ST_MakePoint(?, ?),4326)::geography, ?, ?, ?, 'dobry')
+            """;
+        long[] ns = new long[INGEST_BATCHES];
+        LocalDateTime t = START.plusMonths(MONTHS).plusDays(1);
+        for (int b = 0; b < INGEST_BATCHES; b++) {
+            LocalDateTime batchStart = t.plusSeconds((long) b * BATCH);
+            long t0 = System.nanoTime();
+            jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    ps.setInt(1, FLIGHTS + 1);
+                    ps.setTimestamp(2, Timestamp.valueOf(batchStart.plusSeconds(i)));
+                    ps.setDouble(3, 19.9 + rnd.nextDouble() * 0.1);
+                    ps.setDouble(4, 50.0 + rnd.nextDouble() * 0.1);
+                    ps.setDouble(5, 40);
+                    ps.setDouble(6, 5);
+                    ps.setDouble(7, 80);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return BATCH;
+                }
+            });
+            ns[b] = System.nanoTime() - t0;
+        }
+        report(table + " zapis 500", ns);
+    }
+
+    private static void read(JdbcTemplate jdbc, String table) {
+        boolean partitioned = table.equals("telemetria_part");
+        String sql = "SELECT tm.id_telemetrii, tm.czas, ST_Y(tm.wspolrzedne::geometry), ST_X(tm.wspolrzedne::geometry), "
+                + "tm.wysokosc_m FROM bench_partycje." + table + " tm WHERE tm.id_lotu = ? "
+                + (partitioned ? TelemetryPartitionManager.FLIGHT_WINDOW_SQL.replace("public.", "bench_partycje.") : "")
+                + " ORDER BY tm.czas, tm.id_telemetrii";
+        long[] ns = new long[READS];
+        for (int i = 0; i < READS; i++) {
+            int id = ThreadLocalRandom.current().nextInt(1, FLIGHTS + 1);
+            Object[] params = partitioned ? new Object[]{id, id, id} : new Object[]{id};
+            long t0 = System.nanoTime();
+            jdbc.query(sql, rs -> { }, params);
+            ns[i] = System.nanoTime() - t0;
+        }
+        report(table + " odczyt lotu", ns);
+    }
+
+    private static void report(String name, long[] ns) {
+        long[] sorted = ns.clone();
+        Arrays.sort(sorted);
+        System.out.printf(Locale.ROOT, "%-24s %10.2f %10.2f%n", name,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+}
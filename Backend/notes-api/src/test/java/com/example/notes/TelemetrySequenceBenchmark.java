@@ -0,0 +1,87 @@
+package com.example.notes;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Deduplikacja telemetrii po seq (TelemetrySequenceFilter.Window): ns na punkt dla strumienia
+// z ponowieniami i punktami nie po kolei, porównanie z HashSet wszystkich seq lotu. Nie wymaga bazy:
+//   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+//       -Dexec.mainClass=com.example.notes.TelemetrySequenceBenchmark
+public class TelemetrySequenceBenchmark {
+
+    private static final int POINTS = Integer.getInteger("bench.punkty", 2_000_000);
+    private static final int WINDOW = Integer.getInteger("bench.okno", 1024);
+    // co który punkt to ponowienie jednej z ostatnich partii
+    private static final int RETRY_EVERY = Integer.getInteger("bench.ponowienie-co", 20);
+    private static final int ROUNDS = Integer.getInteger("bench.rundy", 5);
+
+    public static void main(String[] args) {
+        long[] stream = stream();
+        int expected = check(stream);
+        System.out.printf("punkty: %d, duplikaty: %d, okno: %d%n",
+                stream.length, stream.length - expected, TelemetrySequenceFilter.windowSizeFor(WINDOW));
+
+        for (int r = 0; r < ROUNDS; r++) {
+            boolean last = r == ROUNDS - 1;
+
+            long t0 = System.nanoTime();
+            TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(TelemetrySequenceFilter.windowSizeFor(WINDOW));
+            int fresh = 0;
+            for (long seq : stream) {
+                synchronized (w) {
+                    if (w.mark(seq) == TelemetrySequenceFilter.Window.NEW) fresh++;
+                }
+            }
+            long windowNs = System.nanoTime() - t0;
+
+            t0 = System.nanoTime();
+            Set<Long> seen = new HashSet<>();
+            int freshSet = 0;
+            for (long seq : stream) {
+                if (seen.add(seq)) freshSet++;
+            }
+            long setNs = System.nanoTime() - t0;
+
+            if (fresh != expected || freshSet != expected) {
+                throw new IllegalStateException("Okno: " + fresh + ", HashSet: " + freshSet + ", oczekiwano " + expected);
+            }
+            if (last) {
+                System.out.printf("okno + bitmapa: %6.1f ns/pkt, pamiec %,d B na lot%n",
+                        (double) windowNs / stream.length, TelemetrySequenceFilter.windowSizeFor(WINDOW) / 8 + 48);
+                System.out.printf("HashSet<Long>:  %6.1f ns/pkt, pamiec ~%,d B na lot%n",
+                        (double) setNs / stream.length, (long) seen.size() * 64);
+            }
+        }
+    }
+
+    // Rosnące seq partiami po 10; co RETRY_EVERY punktów ponowienie partii sprzed 1-5 partii,
+    // a czasem zamiana sąsiednich punktów (kolejność po drodze)
+    private static long[] stream() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        long[] out = new long[POINTS];
+        long next = 1;
+        int i = 0;
+        while (i < POINTS) {
+            if (next > 60 && rnd.nextInt(RETRY_EVERY) == 0) {
+                long from = next - 10L * rnd.nextInt(1, 6);
+                for (int k = 0; k < 10 && i < POINTS; k++) out[i++] = from + k;
+                continue;
+            }
+            for (int k = 0; k < 10 && i < POINTS; k++) out[i++] = next++;
+            if (i >= 2 && rnd.nextInt(50) == 0) {
+                long t = out[i - 1];
+                out[i - 1] = out[i - 2];
+                out[i - 2] = t;
+            }
+        }
+        return out;
+    }
+
+    private static int check(long[] stream) {
+        Set<Long> seen = new HashSet<>();
+        int n = 0;
+        for (long seq : stream) if (seen.add(seq)) n++;
+        return n;
+    }
+}
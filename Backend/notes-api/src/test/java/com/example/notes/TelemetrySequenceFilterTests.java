@@ -0,0 +1,179 @@
+package com.example.notes;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.notes.TelemetrySequenceFilter.Window.DUPLICATE;
+import static com.example.notes.TelemetrySequenceFilter.Window.NEW;
+import static com.example.notes.TelemetrySequenceFilter.Window.TOO_OLD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TelemetrySequenceFilterTests {
+
+    @Test
+    void inOrderAndRepeated() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(64);
+        for (long s = 1; s <= 200; s++) assertEquals(NEW, w.mark(s), "seq " + s);
+        assertEquals(DUPLICATE, w.mark(200));
+        assertEquals(DUPLICATE, w.mark(150));
+        assertEquals(DUPLICATE, w.mark(137));
+    }
+
+    @Test
+    void outOfOrderInsideWindow() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(64);
+        assertEquals(NEW, w.mark(10));
+        assertEquals(NEW, w.mark(5));
+        assertEquals(DUPLICATE, w.mark(5));
+        assertEquals(NEW, w.mark(7));
+        assertEquals(NEW, w.mark(12));
+        // 11 przeskoczony przy przejściu z 10 na 12 - dalej wolny
+        assertEquals(NEW, w.mark(11));
+        assertEquals(DUPLICATE, w.mark(11));
+        assertEquals(DUPLICATE, w.mark(10));
+        assertEquals(NEW, w.mark(6));
+    }
+
+    @Test
+    void olderThanWindow() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(64);
+        assertEquals(NEW, w.mark(100));
+        // okno to highest - 63 .. highest
+        assertEquals(NEW, w.mark(37));
+        assertEquals(TOO_OLD, w.mark(36));
+        assertEquals(TOO_OLD, w.mark(0));
+    }
+
+    @Test
+    void advancingReusesSlotsOfDroppedSeqs() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(64);
+        for (long s = 0; s < 64; s++) w.mark(s);
+        // 64 zajmuje bit po 0; 1..63 nadal w oknie
+        assertEquals(NEW, w.mark(64));
+        assertEquals(TOO_OLD, w.mark(0));
+        assertEquals(DUPLICATE, w.mark(1));
+        // skok do 70 czyści bity 65..69, które należały do 1..5
+        assertEquals(NEW, w.mark(70));
+        assertEquals(TOO_OLD, w.mark(6));
+        assertEquals(DUPLICATE, w.mark(7));
+        assertEquals(NEW, w.mark(66));
+        assertEquals(DUPLICATE, w.mark(64));
+    }
+
+    @Test
+    void jumpFurtherThanWindowClearsEverything() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(64);
+        for (long s = 0; s < 64; s++) w.mark(s);
+        assertEquals(NEW, w.mark(1000));
+        // wszystkie bity po 0..63 wyczyszczone - nic z nowego okna nie jest duplikatem
+        for (long s = 937; s < 1000; s++) assertEquals(NEW, w.mark(s), "seq " + s);
+        assertEquals(TOO_OLD, w.mark(936));
+        assertEquals(TOO_OLD, w.mark(63));
+    }
+
+    @Test
+    void jumpOfExactlyWindowSize() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(64);
+        w.mark(5);
+        assertEquals(NEW, w.mark(69));
+        assertEquals(TOO_OLD, w.mark(5));
+        // bit po 5 należy teraz do 69, a 6..68 są wolne
+        assertEquals(NEW, w.mark(6));
+        assertEquals(NEW, w.mark(68));
+        assertEquals(DUPLICATE, w.mark(69));
+    }
+
+    @Test
+    void forgetAllowsRetry() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(64);
+        w.mark(5);
+        w.mark(6);
+        w.forget(5);
+        w.forget(6);
+        assertEquals(NEW, w.mark(5));
+        // najwyższy seq nie jest cofany, ale jego bit tak
+        assertEquals(NEW, w.mark(6));
+        assertEquals(DUPLICATE, w.mark(6));
+    }
+
+    @Test
+    void forgetOutsideWindowIsIgnored() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(64);
+        // na pustym oknie nic nie robi
+        w.forget(3);
+        assertEquals(NEW, w.mark(3));
+
+        for (long s = 90; s <= 100; s++) w.mark(s);
+        // 30 jest poza oknem; jego bit należy do 94 i nie może zostać wyczyszczony
+        w.forget(30);
+        assertEquals(DUPLICATE, w.mark(94));
+        // seq powyżej najwyższego - też bez zmian (164 ma ten sam bit co 100)
+        w.forget(164);
+        assertEquals(DUPLICATE, w.mark(100));
+    }
+
+    @Test
+    void largerWindowUsesSeveralWords() {
+        TelemetrySequenceFilter.Window w = new TelemetrySequenceFilter.Window(1024);
+        for (long s = 0; s < 3000; s += 3) w.mark(s);
+        assertEquals(DUPLICATE, w.mark(2997));
+        assertEquals(DUPLICATE, w.mark(1977));
+        assertEquals(NEW, w.mark(1978));
+        assertEquals(TOO_OLD, w.mark(1972));
+    }
+
+    @Test
+    void windowSizeIsPowerOfTwoAtLeast64() {
+        assertEquals(64, TelemetrySequenceFilter.windowSizeFor(0));
+        assertEquals(64, TelemetrySequenceFilter.windowSizeFor(10));
+        assertEquals(64, TelemetrySequenceFilter.windowSizeFor(64));
+        assertEquals(128, TelemetrySequenceFilter.windowSizeFor(65));
+        assertEquals(1024, TelemetrySequenceFilter.windowSizeFor(1024));
+        assertEquals(2048, TelemetrySequenceFilter.windowSizeFor(1025));
+    }
+
+    @Test
+    void admitDropsDuplicatesAndAsksDatabaseOnlyForOldSeqs() {
+        List<Object[]> queries = new ArrayList<>();
+        JdbcTemplate jdbc = new JdbcTemplate() {
+            @Override
+            public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+                queries.add(args);
+                // w bazie jest tylko seq 1
+                return requiredType.cast(Long.valueOf(1).equals(args[1]));
+            }
+        };
+        TelemetrySequenceFilter filter = new TelemetrySequenceFilter(jdbc, null, 64);
+        filter.flightStarted(7);
+
+        List<FlightController.TelemetryCreateRequest> first = List.of(point(100L), point(101L), point(null));
+        assertSame(first, filter.admit(7, first));
+
+        List<FlightController.TelemetryCreateRequest> retry =
+                List.of(point(101L), point(102L), point(100L), point(null), point(102L));
+        List<FlightController.TelemetryCreateRequest> fresh = filter.admit(7, retry);
+        assertEquals(List.of(retry.get(1), retry.get(3)), fresh);
+        assertEquals(0, queries.size());
+
+        // poza oknem: 1 jest w bazie (duplikat), 2 nie
+        assertEquals(false, filter.admit(7, point(1L)));
+        assertEquals(true, filter.admit(7, point(2L)));
+        assertEquals(2, queries.size());
+
+        // nieudany zapis - ponowienie przechodzi
+        filter.forget(7, List.of(retry.get(1)));
+        assertEquals(true, filter.admit(7, point(102L)));
+    }
+
+    private static FlightController.TelemetryCreateRequest point(Long seq) {
+        FlightController.TelemetryCreateRequest p = new FlightController.TelemetryCreateRequest();
+        p.lat = 52.0;
+        p.lon = 21.0;
+        p.seq = seq;
+        return p;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.notes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Upload NDJSON bez bazy: zapis partii i postęp podmienione na listy w pamięci
+class TelemetryStreamUploaderTests {
+
+    private final List<Long> written = new ArrayList<>();
+    private Long savedSeq;
+
+    private final TelemetryCopyLoader loader = new TelemetryCopyLoader(null, null) {
+        @Override
+        public int load(int idLotu, Iterable<FlightController.TelemetryCreateRequest> points) {
+            int n = 0;
+            for (FlightController.TelemetryCreateRequest p : points) {
+                written.add(p.seq);
+                n++;
+            }
+            return n;
+        }
+    };
+
+    private final TelemetryUploadProgress progress = new TelemetryUploadProgress(null) {
+        @Override
+        public Long lastSeq(int idLotu) {
+            return savedSeq;
+        }
+
+        @Override
+        public void save(int idLotu, long seq) {
+            savedSeq = savedSeq == null ? seq : Math.max(savedSeq, seq);
+        }
+    };
+
+    private final PlatformTransactionManager tx = new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    };
+
+    private final TelemetryStreamUploader uploader = new TelemetryStreamUploader(new ObjectMapper(), loader, progress, tx, 2);
+
+    @Test
+    void resumeSkipsCommittedPrefix() {
+        TelemetryStreamUploader.StreamResult first = uploader.upload(7, ndjson(1, 2, 3, 4, 5));
+        assertNull(first.error());
+        assertEquals(5, first.accepted());
+        assertEquals(5L, first.lastSeq());
+
+        // ponowny upload całości - nic nie dochodzi drugi raz
+        TelemetryStreamUploader.StreamResult again = uploader.upload(7, ndjson(1, 2, 3, 4, 5, 6));
+        assertNull(again.error());
+        assertEquals(1, again.accepted());
+        assertEquals(5, again.skipped());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), written);
+    }
+
+    @Test
+    void nonIncreasingSeqIsRejected() {
+        // partia (1, 2) zapisana, 4 czeka w bieżącej partii, 3 po 4 przerywa upload
+        TelemetryStreamUploader.StreamResult r = uploader.upload(7, ndjson(1, 2, 4, 3, 5));
+        assertTrue(r.badInput());
+        assertTrue(r.error().contains("seq"), r.error());
+        assertEquals(2, r.accepted());
+        assertEquals(2L, r.lastSeq());
+        assertEquals(List.of(1L, 2L), written);
+
+        // wznowienie od ostatni_seq z poprawioną kolejnością zapisuje resztę, bez utraty 3
+        TelemetryStreamUploader.StreamResult resumed = uploader.upload(7, ndjson(3, 4, 5));
+        assertNull(resumed.error());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), written);
+    }
+
+    @Test
+    void repeatedSeqIsRejected() {
+        TelemetryStreamUploader.StreamResult r = uploader.upload(7, ndjson(1, 1));
+        assertTrue(r.badInput());
+        assertEquals(0, r.accepted());
+    }
+
+    private static ByteArrayInputStream ndjson(long... seqs) {
+        StringBuilder sb = new StringBuilder();
+        for (long s : seqs) {
+            sb.append("{\"lat\":52.0,\"lon\":21.0,\"czas_ms\":").append(1_700_000_000_000L + s * 1000)
+              .append(",\"seq\":").append(s).append("}\n");
+        }
+        return new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.notes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class TrackSimplifierTests {
+
+    // Metry na stopień przy równiku (ten sam promień co TrackSimplifier)
+    private static final double M_PER_DEG = Math.toRadians(1) * 6_371_008.8;
+
+    // Ślad "L": 5 odcinków po 100 m na wschód, potem 5 na północ; narożnik ma indeks 5
+    private static final double[][] CORNER = {
+            {0, 0}, {100, 0}, {200, 0}, {300, 0}, {400, 0},
+            {500, 0}, {500, 100}, {500, 200}, {500, 300}, {500, 400}, {500, 500}
+    };
+
+    @Test
+    void shortTrackIsKeptWhole() {
+        assertArrayEquals(new int[]{0, 1}, simplify(new double[][]{{0, 0}, {10, 10}}, 100.0, 1, null));
+    }
+
+    @Test
+    void douglasPeuckerKeepsCornerOnly() {
+        assertArrayEquals(new int[]{0, 5, 10}, simplify(CORNER, 10.0, null, null));
+    }
+
+    @Test
+    void douglasPeuckerDropsCornerBelowTolerance() {
+        // narożnik jest ~354 m od cięciwy
+        assertArrayEquals(new int[]{0, 5, 10}, simplify(CORNER, 350.0, null, null));
+        assertArrayEquals(new int[]{0, 10}, simplify(CORNER, 360.0, null, null));
+    }
+
+    @Test
+    void douglasPeuckerKeepsSmallDeviationAboveTolerance() {
+        double[][] track = {{0, 0}, {100, 0}, {200, 3}, {300, 0}, {400, 0}};
+        assertArrayEquals(new int[]{0, 2, 4}, simplify(track, 2.0, null, null));
+        assertArrayEquals(new int[]{0, 4}, simplify(track, 5.0, null, null));
+    }
+
+    @Test
+    void mandatoryPointsSplitTheTrack() {
+        boolean[] keep = new boolean[CORNER.length];
+        keep[2] = true;
+        keep[8] = true;
+        assertArrayEquals(new int[]{0, 2, 5, 8, 10}, simplify(CORNER, 10.0, null, keep));
+    }
+
+    @Test
+    void visvalingamKeepsLargestTriangles() {
+        assertArrayEquals(new int[]{0, 5, 10}, simplify(CORNER, null, 3, null));
+        assertArrayEquals(new int[]{0, 10}, simplify(CORNER, null, 2, null));
+    }
+
+    @Test
+    void visvalingamDoesNothingUnderLimit() {
+        int[] all = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertArrayEquals(all, simplify(CORNER, null, 11, null));
+        assertArrayEquals(all, simplify(CORNER, null, 100, null));
+    }
+
+    @Test
+    void mandatoryPointsMayExceedLimit() {
+        boolean[] keep = new boolean[CORNER.length];
+        keep[3] = true;
+        keep[7] = true;
+        assertArrayEquals(new int[]{0, 3, 7, 10}, simplify(CORNER, null, 2, keep));
+    }
+
+    @Test
+    void toleranceThenLimit() {
+        // Zygzak o malejącej amplitudzie: tolerancja 5 m usuwa najmniejsze wychylenie (5), limit -
+        // punkty o najmniejszych trójkątach: 3 (1500 m²), potem 4 (pole 0, podniesione do 1500)
+        double[][] track = {{0, 0}, {100, 40}, {200, 0}, {300, 15}, {400, 0}, {500, 3}, {650, 0}};
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 6}, simplify(track, 5.0, null, null));
+        assertArrayEquals(new int[]{0, 1, 2, 6}, simplify(track, 5.0, 4, null));
+    }
+
+    // Punkty w metrach (x na wschód, y na północ) wokół punktu 0,0
+    private static int[] simplify(double[][] xy, Double toleranceM, Integer maxPoints, boolean[] keep) {
+        double[] lat = new double[xy.length];
+        double[] lon = new double[xy.length];
+        for (int i = 0; i < xy.length; i++) {
+            lon[i] = xy[i][0] / M_PER_DEG;
+            lat[i] = xy[i][1] / M_PER_DEG;
+        }
+        return TrackSimplifier.simplify(lat, lon, xy.length, toleranceM, maxPoints, keep);
+    }
+}